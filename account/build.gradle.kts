@@ -2,11 +2,13 @@ plugins {
     id("org.springframework.boot") version "3.5.4"
     id("io.spring.dependency-management") version "1.1.5"
     id("java")
+    id("me.champeau.jmh") version "0.7.2"
 }
 dependencies {
     implementation("org.springframework.boot:spring-boot-starter-webflux")
     implementation("org.springframework.boot:spring-boot-starter-actuator")
     implementation("io.micrometer:micrometer-tracing-bridge-brave")
+    implementation(project(":common"))
     
     // JPA for database access
     implementation("org.springframework.boot:spring-boot-starter-data-jpa")
@@ -20,6 +22,9 @@ dependencies {
     implementation("io.jsonwebtoken:jjwt-api:0.12.3")
     runtimeOnly("io.jsonwebtoken:jjwt-impl:0.12.3")
     runtimeOnly("io.jsonwebtoken:jjwt-jackson:0.12.3")
+
+    // Verified token cache
+    implementation("com.github.ben-manes.caffeine:caffeine")
     
     // Spring Security
     implementation("org.springframework.boot:spring-boot-starter-security")
@@ -39,6 +44,13 @@ tasks.named<org.springframework.boot.gradle.tasks.run.BootRun>("bootRun") {
     jvmArgs = listOf("-Dreactor.netty.http.server.accessLogEnabled=true")
 }
 
+// ./gradlew :account:jmh
+jmh {
+    warmupIterations.set(2)
+    iterations.set(3)
+    fork.set(1)
+}
+
 tasks.withType<Test> {
     testLogging {
         events("passed", "skipped", "failed")
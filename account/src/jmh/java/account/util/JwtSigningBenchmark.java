@@ -0,0 +1,70 @@
+package account.util;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import javax.crypto.SecretKey;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 登入時簽發 token 的成本：Jwts.builder()（每次重建金鑰，原本 JwtService 的做法）、
+ * Jwts.builder()（共用金鑰）與 JwtSigner 快速路徑。
+ *
+ * <pre>./gradlew :account:jmh</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JwtSigningBenchmark {
+
+  private static final String SECRET = "myBenchmarkSecretKeyForJWTTokenGenerationThatIsLongEnough";
+
+  private SecretKey key;
+  private JwtSigner signer;
+
+  @Setup
+  public void setUp() {
+    key = Keys.hmacShaKeyFor(SECRET.getBytes());
+    signer = new JwtSigner(key);
+  }
+
+  @Benchmark
+  public String builderWithNewKey() {
+    long now = System.currentTimeMillis();
+    return Jwts.builder()
+        .subject("usr_benchmark")
+        .claim("email", "bench@example.com")
+        .claim("username", "bench")
+        .issuedAt(new Date(now))
+        .expiration(new Date(now + 3_600_000))
+        .signWith(Keys.hmacShaKeyFor(SECRET.getBytes()))
+        .compact();
+  }
+
+  @Benchmark
+  public String builderWithSharedKey() {
+    long now = System.currentTimeMillis();
+    return Jwts.builder()
+        .subject("usr_benchmark")
+        .claim("email", "bench@example.com")
+        .claim("username", "bench")
+        .issuedAt(new Date(now))
+        .expiration(new Date(now + 3_600_000))
+        .signWith(key)
+        .compact();
+  }
+
+  @Benchmark
+  public String fastPath() {
+    long now = System.currentTimeMillis() / 1000;
+    return signer.sign("usr_benchmark", "bench@example.com", "bench", now, now + 3600);
+  }
+}
@@ -0,0 +1,53 @@
+package account.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 比較 JwtAuthenticationFilter 原本的驗證流程（每個請求解析五次）、單次解析，以及命中快取的成本。
+ *
+ * <pre>./gradlew :account:jmh</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JwtVerificationBenchmark {
+
+  private JwtUtil jwtUtil;
+  private VerifiedTokenCache cache;
+  private String token;
+
+  @Setup
+  public void setUp() {
+    jwtUtil = new JwtUtil("myBenchmarkSecretKeyForJWTTokenGenerationThatIsLongEnough", 3600);
+    cache = new VerifiedTokenCache(10_000);
+    token = jwtUtil.generateToken("usr_benchmark", "bench@example.com", "bench");
+    cache.get(token, jwtUtil::verify);
+  }
+
+  @Benchmark
+  public void legacyFivePasses(Blackhole bh) {
+    String userId = jwtUtil.extractUserId(token);
+    bh.consume(jwtUtil.validateToken(token, userId));
+    bh.consume(jwtUtil.extractEmail(token));
+    bh.consume(jwtUtil.extractUsername(token));
+  }
+
+  @Benchmark
+  public VerifiedToken singlePass() {
+    return jwtUtil.verify(token);
+  }
+
+  @Benchmark
+  public VerifiedToken cachedHit() {
+    return cache.get(token, jwtUtil::verify);
+  }
+}
@@ -0,0 +1,37 @@
+package account.config;
+
+import account.util.JwtSigner;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.crypto.SecretKey;
+
+/**
+ * JWT 金鑰、parser 與 signer 只在啟動時建立一次，JwtUtil 與 JwtService 共用。
+ * JwtParser 與 JwtSigner 皆為 thread-safe。
+ */
+@Configuration
+public class JwtConfig {
+
+  @Bean
+  public SecretKey jwtSigningKey(
+      @Value("${jwt.secret:mySecretKeyForJWTTokenGenerationThatIsLongEnough}") String secret) {
+    return Keys.hmacShaKeyFor(secret.getBytes());
+  }
+
+  @Bean
+  public JwtParser jwtParser(SecretKey jwtSigningKey) {
+    return Jwts.parser()
+        .verifyWith(jwtSigningKey)
+        .build();
+  }
+
+  @Bean
+  public JwtSigner jwtSigner(SecretKey jwtSigningKey) {
+    return new JwtSigner(jwtSigningKey);
+  }
+}
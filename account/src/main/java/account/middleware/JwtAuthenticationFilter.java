@@ -1,11 +1,15 @@
 package account.middleware;
 
 import account.util.JwtUtil;
+import account.util.VerifiedToken;
+import account.util.VerifiedTokenCache;
+import common.http.TrustedHeaders;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -21,6 +25,11 @@ import java.util.ArrayList;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
   private final JwtUtil jwtUtil;
+  private final VerifiedTokenCache verifiedTokenCache;
+
+  // 只有在服務僅能經由 gateway 存取時才可開啟：gateway 已驗證 JWT 並以 TrustedHeaders 轉發用戶資訊
+  @Value("${jwt.trust-gateway-headers:false}")
+  private boolean trustGatewayHeaders;
 
   @Override
   protected void doFilterInternal(
@@ -28,9 +37,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
       @NonNull HttpServletResponse response,
       @NonNull FilterChain filterChain) throws ServletException, IOException {
 
+    if (trustGatewayHeaders && authenticateFromGatewayHeaders(request)) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+
     final String authHeader = request.getHeader("Authorization");
     final String jwt;
-    final String userId;
 
     // 如果沒有Authorization header或不是Bearer token，繼續執行
     if (authHeader == null || !authHeader.startsWith("Bearer ")) {
@@ -41,27 +54,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     jwt = authHeader.substring(7);
 
     try {
-      userId = jwtUtil.extractUserId(jwt);
-
-      // 如果token有效且用戶未認證
-      if (userId != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-
-        // 驗證token
-        if (jwtUtil.validateToken(jwt, userId)) {
-          // 創建認證對象
-          UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-              userId,
-              null,
-              new ArrayList<>());
-          authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-
-          // 設置到SecurityContext
-          SecurityContextHolder.getContext().setAuthentication(authToken);
-
-          // 將用戶資訊添加到request attributes
-          request.setAttribute("userId", userId);
-          request.setAttribute("email", jwtUtil.extractEmail(jwt));
-          request.setAttribute("username", jwtUtil.extractUsername(jwt));
+      // 如果用戶未認證才驗證token（每個請求最多驗證一次簽章，重複的token直接命中快取）
+      if (SecurityContextHolder.getContext().getAuthentication() == null) {
+        VerifiedToken verified = verifiedTokenCache.get(jwt, jwtUtil::verify);
+        String userId = verified.userId();
+
+        if (userId != null && !verified.isExpired(System.currentTimeMillis())) {
+          authenticate(request, userId, verified.email(), verified.username());
         }
       }
     } catch (Exception e) {
@@ -71,4 +70,32 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     filterChain.doFilter(request, response);
   }
+
+  private boolean authenticateFromGatewayHeaders(HttpServletRequest request) {
+    String userId = request.getHeader(TrustedHeaders.USER_ID);
+    if (userId == null || SecurityContextHolder.getContext().getAuthentication() != null) {
+      return false;
+    }
+    authenticate(request, userId,
+        request.getHeader(TrustedHeaders.USER_EMAIL),
+        request.getHeader(TrustedHeaders.USER_NAME));
+    return true;
+  }
+
+  private void authenticate(HttpServletRequest request, String userId, String email, String username) {
+    // 創建認證對象
+    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+        userId,
+        null,
+        new ArrayList<>());
+    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+
+    // 設置到SecurityContext
+    SecurityContextHolder.getContext().setAuthentication(authToken);
+
+    // 將用戶資訊添加到request attributes
+    request.setAttribute("userId", userId);
+    request.setAttribute("email", email);
+    request.setAttribute("username", username);
+  }
 }
\ No newline at end of file
@@ -1,34 +1,36 @@
 package account.service;
 
 import account.model.User;
+import account.util.JwtSigner;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
-import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Map;
 
 @Service
 public class JwtService {
 
-  @Value("${jwt.secret:mySecretKeyForJWTTokenGenerationThatShouldBeLongEnough}")
-  private String secretKey;
-
-  @Value("${jwt.expiration:3600}")
-  private long jwtExpiration;
+  private final SecretKey signingKey;
+  private final JwtParser jwtParser;
+  private final JwtSigner jwtSigner;
+  private final long jwtExpiration;
+
+  public JwtService(SecretKey jwtSigningKey, JwtParser jwtParser, JwtSigner jwtSigner,
+      @Value("${jwt.expiration:3600}") long jwtExpiration) {
+    this.signingKey = jwtSigningKey;
+    this.jwtParser = jwtParser;
+    this.jwtSigner = jwtSigner;
+    this.jwtExpiration = jwtExpiration;
+  }
 
   public String generateToken(User user) {
-    Map<String, Object> extraClaims = new HashMap<>();
-    extraClaims.put("username", user.getUsername());
-    extraClaims.put("email", user.getEmail());
-
-    return generateToken(extraClaims, user.getId());
+    long now = System.currentTimeMillis() / 1000;
+    return jwtSigner.sign(user.getId(), user.getEmail(), user.getUsername(), now, now + jwtExpiration);
   }
 
   public String generateToken(Map<String, Object> extraClaims, String subject) {
@@ -37,21 +39,13 @@ public class JwtService {
         .subject(subject)
         .issuedAt(new Date(System.currentTimeMillis()))
         .expiration(new Date(System.currentTimeMillis() + jwtExpiration * 1000))
-        .signWith(getSignInKey())
+        .signWith(signingKey)
         .compact();
   }
 
   public boolean isTokenValid(String token, String userId) {
-    final String extractedUserId = extractUserId(token);
-    return (extractedUserId.equals(userId)) && !isTokenExpired(token);
-  }
-
-  private boolean isTokenExpired(String token) {
-    return extractExpiration(token).before(new Date());
-  }
-
-  private Date extractExpiration(String token) {
-    return extractClaim(token, Claims::getExpiration);
+    final Claims claims = extractAllClaims(token);
+    return claims.getSubject().equals(userId) && !claims.getExpiration().before(new Date());
   }
 
   public String extractUserId(String token) {
@@ -72,14 +66,8 @@ public class JwtService {
   }
 
   private Claims extractAllClaims(String token) {
-    return Jwts.parser()
-        .verifyWith(getSignInKey())
-        .build()
+    return jwtParser
         .parseSignedClaims(token)
         .getPayload();
   }
-
-  private SecretKey getSignInKey() {
-    return Keys.hmacShaKeyFor(secretKey.getBytes());
-  }
 }
\ No newline at end of file
@@ -1,50 +1,63 @@
 package account.util;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
-import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 import java.util.Date;
 
 @Component
 public class JwtUtil {
 
-  private final SecretKey secretKey;
+  private final JwtParser jwtParser;
+  private final JwtSigner jwtSigner;
   private final long expirationTime;
 
-  public JwtUtil(@Value("${jwt.secret:mySecretKeyForJWTTokenGenerationThatIsLongEnough}") String secret,
+  @Autowired
+  public JwtUtil(JwtParser jwtParser, JwtSigner jwtSigner,
       @Value("${jwt.expiration:3600}") long expirationTime) {
-    this.secretKey = Keys.hmacShaKeyFor(secret.getBytes());
+    this.jwtParser = jwtParser;
+    this.jwtSigner = jwtSigner;
     this.expirationTime = expirationTime;
   }
 
-  public String generateToken(String userId, String email, String username) {
-    Instant now = Instant.now();
-    Instant expiration = now.plus(expirationTime, ChronoUnit.SECONDS);
+  public JwtUtil(String secret, long expirationTime) {
+    this(Keys.hmacShaKeyFor(secret.getBytes()), expirationTime);
+  }
 
-    return Jwts.builder()
-        .subject(userId)
-        .claim("email", email)
-        .claim("username", username)
-        .issuedAt(Date.from(now))
-        .expiration(Date.from(expiration))
-        .signWith(secretKey)
-        .compact();
+  private JwtUtil(SecretKey secretKey, long expirationTime) {
+    this(Jwts.parser().verifyWith(secretKey).build(), new JwtSigner(secretKey), expirationTime);
+  }
+
+  public String generateToken(String userId, String email, String username) {
+    long now = System.currentTimeMillis() / 1000;
+    return jwtSigner.sign(userId, email, username, now, now + expirationTime);
   }
 
   public Claims extractClaims(String token) {
-    return Jwts.parser()
-        .verifyWith(secretKey)
-        .build()
+    return jwtParser
         .parseSignedClaims(token)
         .getPayload();
   }
 
+  /**
+   * 只解析並驗證一次簽章，回傳 filter 需要的所有欄位。
+   */
+  public VerifiedToken verify(String token) {
+    Claims claims = extractClaims(token);
+    Date expiration = claims.getExpiration();
+    return new VerifiedToken(
+        claims.getSubject(),
+        claims.get("email", String.class),
+        claims.get("username", String.class),
+        expiration != null ? expiration.getTime() : 0L);
+  }
+
   public String extractUserId(String token) {
     return extractClaims(token).getSubject();
   }
@@ -62,6 +75,7 @@ public class JwtUtil {
   }
 
   public boolean validateToken(String token, String userId) {
-    return extractUserId(token).equals(userId) && !isTokenExpired(token);
+    Claims claims = extractClaims(token);
+    return claims.getSubject().equals(userId) && !claims.getExpiration().before(new Date());
   }
 }
\ No newline at end of file
@@ -0,0 +1,11 @@
+package account.util;
+
+/**
+ * 已驗證過簽章的 JWT 內容，只保留 filter 需要的欄位。
+ */
+public record VerifiedToken(String userId, String email, String username, long expiresAtMillis) {
+
+  public boolean isExpired(long nowMillis) {
+    return nowMillis >= expiresAtMillis;
+  }
+}
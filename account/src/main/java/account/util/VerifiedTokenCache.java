@@ -0,0 +1,94 @@
+package account.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 已驗證 token 的快取，key 為 token 的 SHA-256 digest，entry 在 token 的 exp 到期時移除。
+ * 同一個 token 重複呼叫時可以跳過 HMAC 驗證與 JSON 解析。
+ */
+@Component
+public class VerifiedTokenCache {
+
+  private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  });
+
+  private final Cache<TokenDigest, VerifiedToken> cache;
+
+  public VerifiedTokenCache(@Value("${jwt.cache.max-size:100000}") long maxSize) {
+    this.cache = Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfter(new ExpireAtTokenExpiry())
+        .build();
+  }
+
+  /**
+   * 命中快取時直接回傳，否則呼叫 verifier 驗證後放入快取。verifier 丟出的例外不會被快取。
+   */
+  public VerifiedToken get(String token, Function<String, VerifiedToken> verifier) {
+    TokenDigest key = TokenDigest.of(token);
+    VerifiedToken cached = cache.getIfPresent(key);
+    if (cached != null && !cached.isExpired(System.currentTimeMillis())) {
+      return cached;
+    }
+
+    VerifiedToken verified = verifier.apply(token);
+    cache.put(key, verified);
+    return verified;
+  }
+
+  public long size() {
+    return cache.estimatedSize();
+  }
+
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  private record TokenDigest(long a, long b, long c, long d) {
+
+    static TokenDigest of(String token) {
+      MessageDigest digest = SHA_256.get();
+      ByteBuffer hash = ByteBuffer.wrap(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+      return new TokenDigest(hash.getLong(), hash.getLong(), hash.getLong(), hash.getLong());
+    }
+  }
+
+  private static final class ExpireAtTokenExpiry implements Expiry<TokenDigest, VerifiedToken> {
+
+    @Override
+    public long expireAfterCreate(TokenDigest key, VerifiedToken value, long currentTime) {
+      return remainingNanos(value);
+    }
+
+    @Override
+    public long expireAfterUpdate(TokenDigest key, VerifiedToken value, long currentTime, long currentDuration) {
+      return remainingNanos(value);
+    }
+
+    @Override
+    public long expireAfterRead(TokenDigest key, VerifiedToken value, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+
+    private static long remainingNanos(VerifiedToken value) {
+      long remainingMillis = value.expiresAtMillis() - System.currentTimeMillis();
+      return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package account.util;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("JWT Signer Tests")
+class JwtSignerTest {
+
+  private final long issuedAt = System.currentTimeMillis() / 1000;
+
+  private SecretKey key;
+  private JwtSigner signer;
+  private JwtParser parser;
+
+  @BeforeEach
+  void setUp() {
+    key = Keys.hmacShaKeyFor("myTestSecretKeyForJWTTokenGenerationThatIsLongEnough".getBytes());
+    signer = new JwtSigner(key);
+    parser = Jwts.parser().verifyWith(key).build();
+  }
+
+  @Test
+  @DisplayName("快速簽發的token應可由JJWT parser驗證")
+  void shouldBeParsableByJjwt() {
+    String token = signer.sign("usr_123456", "test@example.com", "testuser", issuedAt, issuedAt + 3600);
+
+    Claims claims = parser.parseSignedClaims(token).getPayload();
+
+    assertEquals("usr_123456", claims.getSubject());
+    assertEquals("test@example.com", claims.get("email", String.class));
+    assertEquals("testuser", claims.get("username", String.class));
+    assertEquals(issuedAt * 1000, claims.getIssuedAt().getTime());
+    assertEquals((issuedAt + 3600) * 1000, claims.getExpiration().getTime());
+  }
+
+  @Test
+  @DisplayName("header演算法應與Jwts.builder()一致")
+  void shouldUseSameAlgorithmAsBuilder() {
+    String fast = signer.sign("usr_123456", null, null, issuedAt, issuedAt + 3600);
+    String builder = Jwts.builder().subject("usr_123456").signWith(key).compact();
+
+    assertEquals(
+        parser.parseSignedClaims(builder).getHeader().getAlgorithm(),
+        parser.parseSignedClaims(fast).getHeader().getAlgorithm());
+  }
+
+  @Test
+  @DisplayName("特殊字元應正確跳脫")
+  void shouldEscapeSpecialCharacters() {
+    String username = "quote\"back\\slash\nnew\u0001line";
+    String token = signer.sign("usr_123456", "test@example.com", username, issuedAt, issuedAt + 3600);
+
+    Claims claims = parser.parseSignedClaims(token).getPayload();
+
+    assertEquals(username, claims.get("username", String.class));
+  }
+
+  @Test
+  @DisplayName("null欄位不應寫入claims")
+  void shouldOmitNullClaims() {
+    String token = signer.sign("usr_123456", null, "testuser", issuedAt, issuedAt + 3600);
+
+    Claims claims = parser.parseSignedClaims(token).getPayload();
+
+    assertFalse(claims.containsKey("email"));
+    assertEquals("testuser", claims.get("username", String.class));
+  }
+}
@@ -0,0 +1,97 @@
+package account.util;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Verified Token Cache Tests")
+class VerifiedTokenCacheTest {
+
+  private JwtUtil jwtUtil;
+  private VerifiedTokenCache cache;
+  private AtomicInteger verifications;
+  private Function<String, VerifiedToken> countingVerifier;
+
+  @BeforeEach
+  void setUp() {
+    jwtUtil = new JwtUtil("myTestSecretKeyForJWTTokenGenerationThatIsLongEnough", 3600);
+    cache = new VerifiedTokenCache(100);
+    verifications = new AtomicInteger();
+    countingVerifier = token -> {
+      verifications.incrementAndGet();
+      return jwtUtil.verify(token);
+    };
+  }
+
+  @Test
+  @DisplayName("單次驗證應取得所有欄位")
+  void shouldVerifyAllClaimsInOnePass() {
+    String token = jwtUtil.generateToken("usr_123456", "test@example.com", "testuser");
+
+    VerifiedToken verified = jwtUtil.verify(token);
+
+    assertEquals("usr_123456", verified.userId());
+    assertEquals("test@example.com", verified.email());
+    assertEquals("testuser", verified.username());
+    assertFalse(verified.isExpired(System.currentTimeMillis()));
+  }
+
+  @Test
+  @DisplayName("同一個token第二次應命中快取，不再驗證簽章")
+  void shouldSkipVerificationOnCacheHit() {
+    String token = jwtUtil.generateToken("usr_123456", "test@example.com", "testuser");
+
+    VerifiedToken first = cache.get(token, countingVerifier);
+    VerifiedToken second = cache.get(token, countingVerifier);
+
+    assertEquals(1, verifications.get());
+    assertSame(first, second);
+  }
+
+  @Test
+  @DisplayName("不同token不應共用快取")
+  void shouldNotShareEntriesBetweenTokens() {
+    String tokenA = jwtUtil.generateToken("usr_a", "a@example.com", "usera");
+    String tokenB = jwtUtil.generateToken("usr_b", "b@example.com", "userb");
+
+    assertEquals("usr_a", cache.get(tokenA, countingVerifier).userId());
+    assertEquals("usr_b", cache.get(tokenB, countingVerifier).userId());
+    assertEquals(2, verifications.get());
+  }
+
+  @Test
+  @DisplayName("已過期的token不應被快取")
+  void shouldNotServeExpiredToken() {
+    VerifiedToken expired = new VerifiedToken("usr_123456", "test@example.com", "testuser",
+        System.currentTimeMillis() - 1);
+
+    cache.get("expired.token.value", token -> {
+      verifications.incrementAndGet();
+      return expired;
+    });
+    cache.get("expired.token.value", token -> {
+      verifications.incrementAndGet();
+      return expired;
+    });
+
+    assertEquals(2, verifications.get());
+  }
+
+  @Test
+  @DisplayName("驗證失敗時不應寫入快取")
+  void shouldNotCacheVerificationFailure() {
+    String expiredToken = new JwtUtil("myTestSecretKeyForJWTTokenGenerationThatIsLongEnough", -1)
+        .generateToken("usr_123456", "test@example.com", "testuser");
+
+    assertThrows(ExpiredJwtException.class, () -> cache.get(expiredToken, countingVerifier));
+    assertThrows(ExpiredJwtException.class, () -> cache.get(expiredToken, countingVerifier));
+    assertEquals(2, verifications.get());
+    assertEquals(0, cache.size());
+  }
+}
@@ -1,3 +1,11 @@
 ﻿plugins {
     `java-library`
+    id("me.champeau.jmh") version "0.7.2"
 }
+
+// ./gradlew :common:jmh
+jmh {
+    warmupIterations.set(2)
+    iterations.set(3)
+    fork.set(1)
+}
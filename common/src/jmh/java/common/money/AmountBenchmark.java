@@ -0,0 +1,74 @@
+package common.money;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 金額 parse / add / format：BigDecimal（原本 wallet 的做法）與 FixedPoint（long + byte[]）的對照。
+ *
+ * <pre>./gradlew :common:jmh</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AmountBenchmark {
+
+    private static final int SCALE = 8;
+    private static final String TEXT = "30123.45678901";
+
+    private byte[] textBytes;
+    private byte[] out;
+    private BigDecimal decimalA;
+    private BigDecimal decimalB;
+    private long unitsA;
+    private long unitsB;
+
+    @Setup
+    public void setUp() {
+        textBytes = TEXT.getBytes(StandardCharsets.US_ASCII);
+        out = new byte[FixedPoint.MAX_FORMATTED_LENGTH];
+        decimalA = new BigDecimal(TEXT).setScale(SCALE);
+        decimalB = new BigDecimal("0.12345678").setScale(SCALE);
+        unitsA = FixedPoint.parse(textBytes, 0, textBytes.length, SCALE);
+        unitsB = FixedPoint.parse("0.12345678", SCALE);
+    }
+
+    @Benchmark
+    public BigDecimal parseBigDecimal() {
+        return new BigDecimal(new String(textBytes, StandardCharsets.US_ASCII)).setScale(SCALE);
+    }
+
+    @Benchmark
+    public long parseFixedPoint() {
+        return FixedPoint.parse(textBytes, 0, textBytes.length, SCALE);
+    }
+
+    @Benchmark
+    public BigDecimal addBigDecimal() {
+        return decimalA.add(decimalB);
+    }
+
+    @Benchmark
+    public long addFixedPoint() {
+        return FixedPoint.add(unitsA, unitsB);
+    }
+
+    @Benchmark
+    public byte[] formatBigDecimal() {
+        return decimalA.toPlainString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Benchmark
+    public int formatFixedPoint() {
+        return FixedPoint.format(unitsA, SCALE, out, 0);
+    }
+}
@@ -0,0 +1,18 @@
+package common.http;
+
+/**
+ * Gateway 驗證 JWT 後轉發給下游服務的使用者資訊 header。
+ * Gateway 會先移除外部請求帶入的同名 header，因此下游只有在經由 gateway 時才能信任這些值。
+ */
+public final class TrustedHeaders {
+
+    public static final String USER_ID = "X-User-Id";
+    public static final String USER_EMAIL = "X-User-Email";
+    public static final String USER_NAME = "X-User-Name";
+
+    /** 服務之間直接呼叫（不經 gateway）時的共用憑證，例如 order 呼叫 wallet 的結算 */
+    public static final String SERVICE_TOKEN = "X-Service-Token";
+
+    private TrustedHeaders() {
+    }
+}
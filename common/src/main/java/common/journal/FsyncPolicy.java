@@ -0,0 +1,20 @@
+package common.journal;
+
+/**
+ * {@link MappedLog#flush()} 何時把寫入的範圍 force 到磁碟。寫入映射區後即在 OS page cache 中，
+ * 三種設定下程序崩潰都不會遺失已寫入的紀錄，差別只在主機斷電時。
+ */
+public enum FsyncPolicy {
+
+    /** 不主動 fsync，由 OS 決定何時寫回 */
+    NONE,
+
+    /** 每批 fsync 一次（group commit），flush 返回後斷電也不遺失 */
+    BATCH,
+
+    /**
+     * 距離上次 fsync 超過間隔時，才把累積的範圍一次 fsync；斷電最多遺失最後一個間隔內的紀錄。
+     * 閒置時需由寫入端定期呼叫 {@link MappedLog#forceIfDue()}，否則最後一批要等到下一次寫入或關閉才 fsync。
+     */
+    INTERVAL
+}
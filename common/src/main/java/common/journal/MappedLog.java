@@ -0,0 +1,470 @@
+package common.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * 分段、memory-mapped 的 append-only 紀錄檔，wallet 的餘額 journal 與 order 的指令 journal 共用這個格式，
+ * 只有 magic 與 payload 的編碼（{@link RecordCodec}）不同。
+ *
+ * <p>目錄下的每個 segment 為固定大小的檔案（{@code 00000000000000000001.seg}），整個映射進記憶體，
+ * 紀錄依序直接寫進映射區：
+ * <pre>
+ * segment header: magic(int) version(int) segmentIndex(long) firstId(long)
+ * record:         length(int) crc32c(int) payload(length bytes)
+ * payload:        id(long) 之後由 codec 編碼
+ * </pre>
+ * id 須遞增。length 為 0 表示 segment 在此結束，每筆紀錄之後都寫一個結尾標記（下一筆寫入時覆蓋）。
+ * 寫入時先寫 payload 與 crc，最後才寫 length，重播時 crc 不符、長度越界或 id 沒有遞增的紀錄視為寫到一半，
+ * 只允許出現在最後一個 segment 的結尾。
+ *
+ * <p>紀錄的位置為 {@code segmentIndex << 32 | offset}，依寫入順序遞增；{@link #read} 可以直接從映射區讀回一筆，
+ * 呼叫端只需保存位置而不是紀錄本身。
+ *
+ * <p>一批紀錄寫完後呼叫一次 {@link #flush()}，依 {@link FsyncPolicy} 對這一批（或累積的）範圍 force 一次。
+ * 只由單一執行緒使用，不是 thread-safe。
+ */
+public final class MappedLog<T> implements Closeable {
+
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 24;
+    public static final int RECORD_HEADER_SIZE = 8;
+    public static final int MIN_SEGMENT_SIZE = 1 << 20;
+    static final String SUFFIX = ".seg";
+
+    private final Path dir;
+    private final int magic;
+    private final int segmentSize;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalNanos;
+    private final RecordCodec<T> codec;
+    private final CRC32C crc = new CRC32C();
+
+    /** 已封存（不再寫入）的 segment，依 index 排序 */
+    private final List<Segment> sealed = new ArrayList<>();
+    private Segment active;
+    private long nextSegmentIndex = 1;
+
+    /** active segment 中尚未 force 的起點 */
+    private int dirtyFrom = -1;
+    private long lastFsync = System.nanoTime();
+    private boolean replayed;
+    private long lastId;
+
+    /** 上次 flush 之後第一筆紀錄所在的 segment、位置與寫入前的 lastId，供 {@link #discardUnflushed()} 撤回 */
+    private Segment batchSegment;
+    private int batchPosition;
+    private long batchLastId;
+
+    /**
+     * @param magic         segment header 的第一個 int，區分不同用途的紀錄檔
+     * @param fsyncInterval {@link FsyncPolicy#INTERVAL} 的間隔（奈秒），其他設定時忽略
+     */
+    public MappedLog(Path dir, int magic, int segmentSize, FsyncPolicy fsyncPolicy, long fsyncInterval,
+            RecordCodec<T> codec) throws IOException {
+        if (segmentSize < MIN_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("segmentSize must be at least " + MIN_SEGMENT_SIZE);
+        }
+        this.dir = dir;
+        this.magic = magic;
+        this.segmentSize = segmentSize;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalNanos = fsyncInterval;
+        this.codec = codec;
+        Files.createDirectories(dir);
+    }
+
+    /** 寫入映射區，{@link #flush()} 之後依 fsync 設定持久化；回傳紀錄的位置 */
+    public long append(long id, T value) throws IOException {
+        if (!replayed) {
+            // 沒有重播就寫入會覆蓋既有資料
+            replay(e -> {
+            });
+        }
+        int payloadSize = 8 + codec.size(value);
+        if (active == null || active.position + RECORD_HEADER_SIZE + payloadSize > active.buffer.capacity()) {
+            roll(id, payloadSize);
+        }
+        MappedByteBuffer buffer = active.buffer;
+        int start = active.position;
+        if (batchSegment == null) {
+            batchSegment = active;
+            batchPosition = start;
+            batchLastId = lastId;
+        }
+        int payloadStart = start + RECORD_HEADER_SIZE;
+        buffer.putLong(payloadStart, id);
+        int end = codec.write(buffer, payloadStart + 8, value);
+
+        crc.reset();
+        buffer.limit(end).position(payloadStart);
+        crc.update(buffer);
+        buffer.clear();
+        buffer.putInt(start + 4, (int) crc.getValue());
+        // 之後可能是撤回的紀錄，不能讓重播接著讀下去
+        if (end + 4 <= buffer.capacity()) {
+            buffer.putInt(end, 0);
+        }
+        buffer.putInt(start, end - payloadStart);
+
+        if (dirtyFrom < 0) {
+            dirtyFrom = start;
+        }
+        active.position = end;
+        lastId = id;
+        return position(active, start);
+    }
+
+    /** 讀取 {@link #append} 或重播時得到的位置上的紀錄；所在的 segment 已刪除時為 null */
+    public T read(long position) {
+        Segment segment = segment(position >>> 32);
+        if (segment == null) {
+            return null;
+        }
+        int offset = (int) position;
+        int length = segment.buffer.getInt(offset);
+        int payloadStart = offset + RECORD_HEADER_SIZE;
+        return codec.read(segment.buffer, payloadStart + 8, length - 8, segment.buffer.getLong(payloadStart));
+    }
+
+    /** 最舊的 segment（{@link #deleteBefore} 之後仍保留的）第一筆紀錄的位置，位置小於此值的紀錄已不存在 */
+    public long firstPosition() {
+        Segment first = !sealed.isEmpty() ? sealed.get(0) : active;
+        return first == null ? 0 : position(first, HEADER_SIZE);
+    }
+
+    /**
+     * 一批紀錄寫完後呼叫一次；失敗時這一批可用 {@link #discardUnflushed()} 撤回。
+     * {@link MappedByteBuffer#force} 失敗時丟出的 {@link UncheckedIOException} 轉為 {@link IOException}。
+     */
+    public void flush() throws IOException {
+        if (dirtyFrom >= 0) {
+            try {
+                switch (fsyncPolicy) {
+                    case NONE -> dirtyFrom = -1;
+                    case BATCH -> force();
+                    case INTERVAL -> {
+                        if (System.nanoTime() - lastFsync >= fsyncIntervalNanos) {
+                            force();
+                        }
+                    }
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        batchSegment = null;
+    }
+
+    /**
+     * 撤回上次 {@link #flush()} 成功之後寫入的紀錄，在 flush 失敗時呼叫：這一批的範圍清為 0，
+     * 換檔產生的 segment 一併刪除，重播不會讀到這些紀錄，之後的寫入接在前一批之後。
+     */
+    public void discardUnflushed() throws IOException {
+        if (batchSegment == null) {
+            return;
+        }
+        while (active != batchSegment) {
+            active.channel.close();
+            Files.deleteIfExists(active.file);
+            nextSegmentIndex = active.index;
+            active = sealed.remove(sealed.size() - 1);
+            dirtyFrom = -1;
+        }
+        MappedByteBuffer buffer = active.buffer;
+        for (int i = batchPosition, end = active.position; i < end; i++) {
+            buffer.put(i, (byte) 0);
+        }
+        if (batchPosition + 4 <= buffer.capacity()) {
+            buffer.putInt(batchPosition, 0);
+        }
+        active.position = batchPosition;
+        // 結尾標記隨下一次 force 寫到磁碟
+        dirtyFrom = dirtyFrom < 0 ? batchPosition : Math.min(dirtyFrom, batchPosition);
+        lastId = batchLastId;
+        batchSegment = null;
+    }
+
+    /**
+     * {@link FsyncPolicy#INTERVAL} 下沒有新紀錄時由寫入的執行緒定期呼叫：最後一批寫入後若已超過間隔仍未 force，
+     * 在此 force，閒置的紀錄檔不會讓最後一批一直只在 page cache 中。其他設定時不做事。
+     */
+    public void forceIfDue() {
+        if (fsyncPolicy == FsyncPolicy.INTERVAL && dirtyFrom >= 0
+                && System.nanoTime() - lastFsync >= fsyncIntervalNanos) {
+            force();
+        }
+    }
+
+    /** 最後一筆紀錄的 id（重播或寫入後），沒有紀錄時為 0 */
+    public long lastId() {
+        return lastId;
+    }
+
+    public void replay(Consumer<T> consumer) throws IOException {
+        replay(Long.MIN_VALUE, consumer);
+    }
+
+    public void replay(long fromId, Consumer<T> consumer) throws IOException {
+        replayWithPosition(fromId, (value, position) -> consumer.accept(value));
+    }
+
+    /**
+     * 只重播 id 不小於 {@code fromId} 的紀錄，連同紀錄的位置。已封存且下一個 segment 的第一筆仍不大於 {@code fromId}
+     * 的 segment 只開啟、不讀取內容，重播的量只與 {@code fromId} 之後的紀錄數有關。
+     */
+    public void replayWithPosition(long fromId, ObjLongConsumer<T> consumer) throws IOException {
+        closeSegments();
+        List<Segment> segments = new ArrayList<>();
+        try {
+            for (Path file : segmentFiles()) {
+                segments.add(open(file));
+            }
+        } catch (IOException e) {
+            for (Segment segment : segments) {
+                segment.channel.close();
+            }
+            throw e;
+        }
+        // 紀錄的 id 可以從 0 開始
+        lastId = Long.MIN_VALUE;
+        for (int i = 0; i < segments.size(); i++) {
+            boolean last = i == segments.size() - 1;
+            Segment segment = segments.get(i);
+            if (!last && segments.get(i + 1).firstId <= fromId) {
+                sealed.add(segment);
+                nextSegmentIndex = segment.index + 1;
+                continue;
+            }
+            if (last) {
+                // 剛換檔、還沒寫入紀錄的 segment
+                lastId = Math.max(lastId, segment.firstId - 1);
+            }
+            int end = replaySegment(segment, fromId, consumer, last);
+            segment.position = end;
+            if (last) {
+                active = segment;
+                // 截掉寫到一半的紀錄，之後的寫入接在最後一筆完整紀錄之後
+                if (end + RECORD_HEADER_SIZE <= segment.buffer.capacity() && segment.buffer.getInt(end) != 0) {
+                    segment.buffer.putInt(end, 0);
+                    segment.buffer.force(end, RECORD_HEADER_SIZE);
+                }
+            } else {
+                sealed.add(segment);
+            }
+            nextSegmentIndex = segment.index + 1;
+        }
+        lastId = Math.max(lastId, 0);
+        replayed = true;
+    }
+
+    /**
+     * 刪除所有紀錄的 id 都小於 {@code id} 的已封存 segment，回傳刪除的個數。
+     * 呼叫前必須已有涵蓋這些紀錄的快照，否則重播會少算。
+     */
+    public int deleteBefore(long id) throws IOException {
+        int deleted = 0;
+        while (!sealed.isEmpty()) {
+            Segment next = sealed.size() > 1 ? sealed.get(1) : active;
+            // 下一個 segment 的第一筆 >= id 時，這個 segment 仍可能含有需要的紀錄
+            if (next == null || next.firstId > id) {
+                break;
+            }
+            Segment oldest = sealed.remove(0);
+            oldest.channel.close();
+            Files.deleteIfExists(oldest.file);
+            deleted++;
+        }
+        return deleted;
+    }
+
+    /** 目前的 segment 數（含 active），供監控與測試 */
+    public int segmentCount() {
+        return sealed.size() + (active != null ? 1 : 0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (active != null && fsyncPolicy != FsyncPolicy.NONE) {
+            active.buffer.force();
+        }
+        closeSegments();
+    }
+
+    private void force() {
+        // 連同最後一筆之後的結尾標記
+        int end = Math.min(active.position + 4, active.buffer.capacity());
+        active.buffer.force(dirtyFrom, end - dirtyFrom);
+        dirtyFrom = -1;
+        lastFsync = System.nanoTime();
+    }
+
+    // ---- segment ----
+
+    private void roll(long firstId, int payloadSize) throws IOException {
+        if (HEADER_SIZE + RECORD_HEADER_SIZE + payloadSize > segmentSize) {
+            throw new IOException("journal record of " + payloadSize + " bytes exceeds segment size");
+        }
+        if (active != null) {
+            // 明確寫入結尾標記，重播時不會把之前崩潰留下的殘缺資料讀成紀錄
+            if (active.position + 4 <= active.buffer.capacity()) {
+                active.buffer.putInt(active.position, 0);
+            }
+            // 封存前把尚未 force 的部分寫到磁碟
+            if (fsyncPolicy != FsyncPolicy.NONE) {
+                try {
+                    active.buffer.force();
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                lastFsync = System.nanoTime();
+            }
+            dirtyFrom = -1;
+            sealed.add(active);
+        }
+        long index = nextSegmentIndex++;
+        Path file = dir.resolve(String.format("%020d%s", index, SUFFIX));
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        buffer.putInt(0, magic);
+        buffer.putInt(4, VERSION);
+        buffer.putLong(8, index);
+        buffer.putLong(16, firstId);
+        active = new Segment(file, channel, buffer, index, firstId);
+        active.position = HEADER_SIZE;
+        dirtyFrom = 0;
+    }
+
+    private Segment open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+            channel.close();
+            throw new IOException("invalid journal segment size: " + file);
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        if (buffer.getInt(0) != magic || buffer.getInt(4) != VERSION) {
+            channel.close();
+            throw new IOException("not a journal segment of this kind: " + file);
+        }
+        return new Segment(file, channel, buffer, buffer.getLong(8), buffer.getLong(16));
+    }
+
+    /** 回傳最後一筆完整紀錄之後的位置 */
+    private int replaySegment(Segment segment, long fromId, ObjLongConsumer<T> consumer, boolean last)
+            throws IOException {
+        MappedByteBuffer buffer = segment.buffer;
+        int capacity = buffer.capacity();
+        int position = HEADER_SIZE;
+        while (position + RECORD_HEADER_SIZE <= capacity) {
+            int length = buffer.getInt(position);
+            if (length == 0) {
+                break;
+            }
+            int payloadStart = position + RECORD_HEADER_SIZE;
+            boolean valid = length >= 8 && length <= capacity - payloadStart;
+            if (valid) {
+                crc.reset();
+                buffer.limit(payloadStart + length).position(payloadStart);
+                crc.update(buffer);
+                buffer.clear();
+                valid = (int) crc.getValue() == buffer.getInt(position + 4);
+            }
+            if (!valid) {
+                if (last) {
+                    break;
+                }
+                throw new IOException("corrupted journal record at " + segment.file + ":" + position);
+            }
+            // id 在 payload 開頭，快照涵蓋的紀錄不解碼
+            long id = buffer.getLong(payloadStart);
+            if (id <= lastId) {
+                if (last) {
+                    break;
+                }
+                throw new IOException("non-increasing journal id " + id + " at " + segment.file + ":" + position);
+            }
+            if (id >= fromId) {
+                consumer.accept(codec.read(buffer, payloadStart + 8, length - 8, id), position(segment, position));
+            }
+            lastId = id;
+            position = payloadStart + length;
+        }
+        return position;
+    }
+
+    private static long position(Segment segment, int offset) {
+        return segment.index << 32 | offset;
+    }
+
+    /** index 對應的 segment（已封存的依 index 排序），不存在時為 null */
+    private Segment segment(long index) {
+        if (active != null && active.index == index) {
+            return active;
+        }
+        int low = 0;
+        int high = sealed.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midIndex = sealed.get(mid).index;
+            if (midIndex < index) {
+                low = mid + 1;
+            } else if (midIndex > index) {
+                high = mid - 1;
+            } else {
+                return sealed.get(mid);
+            }
+        }
+        return null;
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+        }
+    }
+
+    private void closeSegments() throws IOException {
+        for (Segment segment : sealed) {
+            segment.channel.close();
+        }
+        sealed.clear();
+        if (active != null) {
+            active.channel.close();
+            active = null;
+        }
+        dirtyFrom = -1;
+        batchSegment = null;
+    }
+
+    private static final class Segment {
+
+        final Path file;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        final long index;
+        final long firstId;
+        int position;
+
+        Segment(Path file, FileChannel channel, MappedByteBuffer buffer, long index, long firstId) {
+            this.file = file;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.index = index;
+            this.firstId = firstId;
+        }
+    }
+}
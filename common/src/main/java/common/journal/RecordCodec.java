@@ -0,0 +1,75 @@
+package common.journal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link MappedLog} 一種紀錄的編碼。紀錄的 id 由 {@link MappedLog} 寫在 payload 開頭，codec 只處理之後的欄位，
+ * 以絕對位置讀寫 {@link ByteBuffer}（不移動 position）。
+ */
+public interface RecordCodec<T> {
+
+    /** id 之後的 payload 長度 */
+    int size(T value);
+
+    /** 從 {@code position} 開始寫入，回傳結束的位置 */
+    int write(ByteBuffer buffer, int position, T value);
+
+    /** 讀取 {@code position} 開始、長度為 {@code length} 的內容 */
+    T read(ByteBuffer buffer, int position, int length, long id);
+
+    /** 2 byte 長度 + UTF-8；null 以長度 0xFFFF 表示 */
+    static int stringSize(String value) {
+        if (value == null) {
+            return 2;
+        }
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) >= 0x80) {
+                return 2 + value.getBytes(StandardCharsets.UTF_8).length;
+            }
+        }
+        return 2 + length;
+    }
+
+    static int putString(ByteBuffer buffer, int position, String value) {
+        if (value == null) {
+            buffer.putShort(position, (short) 0xFFFF);
+            return position + 2;
+        }
+        int length = value.length();
+        boolean ascii = true;
+        for (int i = 0; i < length && ascii; i++) {
+            ascii = value.charAt(i) < 0x80;
+        }
+        if (ascii) {
+            checkStringLength(length);
+            buffer.putShort(position, (short) length);
+            for (int i = 0; i < length; i++) {
+                buffer.put(position + 2 + i, (byte) value.charAt(i));
+            }
+            return position + 2 + length;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        checkStringLength(bytes.length);
+        buffer.putShort(position, (short) bytes.length);
+        buffer.put(position + 2, bytes);
+        return position + 2 + bytes.length;
+    }
+
+    static String getString(ByteBuffer buffer, int position) {
+        int length = buffer.getShort(position) & 0xFFFF;
+        if (length == 0xFFFF) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(position + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void checkStringLength(int length) {
+        if (length >= 0xFFFF) {
+            throw new IllegalArgumentException("journal string field too long: " + length);
+        }
+    }
+}
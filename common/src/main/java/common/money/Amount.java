@@ -0,0 +1,85 @@
+package common.money;
+
+import java.math.BigDecimal;
+
+/**
+ * 固定小數位金額：{@code units / 10^scale}。
+ *
+ * <p>相同 scale 才能相加減；不同 scale 需先 {@link #rescale}。需要零配置的熱路徑請直接使用 {@link FixedPoint}。
+ */
+public record Amount(long units, int scale) implements Comparable<Amount> {
+
+    public Amount {
+        if (scale < 0 || scale > FixedPoint.MAX_SCALE) {
+            throw new IllegalArgumentException("scale must be between 0 and " + FixedPoint.MAX_SCALE + ": " + scale);
+        }
+    }
+
+    public static Amount zero(int scale) {
+        return new Amount(0, scale);
+    }
+
+    public static Amount of(long units, int scale) {
+        return new Amount(units, scale);
+    }
+
+    public static Amount parse(CharSequence text, int scale) {
+        return new Amount(FixedPoint.parse(text, scale), scale);
+    }
+
+    public Amount add(Amount other) {
+        requireSameScale(other);
+        return new Amount(FixedPoint.add(units, other.units), scale);
+    }
+
+    public Amount subtract(Amount other) {
+        requireSameScale(other);
+        return new Amount(FixedPoint.subtract(units, other.units), scale);
+    }
+
+    /**
+     * 乘積以 {@code resultScale} 表示，多出的小數位向零捨去。
+     */
+    public Amount multiply(Amount other, int resultScale) {
+        return new Amount(FixedPoint.multiply(units, scale, other.units, other.scale, resultScale), resultScale);
+    }
+
+    public Amount negate() {
+        return new Amount(Math.negateExact(units), scale);
+    }
+
+    public Amount rescale(int newScale) {
+        return new Amount(FixedPoint.rescale(units, scale, newScale), newScale);
+    }
+
+    public int signum() {
+        return Long.signum(units);
+    }
+
+    public boolean isZero() {
+        return units == 0;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(units, scale);
+    }
+
+    @Override
+    public int compareTo(Amount other) {
+        if (scale == other.scale) {
+            return Long.compare(units, other.units);
+        }
+        return toBigDecimal().compareTo(other.toBigDecimal());
+    }
+
+    @Override
+    public String toString() {
+        return FixedPoint.toString(units, scale);
+    }
+
+    private void requireSameScale(Amount other) {
+        if (scale != other.scale) {
+            throw new IllegalArgumentException("scale mismatch: " + scale + " vs " + other.scale);
+        }
+    }
+}
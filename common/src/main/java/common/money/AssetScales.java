@@ -0,0 +1,52 @@
+package common.money;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 資產代號對應的小數位數，例如 USDT=8、BTC=8。建立後不可變，可在多執行緒間共用。
+ */
+public final class AssetScales {
+
+    private final Map<String, Integer> scales;
+
+    private AssetScales(Map<String, Integer> scales) {
+        this.scales = scales;
+    }
+
+    public static AssetScales of(Map<String, Integer> scales) {
+        Map<String, Integer> copy = new LinkedHashMap<>();
+        scales.forEach((asset, scale) -> {
+            if (scale == null || scale < 0 || scale > FixedPoint.MAX_SCALE) {
+                throw new IllegalArgumentException("invalid scale for " + asset + ": " + scale);
+            }
+            copy.put(asset, scale);
+        });
+        return new AssetScales(Collections.unmodifiableMap(copy));
+    }
+
+    public boolean supports(String asset) {
+        return scales.containsKey(asset);
+    }
+
+    /**
+     * @throws IllegalArgumentException 不支援的資產
+     */
+    public int scaleOf(String asset) {
+        Integer scale = scales.get(asset);
+        if (scale == null) {
+            throw new IllegalArgumentException("unsupported asset: " + asset);
+        }
+        return scale;
+    }
+
+    public Set<String> assets() {
+        return scales.keySet();
+    }
+
+    public Map<String, Integer> asMap() {
+        return scales;
+    }
+}
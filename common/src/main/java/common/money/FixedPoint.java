@@ -0,0 +1,294 @@
+package common.money;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 以 long 表示的固定小數位金額（units = 金額 * 10^scale）的運算與 ASCII 編解碼。
+ *
+ * <p>解析與格式化直接讀寫 byte[] / {@link ByteBuffer}，不建立 {@code BigDecimal} 或 {@code String}；
+ * 運算皆檢查溢位（{@link ArithmeticException}）。熱路徑上使用這裡的靜態方法，
+ * 需要物件時再包成 {@link Amount}。
+ */
+public final class FixedPoint {
+
+    public static final int MAX_SCALE = 18;
+
+    /** "-9223372036854775808" 加上小數點 */
+    public static final int MAX_FORMATTED_LENGTH = 21;
+
+    private static final long[] POW10 = new long[MAX_SCALE + 1];
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i <= MAX_SCALE; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+
+    /** 負數累加時，乘以 10 不會溢位的下限 */
+    private static final long ACCUMULATE_LIMIT = Long.MIN_VALUE / 10;
+
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[64]);
+
+    private FixedPoint() {
+    }
+
+    public static long pow10(int scale) {
+        checkScale(scale);
+        return POW10[scale];
+    }
+
+    // ---- 解析 ----
+
+    /**
+     * 解析 {@code src[offset, offset + length)} 的 ASCII 十進位數字，例如 {@code "1000.00000000"}、{@code "-0.1"}。
+     * 小數位數超過 scale 時，超出的位數必須都是 0。
+     *
+     * @throws NumberFormatException 格式錯誤、精度不足或超出 long 範圍
+     */
+    public static long parse(byte[] src, int offset, int length, int scale) {
+        checkScale(scale);
+        int end = offset + length;
+        int i = offset;
+        if (length <= 0) {
+            throw invalid(src, offset, length);
+        }
+        boolean negative = false;
+        byte first = src[i];
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+        }
+
+        long units = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < end; i++) {
+            int c = src[i];
+            if (c == '.') {
+                if (fractionDigits >= 0) {
+                    throw invalid(src, offset, length);
+                }
+                fractionDigits = 0;
+                continue;
+            }
+            int d = c - '0';
+            if (d < 0 || d > 9) {
+                throw invalid(src, offset, length);
+            }
+            digits++;
+            if (fractionDigits >= 0) {
+                if (fractionDigits == scale) {
+                    // 超出精度的位數只接受 0
+                    if (d != 0) {
+                        throw new NumberFormatException("more than " + scale + " decimal places: "
+                                + ascii(src, offset, length));
+                    }
+                    continue;
+                }
+                fractionDigits++;
+            }
+            // 以負數累加，才能表示 Long.MIN_VALUE
+            if (units < ACCUMULATE_LIMIT || units * 10 < Long.MIN_VALUE + d) {
+                throw outOfRange(src, offset, length);
+            }
+            units = units * 10 - d;
+        }
+        if (digits == 0) {
+            throw invalid(src, offset, length);
+        }
+
+        int pad = scale - Math.max(fractionDigits, 0);
+        if (pad > 0) {
+            long factor = POW10[pad];
+            if (units < Long.MIN_VALUE / factor) {
+                throw outOfRange(src, offset, length);
+            }
+            units *= factor;
+        }
+        if (negative) {
+            return units;
+        }
+        if (units == Long.MIN_VALUE) {
+            throw outOfRange(src, offset, length);
+        }
+        return -units;
+    }
+
+    /**
+     * 解析 {@code src} 從絕對位置 {@code offset} 起的 {@code length} 個 byte，不改變 position。
+     */
+    public static long parse(ByteBuffer src, int offset, int length, int scale) {
+        if (src.hasArray()) {
+            return parse(src.array(), src.arrayOffset() + offset, length, scale);
+        }
+        byte[] scratch = scratch(length);
+        src.get(offset, scratch, 0, length);
+        return parse(scratch, 0, length, scale);
+    }
+
+    public static long parse(CharSequence src, int scale) {
+        int length = src.length();
+        byte[] scratch = scratch(length);
+        for (int i = 0; i < length; i++) {
+            char c = src.charAt(i);
+            // 非 ASCII 字元轉成不合法的 byte，由 parse 統一報錯
+            scratch[i] = c < 0x80 ? (byte) c : (byte) '?';
+        }
+        return parse(scratch, 0, length, scale);
+    }
+
+    // ---- 格式化 ----
+
+    /**
+     * 以固定 scale 位小數寫出，例如 units=100000000000, scale=8 寫出 {@code "1000.00000000"}。
+     *
+     * @return 寫入的 byte 數
+     */
+    public static int format(long units, int scale, byte[] dst, int offset) {
+        checkScale(scale);
+        int length = formattedLength(units, scale);
+        // 以負數運算，Long.MIN_VALUE 不會溢位
+        long negativeUnits = units < 0 ? units : -units;
+        int pos = offset + length;
+        for (int i = 0; i < scale; i++) {
+            dst[--pos] = (byte) ('0' - (negativeUnits % 10));
+            negativeUnits /= 10;
+        }
+        if (scale > 0) {
+            dst[--pos] = '.';
+        }
+        do {
+            dst[--pos] = (byte) ('0' - (negativeUnits % 10));
+            negativeUnits /= 10;
+        } while (negativeUnits != 0);
+        if (units < 0) {
+            dst[--pos] = '-';
+        }
+        return length;
+    }
+
+    /**
+     * 寫到 {@code dst} 目前的 position 並前進。
+     *
+     * @return 寫入的 byte 數
+     */
+    public static int format(long units, int scale, ByteBuffer dst) {
+        int position = dst.position();
+        int length;
+        if (dst.hasArray()) {
+            length = formattedLength(units, scale);
+            if (dst.remaining() < length) {
+                throw new java.nio.BufferOverflowException();
+            }
+            format(units, scale, dst.array(), dst.arrayOffset() + position);
+        } else {
+            byte[] scratch = scratch(MAX_FORMATTED_LENGTH);
+            length = format(units, scale, scratch, 0);
+            dst.put(position, scratch, 0, length);
+        }
+        dst.position(position + length);
+        return length;
+    }
+
+    public static String toString(long units, int scale) {
+        byte[] bytes = new byte[formattedLength(units, scale)];
+        format(units, scale, bytes, 0);
+        return new String(bytes, java.nio.charset.StandardCharsets.US_ASCII);
+    }
+
+    /** {@link #format} 會寫出的 byte 數 */
+    public static int formattedLength(long units, int scale) {
+        checkScale(scale);
+        long integerPart = units / POW10[scale];
+        int integerDigits = 1;
+        for (long v = integerPart; v <= -10 || v >= 10; v /= 10) {
+            integerDigits++;
+        }
+        return (units < 0 ? 1 : 0) + integerDigits + (scale > 0 ? scale + 1 : 0);
+    }
+
+    // ---- 運算 ----
+
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    public static long subtract(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    /**
+     * {@code a * b}，結果以 {@code resultScale} 表示，多出的小數位向零捨去。
+     * 例如 price(30000.00, 8) * quantity(0.1, 8) = notional(3000.00, 8)。
+     */
+    public static long multiply(long a, int aScale, long b, int bScale, int resultScale) {
+        checkScale(aScale);
+        checkScale(bScale);
+        checkScale(resultScale);
+        int shift = aScale + bScale - resultScale;
+        long high = Math.multiplyHigh(a, b);
+        long low = a * b;
+        if ((high == 0 && low >= 0) || (high == -1 && low < 0)) {
+            // 乘積在 long 範圍內
+            if (shift < 0) {
+                return Math.multiplyExact(low, POW10[-shift]);
+            }
+            // |low| < 10^19，捨去超過 18 位時結果必為 0
+            return shift > MAX_SCALE ? 0 : low / POW10[shift];
+        }
+        if (shift <= 0) {
+            throw new ArithmeticException("long overflow");
+        }
+        // 乘積超出 long：少見，以 128 位元精確計算後再捨去
+        java.math.BigInteger result = java.math.BigInteger.valueOf(a)
+                .multiply(java.math.BigInteger.valueOf(b))
+                .divide(java.math.BigInteger.TEN.pow(shift));
+        return result.longValueExact();
+    }
+
+    /**
+     * 改變小數位數。放大時檢查溢位；縮小時若會失去非 0 的位數則丟出 {@link ArithmeticException}。
+     */
+    public static long rescale(long units, int fromScale, int toScale) {
+        checkScale(fromScale);
+        checkScale(toScale);
+        if (toScale >= fromScale) {
+            return Math.multiplyExact(units, POW10[toScale - fromScale]);
+        }
+        long divisor = POW10[fromScale - toScale];
+        if (units % divisor != 0) {
+            throw new ArithmeticException("rescale would lose precision");
+        }
+        return units / divisor;
+    }
+
+    // ---- 內部 ----
+
+    private static void checkScale(int scale) {
+        if (scale < 0 || scale > MAX_SCALE) {
+            throw new IllegalArgumentException("scale must be between 0 and " + MAX_SCALE + ": " + scale);
+        }
+    }
+
+    private static byte[] scratch(int length) {
+        byte[] scratch = SCRATCH.get();
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+            SCRATCH.set(scratch);
+        }
+        return scratch;
+    }
+
+    private static NumberFormatException invalid(byte[] src, int offset, int length) {
+        return new NumberFormatException("invalid amount: " + ascii(src, offset, length));
+    }
+
+    private static NumberFormatException outOfRange(byte[] src, int offset, int length) {
+        return new NumberFormatException("amount out of range: " + ascii(src, offset, length));
+    }
+
+    private static String ascii(byte[] src, int offset, int length) {
+        return new String(src, offset, Math.max(length, 0), java.nio.charset.StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,87 @@
+package common.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedLogTest {
+
+    private static final int MAGIC = 0x54455354; // "TEST"
+
+    @TempDir
+    Path dir;
+
+    private static final RecordCodec<String> CODEC = new RecordCodec<>() {
+        @Override
+        public int size(String value) {
+            return RecordCodec.stringSize(value);
+        }
+
+        @Override
+        public int write(ByteBuffer buffer, int position, String value) {
+            return RecordCodec.putString(buffer, position, value);
+        }
+
+        @Override
+        public String read(ByteBuffer buffer, int position, int length, long id) {
+            return id + " " + RecordCodec.getString(buffer, position);
+        }
+    };
+
+    private MappedLog<String> open() throws IOException {
+        return new MappedLog<>(dir, MAGIC, MappedLog.MIN_SEGMENT_SIZE, FsyncPolicy.BATCH, 0, CODEC);
+    }
+
+    private List<String> replay() throws IOException {
+        List<String> records = new ArrayList<>();
+        try (MappedLog<String> log = open()) {
+            log.replay(records::add);
+        }
+        return records;
+    }
+
+    @Test
+    void discardedBatchShouldNotBeReplayedAfterAShorterBatch() throws IOException {
+        try (MappedLog<String> log = open()) {
+            log.append(1, "a1");
+            log.flush();
+            // 同樣長度的紀錄：新的一筆剛好結束在撤回的第二筆開頭，id 也接得上
+            log.append(2, "b1");
+            log.append(3, "b2");
+            log.append(4, "b3");
+            log.discardUnflushed();
+            assertEquals(1, log.lastId());
+            log.append(2, "c1");
+            log.flush();
+        }
+        assertEquals(List.of("1 a1", "2 c1"), replay());
+
+        try (MappedLog<String> log = open()) {
+            log.replay(record -> {
+            });
+            assertEquals(2, log.lastId());
+            log.append(3, "d1");
+            log.flush();
+        }
+        assertEquals(List.of("1 a1", "2 c1", "3 d1"), replay());
+    }
+
+    @Test
+    void replayShouldStopAtNonIncreasingIdInTheLastSegment() throws IOException {
+        try (MappedLog<String> log = open()) {
+            log.append(1, "a1");
+            log.append(2, "a2");
+            log.append(2, "a3");
+            log.append(3, "a4");
+            log.flush();
+        }
+        assertEquals(List.of("1 a1", "2 a2"), replay());
+    }
+}
@@ -0,0 +1,112 @@
+package common.money;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FixedPointTest {
+
+    private static long parse(String text, int scale) {
+        byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+        return FixedPoint.parse(bytes, 0, bytes.length, scale);
+    }
+
+    private static String format(long units, int scale) {
+        byte[] out = new byte[FixedPoint.MAX_FORMATTED_LENGTH];
+        int length = FixedPoint.format(units, scale, out, 0);
+        return new String(out, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    void shouldParseDecimalText() {
+        assertEquals(100_000_000_000L, parse("1000", 8));
+        assertEquals(100_000_000_000L, parse("1000.00000000", 8));
+        assertEquals(12_345_678L, parse("0.12345678", 8));
+        assertEquals(-50L, parse("-.5", 2));
+        assertEquals(3L, parse("+3.", 0));
+        // 超出精度的尾端 0 可接受
+        assertEquals(150L, parse("1.500000", 2));
+    }
+
+    @Test
+    void shouldRejectInvalidText() {
+        for (String text : new String[]{"", "-", ".", "1.2.3", "1e5", "12a", " 1"}) {
+            assertThrows(NumberFormatException.class, () -> parse(text, 8), text);
+        }
+        assertThrows(NumberFormatException.class, () -> parse("0.000000001", 8));
+    }
+
+    @Test
+    void shouldRejectOutOfRange() {
+        assertEquals(Long.MAX_VALUE, parse("92233720368.54775807", 8));
+        assertEquals(Long.MIN_VALUE, parse("-92233720368.54775808", 8));
+        assertThrows(NumberFormatException.class, () -> parse("92233720368.54775808", 8));
+        assertThrows(NumberFormatException.class, () -> parse("99999999999999999999", 0));
+    }
+
+    @Test
+    void shouldFormatWithFixedScale() {
+        assertEquals("1000.00000000", format(100_000_000_000L, 8));
+        assertEquals("0.00000001", format(1, 8));
+        assertEquals("-0.05", format(-5, 2));
+        assertEquals("42", format(42, 0));
+        assertEquals("-92233720368.54775808", format(Long.MIN_VALUE, 8));
+    }
+
+    @Test
+    void shouldRoundTripAgainstBigDecimal() {
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            long units = i % 2 == 0 ? random.nextLong() : random.nextInt();
+            int scale = random.nextInt(FixedPoint.MAX_SCALE + 1);
+            String expected = BigDecimal.valueOf(units, scale).toPlainString();
+            assertEquals(expected, format(units, scale));
+            assertEquals(units, parse(expected, scale));
+        }
+    }
+
+    @Test
+    void shouldReadAndWriteDirectBuffers() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64);
+        buffer.position(3);
+        int length = FixedPoint.format(-123_456_789L, 4, buffer);
+        assertEquals(3 + length, buffer.position());
+        assertEquals(-123_456_789L, FixedPoint.parse(buffer, 3, length, 4));
+    }
+
+    @Test
+    void shouldMultiplyWithTruncation() {
+        // 30000.00 * 0.1 = 3000.00
+        assertEquals(300_000_000_000L,
+                FixedPoint.multiply(3_000_000_000_000L, 8, 10_000_000L, 8, 8));
+        // 0.00000003 * 0.5 = 0.000000015 -> 0.00000001
+        assertEquals(1L, FixedPoint.multiply(3, 8, 50_000_000L, 8, 8));
+        // 中間乘積超出 long，但結果在範圍內
+        assertEquals(9_000_000_000_000_000L,
+                FixedPoint.multiply(3_000_000_000_000_000L, 8, 300_000_000L, 8, 8));
+        assertThrows(ArithmeticException.class,
+                () -> FixedPoint.multiply(Long.MAX_VALUE, 8, 200_000_000L, 8, 8));
+    }
+
+    @Test
+    void shouldDetectOverflowAndPrecisionLoss() {
+        assertThrows(ArithmeticException.class, () -> FixedPoint.add(Long.MAX_VALUE, 1));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.subtract(Long.MIN_VALUE, 1));
+        assertEquals(150L, FixedPoint.rescale(150_000_000L, 8, 2));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.rescale(1L, 8, 2));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.rescale(Long.MAX_VALUE, 0, 1));
+    }
+
+    @Test
+    void amountShouldRequireMatchingScale() {
+        Amount a = Amount.parse("1.5", 2);
+        assertEquals("3.00", a.add(a).toString());
+        assertThrows(IllegalArgumentException.class, () -> a.add(Amount.parse("1", 8)));
+        assertEquals(0, a.compareTo(Amount.parse("1.5", 8)));
+    }
+}
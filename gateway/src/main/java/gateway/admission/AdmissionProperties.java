@@ -0,0 +1,102 @@
+package gateway.admission;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@code gateway.admission.*}：gateway 整體併發上限與優先權通道設定。
+ */
+@ConfigurationProperties(prefix = "gateway.admission")
+public class AdmissionProperties {
+
+    private boolean enabled = true;
+
+    /** gateway 同時處理中的請求上限（所有通道合計） */
+    private int maxConcurrency = 2000;
+
+    /** 依序比對，第一個符合的通道生效；最後一個通道通常不設條件作為預設 */
+    private List<Lane> lanes = new ArrayList<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public List<Lane> getLanes() {
+        return lanes;
+    }
+
+    public void setLanes(List<Lane> lanes) {
+        this.lanes = lanes;
+    }
+
+    public static class Lane {
+
+        private String name;
+
+        /** 路徑條件（PathPattern），空白表示不限制 */
+        private List<String> paths = new ArrayList<>();
+
+        /** 只比對已通過 JWT 驗證的請求 */
+        private boolean authenticated;
+
+        /** 保留給此通道、其他通道不能使用的併發數 */
+        private int reserved;
+
+        /** 共用額度使用率達到此比例後，此通道不再取得共用額度（越小越早被捨棄） */
+        private double shedAt = 1.0;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public List<String> getPaths() {
+            return paths;
+        }
+
+        public void setPaths(List<String> paths) {
+            this.paths = paths;
+        }
+
+        public boolean isAuthenticated() {
+            return authenticated;
+        }
+
+        public void setAuthenticated(boolean authenticated) {
+            this.authenticated = authenticated;
+        }
+
+        public int getReserved() {
+            return reserved;
+        }
+
+        public void setReserved(int reserved) {
+            this.reserved = reserved;
+        }
+
+        public double getShedAt() {
+            return shedAt;
+        }
+
+        public void setShedAt(double shedAt) {
+            this.shedAt = shedAt;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package gateway.admission;
+
+import gateway.filter.JwtAuthenticationGlobalFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 依 {@link AdmissionProperties} 將請求分到優先權通道，並以 {@link PriorityLanes} 控制整體併發；
+ * 超過通道可用額度的請求直接回 503 與 Retry-After，不進入下游。
+ * 在 JWT 驗證之後執行，才能依是否已驗證分流。
+ */
+public class PriorityAdmissionFilter implements GlobalFilter, Ordered {
+
+    public static final int ORDER = JwtAuthenticationGlobalFilter.ORDER + 10;
+
+    /** 請求被分到的通道名稱 */
+    public static final String LANE_ATTR = PriorityAdmissionFilter.class.getName() + ".lane";
+
+    private final PriorityLanes priorityLanes;
+    private final List<Matcher> matchers;
+
+    public PriorityAdmissionFilter(PriorityLanes priorityLanes) {
+        this.priorityLanes = priorityLanes;
+        this.matchers = new ArrayList<>();
+        PathPatternParser parser = PathPatternParser.defaultInstance;
+        for (PriorityLanes.Lane lane : priorityLanes.lanes()) {
+            List<PathPattern> patterns = lane.properties.getPaths().stream().map(parser::parse).toList();
+            matchers.add(new Matcher(lane, patterns, lane.properties.isAuthenticated()));
+        }
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        PriorityLanes.Lane lane = classify(exchange);
+        if (lane == null) {
+            return chain.filter(exchange);
+        }
+
+        PriorityLanes.Permit permit = priorityLanes.tryAcquire(lane);
+        if (permit == null) {
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+            return response.setComplete();
+        }
+
+        exchange.getAttributes().put(LANE_ATTR, lane.name());
+        return chain.filter(exchange).doFinally(signal -> permit.release());
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    PriorityLanes.Lane classify(ServerWebExchange exchange) {
+        PathContainer path = exchange.getRequest().getPath().pathWithinApplication();
+        boolean authenticated = exchange.getAttribute(JwtAuthenticationGlobalFilter.VERIFIED_TOKEN_ATTR) != null;
+        for (Matcher matcher : matchers) {
+            if (matcher.matches(path, authenticated)) {
+                return matcher.lane;
+            }
+        }
+        return null;
+    }
+
+    private record Matcher(PriorityLanes.Lane lane, List<PathPattern> patterns, boolean requiresAuthentication) {
+
+        boolean matches(PathContainer path, boolean authenticated) {
+            if (requiresAuthentication && !authenticated) {
+                return false;
+            }
+            if (patterns.isEmpty()) {
+                return true;
+            }
+            for (PathPattern pattern : patterns) {
+                if (pattern.matches(path)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package gateway.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 具保留額度的優先權通道。總併發上限扣除各通道保留額度後為共用額度：
+ * <ul>
+ *   <li>請求先使用所屬通道的保留額度，用完後才使用共用額度</li>
+ *   <li>共用額度使用量達到通道的 {@code shedAt} 比例後，該通道的請求直接被拒絕；
+ *       因此過載時 shedAt 較低的通道（如匿名流量）先被捨棄，結算/下單通道最後</li>
+ * </ul>
+ * 取得與釋放皆為 CAS，不使用鎖。
+ *
+ * <p>指標：{@code gateway.admission{lane,decision=admitted|rejected}}、{@code gateway.admission.inflight{lane}}。
+ */
+public class PriorityLanes {
+
+    private final int sharedCapacity;
+    private final AtomicInteger sharedInFlight = new AtomicInteger();
+    private final List<Lane> lanes;
+
+    public PriorityLanes(int maxConcurrency, List<AdmissionProperties.Lane> laneProperties, MeterRegistry meterRegistry) {
+        int reservedTotal = laneProperties.stream().mapToInt(AdmissionProperties.Lane::getReserved).sum();
+        if (reservedTotal > maxConcurrency) {
+            throw new IllegalArgumentException(
+                    "Reserved capacity " + reservedTotal + " exceeds max-concurrency " + maxConcurrency);
+        }
+        this.sharedCapacity = maxConcurrency - reservedTotal;
+        this.lanes = new ArrayList<>(laneProperties.size());
+        for (AdmissionProperties.Lane properties : laneProperties) {
+            if (properties.getName() == null || properties.getName().isBlank()) {
+                throw new IllegalArgumentException("Every admission lane needs a name");
+            }
+            lanes.add(new Lane(properties, sharedInFlight, sharedCapacity, meterRegistry));
+        }
+    }
+
+    public List<Lane> lanes() {
+        return lanes;
+    }
+
+    /**
+     * 取得一個併發額度，成功回傳 {@link Permit}（處理完畢後必須 release），失敗回傳 null。
+     */
+    public Permit tryAcquire(Lane lane) {
+        if (tryIncrement(lane.reservedInFlight, lane.reserved)) {
+            lane.admitted.increment();
+            return lane.reservedPermit;
+        }
+        if (tryIncrement(sharedInFlight, lane.sharedLimit)) {
+            lane.sharedInFlight.incrementAndGet();
+            lane.admitted.increment();
+            return lane.sharedPermit;
+        }
+        lane.rejected.increment();
+        return null;
+    }
+
+    public int sharedInFlight() {
+        return sharedInFlight.get();
+    }
+
+    private static boolean tryIncrement(AtomicInteger counter, int limit) {
+        while (true) {
+            int current = counter.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (counter.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public static final class Lane {
+
+        final AdmissionProperties.Lane properties;
+        final int reserved;
+        final int sharedLimit;
+        final AtomicInteger reservedInFlight = new AtomicInteger();
+        final AtomicInteger sharedInFlight = new AtomicInteger();
+        final Counter admitted;
+        final Counter rejected;
+        final Permit reservedPermit;
+        final Permit sharedPermit;
+
+        Lane(AdmissionProperties.Lane properties, AtomicInteger sharedPool, int sharedCapacity,
+             MeterRegistry meterRegistry) {
+            this.properties = properties;
+            this.reserved = properties.getReserved();
+            this.sharedLimit = (int) Math.floor(sharedCapacity * Math.min(1.0, properties.getShedAt()));
+            this.admitted = Counter.builder("gateway.admission")
+                    .tag("lane", properties.getName())
+                    .tag("decision", "admitted")
+                    .register(meterRegistry);
+            this.rejected = Counter.builder("gateway.admission")
+                    .tag("lane", properties.getName())
+                    .tag("decision", "rejected")
+                    .register(meterRegistry);
+            Gauge.builder("gateway.admission.inflight", this, Lane::inFlight)
+                    .tag("lane", properties.getName())
+                    .register(meterRegistry);
+            this.reservedPermit = new Permit(this, reservedInFlight, null);
+            this.sharedPermit = new Permit(this, sharedPool, sharedInFlight);
+        }
+
+        public String name() {
+            return properties.getName();
+        }
+
+        public int inFlight() {
+            return reservedInFlight.get() + sharedInFlight.get();
+        }
+    }
+
+    /**
+     * 已取得的併發額度。每個通道只有兩個（保留/共用）共用實例，取得額度不需配置物件。
+     */
+    public static final class Permit {
+
+        private final Lane lane;
+        private final AtomicInteger pool;
+        private final AtomicInteger laneShared;
+
+        private Permit(Lane lane, AtomicInteger pool, AtomicInteger laneShared) {
+            this.lane = lane;
+            this.pool = pool;
+            this.laneShared = laneShared;
+        }
+
+        public Lane lane() {
+            return lane;
+        }
+
+        /**
+         * 每次成功的 {@link PriorityLanes#tryAcquire} 必須呼叫剛好一次。
+         */
+        public void release() {
+            pool.decrementAndGet();
+            if (laneShared != null) {
+                laneShared.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package gateway.auth;
+
+/**
+ * 已驗證過簽章的 JWT 內容。
+ */
+public record VerifiedToken(String userId, String email, String username, long expiresAtMillis) {
+
+    public boolean isExpired(long nowMillis) {
+        return nowMillis >= expiresAtMillis;
+    }
+}
@@ -0,0 +1,30 @@
+package gateway.cache;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+
+/**
+ * 已完整讀取的下游回應。body 不會被修改，回放時直接 wrap，不需每個訂閱者各複製一份。
+ */
+public record CachedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body, long ttlNanos) {
+
+    /** 不屬於回應內容、不應回放的 hop-by-hop header */
+    private static final String[] HOP_BY_HOP = {
+            HttpHeaders.CONNECTION, "Keep-Alive", HttpHeaders.TRANSFER_ENCODING, HttpHeaders.UPGRADE,
+            HttpHeaders.PROXY_AUTHENTICATE, HttpHeaders.TRAILER, HttpHeaders.TE
+    };
+
+    public static CachedResponse of(HttpStatusCode status, HttpHeaders source, byte[] body, long ttlNanos) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(source);
+        for (String name : HOP_BY_HOP) {
+            headers.remove(name);
+        }
+        return new CachedResponse(status, HttpHeaders.readOnlyHttpHeaders(headers), body, ttlNanos);
+    }
+
+    /** 供快取大小上限計算使用的概略大小 */
+    public int weight() {
+        return body.length + 64 * headers.size();
+    }
+}
@@ -0,0 +1,55 @@
+package gateway.cache;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * 將下游回應 body 讀成一個 byte[]，交給 {@link Listener} 後再寫回原本的 response。
+ * 讀取完成到寫出之前可調整 header。
+ */
+public class CapturingResponseDecorator extends ServerHttpResponseDecorator {
+
+    @FunctionalInterface
+    public interface Listener {
+
+        void onCaptured(ServerHttpResponse response, byte[] body);
+    }
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final Listener listener;
+
+    public CapturingResponseDecorator(ServerHttpResponse delegate, Listener listener) {
+        super(delegate);
+        this.listener = listener;
+    }
+
+    @Override
+    public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+        return DataBufferUtils.join(body)
+                .map(joined -> {
+                    byte[] bytes = new byte[joined.readableByteCount()];
+                    joined.read(bytes);
+                    DataBufferUtils.release(joined);
+                    return bytes;
+                })
+                .defaultIfEmpty(EMPTY)
+                .flatMap(bytes -> {
+                    listener.onCaptured(getDelegate(), bytes);
+                    if (bytes.length == 0) {
+                        return getDelegate().writeWith(Flux.empty());
+                    }
+                    return getDelegate().writeWith(Mono.just(bufferFactory().wrap(bytes)));
+                });
+    }
+
+    @Override
+    public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+        return writeWith(Flux.from(body).concatMap(Flux::from));
+    }
+}
@@ -0,0 +1,102 @@
+package gateway.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 依 subject 分開的回應快取（Caffeine，W-TinyLFU 依 body 大小淘汰）。
+ *
+ * <p>失效不逐一刪除項目，而是遞增版本號：key 帶有建立時的快取版本與 subject 版本，
+ * 版本變動後舊項目不會再被查到，由 TTL 與大小上限自然淘汰。這也避免寫入前已送出的讀取
+ * 在失效之後才把舊資料放回快取。
+ *
+ * <p>同一個 key 同時只有一個請求向下游取資料（{@link AsyncCache} 共用同一個 future），其他請求等待結果。
+ *
+ * <p>指標：{@code cache.gets{cache=gateway.response,result=hit|miss}}、{@code cache.evictions{cache=gateway.response}}。
+ */
+public class ResponseCache {
+
+    public static final String CACHE_NAME = "gateway.response";
+
+    private final AsyncCache<Key, CachedResponse> cache;
+    private final Cache<String, AtomicLong> versions;
+
+    public ResponseCache(long maxWeightBytes, Duration maxTtl, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((Key key, CachedResponse value) -> value.weight())
+                .expireAfter(new Expiry<Key, CachedResponse>() {
+                    @Override
+                    public long expireAfterCreate(Key key, CachedResponse value, long currentTime) {
+                        return value.ttlNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Key key, CachedResponse value, long currentTime, long currentDuration) {
+                        return value.ttlNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(Key key, CachedResponse value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .buildAsync();
+        // 版本號閒置時間必須長於最長 TTL，版本歸零時舊項目一定已過期
+        this.versions = Caffeine.newBuilder()
+                .expireAfterAccess(maxTtl.multipliedBy(2).plusMinutes(1))
+                .build();
+        if (meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        }
+    }
+
+    public Key key(String cacheName, String subject, String uri) {
+        return new Key(cacheName, subject, uri, version(cacheName), version(subjectScope(cacheName, subject)));
+    }
+
+    /**
+     * 取得快取的回應，或在沒有時放入 {@code pending}。回傳值就是 {@code pending} 時，
+     * 呼叫端負責向下游取資料並完成它（無法快取時以 null 完成，等待中的請求會各自轉發）。
+     */
+    public CompletableFuture<CachedResponse> getOrReserve(Key key, CompletableFuture<CachedResponse> pending) {
+        return cache.get(key, (k, executor) -> pending);
+    }
+
+    public void invalidateSubject(String cacheName, String subject) {
+        bump(subjectScope(cacheName, subject));
+    }
+
+    public void invalidateAll(String cacheName) {
+        bump(cacheName);
+    }
+
+    public long estimatedSize() {
+        return cache.synchronous().estimatedSize();
+    }
+
+    private long version(String scope) {
+        AtomicLong version = versions.getIfPresent(scope);
+        return version != null ? version.get() : 0L;
+    }
+
+    private void bump(String scope) {
+        versions.get(scope, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    private static String subjectScope(String cacheName, String subject) {
+        return cacheName + '\u0000' + subject;
+    }
+
+    public record Key(String cacheName, String subject, String uri, long cacheVersion, long subjectVersion) {
+    }
+}
@@ -0,0 +1,182 @@
+package gateway.cache;
+
+import gateway.admission.PriorityAdmissionFilter;
+import gateway.auth.VerifiedToken;
+import gateway.filter.JwtAuthenticationGlobalFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 依 {@link ResponseCacheProperties} 快取已驗證使用者的 GET 回應，並在寫入路徑經過時使快取失效
+ * （內部服務不帶 JWT 呼叫的寫入只能使用 {@code scope: all}）。
+ *
+ * <p>排在優先權通道之後、路由 filter（限流、併發上限）之前：命中快取的請求不佔用下游額度。
+ * 回應帶 {@code X-Cache: HIT|MISS}；請求帶 {@code Cache-Control: no-cache} 時略過快取。
+ */
+public class ResponseCacheFilter implements GlobalFilter, Ordered {
+
+    public static final int ORDER = PriorityAdmissionFilter.ORDER + 10;
+
+    public static final String CACHE_HEADER = "X-Cache";
+
+    private final ResponseCache cache;
+    private final long maxEntryBytes;
+    private final List<CacheMatcher> cacheMatchers = new ArrayList<>();
+    private final List<InvalidationMatcher> invalidationMatchers = new ArrayList<>();
+    private final Counter invalidations;
+
+    public ResponseCacheFilter(ResponseCache cache, ResponseCacheProperties properties, MeterRegistry meterRegistry) {
+        this.cache = cache;
+        this.maxEntryBytes = properties.getMaxEntrySize().toBytes();
+        PathPatternParser parser = PathPatternParser.defaultInstance;
+        for (ResponseCacheProperties.Rule rule : properties.getCaches()) {
+            if (rule.getName() == null || rule.getName().isBlank()) {
+                throw new IllegalArgumentException("Every response cache needs a name");
+            }
+            cacheMatchers.add(new CacheMatcher(rule.getName(), rule.getTtl().toNanos(),
+                    rule.getPaths().stream().map(parser::parse).toList()));
+        }
+        for (ResponseCacheProperties.Invalidation invalidation : properties.getInvalidations()) {
+            invalidationMatchers.add(new InvalidationMatcher(invalidation.getCaches(), invalidation.getScope(),
+                    invalidation.getPaths().stream().map(parser::parse).toList()));
+        }
+        this.invalidations = Counter.builder("gateway.response-cache.invalidations").register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        VerifiedToken token = exchange.getAttribute(JwtAuthenticationGlobalFilter.VERIFIED_TOKEN_ATTR);
+        String subject = token != null ? token.userId() : null;
+        ServerHttpRequest request = exchange.getRequest();
+        PathContainer path = request.getPath().pathWithinApplication();
+
+        if (request.getMethod() == HttpMethod.GET) {
+            CacheMatcher matcher = subject != null ? match(cacheMatchers, path) : null;
+            if (matcher == null || isNoCache(request)) {
+                return chain.filter(exchange);
+            }
+            return serve(exchange, chain, matcher, subject);
+        }
+
+        InvalidationMatcher invalidation = match(invalidationMatchers, path);
+        if (invalidation == null) {
+            return chain.filter(exchange);
+        }
+        // 轉發前後各失效一次：轉發前避免讀到尚未寫入的結果後再被快取，轉發後清掉寫入期間被快取的舊資料
+        invalidate(invalidation, subject);
+        return chain.filter(exchange).doFinally(signal -> invalidate(invalidation, subject));
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    private Mono<Void> serve(ServerWebExchange exchange, GatewayFilterChain chain, CacheMatcher matcher, String subject) {
+        URI uri = exchange.getRequest().getURI();
+        String query = uri.getRawQuery();
+        ResponseCache.Key key = cache.key(matcher.name, subject,
+                query != null ? uri.getRawPath() + '?' + query : uri.getRawPath());
+        CompletableFuture<CachedResponse> pending = new CompletableFuture<>();
+        CompletableFuture<CachedResponse> future = cache.getOrReserve(key, pending);
+
+        if (future != pending) {
+            // 命中快取或有相同請求正在向下游取資料；無法快取時（以 null 完成）自行轉發
+            return Mono.fromFuture(future, true)
+                    .flatMap(cached -> write(exchange.getResponse(), cached))
+                    .switchIfEmpty(Mono.defer(() -> chain.filter(exchange)));
+        }
+
+        CapturingResponseDecorator response = new CapturingResponseDecorator(exchange.getResponse(),
+                (upstream, body) -> {
+                    upstream.getHeaders().set(CACHE_HEADER, "MISS");
+                    pending.complete(isCacheable(upstream, body) ? CachedResponse.of(upstream.getStatusCode(),
+                            upstream.getHeaders(), body, matcher.ttlNanos) : null);
+                });
+        return chain.filter(exchange.mutate().response(response).build())
+                .doFinally(signal -> pending.complete(null));
+    }
+
+    private boolean isCacheable(ServerHttpResponse response, byte[] body) {
+        if (response.getStatusCode() == null || response.getStatusCode().value() != HttpStatus.OK.value()) {
+            return false;
+        }
+        if (body.length > maxEntryBytes) {
+            return false;
+        }
+        HttpHeaders headers = response.getHeaders();
+        if (headers.containsKey(HttpHeaders.SET_COOKIE)) {
+            return false;
+        }
+        String cacheControl = headers.getCacheControl();
+        return cacheControl == null || !cacheControl.contains("no-store");
+    }
+
+    private static Mono<Void> write(ServerHttpResponse response, CachedResponse cached) {
+        response.setStatusCode(cached.status());
+        response.getHeaders().putAll(cached.headers());
+        response.getHeaders().set(CACHE_HEADER, "HIT");
+        if (cached.body().length == 0) {
+            return response.setComplete();
+        }
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.body())));
+    }
+
+    private void invalidate(InvalidationMatcher invalidation, String subject) {
+        for (String cacheName : invalidation.caches) {
+            if (invalidation.scope == ResponseCacheProperties.Scope.ALL) {
+                cache.invalidateAll(cacheName);
+            } else if (subject != null) {
+                cache.invalidateSubject(cacheName, subject);
+            }
+        }
+        invalidations.increment();
+    }
+
+    private static boolean isNoCache(ServerHttpRequest request) {
+        String cacheControl = request.getHeaders().getCacheControl();
+        return cacheControl != null && cacheControl.contains(CacheControl.noCache().getHeaderValue());
+    }
+
+    private static <T extends PathMatcher> T match(List<T> matchers, PathContainer path) {
+        for (T matcher : matchers) {
+            for (PathPattern pattern : matcher.patterns()) {
+                if (pattern.matches(path)) {
+                    return matcher;
+                }
+            }
+        }
+        return null;
+    }
+
+    private interface PathMatcher {
+
+        List<PathPattern> patterns();
+    }
+
+    private record CacheMatcher(String name, long ttlNanos, List<PathPattern> patterns) implements PathMatcher {
+    }
+
+    private record InvalidationMatcher(List<String> caches, ResponseCacheProperties.Scope scope,
+                                       List<PathPattern> patterns) implements PathMatcher {
+    }
+}
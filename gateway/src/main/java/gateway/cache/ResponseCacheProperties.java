@@ -0,0 +1,148 @@
+package gateway.cache;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@code gateway.response-cache.*}：讀取量大的 GET 端點在 gateway 層的回應快取。
+ */
+@ConfigurationProperties(prefix = "gateway.response-cache")
+public class ResponseCacheProperties {
+
+    private boolean enabled = true;
+
+    /** 所有快取回應的 body 總大小上限，超過時依 W-TinyLFU 淘汰 */
+    private DataSize maxSize = DataSize.ofMegabytes(64);
+
+    /** 單一回應超過此大小時不快取 */
+    private DataSize maxEntrySize = DataSize.ofKilobytes(256);
+
+    private List<Rule> caches = new ArrayList<>();
+
+    private List<Invalidation> invalidations = new ArrayList<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public DataSize getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(DataSize maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public DataSize getMaxEntrySize() {
+        return maxEntrySize;
+    }
+
+    public void setMaxEntrySize(DataSize maxEntrySize) {
+        this.maxEntrySize = maxEntrySize;
+    }
+
+    public List<Rule> getCaches() {
+        return caches;
+    }
+
+    public void setCaches(List<Rule> caches) {
+        this.caches = caches;
+    }
+
+    public List<Invalidation> getInvalidations() {
+        return invalidations;
+    }
+
+    public void setInvalidations(List<Invalidation> invalidations) {
+        this.invalidations = invalidations;
+    }
+
+    /**
+     * 可快取的 GET 路徑。回應依 JWT subject 分開快取，未驗證的請求不經過快取。
+     */
+    public static class Rule {
+
+        private String name;
+
+        /** PathPattern，以 gateway 收到的原始路徑比對（StripPrefix 之前） */
+        private List<String> paths = new ArrayList<>();
+
+        private Duration ttl = Duration.ofSeconds(1);
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public List<String> getPaths() {
+            return paths;
+        }
+
+        public void setPaths(List<String> paths) {
+            this.paths = paths;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+    }
+
+    /**
+     * 寫入路徑（非 GET）經過 gateway 時使指定快取失效。
+     */
+    public static class Invalidation {
+
+        private List<String> paths = new ArrayList<>();
+
+        /** 要失效的快取名稱 */
+        private List<String> caches = new ArrayList<>();
+
+        private Scope scope = Scope.SUBJECT;
+
+        public List<String> getPaths() {
+            return paths;
+        }
+
+        public void setPaths(List<String> paths) {
+            this.paths = paths;
+        }
+
+        public List<String> getCaches() {
+            return caches;
+        }
+
+        public void setCaches(List<String> caches) {
+            this.caches = caches;
+        }
+
+        public Scope getScope() {
+            return scope;
+        }
+
+        public void setScope(Scope scope) {
+            this.scope = scope;
+        }
+    }
+
+    public enum Scope {
+        /** 只失效發出寫入請求的使用者的項目 */
+        SUBJECT,
+        /** 失效整個快取（例如結算會影響多個使用者的餘額） */
+        ALL
+    }
+}
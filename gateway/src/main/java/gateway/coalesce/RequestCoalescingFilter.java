@@ -0,0 +1,127 @@
+package gateway.coalesce;
+
+import gateway.auth.VerifiedToken;
+import gateway.cache.CachedResponse;
+import gateway.cache.CapturingResponseDecorator;
+import gateway.cache.ResponseCacheFilter;
+import gateway.filter.JwtAuthenticationGlobalFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * 相同的 GET（同一路徑、query、subject 與 Accept）同時進行時只轉發第一個到下游，其餘請求等待並回放同一份回應。
+ *
+ * <p>回應 body 只讀取一次成 byte[]，每個等待的請求以 wrap 寫出，不會各自複製。
+ * 第一個請求失敗或被取消時，等待的請求各自轉發。
+ * 只處理已驗證的請求：匿名請求可能依 cookie 等其他 header 產生不同回應。
+ *
+ * <p>指標：{@code gateway.coalescing{role=leader|follower}}。
+ */
+public class RequestCoalescingFilter implements GlobalFilter, Ordered {
+
+    /** 在回應快取之後：快取命中的請求不需要合併 */
+    public static final int ORDER = ResponseCacheFilter.ORDER + 10;
+
+    public static final String COALESCED_HEADER = "X-Coalesced";
+
+    private final Set<String> routeIds;
+    private final long maxBodyBytes;
+    private final Map<Key, CompletableFuture<CachedResponse>> inFlight = new ConcurrentHashMap<>();
+    private final Counter leaders;
+    private final Counter followers;
+
+    public RequestCoalescingFilter(Set<String> routeIds, long maxBodyBytes, MeterRegistry meterRegistry) {
+        this.routeIds = Set.copyOf(routeIds);
+        this.maxBodyBytes = maxBodyBytes;
+        this.leaders = Counter.builder("gateway.coalescing").tag("role", "leader").register(meterRegistry);
+        this.followers = Counter.builder("gateway.coalescing").tag("role", "follower").register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Key key = key(exchange);
+        if (key == null) {
+            return chain.filter(exchange);
+        }
+
+        CompletableFuture<CachedResponse> pending = new CompletableFuture<>();
+        CompletableFuture<CachedResponse> existing = inFlight.putIfAbsent(key, pending);
+        if (existing != null) {
+            followers.increment();
+            return Mono.fromFuture(existing, true)
+                    .flatMap(response -> replay(exchange.getResponse(), response))
+                    .switchIfEmpty(Mono.defer(() -> chain.filter(exchange)));
+        }
+
+        leaders.increment();
+        CapturingResponseDecorator response = new CapturingResponseDecorator(exchange.getResponse(),
+                (upstream, body) -> {
+                    // 先移除再完成，之後進來的請求會重新轉發而不是讀到已完成的舊回應
+                    inFlight.remove(key, pending);
+                    pending.complete(body.length <= maxBodyBytes && upstream.getStatusCode() != null
+                            ? CachedResponse.of(upstream.getStatusCode(), upstream.getHeaders(), body, 0L)
+                            : null);
+                });
+        return chain.filter(exchange.mutate().response(response).build())
+                .doFinally(signal -> {
+                    inFlight.remove(key, pending);
+                    pending.complete(null);
+                });
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    int inFlightCount() {
+        return inFlight.size();
+    }
+
+    Key key(ServerWebExchange exchange) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (request.getMethod() != HttpMethod.GET) {
+            return null;
+        }
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        if (route == null || !routeIds.contains(route.getId())) {
+            return null;
+        }
+        VerifiedToken token = exchange.getAttribute(JwtAuthenticationGlobalFilter.VERIFIED_TOKEN_ATTR);
+        if (token == null) {
+            return null;
+        }
+        return new Key(route.getId(), token.userId(), request.getURI().getRawPath(), request.getURI().getRawQuery(),
+                request.getHeaders().getFirst(HttpHeaders.ACCEPT));
+    }
+
+    private static Mono<Void> replay(ServerHttpResponse response, CachedResponse shared) {
+        response.setStatusCode(shared.status());
+        response.getHeaders().putAll(shared.headers());
+        response.getHeaders().set(COALESCED_HEADER, "true");
+        if (shared.body().length == 0) {
+            return response.setComplete();
+        }
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(shared.body())));
+    }
+
+    record Key(String routeId, String subject, String path, String query, String accept) {
+    }
+}
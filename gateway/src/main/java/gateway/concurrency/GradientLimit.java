@@ -0,0 +1,129 @@
+package gateway.concurrency;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 依延遲自動調整的併發上限（Gradient2 演算法）。
+ *
+ * <p>維護短期與長期 RTT 的指數移動平均：短期 RTT 明顯高於長期 RTT 代表下游開始排隊，
+ * {@code gradient = clamp(tolerance * longRtt / shortRtt, 0.5, 1.0)} 會讓上限下降；
+ * RTT 穩定時 gradient 為 1，上限以 sqrt(limit) 的幅度成長。下游逾時或回 503/504 視為丟棄，
+ * 上限直接乘以 {@code backoffRatio}。
+ *
+ * <p>取得/釋放 in-flight 額度是 CAS；上限的計算在請求完成時進行，以 synchronized 保護少量狀態。
+ */
+public final class GradientLimit {
+
+    private static final int WARMUP_SAMPLES = 10;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    private final double backoffRatio;
+    private final double shortAlpha;
+    private final double longAlpha;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+
+    // 以下欄位只在 synchronized update 中存取
+    private double estimatedLimit;
+    private double shortRtt;
+    private double longRtt;
+    private long samples;
+
+    public GradientLimit(int initialLimit, int minLimit, int maxLimit, double tolerance, double smoothing,
+                         double backoffRatio, int shortWindow, int longWindow) {
+        if (minLimit < 1 || minLimit > maxLimit) {
+            throw new IllegalArgumentException("Require 1 <= minLimit <= maxLimit");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.backoffRatio = backoffRatio;
+        this.shortAlpha = 2.0 / (shortWindow + 1);
+        this.longAlpha = 2.0 / (longWindow + 1);
+        this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.limit = (int) estimatedLimit;
+    }
+
+    /**
+     * in-flight 小於目前上限時取得額度。成功後必須呼叫 {@link #release} 或 {@link #ignore} 剛好一次。
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 請求完成：釋放額度並以此樣本更新上限。
+     */
+    public void release(long rttNanos, boolean dropped) {
+        int inFlightAtCompletion = inFlight.getAndDecrement();
+        update(rttNanos, inFlightAtCompletion, dropped);
+    }
+
+    /**
+     * 請求被取消等沒有參考價值的情況：只釋放額度，不更新上限。
+     */
+    public void ignore() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void update(long rttNanos, int inFlightAtCompletion, boolean dropped) {
+        if (dropped) {
+            setLimit(estimatedLimit * backoffRatio);
+            return;
+        }
+        if (rttNanos <= 0) {
+            return;
+        }
+
+        double rtt = rttNanos;
+        samples++;
+        if (samples <= WARMUP_SAMPLES) {
+            // 暖機期間以平均值初始化
+            shortRtt = shortRtt + (rtt - shortRtt) / samples;
+            longRtt = shortRtt;
+            return;
+        }
+        shortRtt = shortRtt + shortAlpha * (rtt - shortRtt);
+        longRtt = longRtt + longAlpha * (rtt - longRtt);
+
+        // 長期 RTT 漂移得比短期高太多時（例如下游恢復後）加速回落
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+
+        // 實際併發遠低於上限時，延遲不反映上限是否合適，不調整
+        if (inFlightAtCompletion < estimatedLimit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / shortRtt));
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        setLimit(estimatedLimit * (1 - smoothing) + newLimit * smoothing);
+    }
+
+    private void setLimit(double newLimit) {
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+}
@@ -0,0 +1,60 @@
+package gateway.config;
+
+import gateway.admission.AdmissionProperties;
+import gateway.admission.PriorityAdmissionFilter;
+import gateway.admission.PriorityLanes;
+import gateway.ratelimit.CompositeKeyResolver;
+import gateway.ratelimit.CompositeKeyResolver.KeySource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.util.List;
+
+/**
+ * 限流 key resolver 與優先權通道。
+ */
+@Configuration
+@EnableConfigurationProperties(AdmissionProperties.class)
+public class AdmissionConfiguration {
+
+    /**
+     * 依 JWT subject → API key → 來源 IP 的順序決定限流 key；
+     * 同一 NAT 後的不同使用者不再共用 bucket，內部服務以 {@code gateway.rate-limiter.api-keys}
+     * 中設定的 API key 取得獨立額度，未設定的 key 以來源 IP 限流。
+     */
+    @Bean
+    @Primary
+    public CompositeKeyResolver userKeyResolver(
+            @Value("${gateway.rate-limiter.api-key-header:X-Api-Key}") String apiKeyHeader,
+            @Value("${gateway.rate-limiter.api-keys:}") List<String> apiKeys) {
+        return new CompositeKeyResolver(List.of(
+                KeySource.subject(),
+                KeySource.apiKey(apiKeyHeader, apiKeys),
+                KeySource.remoteIp()));
+    }
+
+    /**
+     * 整條路由共用一個 bucket，用於保護下游服務的總量。
+     */
+    @Bean
+    public CompositeKeyResolver routeKeyResolver() {
+        return new CompositeKeyResolver(List.of(KeySource.routeId()));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "gateway.admission.enabled", havingValue = "true", matchIfMissing = true)
+    public PriorityLanes priorityLanes(AdmissionProperties properties, MeterRegistry meterRegistry) {
+        return new PriorityLanes(properties.getMaxConcurrency(), properties.getLanes(), meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "gateway.admission.enabled", havingValue = "true", matchIfMissing = true)
+    public PriorityAdmissionFilter priorityAdmissionFilter(PriorityLanes priorityLanes) {
+        return new PriorityAdmissionFilter(priorityLanes);
+    }
+}
@@ -0,0 +1,27 @@
+package gateway.config;
+
+import gateway.coalesce.RequestCoalescingFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Set;
+
+/**
+ * 相同的同時 GET 請求合併為一次下游呼叫（{@code gateway.coalescing}）。
+ */
+@Configuration
+@ConditionalOnProperty(name = "gateway.coalescing.enabled", havingValue = "true", matchIfMissing = true)
+public class CoalescingConfiguration {
+
+    @Bean
+    public RequestCoalescingFilter requestCoalescingFilter(
+            @Value("${gateway.coalescing.routes:account,wallet}") Set<String> routeIds,
+            @Value("${gateway.coalescing.max-body-size:1MB}") DataSize maxBodySize,
+            MeterRegistry meterRegistry) {
+        return new RequestCoalescingFilter(routeIds, maxBodySize.toBytes(), meterRegistry);
+    }
+}
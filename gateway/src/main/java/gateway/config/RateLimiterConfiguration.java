@@ -0,0 +1,73 @@
+package gateway.config;
+
+import gateway.ratelimit.LeasedRateLimiter;
+import gateway.ratelimit.LocalRateLimiter;
+import gateway.ratelimit.RedisTokenLeaseStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+
+import java.time.Duration;
+
+/**
+ * 選擇 RequestRateLimiter 使用的 RateLimiter：
+ * <ul>
+ *   <li>{@code gateway.rate-limiter.type=local}（預設）：{@link LocalRateLimiter}，不需要 Redis</li>
+ *   <li>{@code gateway.rate-limiter.type=redis}：Spring Cloud Gateway 內建的 RedisRateLimiter</li>
+ *   <li>{@code gateway.rate-limiter.type=hybrid}：{@link LeasedRateLimiter}，向 Redis 批次租借 token 後在本機扣用</li>
+ * </ul>
+ */
+@Configuration
+public class RateLimiterConfiguration {
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "gateway.rate-limiter.type", havingValue = "local", matchIfMissing = true)
+    public LocalRateLimiter localRateLimiter(
+            ConfigurationService configurationService,
+            MeterRegistry meterRegistry,
+            @Value("${gateway.rate-limiter.local.default-replenish-rate:10}") int defaultReplenishRate,
+            @Value("${gateway.rate-limiter.local.default-burst-capacity:20}") int defaultBurstCapacity,
+            @Value("${gateway.rate-limiter.local.shards:64}") int shards,
+            @Value("${gateway.rate-limiter.local.idle-timeout:5m}") Duration idleTimeout,
+            @Value("${gateway.rate-limiter.local.eviction-interval:30s}") Duration evictionInterval) {
+        LocalRateLimiter.Config defaultConfig = new LocalRateLimiter.Config()
+                .setReplenishRate(defaultReplenishRate)
+                .setBurstCapacity(defaultBurstCapacity);
+        LocalRateLimiter rateLimiter = new LocalRateLimiter(
+                configurationService, defaultConfig, shards, idleTimeout, evictionInterval);
+        Gauge.builder("gateway.ratelimit.local.buckets", rateLimiter, LocalRateLimiter::size)
+                .register(meterRegistry);
+        return rateLimiter;
+    }
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "gateway.rate-limiter.type", havingValue = "hybrid")
+    public LeasedRateLimiter leasedRateLimiter(
+            ConfigurationService configurationService,
+            ReactiveStringRedisTemplate redisTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${gateway.rate-limiter.hybrid.default-replenish-rate:10}") int defaultReplenishRate,
+            @Value("${gateway.rate-limiter.hybrid.default-burst-capacity:20}") int defaultBurstCapacity,
+            @Value("${gateway.rate-limiter.hybrid.batch-window:2ms}") Duration batchWindow,
+            @Value("${gateway.rate-limiter.hybrid.max-batch-size:256}") int maxBatchSize,
+            @Value("${gateway.rate-limiter.hybrid.idle-timeout:5m}") Duration idleTimeout,
+            @Value("${gateway.rate-limiter.hybrid.eviction-interval:30s}") Duration evictionInterval) {
+        LeasedRateLimiter.Config defaultConfig = new LeasedRateLimiter.Config()
+                .setReplenishRate(defaultReplenishRate)
+                .setBurstCapacity(defaultBurstCapacity);
+        LeasedRateLimiter rateLimiter = new LeasedRateLimiter(configurationService,
+                new RedisTokenLeaseStore(redisTemplate), defaultConfig,
+                batchWindow, maxBatchSize, idleTimeout, evictionInterval, meterRegistry);
+        Gauge.builder("gateway.ratelimit.lease.keys", rateLimiter, LeasedRateLimiter::size)
+                .register(meterRegistry);
+        return rateLimiter;
+    }
+}
@@ -0,0 +1,36 @@
+package gateway.config;
+
+import gateway.cache.ResponseCache;
+import gateway.cache.ResponseCacheFilter;
+import gateway.cache.ResponseCacheProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 讀取量大的 GET 端點的回應快取（{@code gateway.response-cache}）。
+ */
+@Configuration
+@EnableConfigurationProperties(ResponseCacheProperties.class)
+@ConditionalOnProperty(name = "gateway.response-cache.enabled", havingValue = "true", matchIfMissing = true)
+public class ResponseCacheConfiguration {
+
+    @Bean
+    public ResponseCache responseCache(ResponseCacheProperties properties, MeterRegistry meterRegistry) {
+        Duration maxTtl = properties.getCaches().stream()
+                .map(ResponseCacheProperties.Rule::getTtl)
+                .max(Duration::compareTo)
+                .orElse(Duration.ofSeconds(1));
+        return new ResponseCache(properties.getMaxSize().toBytes(), maxTtl, meterRegistry);
+    }
+
+    @Bean
+    public ResponseCacheFilter responseCacheFilter(ResponseCache responseCache, ResponseCacheProperties properties,
+                                                   MeterRegistry meterRegistry) {
+        return new ResponseCacheFilter(responseCache, properties, meterRegistry);
+    }
+}
@@ -0,0 +1,35 @@
+package gateway.config;
+
+import gateway.upstream.PerRouteNettyRoutingFilter;
+import gateway.upstream.UpstreamHttpClients;
+import gateway.upstream.UpstreamProperties;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.http.client.HttpClient;
+
+import java.util.List;
+
+/**
+ * 每條路由獨立的下游連線池（{@code gateway.upstream.routes.<routeId>}）。
+ */
+@Configuration
+@EnableConfigurationProperties(UpstreamProperties.class)
+public class UpstreamConfiguration {
+
+    @Bean
+    public UpstreamHttpClients upstreamHttpClients(UpstreamProperties properties) {
+        return new UpstreamHttpClients(properties);
+    }
+
+    @Bean
+    public PerRouteNettyRoutingFilter perRouteNettyRoutingFilter(HttpClient httpClient,
+                                                                 ObjectProvider<List<HttpHeadersFilter>> headersFilters,
+                                                                 HttpClientProperties httpClientProperties,
+                                                                 UpstreamHttpClients upstreamHttpClients) {
+        return new PerRouteNettyRoutingFilter(httpClient, headersFilters, httpClientProperties, upstreamHttpClients);
+    }
+}
@@ -0,0 +1,221 @@
+package gateway.filter;
+
+import gateway.concurrency.GradientLimit;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.SignalType;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每條路由依下游延遲自動調整併發上限（{@link GradientLimit}）。超過上限的請求立即回 503 與 Retry-After，
+ * 不在 Netty 佇列中等待。
+ *
+ * <pre>
+ * filters:
+ *   - name: AdaptiveConcurrency
+ *     args:
+ *       initialLimit: 50
+ *       maxLimit: 500
+ * </pre>
+ *
+ * <p>指標：{@code gateway.concurrency.limit{route}}、{@code gateway.concurrency.inflight{route}}、
+ * {@code gateway.concurrency.rejected{route}}、{@code gateway.concurrency.rtt{route}}。
+ */
+@Component
+public class AdaptiveConcurrencyGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<AdaptiveConcurrencyGatewayFilterFactory.Config> {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, RouteLimit> limits = new ConcurrentHashMap<>();
+
+    public AdaptiveConcurrencyGatewayFilterFactory(MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        String routeId = config.getRouteId() != null ? config.getRouteId() : "default";
+        // 路由重新整理時沿用既有的上限，不重新學習
+        RouteLimit routeLimit = limits.computeIfAbsent(routeId, id -> new RouteLimit(id, config));
+        String retryAfter = Long.toString(config.getRetryAfterSeconds());
+
+        return (exchange, chain) -> {
+            GradientLimit limit = routeLimit.limit;
+            if (!limit.tryAcquire()) {
+                routeLimit.rejected.increment();
+                ServerHttpResponse response = exchange.getResponse();
+                response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                response.getHeaders().set(HttpHeaders.RETRY_AFTER, retryAfter);
+                return response.setComplete();
+            }
+
+            long start = System.nanoTime();
+            return chain.filter(exchange).doFinally(signal -> {
+                if (signal == SignalType.CANCEL) {
+                    limit.ignore();
+                    return;
+                }
+                long rtt = System.nanoTime() - start;
+                routeLimit.rtt.record(rtt, TimeUnit.NANOSECONDS);
+                limit.release(rtt, signal == SignalType.ON_ERROR || isOverloaded(exchange.getResponse().getStatusCode()));
+            });
+        };
+    }
+
+    GradientLimit limitFor(String routeId) {
+        RouteLimit routeLimit = limits.get(routeId);
+        return routeLimit != null ? routeLimit.limit : null;
+    }
+
+    private static boolean isOverloaded(HttpStatusCode status) {
+        return status != null
+                && (status.value() == HttpStatus.SERVICE_UNAVAILABLE.value()
+                || status.value() == HttpStatus.GATEWAY_TIMEOUT.value());
+    }
+
+    private final class RouteLimit {
+
+        final GradientLimit limit;
+        final Counter rejected;
+        final Timer rtt;
+
+        RouteLimit(String routeId, Config config) {
+            this.limit = new GradientLimit(config.getInitialLimit(), config.getMinLimit(), config.getMaxLimit(),
+                    config.getTolerance(), config.getSmoothing(), config.getBackoffRatio(),
+                    config.getShortWindow(), config.getLongWindow());
+            Gauge.builder("gateway.concurrency.limit", limit, GradientLimit::getLimit)
+                    .tag("route", routeId)
+                    .register(meterRegistry);
+            Gauge.builder("gateway.concurrency.inflight", limit, GradientLimit::getInFlight)
+                    .tag("route", routeId)
+                    .register(meterRegistry);
+            this.rejected = Counter.builder("gateway.concurrency.rejected")
+                    .tag("route", routeId)
+                    .register(meterRegistry);
+            this.rtt = Timer.builder("gateway.concurrency.rtt")
+                    .tag("route", routeId)
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry);
+        }
+    }
+
+    public static class Config implements HasRouteId {
+
+        private String routeId;
+        private int initialLimit = 20;
+        private int minLimit = 5;
+        private int maxLimit = 1000;
+        /** 可容忍的 RTT 倍數，短期 RTT 超過長期 RTT * tolerance 時開始降低上限 */
+        private double tolerance = 1.5;
+        private double smoothing = 0.2;
+        private double backoffRatio = 0.9;
+        private int shortWindow = 10;
+        private int longWindow = 600;
+        private long retryAfterSeconds = 1;
+
+        @Override
+        public void setRouteId(String routeId) {
+            this.routeId = routeId;
+        }
+
+        @Override
+        public String getRouteId() {
+            return routeId;
+        }
+
+        public int getInitialLimit() {
+            return initialLimit;
+        }
+
+        public Config setInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+            return this;
+        }
+
+        public int getMinLimit() {
+            return minLimit;
+        }
+
+        public Config setMinLimit(int minLimit) {
+            this.minLimit = minLimit;
+            return this;
+        }
+
+        public int getMaxLimit() {
+            return maxLimit;
+        }
+
+        public Config setMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        public double getTolerance() {
+            return tolerance;
+        }
+
+        public Config setTolerance(double tolerance) {
+            this.tolerance = tolerance;
+            return this;
+        }
+
+        public double getSmoothing() {
+            return smoothing;
+        }
+
+        public Config setSmoothing(double smoothing) {
+            this.smoothing = smoothing;
+            return this;
+        }
+
+        public double getBackoffRatio() {
+            return backoffRatio;
+        }
+
+        public Config setBackoffRatio(double backoffRatio) {
+            this.backoffRatio = backoffRatio;
+            return this;
+        }
+
+        public int getShortWindow() {
+            return shortWindow;
+        }
+
+        public Config setShortWindow(int shortWindow) {
+            this.shortWindow = shortWindow;
+            return this;
+        }
+
+        public int getLongWindow() {
+            return longWindow;
+        }
+
+        public Config setLongWindow(int longWindow) {
+            this.longWindow = longWindow;
+            return this;
+        }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+
+        public Config setRetryAfterSeconds(long retryAfterSeconds) {
+            this.retryAfterSeconds = retryAfterSeconds;
+            return this;
+        }
+    }
+}
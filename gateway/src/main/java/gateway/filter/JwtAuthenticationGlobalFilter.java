@@ -0,0 +1,119 @@
+package gateway.filter;
+
+import common.http.TrustedHeaders;
+import gateway.auth.JwtVerifier;
+import gateway.auth.VerifiedToken;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 在 gateway 邊緣驗證 JWT：
+ * <ul>
+ *   <li>無 Bearer token 的請求直接放行（register/login 等公開端點由下游判斷）</li>
+ *   <li>token 無效或過期時直接回 401，不轉發到下游</li>
+ *   <li>token 有效時以 {@link TrustedHeaders} 轉發 userId/email/username，下游不需再驗證</li>
+ * </ul>
+ * 外部請求自帶的 {@link TrustedHeaders} 一律移除，避免偽造身分。
+ */
+@Component
+@ConditionalOnProperty(name = "gateway.jwt.enabled", havingValue = "true", matchIfMissing = true)
+public class JwtAuthenticationGlobalFilter implements GlobalFilter, Ordered {
+
+    public static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 100;
+
+    /** 已驗證的 {@link VerifiedToken}，供之後的 filter（如限流 key resolver）使用 */
+    public static final String VERIFIED_TOKEN_ATTR = JwtAuthenticationGlobalFilter.class.getName() + ".verifiedToken";
+
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final byte[] UNAUTHORIZED_BODY =
+            "{\"error\":\"unauthorized\",\"message\":\"Invalid or expired token\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final JwtVerifier jwtVerifier;
+    private final Counter rejected;
+
+    public JwtAuthenticationGlobalFilter(JwtVerifier jwtVerifier, MeterRegistry meterRegistry) {
+        this.jwtVerifier = jwtVerifier;
+        this.rejected = Counter.builder("gateway.jwt.rejected").register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        String authHeader = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+
+        if (authHeader == null || !authHeader.startsWith(BEARER_PREFIX)) {
+            if (!hasTrustedHeaders(request.getHeaders())) {
+                return chain.filter(exchange);
+            }
+            ServerHttpRequest stripped = request.mutate()
+                    .headers(JwtAuthenticationGlobalFilter::removeTrustedHeaders)
+                    .build();
+            return chain.filter(exchange.mutate().request(stripped).build());
+        }
+
+        VerifiedToken verified;
+        try {
+            verified = jwtVerifier.verify(authHeader.substring(BEARER_PREFIX.length()));
+        } catch (JwtException | IllegalArgumentException e) {
+            rejected.increment();
+            return unauthorized(exchange.getResponse());
+        }
+
+        exchange.getAttributes().put(VERIFIED_TOKEN_ATTR, verified);
+        ServerHttpRequest authenticated = request.mutate()
+                .headers(headers -> {
+                    removeTrustedHeaders(headers);
+                    headers.set(TrustedHeaders.USER_ID, verified.userId());
+                    if (verified.email() != null) {
+                        headers.set(TrustedHeaders.USER_EMAIL, verified.email());
+                    }
+                    if (verified.username() != null) {
+                        headers.set(TrustedHeaders.USER_NAME, verified.username());
+                    }
+                })
+                .build();
+        return chain.filter(exchange.mutate().request(authenticated).build());
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    private static boolean hasTrustedHeaders(HttpHeaders headers) {
+        return headers.containsKey(TrustedHeaders.USER_ID)
+                || headers.containsKey(TrustedHeaders.USER_EMAIL)
+                || headers.containsKey(TrustedHeaders.USER_NAME)
+                || headers.containsKey(TrustedHeaders.SERVICE_TOKEN);
+    }
+
+    private static void removeTrustedHeaders(HttpHeaders headers) {
+        headers.remove(TrustedHeaders.USER_ID);
+        headers.remove(TrustedHeaders.USER_EMAIL);
+        headers.remove(TrustedHeaders.USER_NAME);
+        headers.remove(TrustedHeaders.SERVICE_TOKEN);
+    }
+
+    private static Mono<Void> unauthorized(ServerHttpResponse response) {
+        response.setStatusCode(HttpStatus.UNAUTHORIZED);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        DataBuffer body = response.bufferFactory().wrap(UNAUTHORIZED_BODY);
+        return response.writeWith(Mono.just(body));
+    }
+}
@@ -0,0 +1,114 @@
+package gateway.ratelimit;
+
+import gateway.auth.VerifiedToken;
+import gateway.filter.JwtAuthenticationGlobalFilter;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 依序嘗試多個 {@link KeySource}，使用第一個有值的來源作為限流 key，key 帶有來源前綴
+ * （如 {@code user:usr_123}、{@code apikey:...}、{@code ip:10.0.0.1}），不同來源不會共用 bucket。
+ * 全部來源都沒有值時回傳空 key，由 RequestRateLimiter 的 deny-empty-key 處理。
+ */
+public class CompositeKeyResolver implements KeyResolver {
+
+    private final List<KeySource> sources;
+
+    public CompositeKeyResolver(List<KeySource> sources) {
+        this.sources = List.copyOf(sources);
+    }
+
+    @Override
+    public Mono<String> resolve(ServerWebExchange exchange) {
+        for (KeySource source : sources) {
+            String key = source.resolve(exchange);
+            if (key != null && !key.isEmpty()) {
+                return Mono.just(source.prefix() + ':' + key);
+            }
+        }
+        return Mono.empty();
+    }
+
+    public interface KeySource {
+
+        String prefix();
+
+        /**
+         * 回傳 key，沒有值時回傳 null。
+         */
+        String resolve(ServerWebExchange exchange);
+
+        /** gateway 已驗證的 JWT subject */
+        static KeySource subject() {
+            return of("user", exchange -> {
+                VerifiedToken token = exchange.getAttribute(JwtAuthenticationGlobalFilter.VERIFIED_TOKEN_ATTR);
+                return token != null ? token.userId() : null;
+            });
+        }
+
+        /**
+         * API key header，供內部服務與系統帳號使用；只接受 {@code validKeys} 中設定的 key，
+         * 其他值視為沒有 key（由下一個來源決定），隨意帶入的 header 不能換得獨立的額度。
+         */
+        static KeySource apiKey(String headerName, Collection<String> validKeys) {
+            List<byte[]> keys = validKeys.stream()
+                    .filter(key -> key != null && !key.isEmpty())
+                    .map(key -> key.getBytes(StandardCharsets.UTF_8))
+                    .toList();
+            return of("apikey", exchange -> {
+                String value = exchange.getRequest().getHeaders().getFirst(headerName);
+                if (value == null || keys.isEmpty()) {
+                    return null;
+                }
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                boolean valid = false;
+                for (byte[] key : keys) {
+                    // 逐一比對全部 key，比對時間與哪一個 key 相符無關
+                    valid |= MessageDigest.isEqual(key, bytes);
+                }
+                return valid ? value : null;
+            });
+        }
+
+        /** 路由 id，同一路由的所有請求共用一個 bucket */
+        static KeySource routeId() {
+            return of("route", exchange -> {
+                Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+                return route != null ? route.getId() : null;
+            });
+        }
+
+        static KeySource remoteIp() {
+            return of("ip", exchange -> {
+                InetSocketAddress address = exchange.getRequest().getRemoteAddress();
+                return address != null && address.getAddress() != null
+                        ? address.getAddress().getHostAddress()
+                        : null;
+            });
+        }
+
+        static KeySource of(String prefix, Function<ServerWebExchange, String> resolver) {
+            return new KeySource() {
+                @Override
+                public String prefix() {
+                    return prefix;
+                }
+
+                @Override
+                public String resolve(ServerWebExchange exchange) {
+                    return resolver.apply(exchange);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package gateway.ratelimit;
+
+import gateway.ratelimit.TokenLeaseStore.LeaseRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.constraints.Min;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.validation.annotation.Validated;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 本機 + Redis 混合限流：多個 gateway 共用 {@link TokenLeaseStore} 上的全域額度，
+ * 但每個 gateway 一次租借一批 token（{@code leaseSize}）在本機扣用，不必每個請求都存取 Redis。
+ *
+ * <ul>
+ *   <li>本機租約剩餘量低於 {@code leaseSize / 2} 時在背景預先續租，請求不需等待</li>
+ *   <li>租約用完的請求等待下一次續租；同一個 {@code batchWindow} 內所有需要續租的 key
+ *       合併成一次 {@link TokenLeaseStore#acquire} 呼叫（最多 {@code maxBatchSize} 個）</li>
+ *   <li>續租失敗時與 RedisRateLimiter 相同採 fail-open，允許請求通過</li>
+ *   <li>閒置超過 {@code idleTimeout} 的租約會被移除，剩餘 token 不歸還（全域額度只會少用，不會超用）</li>
+ * </ul>
+ *
+ * <p>路由設定前綴為 {@code leased-rate-limiter}，參數與 RedisRateLimiter 相同，另可設定 {@code leaseSize}。
+ */
+public class LeasedRateLimiter extends AbstractRateLimiter<LeasedRateLimiter.Config> implements DisposableBean {
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "leased-rate-limiter";
+
+    private final TokenLeaseStore store;
+    private final Config defaultConfig;
+    private final long batchWindowNanos;
+    private final int maxBatchSize;
+    private final long idleTimeoutNanos;
+    private final Map<String, Map<String, Lease>> routes = new ConcurrentHashMap<>();
+    private final Queue<Lease> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final Scheduler scheduler;
+    private final Disposable evictionTask;
+    private final DistributionSummary batchSizes;
+    private final Counter leaseErrors;
+
+    public LeasedRateLimiter(ConfigurationService configurationService, TokenLeaseStore store, Config defaultConfig,
+                             Duration batchWindow, int maxBatchSize, Duration idleTimeout, Duration evictionInterval,
+                             MeterRegistry meterRegistry) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        this.store = store;
+        this.defaultConfig = defaultConfig;
+        this.batchWindowNanos = batchWindow.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.scheduler = Schedulers.newSingle("leased-rate-limiter", true);
+        this.evictionTask = scheduler.schedulePeriodically(() -> evictIdle(System.nanoTime()),
+                evictionInterval.toMillis(), evictionInterval.toMillis(), TimeUnit.MILLISECONDS);
+        this.batchSizes = DistributionSummary.builder("gateway.ratelimit.lease.batch")
+                .description("Keys refreshed per lease store call")
+                .register(meterRegistry);
+        this.leaseErrors = Counter.builder("gateway.ratelimit.lease.errors").register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        Config config = loadConfiguration(routeId);
+        Lease lease = lease(routeId, id, config);
+        int requested = config.getRequestedTokens();
+        lease.lastUsedNanos = System.nanoTime();
+
+        if (lease.tryTake(requested)) {
+            if (lease.tokens.get() < config.lowWatermark()) {
+                requestRefresh(lease);
+            }
+            return Mono.just(response(true, lease.tokens.get(), config));
+        }
+
+        return requestRefresh(lease)
+                .then(Mono.fromSupplier(() -> response(lease.tryTake(requested), lease.tokens.get(), config)))
+                .onErrorResume(e -> Mono.just(response(true, -1, config)));
+    }
+
+    /**
+     * 移除閒置超過 idleTimeout 且沒有續租中的租約，回傳移除數量。
+     */
+    public int evictIdle(long nowNanos) {
+        int evicted = 0;
+        for (Map<String, Lease> leases : routes.values()) {
+            int before = leases.size();
+            leases.values().removeIf(lease -> lease.refresh.get() == null
+                    && nowNanos - lease.lastUsedNanos > idleTimeoutNanos);
+            evicted += before - leases.size();
+        }
+        return evicted;
+    }
+
+    public long size() {
+        long size = 0;
+        for (Map<String, Lease> leases : routes.values()) {
+            size += leases.size();
+        }
+        return size;
+    }
+
+    @Override
+    public void destroy() {
+        evictionTask.dispose();
+        scheduler.dispose();
+    }
+
+    private Lease lease(String routeId, String id, Config config) {
+        Map<String, Lease> leases = routes.get(routeId);
+        if (leases == null) {
+            leases = routes.computeIfAbsent(routeId, r -> new ConcurrentHashMap<>());
+        }
+        Lease lease = leases.get(id);
+        if (lease == null) {
+            Lease created = new Lease(routeId + '.' + id, config);
+            lease = leases.putIfAbsent(id, created);
+            if (lease == null) {
+                lease = created;
+            }
+        }
+        return lease;
+    }
+
+    private Mono<Void> requestRefresh(Lease lease) {
+        Sinks.Empty<Void> inFlight = lease.refresh.get();
+        if (inFlight != null) {
+            return inFlight.asMono();
+        }
+        Sinks.Empty<Void> created = Sinks.empty();
+        if (!lease.refresh.compareAndSet(null, created)) {
+            inFlight = lease.refresh.get();
+            // 另一個執行緒剛好完成續租
+            return inFlight != null ? inFlight.asMono() : Mono.empty();
+        }
+        pending.add(lease);
+        scheduleFlush();
+        return created.asMono();
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            scheduler.schedule(this::flush, batchWindowNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+        List<Lease> batch = new ArrayList<>(Math.min(maxBatchSize, 64));
+        Lease lease;
+        while (batch.size() < maxBatchSize && (lease = pending.poll()) != null) {
+            batch.add(lease);
+        }
+        if (!pending.isEmpty()) {
+            scheduleFlush();
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<LeaseRequest> requests = new ArrayList<>(batch.size());
+        for (Lease l : batch) {
+            requests.add(l.toRequest());
+        }
+        batchSizes.record(batch.size());
+        store.acquire(requests).subscribe(
+                granted -> {
+                    for (int i = 0; i < batch.size(); i++) {
+                        batch.get(i).complete(granted[i]);
+                    }
+                },
+                error -> {
+                    leaseErrors.increment();
+                    for (Lease l : batch) {
+                        l.fail(error);
+                    }
+                });
+    }
+
+    private Config loadConfiguration(String routeId) {
+        Config config = getConfig().getOrDefault(routeId, defaultConfig);
+        if (config == null) {
+            throw new IllegalArgumentException("No Configuration found for route " + routeId + " or defaultFilters");
+        }
+        return config;
+    }
+
+    private static Response response(boolean allowed, long remaining, Config config) {
+        return new Response(allowed, Map.of(
+                LocalRateLimiter.REMAINING_HEADER, Long.toString(remaining),
+                LocalRateLimiter.REPLENISH_RATE_HEADER, Integer.toString(config.getReplenishRate()),
+                LocalRateLimiter.BURST_CAPACITY_HEADER, Integer.toString(config.getBurstCapacity()),
+                LocalRateLimiter.REQUESTED_TOKENS_HEADER, Integer.toString(config.getRequestedTokens())));
+    }
+
+    private static final class Lease {
+
+        final String key;
+        final Config config;
+        final AtomicLong tokens = new AtomicLong();
+        final AtomicReference<Sinks.Empty<Void>> refresh = new AtomicReference<>();
+        volatile long lastUsedNanos;
+
+        Lease(String key, Config config) {
+            this.key = key;
+            this.config = config;
+        }
+
+        boolean tryTake(int requested) {
+            while (true) {
+                long current = tokens.get();
+                if (current < requested) {
+                    return false;
+                }
+                if (tokens.compareAndSet(current, current - requested)) {
+                    return true;
+                }
+            }
+        }
+
+        LeaseRequest toRequest() {
+            return new LeaseRequest(key, config.getReplenishRate(), config.getBurstCapacity(), config.leaseSize());
+        }
+
+        void complete(long granted) {
+            tokens.addAndGet(granted);
+            Sinks.Empty<Void> sink = refresh.getAndSet(null);
+            if (sink != null) {
+                sink.tryEmitEmpty();
+            }
+        }
+
+        void fail(Throwable error) {
+            Sinks.Empty<Void> sink = refresh.getAndSet(null);
+            if (sink != null) {
+                sink.tryEmitError(error);
+            }
+        }
+    }
+
+    @Validated
+    public static class Config {
+
+        @Min(1)
+        private int replenishRate;
+
+        @Min(0)
+        private int burstCapacity = 1;
+
+        @Min(1)
+        private int requestedTokens = 1;
+
+        /** 每次租借的 token 數，0 表示 replenishRate / 10（至少 1，最多 burstCapacity） */
+        @Min(0)
+        private int leaseSize;
+
+        public int getReplenishRate() {
+            return replenishRate;
+        }
+
+        public Config setReplenishRate(int replenishRate) {
+            this.replenishRate = replenishRate;
+            return this;
+        }
+
+        public int getBurstCapacity() {
+            return burstCapacity;
+        }
+
+        public Config setBurstCapacity(int burstCapacity) {
+            this.burstCapacity = burstCapacity;
+            return this;
+        }
+
+        public int getRequestedTokens() {
+            return requestedTokens;
+        }
+
+        public Config setRequestedTokens(int requestedTokens) {
+            this.requestedTokens = requestedTokens;
+            return this;
+        }
+
+        public int getLeaseSize() {
+            return leaseSize;
+        }
+
+        public Config setLeaseSize(int leaseSize) {
+            this.leaseSize = leaseSize;
+            return this;
+        }
+
+        long leaseSize() {
+            long size = leaseSize > 0 ? leaseSize : Math.max(1, replenishRate / 10);
+            return Math.max(requestedTokens, Math.min(size, Math.max(1, burstCapacity)));
+        }
+
+        long lowWatermark() {
+            return leaseSize() / 2;
+        }
+
+        @Override
+        public String toString() {
+            return "Config{replenishRate=" + replenishRate + ", burstCapacity=" + burstCapacity
+                    + ", requestedTokens=" + requestedTokens + ", leaseSize=" + leaseSize + '}';
+        }
+    }
+}
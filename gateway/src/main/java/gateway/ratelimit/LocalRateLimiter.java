@@ -0,0 +1,234 @@
+package gateway.ratelimit;
+
+import jakarta.validation.constraints.Min;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.validation.annotation.Validated;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 在 gateway 程序內執行的 {@code RateLimiter}，不需要 Redis。
+ *
+ * <p>每個 key 的 token bucket 以 GCRA（Generic Cell Rate Algorithm）實作：bucket 只存一個
+ * theoretical arrival time（TAT，nanoTime），以單一 CAS 更新，不需要鎖。bucket 存放在依 key hash
+ * 分片的 {@link ConcurrentHashMap}，背景定期移除已經補滿且閒置超過 {@code idleTimeout} 的 bucket；
+ * 移除補滿的 bucket 不影響限流結果，因為新建的 bucket 同樣是滿的。
+ *
+ * <p>路由設定與 {@code RedisRateLimiter} 相同，只是前綴改為 {@code local-rate-limiter}：
+ * <pre>
+ * - name: RequestRateLimiter
+ *   args:
+ *     local-rate-limiter.replenishRate: 10
+ *     local-rate-limiter.burstCapacity: 20
+ * </pre>
+ */
+public class LocalRateLimiter extends AbstractRateLimiter<LocalRateLimiter.Config> implements DisposableBean {
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "local-rate-limiter";
+
+    public static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+    public static final String REPLENISH_RATE_HEADER = "X-RateLimit-Replenish-Rate";
+    public static final String BURST_CAPACITY_HEADER = "X-RateLimit-Burst-Capacity";
+    public static final String REQUESTED_TOKENS_HEADER = "X-RateLimit-Requested-Tokens";
+
+    private final Config defaultConfig;
+    private final long idleTimeoutNanos;
+    private final int shardMask;
+    private final Map<String, ConcurrentHashMap<String, AtomicLong>[]> routes = new ConcurrentHashMap<>();
+    private final Scheduler evictionScheduler;
+    private final Disposable evictionTask;
+
+    private boolean includeHeaders = true;
+
+    public LocalRateLimiter(ConfigurationService configurationService, Config defaultConfig,
+                            int shards, Duration idleTimeout, Duration evictionInterval) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        if (Integer.bitCount(shards) != 1) {
+            throw new IllegalArgumentException("shards must be a power of two: " + shards);
+        }
+        this.defaultConfig = defaultConfig;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.shardMask = shards - 1;
+        this.evictionScheduler = Schedulers.newSingle("local-rate-limiter-evictor", true);
+        this.evictionTask = evictionScheduler.schedulePeriodically(
+                () -> evictIdle(System.nanoTime()),
+                evictionInterval.toMillis(), evictionInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        Config config = loadConfiguration(routeId);
+        long now = System.nanoTime();
+        long interval = config.emissionIntervalNanos();
+        long increment = interval * config.getRequestedTokens();
+        long burstWindow = interval * config.getBurstCapacity();
+        AtomicLong tat = bucket(routeId, id, now);
+
+        boolean allowed;
+        long remaining;
+        while (true) {
+            long current = tat.get();
+            long base = current - now > 0 ? current : now;
+            long next = base + increment;
+            if (next - now > burstWindow) {
+                allowed = false;
+                remaining = (burstWindow - (base - now)) / interval;
+                break;
+            }
+            if (tat.compareAndSet(current, next)) {
+                allowed = true;
+                remaining = (burstWindow - (next - now)) / interval;
+                break;
+            }
+        }
+        return Mono.just(new Response(allowed, headers(config, remaining)));
+    }
+
+    /**
+     * 移除已補滿且閒置超過 idleTimeout 的 bucket，回傳移除數量。
+     */
+    public int evictIdle(long nowNanos) {
+        int evicted = 0;
+        for (ConcurrentHashMap<String, AtomicLong>[] shards : routes.values()) {
+            for (ConcurrentHashMap<String, AtomicLong> shard : shards) {
+                int before = shard.size();
+                shard.values().removeIf(tat -> nowNanos - tat.get() > idleTimeoutNanos);
+                evicted += before - shard.size();
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * 目前保存的 bucket 數量（所有路由）。
+     */
+    public long size() {
+        long size = 0;
+        for (ConcurrentHashMap<String, AtomicLong>[] shards : routes.values()) {
+            for (ConcurrentHashMap<String, AtomicLong> shard : shards) {
+                size += shard.size();
+            }
+        }
+        return size;
+    }
+
+    public boolean isIncludeHeaders() {
+        return includeHeaders;
+    }
+
+    public void setIncludeHeaders(boolean includeHeaders) {
+        this.includeHeaders = includeHeaders;
+    }
+
+    @Override
+    public void destroy() {
+        evictionTask.dispose();
+        evictionScheduler.dispose();
+    }
+
+    private AtomicLong bucket(String routeId, String id, long now) {
+        ConcurrentHashMap<String, AtomicLong>[] shards = routes.get(routeId);
+        if (shards == null) {
+            shards = routes.computeIfAbsent(routeId, r -> newShards());
+        }
+        int h = id.hashCode();
+        ConcurrentHashMap<String, AtomicLong> shard = shards[(h ^ (h >>> 16)) & shardMask];
+        AtomicLong tat = shard.get(id);
+        if (tat == null) {
+            AtomicLong created = new AtomicLong(now);
+            tat = shard.putIfAbsent(id, created);
+            if (tat == null) {
+                tat = created;
+            }
+        }
+        return tat;
+    }
+
+    @SuppressWarnings("unchecked")
+    private ConcurrentHashMap<String, AtomicLong>[] newShards() {
+        ConcurrentHashMap<String, AtomicLong>[] shards = new ConcurrentHashMap[shardMask + 1];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new ConcurrentHashMap<>();
+        }
+        return shards;
+    }
+
+    private Config loadConfiguration(String routeId) {
+        Config config = getConfig().getOrDefault(routeId, defaultConfig);
+        if (config == null) {
+            throw new IllegalArgumentException("No Configuration found for route " + routeId + " or defaultFilters");
+        }
+        return config;
+    }
+
+    private Map<String, String> headers(Config config, long remaining) {
+        if (!includeHeaders) {
+            return Map.of();
+        }
+        return Map.of(
+                REMAINING_HEADER, Long.toString(remaining),
+                REPLENISH_RATE_HEADER, Integer.toString(config.getReplenishRate()),
+                BURST_CAPACITY_HEADER, Integer.toString(config.getBurstCapacity()),
+                REQUESTED_TOKENS_HEADER, Integer.toString(config.getRequestedTokens()));
+    }
+
+    @Validated
+    public static class Config {
+
+        @Min(1)
+        private int replenishRate;
+
+        @Min(0)
+        private int burstCapacity = 1;
+
+        @Min(1)
+        private int requestedTokens = 1;
+
+        public int getReplenishRate() {
+            return replenishRate;
+        }
+
+        public Config setReplenishRate(int replenishRate) {
+            this.replenishRate = replenishRate;
+            return this;
+        }
+
+        public int getBurstCapacity() {
+            return burstCapacity;
+        }
+
+        public Config setBurstCapacity(int burstCapacity) {
+            this.burstCapacity = burstCapacity;
+            return this;
+        }
+
+        public int getRequestedTokens() {
+            return requestedTokens;
+        }
+
+        public Config setRequestedTokens(int requestedTokens) {
+            this.requestedTokens = requestedTokens;
+            return this;
+        }
+
+        long emissionIntervalNanos() {
+            return TimeUnit.SECONDS.toNanos(1) / replenishRate;
+        }
+
+        @Override
+        public String toString() {
+            return "Config{replenishRate=" + replenishRate + ", burstCapacity=" + burstCapacity
+                    + ", requestedTokens=" + requestedTokens + '}';
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package gateway.ratelimit;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 以 Redis 保存全域 token bucket。一批租借請求只執行一次 Lua script（{@code scripts/token_lease.lua}），
+ * 不論包含多少個 key 都只有一次 round-trip。
+ *
+ * <p>同一次 script 會存取多個 key，因此適用單機或主從 Redis；Redis Cluster 需要依 slot 分批呼叫。
+ */
+public class RedisTokenLeaseStore implements TokenLeaseStore {
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final RedisScript<List<Long>> SCRIPT =
+            (RedisScript) RedisScript.of(new ClassPathResource("scripts/token_lease.lua"), List.class);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+
+    public RedisTokenLeaseStore(ReactiveStringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    public Mono<long[]> acquire(List<LeaseRequest> requests) {
+        List<String> keys = new ArrayList<>(requests.size() * 2);
+        List<String> args = new ArrayList<>(requests.size() * 3);
+        for (LeaseRequest request : requests) {
+            String prefix = "leased_rate_limiter.{" + request.key() + "}";
+            keys.add(prefix + ".tokens");
+            keys.add(prefix + ".timestamp");
+            args.add(Integer.toString(request.replenishRate()));
+            args.add(Integer.toString(request.burstCapacity()));
+            args.add(Long.toString(request.want()));
+        }
+
+        return redisTemplate.execute(SCRIPT, keys, args)
+                .reduce(new ArrayList<Long>(requests.size()), (all, partial) -> {
+                    all.addAll(partial);
+                    return all;
+                })
+                .map(granted -> {
+                    if (granted.size() != requests.size()) {
+                        throw new IllegalStateException(
+                                "Expected " + requests.size() + " grants but got " + granted.size());
+                    }
+                    long[] result = new long[granted.size()];
+                    for (int i = 0; i < result.length; i++) {
+                        result[i] = granted.get(i);
+                    }
+                    return result;
+                });
+    }
+}
@@ -0,0 +1,20 @@
+package gateway.ratelimit;
+
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * 全域 token bucket 的儲存端。gateway 一次向它租借一批 token，之後在本機扣用。
+ */
+public interface TokenLeaseStore {
+
+    /**
+     * 一次呼叫為多個 key 租借 token。回傳陣列與 requests 順序相同，值為實際取得的 token 數
+     * （可少於 {@link LeaseRequest#want()}，全域額度用完時為 0）。
+     */
+    Mono<long[]> acquire(List<LeaseRequest> requests);
+
+    record LeaseRequest(String key, int replenishRate, int burstCapacity, long want) {
+    }
+}
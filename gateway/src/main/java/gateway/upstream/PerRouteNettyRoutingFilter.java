@@ -0,0 +1,51 @@
+package gateway.upstream;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.util.List;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * 排在內建 {@link NettyRoutingFilter} 之前：有專屬連線池的路由由此轉發並標記為已轉發，
+ * 其餘路由交給內建 filter 以共用連線池處理。
+ */
+public class PerRouteNettyRoutingFilter extends NettyRoutingFilter {
+
+    private final UpstreamHttpClients clients;
+
+    public PerRouteNettyRoutingFilter(HttpClient sharedClient,
+                                      ObjectProvider<List<HttpHeadersFilter>> headersFiltersProvider,
+                                      HttpClientProperties properties,
+                                      UpstreamHttpClients clients) {
+        super(sharedClient, headersFiltersProvider, properties);
+        this.clients = clients;
+    }
+
+    @Override
+    public int getOrder() {
+        return super.getOrder() - 1;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        if (route == null || !clients.contains(route.getId())) {
+            return chain.filter(exchange);
+        }
+        return super.filter(exchange, chain);
+    }
+
+    @Override
+    protected HttpClient getHttpClient(Route route, ServerWebExchange exchange) {
+        return clients.get(route.getId());
+    }
+}
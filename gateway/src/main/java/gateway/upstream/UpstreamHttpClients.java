@@ -0,0 +1,79 @@
+package gateway.upstream;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.DisposableBean;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 依 {@link UpstreamProperties} 為每條路由建立獨立連線池的 {@link HttpClient}。
+ *
+ * <p>連線池開啟 Reactor Netty 內建指標（{@code name=gateway-<routeId>}）：
+ * <ul>
+ *   <li>{@code reactor.netty.connection.provider.pending.connections}：等待取得連線的佇列深度</li>
+ *   <li>{@code reactor.netty.connection.provider.pending.connections.time}：取得連線的等待時間</li>
+ *   <li>{@code reactor.netty.connection.provider.total|active|idle.connections}</li>
+ *   <li>h2c 時另有 {@code reactor.netty.connection.provider.active.streams|pending.streams}</li>
+ * </ul>
+ */
+public class UpstreamHttpClients implements DisposableBean {
+
+    static final String POOL_NAME_PREFIX = "gateway-";
+
+    private final Map<String, HttpClient> clients = new HashMap<>();
+    private final Map<String, ConnectionProvider> providers = new HashMap<>();
+
+    public UpstreamHttpClients(UpstreamProperties properties) {
+        properties.getRoutes().forEach((routeId, pool) -> {
+            ConnectionProvider provider = newConnectionProvider(routeId, pool);
+            providers.put(routeId, provider);
+            clients.put(routeId, newHttpClient(provider, pool));
+        });
+    }
+
+    /**
+     * @return 該路由專屬的 client；沒有設定時回傳 null，由共用 client 處理
+     */
+    public HttpClient get(String routeId) {
+        return clients.get(routeId);
+    }
+
+    public boolean contains(String routeId) {
+        return clients.containsKey(routeId);
+    }
+
+    static ConnectionProvider newConnectionProvider(String routeId, UpstreamProperties.Pool pool) {
+        ConnectionProvider.Builder builder = ConnectionProvider.builder(POOL_NAME_PREFIX + routeId)
+                .maxConnections(pool.getMaxConnections())
+                .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .maxLifeTime(pool.getMaxLifeTime())
+                .metrics(true);
+        if (!pool.getEvictionInterval().isZero()) {
+            builder.evictInBackground(pool.getEvictionInterval());
+        }
+        return builder.build();
+    }
+
+    static HttpClient newHttpClient(ConnectionProvider provider, UpstreamProperties.Pool pool) {
+        HttpClient client = HttpClient.create(provider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) pool.getConnectTimeout().toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true);
+        if (pool.isH2c()) {
+            // prior knowledge：不經 HTTP/1.1 upgrade，多個請求共用同一條連線
+            client = client.protocol(HttpProtocol.H2C)
+                    .http2Settings(settings -> settings.maxConcurrentStreams(pool.getMaxConcurrentStreams()));
+        }
+        return client;
+    }
+
+    @Override
+    public void destroy() {
+        providers.values().forEach(ConnectionProvider::dispose);
+    }
+}
@@ -0,0 +1,125 @@
+package gateway.upstream;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@code gateway.upstream.*}：每條路由獨立的下游連線池設定。未列出的路由沿用
+ * {@code spring.cloud.gateway.server.webflux.httpclient.pool} 的共用連線池。
+ */
+@ConfigurationProperties(prefix = "gateway.upstream")
+public class UpstreamProperties {
+
+    /** key 為 route id */
+    private Map<String, Pool> routes = new LinkedHashMap<>();
+
+    public Map<String, Pool> getRoutes() {
+        return routes;
+    }
+
+    public void setRoutes(Map<String, Pool> routes) {
+        this.routes = routes;
+    }
+
+    public static class Pool {
+
+        /** HTTP/1.1 為最大連線數；h2c 為最大 HTTP/2 連線數（每條連線可多工多個 stream） */
+        private int maxConnections = 500;
+
+        /** 等待取得連線的請求上限，超過時立即失敗而不是無限排隊；-1 表示不限制 */
+        private int pendingAcquireMaxCount = 1000;
+
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+
+        /** 閒置超過此時間的連線會被關閉；應小於下游的 keep-alive timeout，避免使用已被對方關閉的連線 */
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+
+        private Duration maxLifeTime = Duration.ofMinutes(10);
+
+        /** 背景清除閒置/過期連線的週期；0 表示只在取得連線時檢查 */
+        private Duration evictionInterval = Duration.ofSeconds(10);
+
+        private Duration connectTimeout = Duration.ofSeconds(2);
+
+        /** 以 h2c（prior knowledge）連線到下游，下游需開啟 server.http2.enabled */
+        private boolean h2c;
+
+        /** h2c 時每條連線的最大並行 stream 數 */
+        private int maxConcurrentStreams = 100;
+
+        public int getMaxConnections() {
+            return maxConnections;
+        }
+
+        public void setMaxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+        }
+
+        public int getPendingAcquireMaxCount() {
+            return pendingAcquireMaxCount;
+        }
+
+        public void setPendingAcquireMaxCount(int pendingAcquireMaxCount) {
+            this.pendingAcquireMaxCount = pendingAcquireMaxCount;
+        }
+
+        public Duration getPendingAcquireTimeout() {
+            return pendingAcquireTimeout;
+        }
+
+        public void setPendingAcquireTimeout(Duration pendingAcquireTimeout) {
+            this.pendingAcquireTimeout = pendingAcquireTimeout;
+        }
+
+        public Duration getMaxIdleTime() {
+            return maxIdleTime;
+        }
+
+        public void setMaxIdleTime(Duration maxIdleTime) {
+            this.maxIdleTime = maxIdleTime;
+        }
+
+        public Duration getMaxLifeTime() {
+            return maxLifeTime;
+        }
+
+        public void setMaxLifeTime(Duration maxLifeTime) {
+            this.maxLifeTime = maxLifeTime;
+        }
+
+        public Duration getEvictionInterval() {
+            return evictionInterval;
+        }
+
+        public void setEvictionInterval(Duration evictionInterval) {
+            this.evictionInterval = evictionInterval;
+        }
+
+        public Duration getConnectTimeout() {
+            return connectTimeout;
+        }
+
+        public void setConnectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+        }
+
+        public boolean isH2c() {
+            return h2c;
+        }
+
+        public void setH2c(boolean h2c) {
+            this.h2c = h2c;
+        }
+
+        public int getMaxConcurrentStreams() {
+            return maxConcurrentStreams;
+        }
+
+        public void setMaxConcurrentStreams(int maxConcurrentStreams) {
+            this.maxConcurrentStreams = maxConcurrentStreams;
+        }
+    }
+}
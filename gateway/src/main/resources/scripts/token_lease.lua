@@ -0,0 +1,38 @@
+-- 一次為多個 key 租借 token（token bucket，允許部分取得）
+-- KEYS: tokens_key_1, timestamp_key_1, tokens_key_2, timestamp_key_2, ...
+-- ARGV: rate_1, capacity_1, want_1, rate_2, capacity_2, want_2, ...
+-- 回傳：每個 key 實際取得的 token 數
+local time = redis.call('TIME')
+local now = tonumber(time[1]) + tonumber(time[2]) / 1000000
+
+local granted = {}
+for i = 1, #KEYS / 2 do
+  local tokens_key = KEYS[2 * i - 1]
+  local timestamp_key = KEYS[2 * i]
+  local rate = tonumber(ARGV[3 * i - 2])
+  local capacity = tonumber(ARGV[3 * i - 1])
+  local want = tonumber(ARGV[3 * i])
+
+  local ttl = math.floor(capacity / rate * 2)
+  if ttl < 1 then
+    ttl = 1
+  end
+
+  local last_tokens = tonumber(redis.call('get', tokens_key))
+  if last_tokens == nil then
+    last_tokens = capacity
+  end
+  local last_refreshed = tonumber(redis.call('get', timestamp_key))
+  if last_refreshed == nil then
+    last_refreshed = 0
+  end
+
+  local filled = math.min(capacity, last_tokens + math.max(0, now - last_refreshed) * rate)
+  local take = math.min(want, math.floor(filled))
+
+  redis.call('setex', tokens_key, ttl, filled - take)
+  redis.call('setex', timestamp_key, ttl, now)
+  granted[i] = take
+end
+
+return granted
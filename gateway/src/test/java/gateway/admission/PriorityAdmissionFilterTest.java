@@ -0,0 +1,126 @@
+package gateway.admission;
+
+import gateway.auth.VerifiedToken;
+import gateway.filter.JwtAuthenticationGlobalFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriorityAdmissionFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private PriorityLanes priorityLanes;
+    private PriorityAdmissionFilter filter;
+    private final List<Sinks.Empty<Void>> inFlight = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        // 總併發 12：order 保留 2，共用 10；anonymous 在共用額度達 50% 時被捨棄
+        priorityLanes = new PriorityLanes(12, List.of(
+                lane("order", List.of("/api/order/**"), true, 2, 1.0),
+                lane("authenticated", List.of(), true, 0, 0.9),
+                lane("anonymous", List.of(), false, 0, 0.5)), meterRegistry);
+        filter = new PriorityAdmissionFilter(priorityLanes);
+    }
+
+    @Test
+    void shouldClassifyRequestsIntoLanes() {
+        assertEquals("order", filter.classify(authenticatedOrder()).name());
+        assertEquals("authenticated", filter.classify(authenticated()).name());
+        assertEquals("anonymous", filter.classify(anonymous()).name());
+    }
+
+    @Test
+    void unauthenticatedOrdersShouldNotUseTheReservedLane() {
+        MockServerWebExchange order = MockServerWebExchange.from(MockServerHttpRequest.post("/api/order/orders"));
+
+        assertEquals("anonymous", filter.classify(order).name());
+    }
+
+    @Test
+    void anonymousTrafficShouldBeShedFirst() {
+        for (int i = 0; i < 5; i++) {
+            assertNotEquals(HttpStatus.SERVICE_UNAVAILABLE, hold(anonymous()));
+        }
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, hold(anonymous()));
+        assertNotEquals(HttpStatus.SERVICE_UNAVAILABLE, hold(authenticated()));
+        assertEquals(1.0, meterRegistry.get("gateway.admission")
+                .tag("lane", "anonymous").tag("decision", "rejected").counter().count());
+    }
+
+    @Test
+    void ordersShouldKeepReservedCapacityUnderOverload() {
+        for (int i = 0; i < 9; i++) {
+            hold(authenticated());
+        }
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, hold(authenticated()));
+
+        // 共用額度剩 1，加上保留的 2
+        for (int i = 0; i < 3; i++) {
+            assertNotEquals(HttpStatus.SERVICE_UNAVAILABLE, hold(authenticatedOrder()));
+        }
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, hold(authenticatedOrder()));
+    }
+
+    @Test
+    void completedRequestsShouldReleaseCapacity() {
+        for (int i = 0; i < 5; i++) {
+            hold(anonymous());
+        }
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, hold(anonymous()));
+
+        inFlight.forEach(Sinks.Empty::tryEmitEmpty);
+
+        assertEquals(0, priorityLanes.sharedInFlight());
+        assertNotEquals(HttpStatus.SERVICE_UNAVAILABLE, hold(anonymous()));
+    }
+
+    /** 送出請求並讓下游保持處理中，回傳被拒絕時的狀態碼 */
+    private HttpStatus hold(MockServerWebExchange exchange) {
+        Sinks.Empty<Void> downstream = Sinks.empty();
+        inFlight.add(downstream);
+        filter.filter(exchange, e -> downstream.asMono()).subscribe();
+        return (HttpStatus) exchange.getResponse().getStatusCode();
+    }
+
+    private static MockServerWebExchange authenticatedOrder() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/api/order/orders"));
+        exchange.getAttributes().put(JwtAuthenticationGlobalFilter.VERIFIED_TOKEN_ATTR,
+                new VerifiedToken("usr_1", null, null, Long.MAX_VALUE));
+        return exchange;
+    }
+
+    private static MockServerWebExchange authenticated() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/wallet/balances"));
+        exchange.getAttributes().put(JwtAuthenticationGlobalFilter.VERIFIED_TOKEN_ATTR,
+                new VerifiedToken("usr_1", null, null, Long.MAX_VALUE));
+        return exchange;
+    }
+
+    private static MockServerWebExchange anonymous() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/api/account/whoami"));
+    }
+
+    private static AdmissionProperties.Lane lane(String name, List<String> paths, boolean authenticated,
+                                                 int reserved, double shedAt) {
+        AdmissionProperties.Lane lane = new AdmissionProperties.Lane();
+        lane.setName(name);
+        lane.setPaths(paths);
+        lane.setAuthenticated(authenticated);
+        lane.setReserved(reserved);
+        lane.setShedAt(shedAt);
+        return lane;
+    }
+}
@@ -0,0 +1,170 @@
+package gateway.cache;
+
+import gateway.auth.VerifiedToken;
+import gateway.filter.JwtAuthenticationGlobalFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheFilterTest {
+
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private HttpStatus upstreamStatus = HttpStatus.OK;
+    private Mono<Void> upstreamGate = Mono.empty();
+
+    private ResponseCacheFilter filter;
+
+    private final GatewayFilterChain upstream = exchange -> upstreamGate.then(Mono.defer(() -> {
+        int call = upstreamCalls.incrementAndGet();
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(upstreamStatus);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        byte[] body = ("{\"call\":" + call + "}").getBytes(StandardCharsets.UTF_8);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    }));
+
+    @BeforeEach
+    void setUp() {
+        ResponseCacheProperties properties = new ResponseCacheProperties();
+        ResponseCacheProperties.Rule balances = new ResponseCacheProperties.Rule();
+        balances.setName("wallet-balances");
+        balances.setPaths(List.of("/api/wallet/balances"));
+        balances.setTtl(Duration.ofMinutes(1));
+        properties.setCaches(List.of(balances));
+
+        ResponseCacheProperties.Invalidation deposit = new ResponseCacheProperties.Invalidation();
+        deposit.setPaths(List.of("/api/wallet/deposit"));
+        deposit.setCaches(List.of("wallet-balances"));
+        ResponseCacheProperties.Invalidation settle = new ResponseCacheProperties.Invalidation();
+        settle.setPaths(List.of("/api/wallet/settle"));
+        settle.setCaches(List.of("wallet-balances"));
+        settle.setScope(ResponseCacheProperties.Scope.ALL);
+        properties.setInvalidations(List.of(deposit, settle));
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        filter = new ResponseCacheFilter(new ResponseCache(1 << 20, Duration.ofMinutes(1), meterRegistry),
+                properties, meterRegistry);
+    }
+
+    @Test
+    void repeatedGetShouldBeServedFromCache() {
+        MockServerWebExchange first = get("u1");
+        filter.filter(first, upstream).block();
+        MockServerWebExchange second = get("u1");
+        filter.filter(second, upstream).block();
+
+        assertEquals(1, upstreamCalls.get());
+        assertEquals("MISS", first.getResponse().getHeaders().getFirst(ResponseCacheFilter.CACHE_HEADER));
+        assertEquals("HIT", second.getResponse().getHeaders().getFirst(ResponseCacheFilter.CACHE_HEADER));
+        assertEquals("{\"call\":1}", second.getResponse().getBodyAsString().block());
+        assertEquals(MediaType.APPLICATION_JSON, second.getResponse().getHeaders().getContentType());
+    }
+
+    @Test
+    void subjectsShouldNotShareEntries() {
+        filter.filter(get("u1"), upstream).block();
+        MockServerWebExchange other = get("u2");
+        filter.filter(other, upstream).block();
+
+        assertEquals(2, upstreamCalls.get());
+        assertEquals("{\"call\":2}", other.getResponse().getBodyAsString().block());
+    }
+
+    @Test
+    void anonymousRequestsShouldBypassCache() {
+        filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/api/wallet/balances")), upstream).block();
+        filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/api/wallet/balances")), upstream).block();
+
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void depositShouldInvalidateOnlyThatSubject() {
+        filter.filter(get("u1"), upstream).block();
+        filter.filter(get("u2"), upstream).block();
+
+        filter.filter(post("/api/wallet/deposit", "u1"), upstream).block();
+        int afterDeposit = upstreamCalls.get();
+
+        filter.filter(get("u1"), upstream).block();
+        filter.filter(get("u2"), upstream).block();
+        assertEquals(afterDeposit + 1, upstreamCalls.get());
+    }
+
+    @Test
+    void settleShouldInvalidateEverySubject() {
+        filter.filter(get("u1"), upstream).block();
+        filter.filter(get("u2"), upstream).block();
+
+        filter.filter(MockServerWebExchange.from(MockServerHttpRequest.post("/api/wallet/settle")), upstream).block();
+        int afterSettle = upstreamCalls.get();
+
+        filter.filter(get("u1"), upstream).block();
+        filter.filter(get("u2"), upstream).block();
+        assertEquals(afterSettle + 2, upstreamCalls.get());
+    }
+
+    @Test
+    void errorResponsesShouldNotBeCached() {
+        upstreamStatus = HttpStatus.SERVICE_UNAVAILABLE;
+        filter.filter(get("u1"), upstream).block();
+        upstreamStatus = HttpStatus.OK;
+        MockServerWebExchange second = get("u1");
+        filter.filter(second, upstream).block();
+
+        assertEquals(2, upstreamCalls.get());
+        assertEquals(HttpStatus.OK, second.getResponse().getStatusCode());
+    }
+
+    @Test
+    void concurrentMissesShouldShareOneUpstreamCall() {
+        Sinks.Empty<Void> gate = Sinks.empty();
+        upstreamGate = gate.asMono();
+
+        MockServerWebExchange first = get("u1");
+        MockServerWebExchange second = get("u1");
+        Mono<Void> firstResult = filter.filter(first, upstream).cache();
+        Mono<Void> secondResult = filter.filter(second, upstream).cache();
+        firstResult.subscribe();
+        secondResult.subscribe();
+        assertEquals(0, upstreamCalls.get());
+
+        gate.tryEmitEmpty();
+        firstResult.block(Duration.ofSeconds(1));
+        secondResult.block(Duration.ofSeconds(1));
+
+        assertEquals(1, upstreamCalls.get());
+        assertEquals("{\"call\":1}", second.getResponse().getBodyAsString().block());
+    }
+
+    private static MockServerWebExchange get(String subject) {
+        return authenticated(MockServerWebExchange.from(MockServerHttpRequest.get("/api/wallet/balances")), subject);
+    }
+
+    private static MockServerWebExchange post(String path, String subject) {
+        return authenticated(MockServerWebExchange.from(MockServerHttpRequest.post(path)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)), subject);
+    }
+
+    private static MockServerWebExchange authenticated(MockServerWebExchange exchange, String subject) {
+        exchange.getAttributes().put(JwtAuthenticationGlobalFilter.VERIFIED_TOKEN_ATTR,
+                new VerifiedToken(subject, subject + "@example.com", subject, Long.MAX_VALUE));
+        return exchange;
+    }
+}
@@ -0,0 +1,136 @@
+package gateway.coalesce;
+
+import gateway.auth.VerifiedToken;
+import gateway.filter.JwtAuthenticationGlobalFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+class RequestCoalescingFilterTest {
+
+    private static final Route WALLET = Route.async()
+            .id("wallet")
+            .uri(URI.create("http://localhost:8082"))
+            .predicate(exchange -> true)
+            .build();
+
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private Sinks.Empty<Void> gate;
+    private SimpleMeterRegistry meterRegistry;
+    private RequestCoalescingFilter filter;
+
+    private final GatewayFilterChain upstream = exchange -> gate.asMono().then(Mono.defer(() -> {
+        int call = upstreamCalls.incrementAndGet();
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.OK);
+        byte[] body = ("call-" + call).getBytes(StandardCharsets.UTF_8);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    }));
+
+    @BeforeEach
+    void setUp() {
+        gate = Sinks.empty();
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new RequestCoalescingFilter(Set.of("wallet"), 1024, meterRegistry);
+    }
+
+    @Test
+    void identicalConcurrentGetsShouldShareOneUpstreamCall() {
+        List<MockServerWebExchange> exchanges = new ArrayList<>();
+        List<Mono<Void>> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            MockServerWebExchange exchange = get("/api/wallet/balances", "u1");
+            exchanges.add(exchange);
+            Mono<Void> result = filter.filter(exchange, upstream).cache();
+            result.subscribe();
+            results.add(result);
+        }
+
+        gate.tryEmitEmpty();
+        results.forEach(result -> result.block(Duration.ofSeconds(1)));
+
+        assertEquals(1, upstreamCalls.get());
+        for (MockServerWebExchange exchange : exchanges) {
+            assertEquals("call-1", exchange.getResponse().getBodyAsString().block());
+        }
+        assertEquals(4.0, meterRegistry.get("gateway.coalescing").tag("role", "follower").counter().count());
+        assertEquals(0, filter.inFlightCount());
+    }
+
+    @Test
+    void differentSubjectsOrQueriesShouldNotBeMerged() {
+        Mono<Void> a = filter.filter(get("/api/wallet/balances", "u1"), upstream).cache();
+        Mono<Void> b = filter.filter(get("/api/wallet/balances", "u2"), upstream).cache();
+        Mono<Void> c = filter.filter(get("/api/wallet/balances?asset=BTC", "u1"), upstream).cache();
+        a.subscribe();
+        b.subscribe();
+        c.subscribe();
+
+        gate.tryEmitEmpty();
+        a.block(Duration.ofSeconds(1));
+        b.block(Duration.ofSeconds(1));
+        c.block(Duration.ofSeconds(1));
+
+        assertEquals(3, upstreamCalls.get());
+    }
+
+    @Test
+    void laterRequestsShouldNotReuseCompletedResponse() {
+        gate.tryEmitEmpty();
+        filter.filter(get("/api/wallet/balances", "u1"), upstream).block();
+        MockServerWebExchange later = get("/api/wallet/balances", "u1");
+        filter.filter(later, upstream).block();
+
+        assertEquals(2, upstreamCalls.get());
+        assertEquals("call-2", later.getResponse().getBodyAsString().block());
+    }
+
+    @Test
+    void onlyAuthenticatedGetsOnConfiguredRoutesAreCoalesced() {
+        MockServerWebExchange anonymous = MockServerWebExchange.from(MockServerHttpRequest.get("/api/wallet/balances"));
+        anonymous.getAttributes().put(GATEWAY_ROUTE_ATTR, WALLET);
+        assertNull(filter.key(anonymous));
+
+        MockServerWebExchange post = authenticated(
+                MockServerWebExchange.from(MockServerHttpRequest.post("/api/wallet/deposit")), "u1");
+        assertNull(filter.key(post));
+
+        MockServerWebExchange otherRoute = MockServerWebExchange.from(MockServerHttpRequest.get("/api/order/orders"));
+        otherRoute.getAttributes().put(GATEWAY_ROUTE_ATTR, Route.async()
+                .id("order").uri(URI.create("http://localhost:8083")).predicate(exchange -> true).build());
+        assertNull(filter.key(authenticated(otherRoute, "u1")));
+
+        assertNotNull(filter.key(get("/api/wallet/balances", "u1")));
+    }
+
+    private static MockServerWebExchange get(String uri, String subject) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(uri));
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, WALLET);
+        return authenticated(exchange, subject);
+    }
+
+    private static MockServerWebExchange authenticated(MockServerWebExchange exchange, String subject) {
+        exchange.getAttributes().put(JwtAuthenticationGlobalFilter.VERIFIED_TOKEN_ATTR,
+                new VerifiedToken(subject, subject + "@example.com", subject, Long.MAX_VALUE));
+        return exchange;
+    }
+}
@@ -0,0 +1,90 @@
+package gateway.concurrency;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GradientLimitTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private GradientLimit newLimit(int initial) {
+        return new GradientLimit(initial, 5, 1000, 1.5, 0.2, 0.9, 10, 600);
+    }
+
+    /** 以滿載的方式跑 n 個樣本（每個樣本 in-flight 都等於上限） */
+    private void runSaturated(GradientLimit limit, int samples, long rttNanos) {
+        for (int i = 0; i < samples; i++) {
+            int current = limit.getLimit();
+            int acquired = 0;
+            while (acquired < current && limit.tryAcquire()) {
+                acquired++;
+            }
+            for (int j = 0; j < acquired; j++) {
+                limit.release(rttNanos, false);
+            }
+        }
+    }
+
+    @Test
+    void shouldRejectOnceLimitIsReached() {
+        GradientLimit limit = newLimit(10);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limit.tryAcquire());
+        }
+        assertFalse(limit.tryAcquire());
+        assertEquals(10, limit.getInFlight());
+
+        limit.ignore();
+        assertTrue(limit.tryAcquire());
+    }
+
+    @Test
+    void stableLatencyShouldGrowLimit() {
+        GradientLimit limit = newLimit(20);
+        runSaturated(limit, 10, FAST);
+        assertTrue(limit.getLimit() > 20, "limit=" + limit.getLimit());
+    }
+
+    @Test
+    void risingLatencyShouldShrinkLimit() {
+        GradientLimit limit = newLimit(20);
+        runSaturated(limit, 10, FAST);
+        int grown = limit.getLimit();
+
+        while (limit.tryAcquire()) {
+            // 佔滿目前上限
+        }
+        for (int i = 0; i < 30; i++) {
+            limit.release(SLOW, false);
+        }
+        assertTrue(limit.getLimit() < grown, "limit=" + limit.getLimit() + " grown=" + grown);
+    }
+
+    @Test
+    void dropsShouldBackOffButRespectMinLimit() {
+        GradientLimit limit = newLimit(100);
+        assertTrue(limit.tryAcquire());
+        limit.release(FAST, true);
+        assertEquals(90, limit.getLimit());
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.release(FAST, true);
+        }
+        assertEquals(5, limit.getLimit());
+    }
+
+    @Test
+    void underUtilizedRouteShouldNotGrowLimit() {
+        GradientLimit limit = newLimit(20);
+        for (int i = 0; i < 200; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.release(FAST, false);
+        }
+        assertEquals(20, limit.getLimit());
+    }
+}
@@ -0,0 +1,115 @@
+package gateway.filter;
+
+import common.http.TrustedHeaders;
+import gateway.auth.JwtVerifier;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtAuthenticationGlobalFilterTest {
+
+    private static final String SECRET = "myTestSecretKeyForJWTTokenGenerationThatIsLongEnough";
+
+    private SimpleMeterRegistry meterRegistry;
+    private JwtAuthenticationGlobalFilter filter;
+    private AtomicReference<ServerWebExchange> forwarded;
+    private GatewayFilterChain chain;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new JwtAuthenticationGlobalFilter(new JwtVerifier(SECRET, 1000, meterRegistry), meterRegistry);
+        forwarded = new AtomicReference<>();
+        chain = exchange -> {
+            forwarded.set(exchange);
+            return Mono.empty();
+        };
+    }
+
+    @Test
+    void validTokenShouldForwardTrustedHeaders() {
+        MockServerWebExchange exchange = exchangeWithToken(token(3600_000));
+
+        filter.filter(exchange, chain).block();
+
+        HttpHeaders headers = forwarded.get().getRequest().getHeaders();
+        assertEquals("usr_123456", headers.getFirst(TrustedHeaders.USER_ID));
+        assertEquals("test@example.com", headers.getFirst(TrustedHeaders.USER_EMAIL));
+        assertEquals("testuser", headers.getFirst(TrustedHeaders.USER_NAME));
+        assertNotNull(forwarded.get().getAttribute(JwtAuthenticationGlobalFilter.VERIFIED_TOKEN_ATTR));
+    }
+
+    @Test
+    void invalidTokenShouldBeRejectedAtEdge() {
+        MockServerWebExchange exchange = exchangeWithToken("invalid.token.here");
+
+        filter.filter(exchange, chain).block();
+
+        assertNull(forwarded.get());
+        assertEquals(HttpStatus.UNAUTHORIZED, exchange.getResponse().getStatusCode());
+        assertEquals(1.0, meterRegistry.get("gateway.jwt.rejected").counter().count());
+    }
+
+    @Test
+    void expiredTokenShouldBeRejectedAtEdge() {
+        MockServerWebExchange exchange = exchangeWithToken(token(-1000));
+
+        filter.filter(exchange, chain).block();
+
+        assertNull(forwarded.get());
+        assertEquals(HttpStatus.UNAUTHORIZED, exchange.getResponse().getStatusCode());
+    }
+
+    @Test
+    void spoofedTrustedHeadersShouldBeRemoved() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/account/me")
+                .header(TrustedHeaders.USER_ID, "usr_attacker"));
+
+        filter.filter(exchange, chain).block();
+
+        assertNull(forwarded.get().getRequest().getHeaders().getFirst(TrustedHeaders.USER_ID));
+    }
+
+    @Test
+    void repeatedTokenShouldHitCache() {
+        String token = token(3600_000);
+
+        filter.filter(exchangeWithToken(token), chain).block();
+        filter.filter(exchangeWithToken(token), chain).block();
+
+        assertEquals(1, meterRegistry.get("gateway.jwt.verify").tag("result", "valid").timer().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets")
+                .tag("cache", "gateway.jwt.tokens").tag("result", "hit").functionCounter().count());
+    }
+
+    private static MockServerWebExchange exchangeWithToken(String token) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/api/account/me")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token));
+    }
+
+    private static String token(long ttlMillis) {
+        long now = System.currentTimeMillis();
+        return Jwts.builder()
+                .subject("usr_123456")
+                .claim("email", "test@example.com")
+                .claim("username", "testuser")
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + ttlMillis))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                .compact();
+    }
+}
@@ -0,0 +1,65 @@
+package gateway.ratelimit;
+
+import gateway.auth.VerifiedToken;
+import gateway.filter.JwtAuthenticationGlobalFilter;
+import gateway.ratelimit.CompositeKeyResolver.KeySource;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompositeKeyResolverTest {
+
+    private final CompositeKeyResolver resolver = new CompositeKeyResolver(List.of(
+            KeySource.subject(),
+            KeySource.apiKey("X-Api-Key", List.of("internal-settlement")),
+            KeySource.remoteIp()));
+
+    @Test
+    void subjectShouldTakePrecedence() {
+        MockServerWebExchange exchange = exchange(MockServerHttpRequest.get("/api/wallet/balances")
+                .header("X-Api-Key", "internal-settlement"));
+        exchange.getAttributes().put(JwtAuthenticationGlobalFilter.VERIFIED_TOKEN_ATTR,
+                new VerifiedToken("usr_123", "a@example.com", "user", Long.MAX_VALUE));
+
+        assertEquals("user:usr_123", resolver.resolve(exchange).block());
+    }
+
+    @Test
+    void apiKeyShouldBeUsedWithoutJwt() {
+        MockServerWebExchange exchange = exchange(MockServerHttpRequest.get("/api/wallet/settle")
+                .header("X-Api-Key", "internal-settlement"));
+
+        assertEquals("apikey:internal-settlement", resolver.resolve(exchange).block());
+    }
+
+    @Test
+    void unknownApiKeyShouldFallBackToRemoteIp() {
+        MockServerWebExchange exchange = exchange(MockServerHttpRequest.get("/api/wallet/balances")
+                .header("X-Api-Key", "made-up-key"));
+
+        assertEquals("ip:10.1.2.3", resolver.resolve(exchange).block());
+    }
+
+    @Test
+    void shouldFallBackToRemoteIp() {
+        MockServerWebExchange exchange = exchange(MockServerHttpRequest.get("/api/account/whoami"));
+
+        assertEquals("ip:10.1.2.3", resolver.resolve(exchange).block());
+    }
+
+    @Test
+    void shouldReturnEmptyWhenNoSourceMatches() {
+        CompositeKeyResolver subjectOnly = new CompositeKeyResolver(List.of(KeySource.subject()));
+
+        assertNull(subjectOnly.resolve(exchange(MockServerHttpRequest.get("/"))).block());
+    }
+
+    private static MockServerWebExchange exchange(MockServerHttpRequest.BaseBuilder<?> request) {
+        return MockServerWebExchange.from(request.remoteAddress(new InetSocketAddress("10.1.2.3", 50000)));
+    }
+}
@@ -0,0 +1,58 @@
+package gateway.ratelimit;
+
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 測試用的 Redis 替身，語意與 {@code scripts/token_lease.lua} 相同，時間由測試控制。
+ */
+class InMemoryTokenLeaseStore implements TokenLeaseStore {
+
+    private final Map<String, double[]> buckets = new HashMap<>();
+    private final AtomicLong nowMicros = new AtomicLong();
+    private final List<Integer> batchSizes = new ArrayList<>();
+    private volatile boolean failing;
+
+    @Override
+    public synchronized Mono<long[]> acquire(List<LeaseRequest> requests) {
+        batchSizes.add(requests.size());
+        if (failing) {
+            return Mono.error(new IllegalStateException("store unavailable"));
+        }
+        double now = nowMicros.get() / 1_000_000.0;
+        long[] granted = new long[requests.size()];
+        for (int i = 0; i < requests.size(); i++) {
+            LeaseRequest request = requests.get(i);
+            // [0] tokens, [1] last refreshed
+            double[] bucket = buckets.computeIfAbsent(request.key(), k -> new double[]{request.burstCapacity(), 0});
+            double filled = Math.min(request.burstCapacity(),
+                    bucket[0] + Math.max(0, now - bucket[1]) * request.replenishRate());
+            long take = (long) Math.min(request.want(), Math.floor(filled));
+            bucket[0] = filled - take;
+            bucket[1] = now;
+            granted[i] = take;
+        }
+        return Mono.just(granted);
+    }
+
+    void advanceSeconds(double seconds) {
+        nowMicros.addAndGet((long) (seconds * 1_000_000));
+    }
+
+    void setFailing(boolean failing) {
+        this.failing = failing;
+    }
+
+    synchronized int calls() {
+        return batchSizes.size();
+    }
+
+    synchronized List<Integer> batchSizes() {
+        return new ArrayList<>(batchSizes);
+    }
+}
@@ -0,0 +1,108 @@
+package gateway.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter.Response;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LeasedRateLimiterTest {
+
+    private InMemoryTokenLeaseStore store;
+    private LeasedRateLimiter instanceA;
+    private LeasedRateLimiter instanceB;
+
+    @BeforeEach
+    void setUp() {
+        store = new InMemoryTokenLeaseStore();
+        instanceA = newLimiter();
+        instanceB = newLimiter();
+    }
+
+    @AfterEach
+    void tearDown() {
+        instanceA.destroy();
+        instanceB.destroy();
+    }
+
+    @Test
+    void shouldSpendLeasedTokensLocally() {
+        for (int i = 0; i < 10; i++) {
+            assertTrue(instanceA.isAllowed("wallet", "usr_1").block().isAllowed());
+        }
+
+        // leaseSize=10：第一次同步租借，之後低於水位時背景預先續租，不是每個請求都存取 store
+        assertTrue(store.calls() <= 2, "calls=" + store.calls());
+    }
+
+    @Test
+    void instancesShouldShareTheGlobalLimit() {
+        int allowed = 0;
+        for (int i = 0; i < 40; i++) {
+            LeasedRateLimiter instance = i % 2 == 0 ? instanceA : instanceB;
+            if (instance.isAllowed("wallet", "usr_1").block().isAllowed()) {
+                allowed++;
+            }
+        }
+
+        // burstCapacity=20，時間未前進，兩個 gateway 合計不可超過全域額度
+        assertEquals(20, allowed);
+    }
+
+    @Test
+    void globalLimitShouldReplenishOverTime() {
+        for (int i = 0; i < 30; i++) {
+            instanceA.isAllowed("wallet", "usr_1").block();
+        }
+        assertFalse(instanceA.isAllowed("wallet", "usr_1").block().isAllowed());
+
+        store.advanceSeconds(1);
+
+        assertTrue(instanceA.isAllowed("wallet", "usr_1").block().isAllowed());
+    }
+
+    @Test
+    void concurrentMissesShouldBeBatchedIntoOneStoreCall() {
+        List<Response> responses = Flux.range(0, 50)
+                .flatMap(i -> instanceA.isAllowed("wallet", "usr_" + i))
+                .collectList()
+                .block();
+
+        assertEquals(50, responses.size());
+        assertTrue(responses.stream().allMatch(Response::isAllowed));
+        assertTrue(store.batchSizes().get(0) > 1, "batchSizes=" + store.batchSizes());
+    }
+
+    @Test
+    void shouldFailOpenWhenStoreIsUnavailable() {
+        store.setFailing(true);
+
+        Response response = instanceA.isAllowed("wallet", "usr_1").block();
+
+        assertTrue(response.isAllowed());
+    }
+
+    @Test
+    void shouldEvictIdleLeases() {
+        instanceA.isAllowed("wallet", "usr_1").block();
+
+        assertEquals(1, instanceA.size());
+        assertEquals(1, instanceA.evictIdle(System.nanoTime() + Duration.ofMinutes(10).toNanos()));
+        assertEquals(0, instanceA.size());
+    }
+
+    private LeasedRateLimiter newLimiter() {
+        LeasedRateLimiter.Config config = new LeasedRateLimiter.Config()
+                .setReplenishRate(10)
+                .setBurstCapacity(20)
+                .setLeaseSize(10);
+        return new LeasedRateLimiter(null, store, config, Duration.ofMillis(5), 256,
+                Duration.ofMinutes(5), Duration.ofHours(1), new SimpleMeterRegistry());
+    }
+}
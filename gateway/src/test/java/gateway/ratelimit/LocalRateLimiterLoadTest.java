@@ -0,0 +1,174 @@
+package gateway.ratelimit;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 限流器負載測試，不在一般 test 任務中執行：
+ * <pre>./gradlew :gateway:loadTest</pre>
+ * Redis 的比較需要本機 Redis（{@code docker run -p 6379:6379 redis}），沒有時會略過。
+ */
+@Tag("load")
+class LocalRateLimiterLoadTest {
+
+    private static final int THREADS = 8;
+    private static final int CALLS_PER_THREAD = 50_000;
+    private static final int DISTINCT_KEYS = 10_000;
+
+    @Test
+    void localLatency() throws Exception {
+        LocalRateLimiter rateLimiter = newLocalRateLimiter();
+        try {
+            report("local", measure(rateLimiter, CALLS_PER_THREAD));
+        } finally {
+            rateLimiter.destroy();
+        }
+    }
+
+    @Test
+    void redisLatency() throws Exception {
+        Assumptions.assumeTrue(redisAvailable(), "Redis is not reachable on localhost:6379");
+
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory("localhost", 6379);
+        connectionFactory.afterPropertiesSet();
+        try {
+            DefaultRedisScript<List> script = new DefaultRedisScript<>();
+            script.setScriptSource(new ResourceScriptSource(
+                    new ClassPathResource("META-INF/scripts/request_rate_limiter.lua")));
+            script.setResultType(List.class);
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            RedisRateLimiter rateLimiter = new RedisRateLimiter(
+                    new ReactiveStringRedisTemplate(connectionFactory), (DefaultRedisScript) script, null);
+            rateLimiter.getConfig().put("load", new RedisRateLimiter.Config()
+                    .setReplenishRate(1_000_000)
+                    .setBurstCapacity(1_000_000));
+
+            report("redis", measure(rateLimiter, CALLS_PER_THREAD / 10));
+        } finally {
+            connectionFactory.destroy();
+        }
+    }
+
+    @Test
+    void memoryPerMillionKeys() {
+        LocalRateLimiter rateLimiter = newLocalRateLimiter();
+        try {
+            long before = usedHeap();
+            for (int i = 0; i < 1_000_000; i++) {
+                rateLimiter.isAllowed("load", ipOf(i)).block();
+            }
+            long after = usedHeap();
+            assertEquals(1_000_000, rateLimiter.size());
+
+            long bytesPerKey = (after - before) / 1_000_000;
+            System.out.printf("local: %,d distinct keys retain %,d MB (%d bytes/key, including key strings)%n",
+                    rateLimiter.size(), (after - before) >> 20, bytesPerKey);
+            assertTrue(bytesPerKey < 512, "bytes/key=" + bytesPerKey);
+        } finally {
+            rateLimiter.destroy();
+        }
+    }
+
+    private static LocalRateLimiter newLocalRateLimiter() {
+        LocalRateLimiter.Config config = new LocalRateLimiter.Config()
+                .setReplenishRate(1_000_000)
+                .setBurstCapacity(1_000_000);
+        return new LocalRateLimiter(null, config, 64, Duration.ofMinutes(5), Duration.ofHours(1));
+    }
+
+    private static long[] measure(RateLimiter<?> rateLimiter, int callsPerThread) throws Exception {
+        String[] keys = new String[DISTINCT_KEYS];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = ipOf(i);
+        }
+
+        // warm-up
+        for (int i = 0; i < callsPerThread; i++) {
+            rateLimiter.isAllowed("load", keys[i % keys.length]).block();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Callable<long[]>> tasks = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int offset = t;
+                tasks.add(() -> {
+                    long[] latencies = new long[callsPerThread];
+                    for (int i = 0; i < callsPerThread; i++) {
+                        long start = System.nanoTime();
+                        rateLimiter.isAllowed("load", keys[(i * THREADS + offset) % keys.length]).block();
+                        latencies[i] = System.nanoTime() - start;
+                    }
+                    return latencies;
+                });
+            }
+
+            long[] all = new long[THREADS * callsPerThread];
+            int position = 0;
+            for (Future<long[]> future : executor.invokeAll(tasks)) {
+                long[] latencies = future.get();
+                System.arraycopy(latencies, 0, all, position, latencies.length);
+                position += latencies.length;
+            }
+            Arrays.sort(all);
+            return all;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void report(String name, long[] sortedLatencies) {
+        System.out.printf("%s: calls=%,d threads=%d p50=%,dns p99=%,dns p99.9=%,dns max=%,dns%n",
+                name, sortedLatencies.length, THREADS,
+                percentile(sortedLatencies, 0.50),
+                percentile(sortedLatencies, 0.99),
+                percentile(sortedLatencies, 0.999),
+                sortedLatencies[sortedLatencies.length - 1]);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)];
+    }
+
+    private static String ipOf(int i) {
+        return "10." + ((i >>> 16) & 0xff) + '.' + ((i >>> 8) & 0xff) + '.' + (i & 0xff);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static boolean redisAvailable() {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress("localhost", 6379), 200);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
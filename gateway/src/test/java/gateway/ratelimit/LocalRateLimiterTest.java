@@ -0,0 +1,99 @@
+package gateway.ratelimit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter.Response;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalRateLimiterTest {
+
+    private LocalRateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        LocalRateLimiter.Config defaultConfig = new LocalRateLimiter.Config()
+                .setReplenishRate(1)
+                .setBurstCapacity(5);
+        rateLimiter = new LocalRateLimiter(null, defaultConfig, 16, Duration.ofMillis(50), Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        rateLimiter.destroy();
+    }
+
+    @Test
+    void shouldAllowUpToBurstCapacity() {
+        for (int i = 0; i < 5; i++) {
+            Response response = rateLimiter.isAllowed("account", "10.0.0.1").block();
+            assertTrue(response.isAllowed());
+            assertEquals(Integer.toString(4 - i), response.getHeaders().get(LocalRateLimiter.REMAINING_HEADER));
+        }
+
+        Response rejected = rateLimiter.isAllowed("account", "10.0.0.1").block();
+        assertFalse(rejected.isAllowed());
+        assertEquals("0", rejected.getHeaders().get(LocalRateLimiter.REMAINING_HEADER));
+    }
+
+    @Test
+    void keysAndRoutesShouldHaveSeparateBuckets() {
+        for (int i = 0; i < 5; i++) {
+            rateLimiter.isAllowed("account", "10.0.0.1").block();
+        }
+
+        assertFalse(rateLimiter.isAllowed("account", "10.0.0.1").block().isAllowed());
+        assertTrue(rateLimiter.isAllowed("account", "10.0.0.2").block().isAllowed());
+        assertTrue(rateLimiter.isAllowed("wallet", "10.0.0.1").block().isAllowed());
+    }
+
+    @Test
+    void routeConfigShouldOverrideDefault() {
+        rateLimiter.getConfig().put("wallet", new LocalRateLimiter.Config()
+                .setReplenishRate(1)
+                .setBurstCapacity(1));
+
+        assertTrue(rateLimiter.isAllowed("wallet", "10.0.0.1").block().isAllowed());
+        assertFalse(rateLimiter.isAllowed("wallet", "10.0.0.1").block().isAllowed());
+    }
+
+    @Test
+    void shouldNotGrantMoreThanBurstUnderContention() throws Exception {
+        AtomicInteger allowed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            executor.execute(() -> {
+                if (rateLimiter.isAllowed("account", "10.0.0.1").block().isAllowed()) {
+                    allowed.incrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // 測試期間最多補充 1 個 token
+        assertTrue(allowed.get() >= 5 && allowed.get() <= 6, "allowed=" + allowed.get());
+    }
+
+    @Test
+    void shouldEvictOnlyIdleFullBuckets() {
+        rateLimiter.isAllowed("account", "10.0.0.1").block();
+        for (int i = 0; i < 5; i++) {
+            rateLimiter.isAllowed("account", "10.0.0.2").block();
+        }
+
+        // 10.0.0.1 只用了 1 個 token，1 秒後補滿；10.0.0.2 需要 5 秒才補滿
+        long now = System.nanoTime();
+        assertEquals(1, rateLimiter.evictIdle(now + Duration.ofMillis(1100).toNanos()));
+        assertEquals(1, rateLimiter.size());
+        assertEquals(1, rateLimiter.evictIdle(now + Duration.ofMillis(5100).toNanos()));
+        assertEquals(0, rateLimiter.size());
+    }
+}
@@ -0,0 +1,58 @@
+package gateway.upstream;
+
+import org.junit.jupiter.api.Test;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamHttpClientsTest {
+
+    @Test
+    void shouldCreateClientOnlyForConfiguredRoutes() {
+        UpstreamProperties properties = new UpstreamProperties();
+        properties.setRoutes(Map.of("wallet", new UpstreamProperties.Pool()));
+
+        UpstreamHttpClients clients = new UpstreamHttpClients(properties);
+        try {
+            assertTrue(clients.contains("wallet"));
+            assertNotNull(clients.get("wallet"));
+            assertFalse(clients.contains("account"));
+            assertNull(clients.get("account"));
+        } finally {
+            clients.destroy();
+        }
+    }
+
+    @Test
+    void poolShouldUseConfiguredLimits() {
+        UpstreamProperties.Pool pool = new UpstreamProperties.Pool();
+        pool.setMaxConnections(42);
+        pool.setEvictionInterval(Duration.ZERO);
+
+        ConnectionProvider provider = UpstreamHttpClients.newConnectionProvider("account", pool);
+        try {
+            assertEquals(42, provider.maxConnections());
+        } finally {
+            provider.dispose();
+        }
+    }
+
+    @Test
+    void h2cShouldSwitchProtocol() {
+        UpstreamProperties.Pool pool = new UpstreamProperties.Pool();
+        pool.setH2c(true);
+
+        ConnectionProvider provider = UpstreamHttpClients.newConnectionProvider("wallet", pool);
+        try {
+            HttpClient client = UpstreamHttpClients.newHttpClient(provider, pool);
+            assertArrayEquals(new HttpProtocol[]{HttpProtocol.H2C}, client.configuration().protocols());
+        } finally {
+            provider.dispose();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+plugins {
+    id("org.springframework.boot") version "3.5.4"
+    id("io.spring.dependency-management") version "1.1.5"
+    id("java")
+    id("me.champeau.jmh") version "0.7.2"
+}
+
+// ./gradlew :order:jmh
+jmh {
+    warmupIterations.set(2)
+    iterations.set(3)
+    fork.set(1)
+}
+
+dependencies {
+    implementation("org.springframework.boot:spring-boot-starter-webflux")
+    implementation("org.springframework.boot:spring-boot-starter-actuator")
+    implementation("io.micrometer:micrometer-tracing-bridge-brave")
+    implementation(project(":common"))
+
+    // Lombok
+    compileOnly("org.projectlombok:lombok")
+    annotationProcessor("org.projectlombok:lombok")
+
+    // Testing dependencies
+    testImplementation("org.springframework.boot:spring-boot-starter-test")
+    testImplementation("io.projectreactor:reactor-test")
+
+    // Lombok for tests
+    testCompileOnly("org.projectlombok:lombok")
+    testAnnotationProcessor("org.projectlombok:lombok")
+}
+
+tasks.named<org.springframework.boot.gradle.tasks.run.BootRun>("bootRun") {
+    jvmArgs = listOf("-Dreactor.netty.http.server.accessLogEnabled=true")
+}
+
+tasks.withType<Test> {
+    testLogging {
+        events("passed", "skipped", "failed")
+        exceptionFormat = org.gradle.api.tasks.testing.logging.TestExceptionFormat.FULL
+        showStandardStreams = false
+    }
+}
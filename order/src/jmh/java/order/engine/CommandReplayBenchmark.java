@@ -0,0 +1,92 @@
+package order.engine;
+
+import common.journal.FsyncPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 啟動時重播指令 journal 的速度：先寫入 2^20 筆指令（30% 撤單、35% 掛在簿上、35% 跨價成交），
+ * 每次呼叫開啟 journal 並重播到新的簿上（含解碼、crc 檢查與撮合）。結果為每微秒重播的指令數。
+ *
+ * <pre>./gradlew :order:jmh -Pjmh.includes=CommandReplayBenchmark</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@OperationsPerInvocation(CommandReplayBenchmark.COMMANDS)
+public class CommandReplayBenchmark {
+
+  static final int COMMANDS = 1 << 20;
+
+  private static final int SEGMENT_SIZE = 64 << 20;
+  private static final SymbolSpec SPEC = new SymbolSpec("BTC-USDT", "BTC", "USDT", 8, 8);
+  private static final long MID = 30_000_00000000L;
+  private static final long TICK = 1_00000000L;
+  private static final String[] USERS = {"u1", "u2", "u3", "u4", "u5", "u6", "u7", "u8"};
+
+  private Path dir;
+
+  @Setup(Level.Trial)
+  public void writeJournal() throws IOException {
+    dir = Files.createTempDirectory("order-journal");
+    SplittableRandom random = new SplittableRandom(42);
+    OrderEvent event = new OrderEvent();
+    long orderId = 0;
+    try (MappedCommandJournal journal = new MappedCommandJournal(dir, SEGMENT_SIZE, FsyncPolicy.NONE, 0)) {
+      for (int i = 0; i < COMMANDS; i++) {
+        int kind = random.nextInt(100);
+        if (kind < 30 && orderId > 0) {
+          long target = orderId - random.nextLong(Math.min(orderId, 2000));
+          event.set(CommandType.CANCEL, target, USERS[(int) (target & 7)], null, null, 0, 0, OrderCallback.NONE);
+        } else {
+          orderId++;
+          boolean buy = random.nextBoolean();
+          long offset = random.nextInt(1, 101) * TICK;
+          long price = kind < 65 ? (buy ? MID - offset : MID + offset) : (buy ? MID + offset : MID - offset);
+          long quantity = random.nextLong(1, 11) * 1_000_000;
+          event.set(CommandType.PLACE, orderId, USERS[(int) (orderId & 7)], buy ? Side.BUY : Side.SELL,
+              OrderType.LIMIT, price, quantity, OrderCallback.NONE);
+          event.lockAsset = buy ? SPEC.quoteAsset() : SPEC.baseAsset();
+          event.lockAmount = quantity;
+        }
+        journal.append(event);
+        if ((i & 1023) == 1023) {
+          journal.flush();
+        }
+      }
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteJournal() throws IOException {
+    try (Stream<Path> files = Files.walk(dir)) {
+      for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(file);
+      }
+    }
+  }
+
+  @Benchmark
+  public long replay() throws IOException {
+    MatchHandler handler = new MatchHandler(SPEC, 1 << 16, WalletOutbox.NONE, BookListener.NONE);
+    try (MappedCommandJournal journal = new MappedCommandJournal(dir, SEGMENT_SIZE, FsyncPolicy.NONE, 0)) {
+      return handler.replay(journal, WalletOutbox.NONE) + handler.book().tradeSequence();
+    }
+  }
+}
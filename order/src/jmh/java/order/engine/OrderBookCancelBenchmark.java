@@ -0,0 +1,151 @@
+package order.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 撤單為主的指令組合（接近真實交易所的訊息比例）：45% 撤單、10% 改單（一半原地減量、一半改價）、
+ * 43% 掛在中間價兩側 1～200 個 tick 的新單、2% 跨價成交。簿上維持約 {@code resting} 筆掛單，
+ * 撤單與改單隨機挑選掛單，多半落在中間的價位；已成交的委託被撤單時走找不到委託的路徑。
+ *
+ * <pre>./gradlew :order:jmh -Pjmh.includes=OrderBookCancelBenchmark -Pjmh.profilers=gc</pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OrderBookCancelBenchmark {
+
+  private static final int OPS = 1 << 16;
+  private static final long MID = 30_000_00000000L;
+  private static final long TICK = 1_00000000L;
+  private static final String[] USERS = {"u1", "u2", "u3", "u4", "u5", "u6", "u7", "u8"};
+
+  private static final byte CANCEL = 0;
+  private static final byte REDUCE = 1;
+  private static final byte REPRICE = 2;
+  private static final byte PLACE = 3;
+  private static final byte CROSS = 4;
+
+  @Param({"1000", "10000", "100000"})
+  public int resting;
+
+  private final byte[] kinds = new byte[OPS];
+  private final int[] picks = new int[OPS];
+  private final boolean[] buys = new boolean[OPS];
+  private final long[] offsets = new long[OPS];
+  private final long[] quantities = new long[OPS];
+
+  // 簿上的掛單（可能已被跨價單吃掉）
+  private long[] liveId;
+  private boolean[] liveBuy;
+  private long[] livePrice;
+  private long[] liveQuantity;
+  private int liveCount;
+
+  private OrderBook book;
+  private long orderId;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void generate() {
+    SplittableRandom random = new SplittableRandom(42);
+    for (int i = 0; i < OPS; i++) {
+      int kind = random.nextInt(100);
+      kinds[i] = kind < 45 ? CANCEL : kind < 50 ? REDUCE : kind < 55 ? REPRICE : kind < 98 ? PLACE : CROSS;
+      picks[i] = random.nextInt(Integer.MAX_VALUE);
+      buys[i] = random.nextBoolean();
+      offsets[i] = random.nextInt(1, 201) * TICK;
+      quantities[i] = random.nextLong(2, 11) * 1_000_000;
+    }
+    liveId = new long[resting * 2];
+    liveBuy = new boolean[resting * 2];
+    livePrice = new long[resting * 2];
+    liveQuantity = new long[resting * 2];
+  }
+
+  @Setup(Level.Iteration)
+  public void resetBook(Blackhole blackhole) {
+    book = new OrderBook(resting * 2, new BookListener() {
+      @Override
+      public void onTrade(long tradeId, long takerOrderId, String takerUserId, long makerOrderId, String makerUserId,
+          Side takerSide, long price, long quantity, boolean takerDone, boolean makerDone) {
+        blackhole.consume(quantity);
+      }
+    });
+    liveCount = 0;
+    next = 0;
+    while (liveCount < resting) {
+      place(next);
+      next = (next + 1) & (OPS - 1);
+    }
+  }
+
+  @Benchmark
+  public void cancelHeavy() {
+    int i = next;
+    next = (i + 1) & (OPS - 1);
+    byte kind = kinds[i];
+    // 維持掛單數在 resting 附近
+    if (liveCount < resting - resting / 10) {
+      kind = PLACE;
+    } else if (liveCount > resting + resting / 10 && kind == PLACE) {
+      kind = CANCEL;
+    }
+    switch (kind) {
+      case CANCEL -> cancel(picks[i] % liveCount);
+      case REDUCE -> reduce(picks[i] % liveCount);
+      case REPRICE -> reprice(picks[i] % liveCount, offsets[i]);
+      case PLACE -> place(i);
+      default -> book.place(++orderId, USERS[i & 7], buys[i] ? Side.BUY : Side.SELL, OrderType.LIMIT,
+          buys[i] ? MID + TICK : MID - TICK, quantities[i]);
+    }
+  }
+
+  private void place(int i) {
+    long id = ++orderId;
+    boolean buy = buys[i];
+    long price = buy ? MID - offsets[i] : MID + offsets[i];
+    book.place(id, USERS[(int) id & 7], buy ? Side.BUY : Side.SELL, OrderType.LIMIT, price, quantities[i]);
+    liveId[liveCount] = id;
+    liveBuy[liveCount] = buy;
+    livePrice[liveCount] = price;
+    liveQuantity[liveCount] = quantities[i];
+    liveCount++;
+  }
+
+  private void cancel(int live) {
+    long id = liveId[live];
+    book.cancel(id, USERS[(int) id & 7]);
+    liveCount--;
+    liveId[live] = liveId[liveCount];
+    liveBuy[live] = liveBuy[liveCount];
+    livePrice[live] = livePrice[liveCount];
+    liveQuantity[live] = liveQuantity[liveCount];
+  }
+
+  private void reduce(int live) {
+    long id = liveId[live];
+    long quantity = Math.max(1, liveQuantity[live] / 2);
+    book.replace(id, USERS[(int) id & 7], liveBuy[live] ? Side.BUY : Side.SELL, livePrice[live], quantity);
+    liveQuantity[live] = quantity;
+  }
+
+  private void reprice(int live, long offset) {
+    long id = liveId[live];
+    boolean buy = liveBuy[live];
+    long price = buy ? MID - offset : MID + offset;
+    book.replace(id, USERS[(int) id & 7], buy ? Side.BUY : Side.SELL, price, liveQuantity[live]);
+    livePrice[live] = price;
+  }
+}
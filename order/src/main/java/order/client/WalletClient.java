@@ -0,0 +1,125 @@
+package order.client;
+
+import common.http.TrustedHeaders;
+import lombok.extern.slf4j.Slf4j;
+import order.dto.AmountRequest;
+import order.dto.SettlementRequest;
+import order.engine.FundsLock;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 呼叫 wallet 服務（{@code /api/wallet}），全部非阻塞。
+ */
+@Slf4j
+public class WalletClient {
+
+  private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+  private static final String INSUFFICIENT_FUNDS = "WALLET_INSUFFICIENT_FUNDS";
+  private static final String DUPLICATE_SETTLEMENT = "WALLET_DUPLICATE_SETTLEMENT";
+  private static final String IDEMPOTENCY_IN_PROGRESS = "WALLET_IDEMPOTENCY_IN_PROGRESS";
+
+  private final WebClient webClient;
+  private final Duration maxBackoff;
+  private final Duration lockTimeout;
+  private final String serviceToken;
+
+  /**
+   * @param serviceToken 結算時帶的 {@link TrustedHeaders#SERVICE_TOKEN}，須與 wallet 的設定相同
+   */
+  public WalletClient(WebClient webClient, Duration maxBackoff, Duration lockTimeout, String serviceToken) {
+    this.webClient = webClient;
+    this.maxBackoff = maxBackoff;
+    this.lockTimeout = lockTimeout;
+    this.serviceToken = serviceToken;
+  }
+
+  /**
+   * 下單前鎖定資金，不重試：餘額不足（400 WALLET_INSUFFICIENT_FUNDS）回傳 {@link FundsLock.Result#INSUFFICIENT_FUNDS}，
+   * 其他錯誤或超過 {@code lockTimeout} 回傳 {@link FundsLock.Result#UNAVAILABLE}，由撮合階段拒絕委託。
+   */
+  public CompletableFuture<FundsLock.Result> lock(String userId, AmountRequest request) {
+    return webClient.post()
+        .uri("/api/wallet/lock")
+        .header(TrustedHeaders.USER_ID, userId)
+        .bodyValue(request)
+        .retrieve()
+        .toBodilessEntity()
+        .map(response -> FundsLock.Result.LOCKED)
+        .timeout(lockTimeout)
+        .onErrorResume(e -> {
+          if (e instanceof WebClientResponseException response
+              && response.getStatusCode().isSameCodeAs(HttpStatus.BAD_REQUEST)
+              && response.getResponseBodyAsString().contains(INSUFFICIENT_FUNDS)) {
+            return Mono.just(FundsLock.Result.INSUFFICIENT_FUNDS);
+          }
+          log.warn("lock {} for {} failed: {}", request.referenceId(), userId, e.toString());
+          return Mono.just(FundsLock.Result.UNAVAILABLE);
+        })
+        .toFuture();
+  }
+
+  /**
+   * 解鎖訂單剩餘的鎖定，暫時性錯誤持續重試。wallet 只解鎖 referenceId 剩餘的部分，重送不會多解鎖；
+   * 部分解鎖（成交後退回多鎖的金額）重啟後補送時以 {@code idempotencyKey} 由 wallet 去重。
+   *
+   * @param idempotencyKey 可為 null（不帶 Idempotency-Key）
+   */
+  public Mono<Void> unlock(String userId, AmountRequest request, String idempotencyKey) {
+    return webClient.post()
+        .uri("/api/wallet/unlock")
+        .header(TrustedHeaders.USER_ID, userId)
+        .headers(headers -> {
+          if (idempotencyKey != null) {
+            headers.set(IDEMPOTENCY_KEY, idempotencyKey);
+          }
+        })
+        .bodyValue(request)
+        .retrieve()
+        .toBodilessEntity()
+        .then()
+        .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofMillis(100))
+            .maxBackoff(maxBackoff)
+            .filter(error -> isTransient(error) || error instanceof WebClientResponseException e
+                && isConflict(e, IDEMPOTENCY_IN_PROGRESS))
+            .doBeforeRetry(signal -> log.warn("unlock {} failed, retrying: {}",
+                request.referenceId(), signal.failure().toString())));
+  }
+
+  /**
+   * 送出結算，暫時性錯誤（連線失敗、5xx、同一 key 的前一次仍在處理中）持續重試；wallet 以 settlementId 去重，
+   * 只有已處理過（409 WALLET_DUPLICATE_SETTLEMENT）視為成功，其他 4xx 以錯誤結束，由呼叫端轉存。
+   */
+  public Mono<Void> settle(SettlementRequest request) {
+    return webClient.post()
+        .uri("/api/wallet/settle")
+        .header(TrustedHeaders.SERVICE_TOKEN, serviceToken)
+        .header(IDEMPOTENCY_KEY, request.settlementId())
+        .bodyValue(request)
+        .retrieve()
+        .toBodilessEntity()
+        .then()
+        .onErrorResume(WebClientResponseException.class,
+            e -> isConflict(e, DUPLICATE_SETTLEMENT) ? Mono.empty() : Mono.error(e))
+        .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofMillis(100))
+            .maxBackoff(maxBackoff)
+            .filter(error -> isTransient(error) || error instanceof WebClientResponseException e
+                && isConflict(e, IDEMPOTENCY_IN_PROGRESS))
+            .doBeforeRetry(signal -> log.warn("settlement {} failed, retrying: {}",
+                request.settlementId(), signal.failure().toString())));
+  }
+
+  private static boolean isConflict(WebClientResponseException e, String code) {
+    return e.getStatusCode().isSameCodeAs(HttpStatus.CONFLICT) && e.getResponseBodyAsString().contains(code);
+  }
+
+  private static boolean isTransient(Throwable error) {
+    return !(error instanceof WebClientResponseException e) || e.getStatusCode().is5xxServerError();
+  }
+}
@@ -0,0 +1,157 @@
+package order.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import common.journal.FsyncPolicy;
+import common.money.AssetScales;
+import common.money.FixedPoint;
+import order.client.WalletClient;
+import order.dto.AmountRequest;
+import order.engine.CommandJournal;
+import order.engine.FundsLock;
+import order.engine.MappedCommandJournal;
+import order.engine.MatchingEngine;
+import order.engine.PipelineServices;
+import order.engine.RiskLimits;
+import order.engine.SymbolSpec;
+import order.marketdata.MarketData;
+import order.settlement.DeadLetterStore;
+import order.settlement.DeliveryWatermark;
+import order.settlement.SettlementPublisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+@Configuration
+@EnableConfigurationProperties(OrderProperties.class)
+public class MatchingEngineConfiguration {
+
+  @Bean
+  public AssetScales assetScales(OrderProperties properties) {
+    return AssetScales.of(properties.getAssets());
+  }
+
+  @Bean
+  public List<SymbolSpec> symbolSpecs(OrderProperties properties, AssetScales assetScales) {
+    List<SymbolSpec> specs = new ArrayList<>();
+    for (Map.Entry<String, OrderProperties.Symbol> entry : properties.getSymbols().entrySet()) {
+      OrderProperties.Symbol symbol = entry.getValue();
+      specs.add(new SymbolSpec(entry.getKey(), symbol.getBase(), symbol.getQuote(),
+          assetScales.scaleOf(symbol.getBase()), assetScales.scaleOf(symbol.getQuote())));
+    }
+    return specs;
+  }
+
+  @Bean
+  public WalletClient walletClient(
+      WebClient.Builder builder,
+      @Value("${order.wallet.url:http://localhost:8082}") String walletUrl,
+      @Value("${order.wallet.max-backoff:5s}") Duration maxBackoff,
+      @Value("${order.wallet.lock-timeout:2s}") Duration lockTimeout,
+      @Value("${order.wallet.service-token:}") String serviceToken) {
+    return new WalletClient(builder.baseUrl(walletUrl).build(), maxBackoff, lockTimeout, serviceToken);
+  }
+
+  /** {@code order.wallet.lock-funds=false} 時不鎖定資金（單獨啟動 order 壓測撮合時使用） */
+  @Bean
+  public FundsLock fundsLock(
+      WalletClient walletClient,
+      AssetScales assetScales,
+      @Value("${order.wallet.lock-funds:true}") boolean lockFunds) {
+    if (!lockFunds) {
+      return FundsLock.NONE;
+    }
+    return (userId, asset, amount, orderId) -> walletClient.lock(userId, new AmountRequest(asset,
+        FixedPoint.toString(amount, assetScales.scaleOf(asset)), Long.toString(orderId), "ORDER_LOCK"));
+  }
+
+  @Bean(destroyMethod = "close")
+  public MarketData marketData(
+      List<SymbolSpec> symbolSpecs,
+      @Value("${order.market-data.ring-size:65536}") int ringSize,
+      @Value("${order.market-data.snapshot-interval:1s}") Duration snapshotInterval,
+      @Value("${order.engine.idle-park:50us}") Duration idlePark) {
+    MarketData marketData = new MarketData(symbolSpecs, ringSize, snapshotInterval.toNanos(), idlePark.toNanos());
+    marketData.start();
+    return marketData;
+  }
+
+  /** {@code order.journal.enabled=false} 時不寫 journal，重啟後簿是空的 */
+  @Bean
+  public Function<SymbolSpec, CommandJournal> commandJournals(
+      @Value("${order.journal.enabled:true}") boolean enabled,
+      @Value("${order.journal.dir:data/order/journal}") Path dir,
+      @Value("${order.journal.fsync:none}") FsyncPolicy fsync,
+      @Value("${order.journal.fsync-interval:10ms}") Duration fsyncInterval,
+      @Value("${order.journal.segment-size:64MB}") DataSize segmentSize) {
+    return spec -> {
+      if (!enabled) {
+        return CommandJournal.NONE;
+      }
+      try {
+        return new MappedCommandJournal(dir.resolve(spec.symbol()), Math.toIntExact(segmentSize.toBytes()), fsync,
+            fsyncInterval.toNanos());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    };
+  }
+
+  /** wallet 拒絕的結算與解鎖 */
+  @Bean(destroyMethod = "close")
+  public DeadLetterStore deadLetterStore(
+      ObjectMapper objectMapper,
+      @Value("${order.wallet.dead-letter-file:data/order/wallet-dead-letters.jsonl}") Path file) throws IOException {
+    return new DeadLetterStore(file, objectMapper);
+  }
+
+  /** 依賴 {@link MarketData}，關閉時先停止撮合，行情處理完最後的變動才停止 */
+  @Bean(destroyMethod = "close")
+  public MatchingEngine matchingEngine(
+      List<SymbolSpec> symbolSpecs,
+      WalletClient walletClient,
+      FundsLock fundsLock,
+      MarketData marketData,
+      DeadLetterStore deadLetters,
+      Function<SymbolSpec, CommandJournal> commandJournals,
+      @Value("${order.engine.ring-size:65536}") int ringSize,
+      @Value("${order.engine.expected-orders:1000000}") int expectedOrders,
+      @Value("${order.engine.idle-park:50us}") Duration idlePark,
+      @Value("${order.wallet.outbox-capacity:65536}") int outboxCapacity,
+      @Value("${order.wallet.watermark-dir:data/order/delivered}") Path watermarkDir,
+      @Value("${order.journal.fsync:none}") FsyncPolicy fsync,
+      @Value("${order.risk.max-quantity:0}") String maxQuantity,
+      @Value("${order.risk.max-notional:0}") String maxNotional) throws IOException {
+    MatchingEngine engine = new MatchingEngine(symbolSpecs, ringSize, expectedOrders, idlePark.toNanos(),
+        spec -> new PipelineServices(
+            new RiskLimits(FixedPoint.parse(maxQuantity, spec.baseScale()),
+                FixedPoint.parse(maxNotional, spec.quoteScale())),
+            fundsLock,
+            commandJournals.apply(spec),
+            new SettlementPublisher(spec, outboxCapacity, walletClient::settle, walletClient::unlock,
+                deadLetters, watermark(watermarkDir, spec, fsync != FsyncPolicy.NONE)),
+            marketData.feed(spec.symbol())));
+    engine.start();
+    return engine;
+  }
+
+  /** 每個交易對一個送達位置檔案；journal 有 fsync 時同樣 fsync */
+  private static DeliveryWatermark watermark(Path dir, SymbolSpec spec, boolean fsync) {
+    try {
+      return new DeliveryWatermark(dir.resolve(spec.symbol() + ".watermark"), fsync);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package order.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@code order.assets}：資產的小數位數（須與 wallet 相同）；{@code order.symbols}：交易對的基礎與報價資產。
+ */
+@ConfigurationProperties(prefix = "order")
+public class OrderProperties {
+
+  private Map<String, Integer> assets = new LinkedHashMap<>(Map.of("USDT", 8, "BTC", 8, "ETH", 8));
+  private Map<String, Symbol> symbols = new LinkedHashMap<>();
+
+  public Map<String, Integer> getAssets() {
+    return assets;
+  }
+
+  public void setAssets(Map<String, Integer> assets) {
+    this.assets = assets;
+  }
+
+  public Map<String, Symbol> getSymbols() {
+    return symbols;
+  }
+
+  public void setSymbols(Map<String, Symbol> symbols) {
+    this.symbols = symbols;
+  }
+
+  public static class Symbol {
+
+    private String base;
+    private String quote;
+
+    public String getBase() {
+      return base;
+    }
+
+    public void setBase(String base) {
+      this.base = base;
+    }
+
+    public String getQuote() {
+      return quote;
+    }
+
+    public void setQuote(String quote) {
+      this.quote = quote;
+    }
+  }
+}
@@ -0,0 +1,7 @@
+package order.dto;
+
+/**
+ * Wallet {@code POST /lock}、{@code POST /unlock} 的請求體，{@code referenceId} 為訂單編號。
+ */
+public record AmountRequest(String asset, String amount, String referenceId, String reason) {
+}
@@ -0,0 +1,39 @@
+package order.dto;
+
+import common.money.FixedPoint;
+import order.engine.SymbolSpec;
+import order.marketdata.DepthLevel;
+import order.marketdata.DepthMessage;
+import order.marketdata.DepthSnapshot;
+import order.marketdata.DepthUpdate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * L2 行情，價位為 {@code [price, quantity]}，由最佳價開始排列。
+ * {@code type} 為 {@code snapshot} 時是完整的簿（{@code firstSequence} 與 {@code lastSequence} 相同）；
+ * 為 {@code update} 時只有變動的價位，數量為 0 表示移除，序號接續前一則訊息的 {@code lastSequence}。
+ */
+public record DepthResponse(String type, String symbol, long firstSequence, long lastSequence,
+    List<List<String>> bids, List<List<String>> asks) {
+
+  public static DepthResponse from(DepthMessage message, SymbolSpec spec) {
+    if (message instanceof DepthSnapshot snapshot) {
+      return new DepthResponse("snapshot", snapshot.symbol(), snapshot.sequence(), snapshot.sequence(),
+          levels(snapshot.bids(), spec), levels(snapshot.asks(), spec));
+    }
+    DepthUpdate update = (DepthUpdate) message;
+    return new DepthResponse("update", update.symbol(), update.firstSequence(), update.lastSequence(),
+        levels(update.bids(), spec), levels(update.asks(), spec));
+  }
+
+  private static List<List<String>> levels(List<DepthLevel> levels, SymbolSpec spec) {
+    List<List<String>> result = new ArrayList<>(levels.size());
+    for (DepthLevel level : levels) {
+      result.add(List.of(FixedPoint.toString(level.price(), spec.quoteScale()),
+          FixedPoint.toString(level.volume(), spec.baseScale())));
+    }
+    return result;
+  }
+}
@@ -0,0 +1,9 @@
+package order.dto;
+
+import java.time.Instant;
+
+/**
+ * API 定義中的通用錯誤格式。
+ */
+public record ErrorResponse(Instant timestamp, int status, String error, String code, String message, String path) {
+}
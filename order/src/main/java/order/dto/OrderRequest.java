@@ -0,0 +1,8 @@
+package order.dto;
+
+/**
+ * 下單與改單的請求體，價格與數量以字串表示（見 {@code common.money.FixedPoint}）。
+ * 改單時 {@code type} 不使用；市價單的 {@code price} 為保護價，買單必填。
+ */
+public record OrderRequest(String symbol, String side, String type, String price, String quantity) {
+}
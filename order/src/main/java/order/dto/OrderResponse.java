@@ -0,0 +1,9 @@
+package order.dto;
+
+/**
+ * 指令處理完的結果。{@code filledQuantity} 為這個指令主動成交的數量，{@code remainingQuantity} 為掛在簿上的數量
+ * （撤單時為取消的數量）；{@code rejectReason} 只在 {@code REJECTED} 時有值。
+ */
+public record OrderResponse(String orderId, String symbol, String status, String filledQuantity,
+    String remainingQuantity, String rejectReason) {
+}
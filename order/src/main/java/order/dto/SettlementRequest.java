@@ -0,0 +1,24 @@
+package order.dto;
+
+import java.util.List;
+
+/**
+ * Wallet {@code POST /settle} 與 {@code wallet.settlements} 事件的內容，金額以字串表示。
+ */
+public record SettlementRequest(String settlementId, List<Trade> trades) {
+
+  public record Trade(
+      String buyerId,
+      String sellerId,
+      String baseAsset,
+      String quoteAsset,
+      String price,
+      String quantity,
+      String fee,
+      String feeAsset,
+      String buyerOrderId,
+      String sellerOrderId,
+      Boolean buyerOrderClosed,
+      Boolean sellerOrderClosed) {
+  }
+}
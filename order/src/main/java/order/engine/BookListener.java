@@ -0,0 +1,53 @@
+package order.engine;
+
+/**
+ * 限價簿的事件，在撮合執行緒上同步呼叫。參數都是原始型別或既有的參考，呼叫本身不配置物件；
+ * 實作不應阻塞，需要保留的資料自行複製。
+ */
+public interface BookListener {
+
+  /**
+   * 一筆成交，成交價為掛單（maker）的價格。
+   *
+   * @param takerDone 主動方委託已全部成交
+   * @param makerDone 掛單已全部成交並從簿上移除
+   */
+  default void onTrade(long tradeId, long takerOrderId, String takerUserId, long makerOrderId, String makerUserId,
+      Side takerSide, long price, long quantity, boolean takerDone, boolean makerDone) {
+  }
+
+  /**
+   * 價位的總量或委託數改變（L2 增量）。一次撮合掃過的價位只通知一次，為掃完後的結果；
+   * {@code volume} 為 0 表示價位已移除。
+   */
+  default void onLevel(Side side, long price, long volume, int orders) {
+  }
+
+  /** 委託的剩餘數量掛上簿 */
+  default void onRested(long orderId, String userId, Side side, long price, long remaining) {
+  }
+
+  /** 委託結束且有未成交數量：使用者撤單，或市價單吃不完的部分 */
+  default void onCancelled(long orderId, String userId, Side side, long remaining) {
+  }
+
+  /**
+   * 改單生效，{@code remaining} 為改單後的數量（改價的部分可能已在改單時成交）。
+   *
+   * @param oldPrice     改單前的價格
+   * @param oldRemaining 改單前掛在簿上的數量
+   */
+  default void onReplaced(long orderId, String userId, Side side, long oldPrice, long oldRemaining, long price,
+      long remaining) {
+  }
+
+  default void onRejected(long orderId, String userId, RejectReason reason) {
+  }
+
+  /** 撮合執行緒處理完一批指令 */
+  default void onBatchEnd() {
+  }
+
+  BookListener NONE = new BookListener() {
+  };
+}
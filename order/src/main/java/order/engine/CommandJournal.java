@@ -0,0 +1,50 @@
+package order.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * 進入撮合前的指令紀錄，寫在鎖定之後、撮合之前：紀錄包含指令本身與風控、鎖定的結果，
+ * 依序重播到新的 {@link OrderBook} 會得到相同的成交與簿。每個交易對一個，只由該交易對的 journal 執行緒寫入。
+ */
+public interface CommandJournal extends Closeable {
+
+  /** 寫入緩衝區並編上遞增的序號，{@link #flush()} 之後依 fsync 設定持久化 */
+  void append(OrderEvent event) throws IOException;
+
+  /** 一批指令寫完後呼叫一次 */
+  void flush() throws IOException;
+
+  /** {@link #flush()} 失敗時撤回這一批已寫入的指令，重播不會讀到沒有撮合的指令 */
+  void discardUnflushed() throws IOException;
+
+  /** 依寫入順序重播所有指令；傳入的事件只在回呼期間有效 */
+  void replay(Consumer<OrderEvent> consumer) throws IOException;
+
+  /** 沒有新指令時由 journal 執行緒定期呼叫，間隔 fsync 的最後一批不會因為閒置而一直沒有 fsync */
+  default void idle() throws IOException {
+  }
+
+  CommandJournal NONE = new CommandJournal() {
+    @Override
+    public void append(OrderEvent event) {
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void discardUnflushed() {
+    }
+
+    @Override
+    public void replay(Consumer<OrderEvent> consumer) {
+    }
+
+    @Override
+    public void close() {
+    }
+  };
+}
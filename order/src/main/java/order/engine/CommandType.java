@@ -0,0 +1,7 @@
+package order.engine;
+
+public enum CommandType {
+  PLACE,
+  CANCEL,
+  REPLACE
+}
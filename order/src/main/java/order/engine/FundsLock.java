@@ -0,0 +1,21 @@
+package order.engine;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 下單前鎖定資金（wallet {@code POST /lock}，referenceId 為訂單編號）。必須非阻塞，且在有限時間內完成。
+ */
+@FunctionalInterface
+public interface FundsLock {
+
+  enum Result {
+    LOCKED,
+    INSUFFICIENT_FUNDS,
+    UNAVAILABLE
+  }
+
+  CompletableFuture<Result> lock(String userId, String asset, long amount, long orderId);
+
+  /** 不鎖定（測試、壓測） */
+  FundsLock NONE = (userId, asset, amount, orderId) -> CompletableFuture.completedFuture(Result.LOCKED);
+}
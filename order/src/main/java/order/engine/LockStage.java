@@ -0,0 +1,89 @@
+package order.engine;
+
+import order.sequencer.IdleStrategy;
+import order.sequencer.RingBuffer;
+import order.sequencer.Sequence;
+import order.sequencer.SequenceBarrier;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 鎖定階段：對風控通過的委託呼叫 {@link FundsLock}，不等待結果就繼續送出下一筆，鎖定可以同時進行多筆。
+ * 自己的序號只推進到「前面全部都已完成」的位置，撮合階段仍依序號順序看到結果；
+ * 鎖定完成的回呼在其他執行緒執行，寫入事件後喚醒這條執行緒。
+ */
+final class LockStage implements Runnable {
+
+  private final RingBuffer<OrderEvent> ringBuffer;
+  private final SequenceBarrier barrier;
+  private final FundsLock fundsLock;
+  private final IdleStrategy idleStrategy;
+  private final Sequence sequence = new Sequence(-1);
+
+  private volatile boolean running = true;
+  private volatile Thread thread;
+
+  LockStage(RingBuffer<OrderEvent> ringBuffer, SequenceBarrier barrier, FundsLock fundsLock,
+      IdleStrategy idleStrategy) {
+    this.ringBuffer = ringBuffer;
+    this.barrier = barrier;
+    this.fundsLock = fundsLock;
+    this.idleStrategy = idleStrategy;
+  }
+
+  Sequence sequence() {
+    return sequence;
+  }
+
+  /** 送出並等到所有已可處理的鎖定完成後停止 */
+  void halt() {
+    running = false;
+    LockSupport.unpark(thread);
+  }
+
+  @Override
+  public void run() {
+    thread = Thread.currentThread();
+    long dispatched = sequence.get();
+    long completed = sequence.get();
+    int idle = 0;
+    while (true) {
+      long available = barrier.available(dispatched + 1);
+      for (long current = dispatched + 1; current <= available; current++) {
+        dispatch(ringBuffer.get(current));
+      }
+      boolean progressed = available > dispatched;
+      if (progressed) {
+        dispatched = available;
+      }
+      long done = completed;
+      while (done < dispatched && ringBuffer.get(done + 1).lockDone()) {
+        done++;
+      }
+      if (done > completed) {
+        completed = done;
+        sequence.set(completed);
+        progressed = true;
+      }
+      if (progressed) {
+        idle = 0;
+      } else if (!running && completed == dispatched) {
+        return;
+      } else {
+        idle = idleStrategy.idle(idle);
+      }
+    }
+  }
+
+  private void dispatch(OrderEvent event) {
+    if (event.rejectReason != null || event.lockAsset == null || event.lockAmount == 0) {
+      event.completeLock(FundsLock.Result.LOCKED);
+      return;
+    }
+    fundsLock.lock(event.userId, event.lockAsset, event.lockAmount, event.orderId)
+        .whenComplete((result, error) -> {
+          event.completeLock(error != null || result == null ? FundsLock.Result.UNAVAILABLE : result);
+          LockSupport.unpark(thread);
+        });
+  }
+}
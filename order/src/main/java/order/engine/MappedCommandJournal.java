@@ -0,0 +1,125 @@
+package order.engine;
+
+import common.journal.FsyncPolicy;
+import common.journal.MappedLog;
+import common.journal.RecordCodec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * 以 {@link MappedLog} 保存的指令 journal，與 wallet 的 journal 同一種格式（segment 的 magic 為 "OJNL"）。
+ * 紀錄的 id 為從 1 開始遞增的指令序號，payload 依序為 type、side、orderType、rejectReason
+ * （各 1 byte，列舉的 ordinal，null 為 -1）、orderId、price、quantity、lockAmount 與 userId、lockAsset 兩個字串；
+ * 列舉只能在尾端新增值。
+ *
+ * <p>一批指令依序寫進映射區，整批只 flush 一次，fsync 依 {@link FsyncPolicy}。
+ */
+public final class MappedCommandJournal implements CommandJournal {
+
+  static final int MAGIC = 0x4F4A4E4C; // "OJNL"
+
+  private static final CommandType[] TYPES = CommandType.values();
+  private static final Side[] SIDES = Side.values();
+  private static final OrderType[] ORDER_TYPES = OrderType.values();
+  private static final RejectReason[] REJECT_REASONS = RejectReason.values();
+
+  private final MappedLog<OrderEvent> log;
+  private boolean replayed;
+
+  /**
+   * @param fsyncIntervalNanos {@link FsyncPolicy#INTERVAL} 的間隔
+   */
+  public MappedCommandJournal(Path dir, int segmentSize, FsyncPolicy fsyncPolicy, long fsyncIntervalNanos)
+      throws IOException {
+    this.log = new MappedLog<>(dir, MAGIC, segmentSize, fsyncPolicy, fsyncIntervalNanos, new Codec());
+  }
+
+  @Override
+  public void append(OrderEvent event) throws IOException {
+    if (!replayed) {
+      replay(e -> {
+      });
+    }
+    log.append(log.lastId() + 1, event);
+  }
+
+  @Override
+  public void flush() throws IOException {
+    log.flush();
+  }
+
+  @Override
+  public void discardUnflushed() throws IOException {
+    log.discardUnflushed();
+  }
+
+  @Override
+  public void idle() {
+    log.forceIfDue();
+  }
+
+  @Override
+  public void replay(Consumer<OrderEvent> consumer) throws IOException {
+    log.replay(consumer);
+    replayed = true;
+  }
+
+  /** 最後一筆指令的序號 */
+  public long lastSequence() {
+    return log.lastId();
+  }
+
+  @Override
+  public void close() throws IOException {
+    log.close();
+  }
+
+  /** 重播時解碼到同一個事件物件 */
+  private static final class Codec implements RecordCodec<OrderEvent> {
+
+    private final OrderEvent replayed = new OrderEvent();
+
+    @Override
+    public int size(OrderEvent event) {
+      return 4 + 8 * 4 + RecordCodec.stringSize(event.userId) + RecordCodec.stringSize(event.lockAsset);
+    }
+
+    @Override
+    public int write(ByteBuffer buffer, int position, OrderEvent event) {
+      buffer.put(position, (byte) event.type.ordinal());
+      buffer.put(position + 1, ordinal(event.side));
+      buffer.put(position + 2, ordinal(event.orderType));
+      buffer.put(position + 3, ordinal(event.rejectReason));
+      buffer.putLong(position + 4, event.orderId);
+      buffer.putLong(position + 12, event.price);
+      buffer.putLong(position + 20, event.quantity);
+      buffer.putLong(position + 28, event.lockAmount);
+      position = RecordCodec.putString(buffer, position + 36, event.userId);
+      return RecordCodec.putString(buffer, position, event.lockAsset);
+    }
+
+    @Override
+    public OrderEvent read(ByteBuffer buffer, int position, int length, long sequence) {
+      byte side = buffer.get(position + 1);
+      byte orderType = buffer.get(position + 2);
+      byte rejectReason = buffer.get(position + 3);
+      String userId = RecordCodec.getString(buffer, position + 36);
+      OrderEvent event = replayed;
+      event.set(TYPES[buffer.get(position)], buffer.getLong(position + 4), userId,
+          side < 0 ? null : SIDES[side],
+          orderType < 0 ? null : ORDER_TYPES[orderType],
+          buffer.getLong(position + 12), buffer.getLong(position + 20), OrderCallback.NONE);
+      event.rejectReason = rejectReason < 0 ? null : REJECT_REASONS[rejectReason];
+      event.lockAmount = buffer.getLong(position + 28);
+      event.lockAsset = RecordCodec.getString(buffer, position + 36 + RecordCodec.stringSize(userId));
+      return event;
+    }
+
+    private static byte ordinal(Enum<?> value) {
+      return value == null ? -1 : (byte) value.ordinal();
+    }
+  }
+}
@@ -0,0 +1,189 @@
+package order.engine;
+
+import common.money.FixedPoint;
+import order.sequencer.EventHandler;
+
+import java.io.IOException;
+
+/**
+ * 最後一個階段：單一執行緒依序號把指令套用到 {@link OrderBook}，整理出指令的結果交給 {@link OrderCallback}，
+ * 成交與解鎖交給 {@link WalletOutbox}，價位變動交給行情（{@link PipelineServices#marketData()}）。
+ *
+ * <p>解鎖的時機：撤單與市價單剩餘的部分解鎖訂單全部剩餘的鎖定；改單生效後解鎖原價格、原剩餘數量對應的金額
+ * （新的金額已在鎖定階段加到同一個 referenceId 上）；全部成交的訂單由結算的 {@code *OrderClosed} 解鎖。
+ *
+ * <p>結果只取決於事件的內容（含風控與鎖定的結果）與簿的狀態，{@link #replay} 依序套用 journal 的指令會得到相同的成交與簿。
+ */
+final class MatchHandler implements EventHandler<OrderEvent>, BookListener {
+
+  /** 重播時每幾筆指令視為一批（行情在批次結束時發布） */
+  private static final int REPLAY_BATCH = 1024;
+
+  private final SymbolSpec spec;
+  private final BookListener marketData;
+  private final OrderBook book;
+  private WalletOutbox outbox;
+  private long lastOrderId;
+  /** 已套用且在 journal 中的指令數，也是下一筆的位置減一 */
+  private long journaledCommands;
+
+  private OrderEvent current;
+  private long filled;
+  private long remaining;
+  private OrderStatus status;
+  private RejectReason rejectReason;
+
+  MatchHandler(SymbolSpec spec, int expectedOrders, WalletOutbox outbox, BookListener marketData) {
+    this.spec = spec;
+    this.outbox = outbox;
+    this.marketData = marketData;
+    this.book = new OrderBook(expectedOrders, this);
+  }
+
+  OrderBook book() {
+    return book;
+  }
+
+  /** 處理過的新委託中最大的訂單編號 */
+  long lastOrderId() {
+    return lastOrderId;
+  }
+
+  /**
+   * 啟動前把 journal 的指令依序套用到簿上，不經過風控與鎖定（結果已在紀錄中）；
+   * {@code replayOutbox} 已送達的指令（{@link WalletOutbox#deliveredThrough()} 之前）的成交與解鎖不再送出，
+   * 之後的交給它，送出中的那一批以原本的範圍結束，結算的內容與編號和第一次相同。
+   * 回傳重播的指令數。只能在撮合執行緒啟動前呼叫。
+   */
+  long replay(CommandJournal journal, WalletOutbox replayOutbox) throws IOException {
+    WalletOutbox live = outbox;
+    long delivered = replayOutbox.deliveredThrough();
+    long sending = Math.max(delivered, replayOutbox.sendingThrough());
+    long first = journaledCommands;
+    try {
+      journal.replay(event -> {
+        long index = journaledCommands + 1;
+        outbox = index <= delivered ? WalletOutbox.NONE : replayOutbox;
+        boolean inFlight = index > delivered && index < sending;
+        event.journaled = true;
+        onEvent(event, index - 1,
+            index == delivered || index == sending || (!inFlight && (index & (REPLAY_BATCH - 1)) == 0));
+      });
+      outbox.onBatchEnd();
+      marketData.onBatchEnd();
+    } finally {
+      outbox = live;
+    }
+    replayOutbox.replayed(journaledCommands);
+    return journaledCommands - first;
+  }
+
+  @Override
+  public void onEvent(OrderEvent event, long sequence, boolean endOfBatch) {
+    current = event;
+    filled = 0;
+    remaining = 0;
+    status = null;
+    rejectReason = null;
+    if (event.type == CommandType.PLACE && event.orderId > lastOrderId) {
+      lastOrderId = event.orderId;
+    }
+    outbox.onCommand(event.journaled ? ++journaledCommands : 0);
+    try {
+      if (event.rejectReason != null) {
+        reject(event);
+      } else {
+        switch (event.type) {
+          case PLACE -> book.place(event.orderId, event.userId, event.side, event.orderType, event.price,
+              event.quantity);
+          case CANCEL -> book.cancel(event.orderId, event.userId);
+          case REPLACE -> book.replace(event.orderId, event.userId, event.side, event.price, event.quantity);
+        }
+      }
+      if (status == null) {
+        status = remaining > 0 ? (filled > 0 ? OrderStatus.PARTIALLY_FILLED : OrderStatus.NEW) : OrderStatus.FILLED;
+      }
+      if (endOfBatch) {
+        outbox.onBatchEnd();
+        marketData.onBatchEnd();
+      }
+      event.callback.onResult(event.orderId, status, filled, remaining, rejectReason);
+    } finally {
+      current = null;
+      event.clearReferences();
+    }
+  }
+
+  private void reject(OrderEvent event) {
+    // 鎖定逾時的請求仍可能在 wallet 生效（可能晚於撤回才到）；新單不存在，撤回整個 referenceId 不會影響其他訂單
+    if (event.rejectReason == RejectReason.WALLET_UNAVAILABLE && event.type == CommandType.PLACE) {
+      outbox.cancelLock(event.userId, event.lockAsset, event.orderId);
+    } else if (event.rejectReason == RejectReason.JOURNAL_UNAVAILABLE
+        && event.lockResult == FundsLock.Result.LOCKED && event.lockAmount > 0) {
+      // 鎖定後才無法寫入 journal，退回這次鎖定的金額
+      outbox.unlock(event.userId, event.lockAsset, event.lockAmount, event.orderId);
+    }
+    status = OrderStatus.REJECTED;
+    rejectReason = event.rejectReason;
+  }
+
+  @Override
+  public void onTrade(long tradeId, long takerOrderId, String takerUserId, long makerOrderId, String makerUserId,
+      Side takerSide, long price, long quantity, boolean takerDone, boolean makerDone) {
+    filled += quantity;
+    if (current.type == CommandType.REPLACE) {
+      remaining -= quantity;
+    }
+    outbox.onTrade(tradeId, takerOrderId, takerUserId, makerOrderId, makerUserId, takerSide, price, quantity,
+        takerDone, makerDone);
+  }
+
+  @Override
+  public void onLevel(Side side, long price, long volume, int orders) {
+    marketData.onLevel(side, price, volume, orders);
+  }
+
+  @Override
+  public void onRested(long orderId, String userId, Side side, long price, long restedQuantity) {
+    remaining = restedQuantity;
+    outbox.onRested(orderId, userId, side, price, restedQuantity);
+  }
+
+  @Override
+  public void onCancelled(long orderId, String userId, Side side, long cancelled) {
+    remaining = cancelled;
+    status = OrderStatus.CANCELLED;
+    outbox.onCancelled(orderId, userId, side, cancelled);
+    outbox.unlock(userId, lockAsset(side), Long.MAX_VALUE, orderId);
+  }
+
+  @Override
+  public void onReplaced(long orderId, String userId, Side side, long oldPrice, long oldRemaining, long price,
+      long newRemaining) {
+    outbox.onReplaced(orderId, userId, side, oldPrice, oldRemaining, price, newRemaining);
+    outbox.unlock(userId, lockAsset(side), lockAmount(side, oldPrice, oldRemaining), orderId);
+    // 原地減量時不會再觸發 onRested；改價時之後的成交從這裡扣除
+    remaining = newRemaining;
+  }
+
+  @Override
+  public void onRejected(long orderId, String userId, RejectReason reason) {
+    status = OrderStatus.REJECTED;
+    rejectReason = reason;
+    outbox.onRejected(orderId, userId, reason);
+    if (current.lockAmount > 0) {
+      // 改單或下單在鎖定後才被簿拒絕，退回這次鎖定的金額
+      outbox.unlock(userId, current.lockAsset, current.lockAmount, orderId);
+    }
+  }
+
+  private String lockAsset(Side side) {
+    return side == Side.BUY ? spec.quoteAsset() : spec.baseAsset();
+  }
+
+  private long lockAmount(Side side, long price, long quantity) {
+    return side == Side.BUY
+        ? FixedPoint.multiply(price, spec.quoteScale(), quantity, spec.baseScale(), spec.quoteScale())
+        : quantity;
+  }
+}
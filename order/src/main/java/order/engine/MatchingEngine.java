@@ -0,0 +1,117 @@
+package order.engine;
+
+import lombok.extern.slf4j.Slf4j;
+import order.exception.OrderException;
+import order.sequencer.IdleStrategy;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 每個交易對一條 {@link OrderPipeline}（風控、鎖定、journal、撮合），各自持有一份 {@link OrderBook}；
+ * 交易對之間不共用狀態。指令寫入管線後立即返回，結果經由 {@link OrderCallback} 在撮合執行緒上通知。
+ *
+ * <p>訂單編號由引擎產生，以啟動時間（毫秒）左移 16 位元為起點遞增，重啟後不會與之前的編號重複
+ * （除非平均每毫秒超過 65536 筆），也不小於 journal 裡最大的編號。
+ *
+ * <p>{@link #start()} 先把每個交易對的 {@link CommandJournal} 重播到簿上，重建停止前的掛單與成交序號；
+ * 已送達 wallet 的成交與解鎖不再送出，之後的（停止或崩潰時還在送出佇列中的）重新交給 {@link WalletOutbox}，
+ * 結算編號只由交易對與成交編號決定，wallet 以此去重。
+ */
+@Slf4j
+public class MatchingEngine implements AutoCloseable {
+
+  private final Map<String, OrderPipeline> pipelines = new LinkedHashMap<>();
+  private final AtomicLong orderIds = new AtomicLong(System.currentTimeMillis() << 16);
+
+  /**
+   * @param ringSize 每個交易對的環狀緩衝區大小，須為 2 的次方
+   * @param services 每個交易對的風控上限、鎖定、journal 與 wallet 出口
+   */
+  public MatchingEngine(List<SymbolSpec> symbols, int ringSize, int expectedOrders, long idleParkNanos,
+      Function<SymbolSpec, PipelineServices> services) {
+    IdleStrategy idleStrategy = new IdleStrategy(idleParkNanos);
+    for (SymbolSpec spec : symbols) {
+      pipelines.put(spec.symbol(),
+          new OrderPipeline(spec, ringSize, expectedOrders, idleStrategy, services.apply(spec)));
+    }
+  }
+
+  public void start() throws IOException {
+    for (OrderPipeline pipeline : pipelines.values()) {
+      long started = System.nanoTime();
+      long replayed = pipeline.replay();
+      if (replayed > 0) {
+        log.info("{} recovered from journal: {} commands replayed, {} resting orders, in {} ms",
+            pipeline.spec().symbol(), replayed, pipeline.book().orderCount(),
+            (System.nanoTime() - started) / 1_000_000);
+      }
+      orderIds.accumulateAndGet(pipeline.lastOrderId(), Math::max);
+    }
+    pipelines.values().forEach(OrderPipeline::start);
+  }
+
+  public List<SymbolSpec> symbols() {
+    return pipelines.values().stream().map(OrderPipeline::spec).toList();
+  }
+
+  /** 不支援的交易對為 null */
+  public SymbolSpec spec(String symbol) {
+    OrderPipeline pipeline = pipelines.get(symbol);
+    return pipeline == null ? null : pipeline.spec();
+  }
+
+  /**
+   * 送出新委託。市價單的 {@code price} 為保護價（買單必填，用來計算鎖定金額）。
+   *
+   * @return 訂單編號
+   * @throws OrderException 不支援的交易對，或管線已滿
+   */
+  public long place(String symbol, String userId, Side side, OrderType type, long price, long quantity,
+      OrderCallback callback) {
+    long orderId = orderIds.incrementAndGet();
+    submit(symbol, CommandType.PLACE, orderId, userId, side, type, price, quantity, callback);
+    return orderId;
+  }
+
+  public void cancel(String symbol, long orderId, String userId, OrderCallback callback) {
+    submit(symbol, CommandType.CANCEL, orderId, userId, null, null, 0, 0, callback);
+  }
+
+  /** 改單，{@code side} 須與原委託相同 */
+  public void replace(String symbol, long orderId, String userId, Side side, long price, long quantity,
+      OrderCallback callback) {
+    submit(symbol, CommandType.REPLACE, orderId, userId, side, OrderType.LIMIT, price, quantity, callback);
+  }
+
+  /** 已送出但尚未撮合的指令數 */
+  public long backlog(String symbol) {
+    return pipeline(symbol).backlog();
+  }
+
+  private void submit(String symbol, CommandType type, long orderId, String userId, Side side, OrderType orderType,
+      long price, long quantity, OrderCallback callback) {
+    if (!pipeline(symbol).publish(type, orderId, userId, side, orderType, price, quantity, callback)) {
+      throw OrderException.overloaded();
+    }
+  }
+
+  private OrderPipeline pipeline(String symbol) {
+    OrderPipeline pipeline = pipelines.get(symbol);
+    if (pipeline == null) {
+      throw OrderException.symbolNotSupported(symbol);
+    }
+    return pipeline;
+  }
+
+  @Override
+  public void close() throws Exception {
+    for (OrderPipeline pipeline : pipelines.values()) {
+      pipeline.stop();
+    }
+  }
+}
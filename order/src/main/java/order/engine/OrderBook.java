@@ -0,0 +1,213 @@
+package order.engine;
+
+import static order.engine.OrderPool.NIL;
+
+/**
+ * 單一交易對的限價簿，只能由該交易對的撮合執行緒使用。
+ *
+ * <p>價格優先、同價位依掛上簿的先後成交（時間優先），成交價為掛單價。委託與價位都存在預先配置的原始型別陣列
+ * （{@link OrderPool}、{@link PriceLevels}），以 int 索引串接；穩定狀態下下單、撮合、撤單與改單都不配置物件，
+ * 事件以原始型別參數同步通知 {@link BookListener}，價位的總量變動也逐一通知（L2 增量），不需要複製整本簿。
+ *
+ * <p>價格以報價資產、數量以基礎資產的最小單位表示（見 {@code common.money.FixedPoint}）。
+ */
+public final class OrderBook {
+
+  private final OrderPool orders;
+  private final PriceLevels bids;
+  private final PriceLevels asks;
+  private final BookListener listener;
+
+  private long tradeSequence;
+
+  /**
+   * @param expectedOrders 預先配置的掛單數，超過時陣列加倍
+   */
+  public OrderBook(int expectedOrders, BookListener listener) {
+    this.orders = new OrderPool(expectedOrders);
+    this.bids = new PriceLevels(Side.BUY, 1024);
+    this.asks = new PriceLevels(Side.SELL, 1024);
+    this.listener = listener;
+  }
+
+  /**
+   * 下單：先與對手方撮合，限價單剩餘的部分掛上簿，市價單剩餘的部分取消。
+   * 市價單的 {@code price} 為保護價，0 表示不限。
+   */
+  public void place(long orderId, String userId, Side side, OrderType type, long price, long quantity) {
+    if (quantity <= 0 || price < 0 || (type == OrderType.LIMIT && price == 0)) {
+      listener.onRejected(orderId, userId, RejectReason.INVALID_ORDER);
+      return;
+    }
+    long remaining = match(orderId, userId, side, price, quantity);
+    if (remaining == 0) {
+      return;
+    }
+    if (type == OrderType.MARKET) {
+      listener.onCancelled(orderId, userId, side, remaining);
+      return;
+    }
+    rest(orderId, userId, side, price, remaining);
+  }
+
+  /** 撤銷 {@code userId} 的掛單 */
+  public void cancel(long orderId, String userId) {
+    int node = find(orderId, userId);
+    if (node == NIL) {
+      listener.onRejected(orderId, userId, RejectReason.UNKNOWN_ORDER);
+      return;
+    }
+    Side side = orders.side(node);
+    long remaining = orders.remaining[node];
+    remove(node);
+    listener.onCancelled(orderId, userId, side, remaining);
+  }
+
+  /**
+   * 改單。同價且數量不增加時原地減量，保留時間優先；否則視為撤單後以新價格、新數量重新下限價單
+   * （排到新價位的尾端，可能立即成交）。{@code side} 須與原委託相同，否則視為找不到委託。
+   */
+  public void replace(long orderId, String userId, Side side, long price, long quantity) {
+    int node = find(orderId, userId);
+    if (node == NIL || orders.side(node) != side) {
+      listener.onRejected(orderId, userId, RejectReason.UNKNOWN_ORDER);
+      return;
+    }
+    if (price <= 0 || quantity <= 0) {
+      listener.onRejected(orderId, userId, RejectReason.INVALID_ORDER);
+      return;
+    }
+    long oldPrice = orders.price[node];
+    long remaining = orders.remaining[node];
+    if (price == oldPrice && quantity <= remaining) {
+      PriceLevels levels = levels(side);
+      int slot = orders.level[node];
+      levels.reduce(slot, remaining - quantity);
+      orders.remaining[node] = quantity;
+      listener.onLevel(side, price, levels.volume(slot), levels.count(slot));
+      listener.onReplaced(orderId, userId, side, oldPrice, remaining, price, quantity);
+      return;
+    }
+    remove(node);
+    listener.onReplaced(orderId, userId, side, oldPrice, remaining, price, quantity);
+    long left = match(orderId, userId, side, price, quantity);
+    if (left > 0) {
+      rest(orderId, userId, side, price, left);
+    }
+  }
+
+  /** 最佳買價，沒有買單時為 0 */
+  public long bestBid() {
+    return bids.isEmpty() ? 0 : bids.price(bids.best());
+  }
+
+  /** 最佳賣價，沒有賣單時為 0 */
+  public long bestAsk() {
+    return asks.isEmpty() ? 0 : asks.price(asks.best());
+  }
+
+  public int depth(Side side) {
+    return levels(side).size();
+  }
+
+  /** 第 {@code level} 好的價位（0 為最佳價） */
+  public long levelPrice(Side side, int level) {
+    PriceLevels levels = levels(side);
+    return levels.price(levels.at(level));
+  }
+
+  public long levelVolume(Side side, int level) {
+    PriceLevels levels = levels(side);
+    return levels.volume(levels.at(level));
+  }
+
+  public int levelOrders(Side side, int level) {
+    PriceLevels levels = levels(side);
+    return levels.count(levels.at(level));
+  }
+
+  /** 掛單的剩餘數量；不在簿上時為 0 */
+  public long remaining(long orderId) {
+    int node = orders.find(orderId);
+    return node == NIL ? 0 : orders.remaining[node];
+  }
+
+  public int orderCount() {
+    return orders.size();
+  }
+
+  /** 最後一筆成交的編號 */
+  public long tradeSequence() {
+    return tradeSequence;
+  }
+
+  private long match(long orderId, String userId, Side side, long limit, long quantity) {
+    PriceLevels book = levels(side.opposite());
+    long remaining = quantity;
+    while (remaining > 0) {
+      int slot = book.best();
+      if (slot == NIL) {
+        break;
+      }
+      long levelPrice = book.price(slot);
+      if (limit != 0 && !book.crosses(levelPrice, limit)) {
+        break;
+      }
+      int maker = book.head(slot);
+      while (remaining > 0 && maker != NIL) {
+        long makerRemaining = orders.remaining[maker];
+        long fill = Math.min(remaining, makerRemaining);
+        remaining -= fill;
+        int next = orders.next[maker];
+        long makerOrderId = orders.orderId[maker];
+        String makerUserId = orders.userId[maker];
+        boolean makerDone = fill == makerRemaining;
+        if (makerDone) {
+          book.unlink(slot, maker, makerRemaining, orders);
+          orders.release(maker);
+        } else {
+          orders.remaining[maker] = makerRemaining - fill;
+          book.reduce(slot, fill);
+        }
+        listener.onTrade(++tradeSequence, orderId, userId, makerOrderId, makerUserId, side, levelPrice, fill,
+            remaining == 0, makerDone);
+        maker = next;
+      }
+      listener.onLevel(side.opposite(), levelPrice, book.volume(slot), book.count(slot));
+      if (book.count(slot) == 0) {
+        book.remove(slot);
+      }
+    }
+    return remaining;
+  }
+
+  private void rest(long orderId, String userId, Side side, long price, long quantity) {
+    PriceLevels levels = levels(side);
+    int node = orders.acquire(orderId, userId, side, price, quantity);
+    int slot = levels.getOrCreate(price);
+    levels.append(slot, node, orders);
+    listener.onLevel(side, price, levels.volume(slot), levels.count(slot));
+    listener.onRested(orderId, userId, side, price, quantity);
+  }
+
+  private void remove(int node) {
+    Side side = orders.side(node);
+    PriceLevels levels = levels(side);
+    int slot = orders.level[node];
+    levels.unlink(slot, node, orders.remaining[node], orders);
+    listener.onLevel(side, levels.price(slot), levels.volume(slot), levels.count(slot));
+    if (levels.count(slot) == 0) {
+      levels.remove(slot);
+    }
+    orders.release(node);
+  }
+
+  private int find(long orderId, String userId) {
+    int node = orders.find(orderId);
+    return node != NIL && orders.userId[node].equals(userId) ? node : NIL;
+  }
+
+  private PriceLevels levels(Side side) {
+    return side == Side.BUY ? bids : asks;
+  }
+}
@@ -0,0 +1,21 @@
+package order.engine;
+
+/**
+ * 指令處理完的結果，在撮合執行緒上呼叫；實作應盡快返回（例如交給其他執行緒寫出回應）。
+ *
+ * @see MatchingEngine
+ */
+@FunctionalInterface
+public interface OrderCallback {
+
+  /**
+   * @param filledQuantity    這個指令主動成交的數量
+   * @param remainingQuantity 掛在簿上的數量；撤單時為取消的數量
+   * @param rejectReason      {@link OrderStatus#REJECTED} 以外為 null
+   */
+  void onResult(long orderId, OrderStatus status, long filledQuantity, long remainingQuantity,
+      RejectReason rejectReason);
+
+  OrderCallback NONE = (orderId, status, filledQuantity, remainingQuantity, rejectReason) -> {
+  };
+}
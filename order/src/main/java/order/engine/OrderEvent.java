@@ -0,0 +1,115 @@
+package order.engine;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * 環狀緩衝區的一格，啟動時配置後重複使用。生產者寫入指令欄位，之後各階段依序寫入自己的欄位：
+ * 風控寫入鎖定的資產與金額或拒絕原因，鎖定階段寫入鎖定結果，撮合階段讀取全部欄位。
+ * 跨階段的可見性由各階段的序號（release/acquire）保證。
+ */
+public final class OrderEvent {
+
+  private static final VarHandle LOCK_STATE;
+
+  static {
+    try {
+      LOCK_STATE = MethodHandles.lookup().findVarHandle(OrderEvent.class, "lockState", int.class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  static final int LOCK_PENDING = 0;
+  static final int LOCK_DONE = 1;
+
+  // 指令
+  CommandType type;
+  long orderId;
+  String userId;
+  Side side;
+  OrderType orderType;
+  long price;
+  long quantity;
+  OrderCallback callback;
+
+  // 風控
+  RejectReason rejectReason;
+  String lockAsset;
+  long lockAmount;
+
+  // 鎖定；完成的回呼可能在其他執行緒
+  @SuppressWarnings("unused")
+  private int lockState;
+  FundsLock.Result lockResult;
+
+  // journal：已寫入且這一批 flush 成功（重播的指令一律為 true）
+  boolean journaled;
+
+  void set(CommandType type, long orderId, String userId, Side side, OrderType orderType, long price, long quantity,
+      OrderCallback callback) {
+    this.type = type;
+    this.orderId = orderId;
+    this.userId = userId;
+    this.side = side;
+    this.orderType = orderType;
+    this.price = price;
+    this.quantity = quantity;
+    this.callback = callback;
+    this.rejectReason = null;
+    this.lockAsset = null;
+    this.lockAmount = 0;
+    this.lockResult = null;
+    this.journaled = false;
+    LOCK_STATE.setRelease(this, LOCK_PENDING);
+  }
+
+  /** 撮合完成後清掉參考，讓回呼與使用者字串可以回收 */
+  void clearReferences() {
+    userId = null;
+    callback = null;
+    lockAsset = null;
+  }
+
+  void completeLock(FundsLock.Result result) {
+    lockResult = result;
+    if (result == FundsLock.Result.INSUFFICIENT_FUNDS) {
+      rejectReason = RejectReason.INSUFFICIENT_FUNDS;
+    } else if (result == FundsLock.Result.UNAVAILABLE) {
+      rejectReason = RejectReason.WALLET_UNAVAILABLE;
+    }
+    LOCK_STATE.setRelease(this, LOCK_DONE);
+  }
+
+  boolean lockDone() {
+    return (int) LOCK_STATE.getAcquire(this) == LOCK_DONE;
+  }
+
+  public CommandType type() {
+    return type;
+  }
+
+  public long orderId() {
+    return orderId;
+  }
+
+  public String userId() {
+    return userId;
+  }
+
+  public Side side() {
+    return side;
+  }
+
+  public OrderType orderType() {
+    return orderType;
+  }
+
+  public long price() {
+    return price;
+  }
+
+  public long quantity() {
+    return quantity;
+  }
+}
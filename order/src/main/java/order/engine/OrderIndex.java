@@ -0,0 +1,113 @@
+package order.engine;
+
+import java.util.Arrays;
+
+import static order.engine.OrderPool.NIL;
+
+/**
+ * 委託編號到 {@link OrderPool} 索引的雜湊表：開放定址、線性探測，鍵與值各存在一個原始型別陣列，不裝箱也不配置節點。
+ *
+ * <p>容量為 2 的次方，以 Fibonacci 雜湊取高位元決定起點（遞增的編號也能分散開），負載超過一半時加倍。
+ * 刪除時把後面同一串的鍵往前搬（backward shift），不留墓碑，探測長度不會隨撤單累積而變長。
+ * {@link Long#MIN_VALUE} 表示空位，不能作為委託編號。只能由撮合執行緒使用。
+ */
+final class OrderIndex {
+
+  private static final long EMPTY = Long.MIN_VALUE;
+  private static final long PHI = 0x9E3779B97F4A7C15L;
+
+  private long[] keys;
+  private int[] values;
+  private int mask;
+  private int shift;
+  private int size;
+
+  OrderIndex(int expectedSize) {
+    int capacity = Integer.highestOneBit(Math.max(16, expectedSize) * 2 - 1) << 1;
+    allocate(capacity);
+  }
+
+  /** 找不到時回傳 {@link OrderPool#NIL} */
+  int get(long key) {
+    for (int index = index(key); ; index = (index + 1) & mask) {
+      long current = keys[index];
+      if (current == key) {
+        return values[index];
+      }
+      if (current == EMPTY) {
+        return NIL;
+      }
+    }
+  }
+
+  void put(long key, int value) {
+    int index = index(key);
+    while (keys[index] != EMPTY) {
+      if (keys[index] == key) {
+        values[index] = value;
+        return;
+      }
+      index = (index + 1) & mask;
+    }
+    keys[index] = key;
+    values[index] = value;
+    if (++size > (mask + 1) >>> 1) {
+      rehash();
+    }
+  }
+
+  void remove(long key) {
+    int index = index(key);
+    while (keys[index] != key) {
+      if (keys[index] == EMPTY) {
+        return;
+      }
+      index = (index + 1) & mask;
+    }
+    // 往後找可以補進空位的鍵：起點不在 (hole, current] 之間的才能往前搬
+    int hole = index;
+    for (int current = (hole + 1) & mask; keys[current] != EMPTY; current = (current + 1) & mask) {
+      int home = index(keys[current]);
+      if (((current - home) & mask) >= ((current - hole) & mask)) {
+        keys[hole] = keys[current];
+        values[hole] = values[current];
+        hole = current;
+      }
+    }
+    keys[hole] = EMPTY;
+    size--;
+  }
+
+  int size() {
+    return size;
+  }
+
+  private int index(long key) {
+    return (int) ((key * PHI) >>> shift);
+  }
+
+  private void rehash() {
+    long[] oldKeys = keys;
+    int[] oldValues = values;
+    allocate(oldKeys.length * 2);
+    for (int i = 0; i < oldKeys.length; i++) {
+      long key = oldKeys[i];
+      if (key != EMPTY) {
+        int index = index(key);
+        while (keys[index] != EMPTY) {
+          index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = oldValues[i];
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    Arrays.fill(keys, EMPTY);
+    values = new int[capacity];
+    mask = capacity - 1;
+    shift = Long.SIZE - Integer.numberOfTrailingZeros(capacity);
+  }
+}
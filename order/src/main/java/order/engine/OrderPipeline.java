@@ -0,0 +1,208 @@
+package order.engine;
+
+import order.sequencer.BatchEventProcessor;
+import order.sequencer.EventHandler;
+import order.sequencer.IdleStrategy;
+import order.sequencer.RingBuffer;
+import order.sequencer.Sequence;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一個交易對的指令管線：API 執行緒把指令寫進預先配置的 {@link RingBuffer}，之後由各自的執行緒依序處理。
+ *
+ * <pre>
+ * producers ── risk ── lock ── journal ── match（OrderBook，單一寫入者）
+ * </pre>
+ *
+ * journal 在鎖定之後寫入，紀錄包含風控與鎖定的結果，撮合只依賴 journal 裡的內容，啟動時重播（{@link #replay}）
+ * 可以重建相同的簿。階段之間只交接序號，不經過佇列也不配置物件。撮合推進序號後事件位置才會被生產者重複使用。
+ */
+final class OrderPipeline {
+
+  private final SymbolSpec spec;
+  private final RingBuffer<OrderEvent> ringBuffer;
+  private final MatchHandler matchHandler;
+  private final WalletOutbox outbox;
+  private final CommandJournal commandJournal;
+  private final BatchEventProcessor<OrderEvent> risk;
+  private final BatchEventProcessor<OrderEvent> journal;
+  private final LockStage lock;
+  private final BatchEventProcessor<OrderEvent> match;
+  private final List<Thread> threads = new ArrayList<>();
+
+  OrderPipeline(SymbolSpec spec, int ringSize, int expectedOrders, IdleStrategy idleStrategy,
+      PipelineServices services) {
+    this.spec = spec;
+    this.ringBuffer = new RingBuffer<>(ringSize, OrderEvent::new);
+    this.risk = new BatchEventProcessor<>(threadName("risk"), ringBuffer, ringBuffer.newBarrier(idleStrategy),
+        new RiskHandler(spec, services.riskLimits()));
+    this.lock = new LockStage(ringBuffer, ringBuffer.newBarrier(idleStrategy, risk.sequence()),
+        services.fundsLock(), idleStrategy);
+    this.commandJournal = services.journal();
+    if (commandJournal == CommandJournal.NONE) {
+      this.journal = null;
+    } else {
+      this.journal = new BatchEventProcessor<>(threadName("journal"), ringBuffer,
+          ringBuffer.newBarrier(idleStrategy, lock.sequence()), new JournalHandler());
+    }
+    Sequence beforeMatch = journal == null ? lock.sequence() : journal.sequence();
+    this.outbox = services.outbox();
+    this.matchHandler = new MatchHandler(spec, expectedOrders, outbox, services.marketData());
+    this.match = new BatchEventProcessor<>(threadName("match"), ringBuffer,
+        ringBuffer.newBarrier(idleStrategy, beforeMatch), matchHandler);
+    ringBuffer.gateOn(match.sequence());
+  }
+
+  /**
+   * 把 journal 重播到簿上，{@code outbox} 尚未送達的成交與解鎖（{@link WalletOutbox#deliveredThrough()} 之後）交給它重新送出；
+   * 回傳重播的指令數。只能在 {@link #start()} 之前呼叫。
+   */
+  long replay(WalletOutbox outbox) throws IOException {
+    return matchHandler.replay(commandJournal, outbox);
+  }
+
+  /** 重播到這個管線自己的 outbox */
+  long replay() throws IOException {
+    return replay(outbox);
+  }
+
+  /** 處理過（含重播）的新委託中最大的訂單編號 */
+  long lastOrderId() {
+    return matchHandler.lastOrderId();
+  }
+
+  void start() {
+    start(risk.name(), risk);
+    start(threadName("lock"), lock);
+    if (journal != null) {
+      start(journal.name(), journal);
+    }
+    start(match.name(), match);
+  }
+
+  SymbolSpec spec() {
+    return spec;
+  }
+
+  /** @return 緩衝區已滿時為 false */
+  boolean publish(CommandType type, long orderId, String userId, Side side, OrderType orderType, long price,
+      long quantity, OrderCallback callback) {
+    long sequence = ringBuffer.tryNext();
+    if (sequence < 0) {
+      return false;
+    }
+    ringBuffer.get(sequence).set(type, orderId, userId, side, orderType, price, quantity, callback);
+    ringBuffer.publish(sequence);
+    return true;
+  }
+
+  /** 已發布但尚未撮合的指令數 */
+  long backlog() {
+    return ringBuffer.backlog();
+  }
+
+  /** 只能在 {@link #stop()} 之後或撮合執行緒上讀取 */
+  OrderBook book() {
+    return matchHandler.book();
+  }
+
+  /**
+   * 依管線順序逐一停止，每個階段處理完上游留下的指令後才停止下一個，最後關閉 journal；
+   * 撮合執行緒逾時仍在等待 wallet 送出佇列時，關閉 outbox 讓它放棄等待。
+   */
+  void stop() throws InterruptedException, IOException {
+    risk.halt();
+    join(0);
+    lock.halt();
+    join(1);
+    int next = 2;
+    if (journal != null) {
+      journal.halt();
+      join(next++);
+    }
+    match.halt();
+    join(next);
+    outbox.close();
+    join(next);
+    commandJournal.close();
+  }
+
+  private void start(String name, Runnable stage) {
+    Thread thread = new Thread(stage, name);
+    threads.add(thread);
+    thread.start();
+  }
+
+  private void join(int index) throws InterruptedException {
+    if (index < threads.size()) {
+      threads.get(index).join(TimeUnit.SECONDS.toMillis(5));
+    }
+  }
+
+  private String threadName(String stage) {
+    return "order-" + spec.symbol() + "-" + stage;
+  }
+
+  /** 沒有寫進 journal 的指令不撮合（撮合時解鎖），重播才會得到相同的簿 */
+  private final class JournalHandler implements EventHandler<OrderEvent> {
+
+    /** 這一批的第一個序號 */
+    private long batchStart = -1;
+
+    @Override
+    public void onEvent(OrderEvent event, long sequence, boolean endOfBatch) throws IOException {
+      if (batchStart < 0) {
+        batchStart = sequence;
+      }
+      try {
+        commandJournal.append(event);
+        event.journaled = true;
+      } catch (IOException | RuntimeException e) {
+        reject(event);
+        if (endOfBatch) {
+          flush(sequence);
+        }
+        throw e;
+      }
+      if (endOfBatch) {
+        flush(sequence);
+      }
+    }
+
+    /** flush 失敗時整批都不撮合，已寫入的紀錄從 journal 撤回 */
+    private void flush(long batchEnd) throws IOException {
+      long start = batchStart;
+      batchStart = -1;
+      try {
+        commandJournal.flush();
+      } catch (IOException | RuntimeException e) {
+        for (long sequence = start; sequence <= batchEnd; sequence++) {
+          OrderEvent event = ringBuffer.get(sequence);
+          event.journaled = false;
+          reject(event);
+        }
+        try {
+          commandJournal.discardUnflushed();
+        } catch (IOException | RuntimeException discardFailure) {
+          e.addSuppressed(discardFailure);
+        }
+        throw e;
+      }
+    }
+
+    private void reject(OrderEvent event) {
+      if (event.rejectReason == null) {
+        event.rejectReason = RejectReason.JOURNAL_UNAVAILABLE;
+      }
+    }
+
+    @Override
+    public void onIdle() throws IOException {
+      commandJournal.idle();
+    }
+  }
+}
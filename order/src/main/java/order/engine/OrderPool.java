@@ -0,0 +1,100 @@
+package order.engine;
+
+import java.util.Arrays;
+
+/**
+ * 掛單的物件池：每個欄位一個原始型別陣列，委託以 int 索引表示，同價位的委託以 prev/next 串成 FIFO。
+ * 釋放的索引放回 free list 重複使用；只有容量用完時才擴充陣列。使用中的委託另以 {@link OrderIndex} 依編號索引，
+ * 撤單與改單 O(1) 找到委託，不掃描價位或整個池。只能由撮合執行緒使用。
+ */
+final class OrderPool {
+
+  static final int NIL = -1;
+
+  long[] orderId;
+  String[] userId;
+  boolean[] buy;
+  long[] price;
+  long[] remaining;
+  /** 所在價位（{@link PriceLevels} 的 slot） */
+  int[] level;
+  int[] prev;
+  int[] next;
+
+  private final OrderIndex index;
+  private int free = NIL;
+  private int used;
+  private int size;
+
+  OrderPool(int initialCapacity) {
+    int capacity = Math.max(16, initialCapacity);
+    orderId = new long[capacity];
+    userId = new String[capacity];
+    buy = new boolean[capacity];
+    price = new long[capacity];
+    remaining = new long[capacity];
+    level = new int[capacity];
+    prev = new int[capacity];
+    next = new int[capacity];
+    index = new OrderIndex(capacity);
+  }
+
+  int acquire(long id, String user, Side side, long orderPrice, long quantity) {
+    int node;
+    if (free != NIL) {
+      node = free;
+      free = next[node];
+    } else {
+      if (used == orderId.length) {
+        grow();
+      }
+      node = used++;
+    }
+    orderId[node] = id;
+    userId[node] = user;
+    buy[node] = side == Side.BUY;
+    price[node] = orderPrice;
+    remaining[node] = quantity;
+    level[node] = NIL;
+    prev[node] = NIL;
+    next[node] = NIL;
+    index.put(id, node);
+    size++;
+    return node;
+  }
+
+  void release(int node) {
+    index.remove(orderId[node]);
+    userId[node] = null;
+    remaining[node] = 0;
+    level[node] = NIL;
+    next[node] = free;
+    free = node;
+    size--;
+  }
+
+  Side side(int node) {
+    return buy[node] ? Side.BUY : Side.SELL;
+  }
+
+  /** 使用中的委託；找不到時回傳 {@link #NIL} */
+  int find(long id) {
+    return index.get(id);
+  }
+
+  int size() {
+    return size;
+  }
+
+  private void grow() {
+    int capacity = orderId.length * 2;
+    orderId = Arrays.copyOf(orderId, capacity);
+    userId = Arrays.copyOf(userId, capacity);
+    buy = Arrays.copyOf(buy, capacity);
+    price = Arrays.copyOf(price, capacity);
+    remaining = Arrays.copyOf(remaining, capacity);
+    level = Arrays.copyOf(level, capacity);
+    prev = Arrays.copyOf(prev, capacity);
+    next = Arrays.copyOf(next, capacity);
+  }
+}
@@ -0,0 +1,12 @@
+package order.engine;
+
+public enum OrderStatus {
+  /** 掛上簿，尚未成交 */
+  NEW,
+  /** 部分成交，剩餘的部分掛在簿上 */
+  PARTIALLY_FILLED,
+  FILLED,
+  /** 撤單成功，或市價單吃不完的部分已取消（可能已部分成交） */
+  CANCELLED,
+  REJECTED
+}
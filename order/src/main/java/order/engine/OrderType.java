@@ -0,0 +1,10 @@
+package order.engine;
+
+/**
+ * {@link #LIMIT} 未成交的部分掛在簿上；{@link #MARKET} 依序吃掉對手價位，剩餘的部分取消。
+ * 市價單的價格為保護價（0 表示不限），超過保護價的價位不成交。
+ */
+public enum OrderType {
+  LIMIT,
+  MARKET
+}
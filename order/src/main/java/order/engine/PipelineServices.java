@@ -0,0 +1,8 @@
+package order.engine;
+
+/**
+ * 一個交易對的管線使用的外部元件。{@code marketData} 在撮合執行緒上接收價位變動（{@link BookListener#onLevel}）。
+ */
+public record PipelineServices(RiskLimits riskLimits, FundsLock fundsLock, CommandJournal journal,
+    WalletOutbox outbox, BookListener marketData) {
+}
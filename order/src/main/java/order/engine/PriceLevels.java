@@ -0,0 +1,235 @@
+package order.engine;
+
+import java.util.Arrays;
+
+import static order.engine.OrderPool.NIL;
+
+/**
+ * 限價簿的一邊（買或賣）。
+ *
+ * <p>每個價位佔一個 slot（價格、總量、FIFO 的頭尾、委託數），slot 編號在價位存在期間不變，委託直接記住所在的 slot。
+ * 價位的排序另存在 {@code keys}/{@code slots} 兩個陣列，最佳價在陣列尾端：吃掉最佳價位只需 {@code size--}，
+ * 新增價位以二分搜尋找位置後 {@link System#arraycopy} 平移（新價位多半靠近最佳價，平移的量很少）。
+ * 買方的 key 為價格、賣方為負的價格，兩邊都是遞增排序。
+ *
+ * <p>價位清空時延後移除：最佳價位（連同緊接在後、已清空的價位）立即移出，其餘的留在排序陣列裡、委託數為 0，
+ * 同價位再有掛單時直接沿用，撤單不需要平移陣列。清空的價位超過一半時才一次壓縮。
+ */
+final class PriceLevels {
+
+  private static final int COMPACT_THRESHOLD = 64;
+
+  private final Side side;
+
+  // slot 欄位
+  private long[] price;
+  private long[] volume;
+  private int[] head;
+  private int[] tail;
+  private int[] count;
+  private int freeSlot = NIL;
+  private int usedSlots;
+
+  // 依價格排序，最佳價在 size - 1
+  private long[] keys;
+  private int[] slots;
+  private int size;
+  /** 留在排序陣列中、已清空的價位數（都不在最佳價） */
+  private int emptyLevels;
+
+  PriceLevels(Side side, int initialCapacity) {
+    this.side = side;
+    int capacity = Math.max(16, initialCapacity);
+    price = new long[capacity];
+    volume = new long[capacity];
+    head = new int[capacity];
+    tail = new int[capacity];
+    count = new int[capacity];
+    keys = new long[capacity];
+    slots = new int[capacity];
+  }
+
+  Side side() {
+    return side;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** 有委託的價位數 */
+  int size() {
+    return size - emptyLevels;
+  }
+
+  /** 最佳價位的 slot；沒有價位時為 {@link OrderPool#NIL} */
+  int best() {
+    return size == 0 ? NIL : slots[size - 1];
+  }
+
+  /** 第 {@code depth} 好的價位（0 為最佳價），跳過已清空的價位 */
+  int at(int depth) {
+    if (emptyLevels == 0) {
+      return slots[size - 1 - depth];
+    }
+    int remaining = depth;
+    for (int position = size - 1; ; position--) {
+      int slot = slots[position];
+      if (count[slot] > 0 && remaining-- == 0) {
+        return slot;
+      }
+    }
+  }
+
+  long price(int slot) {
+    return price[slot];
+  }
+
+  long volume(int slot) {
+    return volume[slot];
+  }
+
+  int head(int slot) {
+    return head[slot];
+  }
+
+  int count(int slot) {
+    return count[slot];
+  }
+
+  /** {@code limit} 是否能與這一邊的 {@code levelPrice} 成交（{@code limit} 為對手方的價格） */
+  boolean crosses(long levelPrice, long limit) {
+    return side == Side.BUY ? levelPrice >= limit : levelPrice <= limit;
+  }
+
+  /** 價格所在的 slot，沒有時新增 */
+  int getOrCreate(long levelPrice) {
+    long key = key(levelPrice);
+    int position = search(key);
+    if (position >= 0) {
+      int slot = slots[position];
+      if (count[slot] == 0) {
+        emptyLevels--;
+      }
+      return slot;
+    }
+    position = -position - 1;
+    if (size == keys.length) {
+      keys = Arrays.copyOf(keys, size * 2);
+      slots = Arrays.copyOf(slots, size * 2);
+    }
+    System.arraycopy(keys, position, keys, position + 1, size - position);
+    System.arraycopy(slots, position, slots, position + 1, size - position);
+    int slot = allocateSlot(levelPrice);
+    keys[position] = key;
+    slots[position] = slot;
+    size++;
+    return slot;
+  }
+
+  /** 委託加到價位的尾端（時間優先） */
+  void append(int slot, int node, OrderPool orders) {
+    orders.level[node] = slot;
+    orders.prev[node] = tail[slot];
+    orders.next[node] = NIL;
+    if (tail[slot] == NIL) {
+      head[slot] = node;
+    } else {
+      orders.next[tail[slot]] = node;
+    }
+    tail[slot] = node;
+    count[slot]++;
+    volume[slot] += orders.remaining[node];
+  }
+
+  /** 從價位移除委託；{@code remaining} 為移除前委託在這個價位的數量 */
+  void unlink(int slot, int node, long remaining, OrderPool orders) {
+    int before = orders.prev[node];
+    int after = orders.next[node];
+    if (before == NIL) {
+      head[slot] = after;
+    } else {
+      orders.next[before] = after;
+    }
+    if (after == NIL) {
+      tail[slot] = before;
+    } else {
+      orders.prev[after] = before;
+    }
+    count[slot]--;
+    volume[slot] -= remaining;
+  }
+
+  void reduce(int slot, long quantity) {
+    volume[slot] -= quantity;
+  }
+
+  /** 移除已經沒有委託的價位：最佳價立即移出，其他價位留到被沿用或壓縮 */
+  void remove(int slot) {
+    if (slots[size - 1] != slot) {
+      if (++emptyLevels >= COMPACT_THRESHOLD && emptyLevels * 2 >= size) {
+        compact();
+      }
+      return;
+    }
+    size--;
+    releaseSlot(slot);
+    while (size > 0 && count[slots[size - 1]] == 0) {
+      releaseSlot(slots[--size]);
+      emptyLevels--;
+    }
+  }
+
+  private void compact() {
+    int kept = 0;
+    for (int position = 0; position < size; position++) {
+      int slot = slots[position];
+      if (count[slot] == 0) {
+        releaseSlot(slot);
+      } else {
+        keys[kept] = keys[position];
+        slots[kept] = slot;
+        kept++;
+      }
+    }
+    size = kept;
+    emptyLevels = 0;
+  }
+
+  private void releaseSlot(int slot) {
+    head[slot] = freeSlot;
+    freeSlot = slot;
+  }
+
+  private int allocateSlot(long levelPrice) {
+    int slot;
+    if (freeSlot != NIL) {
+      slot = freeSlot;
+      freeSlot = head[slot];
+    } else {
+      if (usedSlots == price.length) {
+        int capacity = usedSlots * 2;
+        price = Arrays.copyOf(price, capacity);
+        volume = Arrays.copyOf(volume, capacity);
+        head = Arrays.copyOf(head, capacity);
+        tail = Arrays.copyOf(tail, capacity);
+        count = Arrays.copyOf(count, capacity);
+      }
+      slot = usedSlots++;
+    }
+    price[slot] = levelPrice;
+    volume[slot] = 0;
+    head[slot] = NIL;
+    tail[slot] = NIL;
+    count[slot] = 0;
+    return slot;
+  }
+
+  private long key(long levelPrice) {
+    return side == Side.BUY ? levelPrice : -levelPrice;
+  }
+
+  private int search(long key) {
+    return Arrays.binarySearch(keys, 0, size, key);
+  }
+}
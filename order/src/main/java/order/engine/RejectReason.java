@@ -0,0 +1,16 @@
+package order.engine;
+
+public enum RejectReason {
+  /** 價格或數量不合法 */
+  INVALID_ORDER,
+  /** 撤單或改單時找不到掛單（已成交、已取消或不存在） */
+  UNKNOWN_ORDER,
+  /** 超過單筆委託的數量或金額上限 */
+  RISK_LIMIT,
+  /** wallet 可用餘額不足，無法鎖定 */
+  INSUFFICIENT_FUNDS,
+  /** 無法連線到 wallet 或逾時 */
+  WALLET_UNAVAILABLE,
+  /** 指令無法寫入 journal，未撮合 */
+  JOURNAL_UNAVAILABLE
+}
@@ -0,0 +1,57 @@
+package order.engine;
+
+import common.money.FixedPoint;
+import order.sequencer.EventHandler;
+
+/**
+ * 第一階段：檢查價格與數量、單筆上限，並算出下單要鎖定的資產與金額。
+ * 買單鎖定報價資產（價格 × 數量，市價買單以保護價計算，因此必須帶保護價），賣單鎖定基礎資產的數量；撤單不鎖定。
+ * 改單鎖定新價格、新數量所需的全部金額，撮合後再解鎖原本剩餘數量對應的部分。
+ */
+final class RiskHandler implements EventHandler<OrderEvent> {
+
+  private final SymbolSpec spec;
+  private final RiskLimits limits;
+
+  RiskHandler(SymbolSpec spec, RiskLimits limits) {
+    this.spec = spec;
+    this.limits = limits;
+  }
+
+  @Override
+  public void onEvent(OrderEvent event, long sequence, boolean endOfBatch) {
+    if (event.type == CommandType.CANCEL) {
+      return;
+    }
+    boolean market = event.type == CommandType.PLACE && event.orderType == OrderType.MARKET;
+    if (event.quantity <= 0 || event.price < 0 || (event.price == 0 && !(market && event.side == Side.SELL))) {
+      event.rejectReason = RejectReason.INVALID_ORDER;
+      return;
+    }
+    if (limits.maxQuantity() > 0 && event.quantity > limits.maxQuantity()) {
+      event.rejectReason = RejectReason.RISK_LIMIT;
+      return;
+    }
+    long notional = 0;
+    if (event.price > 0) {
+      try {
+        notional = FixedPoint.multiply(event.price, spec.quoteScale(), event.quantity, spec.baseScale(),
+            spec.quoteScale());
+      } catch (ArithmeticException e) {
+        event.rejectReason = RejectReason.RISK_LIMIT;
+        return;
+      }
+      if (limits.maxNotional() > 0 && notional > limits.maxNotional()) {
+        event.rejectReason = RejectReason.RISK_LIMIT;
+        return;
+      }
+    }
+    if (event.side == Side.BUY) {
+      event.lockAsset = spec.quoteAsset();
+      event.lockAmount = notional;
+    } else {
+      event.lockAsset = spec.baseAsset();
+      event.lockAmount = event.quantity;
+    }
+  }
+}
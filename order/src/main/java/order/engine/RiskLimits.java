@@ -0,0 +1,9 @@
+package order.engine;
+
+/**
+ * 單筆委託的上限；數量以基礎資產、金額以報價資產的最小單位表示，0 表示不限。
+ */
+public record RiskLimits(long maxQuantity, long maxNotional) {
+
+  public static final RiskLimits NONE = new RiskLimits(0, 0);
+}
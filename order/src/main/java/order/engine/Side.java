@@ -0,0 +1,10 @@
+package order.engine;
+
+public enum Side {
+  BUY,
+  SELL;
+
+  public Side opposite() {
+    return this == BUY ? SELL : BUY;
+  }
+}
@@ -0,0 +1,7 @@
+package order.engine;
+
+/**
+ * 交易對。價格以 {@code quoteScale}、數量以 {@code baseScale} 位小數的最小單位表示。
+ */
+public record SymbolSpec(String symbol, String baseAsset, String quoteAsset, int baseScale, int quoteScale) {
+}
@@ -0,0 +1,48 @@
+package order.engine;
+
+/**
+ * 撮合後要送給 wallet 的結算與解鎖，在撮合執行緒上呼叫。成交經由 {@link BookListener#onTrade}，
+ * 實作須保證同一交易對的結算與解鎖依呼叫順序送達（先送出同一批的結算，再送解鎖）。
+ *
+ * <p>指令以在 journal 中的位置（從 1 起算）識別。保存送達位置的實作在重啟時收到之後的成交與解鎖，
+ * 送出中的那一批（{@link #deliveredThrough()} 之後到 {@link #sendingThrough()}）以相同的範圍重播成一批，
+ * 結算編號與解鎖的 Idempotency-Key 與第一次相同，wallet 會去重。
+ */
+public interface WalletOutbox extends BookListener {
+
+  /** 解鎖訂單剩餘的鎖定，最多 {@code amount}（{@link Long#MAX_VALUE} 表示全部） */
+  void unlock(String userId, String asset, long amount, long orderId);
+
+  /**
+   * 撤回逾時的鎖定：鎖定請求可能仍在途中，晚於解鎖才到 wallet。wallet 解鎖 orderId 全部的保留，
+   * 沒有保留時記下撤回標記，之後才到的同一筆鎖定被拒絕。
+   */
+  default void cancelLock(String userId, String asset, long orderId) {
+    unlock(userId, asset, Long.MAX_VALUE, orderId);
+  }
+
+  /** 接下來的成交與解鎖屬於 journal 中的第 {@code index} 筆指令；沒有寫入 journal 的指令為 0 */
+  default void onCommand(long index) {
+  }
+
+  /** 成交與解鎖都已送達 wallet 的最後一筆指令，重播時之前的不再送出；預設全部重新送出 */
+  default long deliveredThrough() {
+    return 0;
+  }
+
+  /** 送出中的那一批的最後一筆指令，不小於 {@link #deliveredThrough()} */
+  default long sendingThrough() {
+    return deliveredThrough();
+  }
+
+  /** 重播結束，journal 中共有 {@code commands} 筆指令，之後的指令從下一筆起算 */
+  default void replayed(long commands) {
+  }
+
+  /** 管線停止時呼叫，之後不再等待送出佇列的空間 */
+  default void close() {
+  }
+
+  WalletOutbox NONE = (userId, asset, amount, orderId) -> {
+  };
+}
@@ -0,0 +1,36 @@
+package order.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+/**
+ * 下單 API 的業務錯誤。
+ */
+@Getter
+public class OrderException extends RuntimeException {
+
+  private final HttpStatus status;
+  private final String code;
+
+  public OrderException(HttpStatus status, String code, String message) {
+    super(message);
+    this.status = status;
+    this.code = code;
+  }
+
+  public static OrderException unauthenticated(String message) {
+    return new OrderException(HttpStatus.UNAUTHORIZED, "AUTH_INVALID_TOKEN", message);
+  }
+
+  public static OrderException invalidParam(String message) {
+    return new OrderException(HttpStatus.BAD_REQUEST, "ORDER_INVALID_PARAM", message);
+  }
+
+  public static OrderException symbolNotSupported(String symbol) {
+    return new OrderException(HttpStatus.BAD_REQUEST, "ORDER_SYMBOL_NOT_SUPPORTED", "symbol not supported: " + symbol);
+  }
+
+  public static OrderException overloaded() {
+    return new OrderException(HttpStatus.SERVICE_UNAVAILABLE, "ORDER_OVERLOADED", "order ring buffer is full");
+  }
+}
@@ -0,0 +1,237 @@
+package order.marketdata;
+
+import order.engine.BookListener;
+import order.engine.Side;
+import order.engine.SymbolSpec;
+import order.sequencer.IdleStrategy;
+import order.sequencer.RingBuffer;
+import order.sequencer.Sequence;
+import order.sequencer.SequenceBarrier;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 一個交易對的 L2 行情。撮合執行緒只把價位變動（{@link BookListener#onLevel}）連同遞增的序號寫進預先配置的環狀緩衝區，
+ * 一批指令結束時才發布；行情執行緒在自己這邊維護一份 L2 鏡像，產生增量、定期快照，並推送給訂閱者。
+ * 撮合執行緒上不複製簿，也不配置物件。
+ *
+ * <p>增量以指令批次為單位，同一批內的變動一起出現，訂閱者不會看到只做了一半的撮合。
+ * 行情執行緒落後一整圈時撮合執行緒會等待（先發布已寫入的變動），不會丟失增量。
+ */
+public final class DepthFeed implements BookListener, Runnable {
+
+  private static final class Delta {
+    long sequence;
+    boolean buy;
+    long price;
+    long volume;
+    boolean endOfBatch;
+  }
+
+  private final SymbolSpec spec;
+  private final RingBuffer<Delta> ringBuffer;
+  private final SequenceBarrier barrier;
+  private final IdleStrategy idleStrategy;
+  private final long snapshotIntervalNanos;
+  private final Sequence consumed = new Sequence(-1);
+
+  // 撮合執行緒
+  private long sequence;
+  private long firstUnpublished = -1;
+  private long lastClaimed = -1;
+
+  // 行情執行緒
+  private final TreeMap<Long, Long> bids = new TreeMap<>(Comparator.reverseOrder());
+  private final TreeMap<Long, Long> asks = new TreeMap<>();
+  private final Map<Long, Long> changedBids = new LinkedHashMap<>();
+  private final Map<Long, Long> changedAsks = new LinkedHashMap<>();
+  private final List<DepthSubscription> subscriptions = new ArrayList<>();
+  private long firstPending;
+  private long lastApplied;
+
+  private final Queue<DepthSubscription> joining = new ConcurrentLinkedQueue<>();
+  private volatile DepthSnapshot latest;
+  private volatile boolean running = true;
+  private volatile Thread thread;
+
+  /**
+   * @param ringSize         尚未被行情執行緒處理的價位變動上限，須為 2 的次方
+   * @param snapshotInterval 定期快照（{@link #snapshot()}）的間隔
+   */
+  public DepthFeed(SymbolSpec spec, int ringSize, long snapshotInterval, TimeUnit unit, IdleStrategy idleStrategy) {
+    this.spec = spec;
+    this.ringBuffer = new RingBuffer<>(ringSize, Delta::new);
+    this.barrier = ringBuffer.newBarrier(idleStrategy);
+    this.idleStrategy = idleStrategy;
+    this.snapshotIntervalNanos = unit.toNanos(snapshotInterval);
+    this.latest = DepthSnapshot.empty(spec.symbol());
+    ringBuffer.gateOn(consumed);
+  }
+
+  public SymbolSpec spec() {
+    return spec;
+  }
+
+  /** 最近一次定期快照，最多落後 snapshotInterval */
+  public DepthSnapshot snapshot() {
+    return latest;
+  }
+
+  /** 訂閱增量；第一則訊息為訂閱當下的完整快照，之後為接續的增量 */
+  public DepthSubscription subscribe() {
+    DepthSubscription subscription = new DepthSubscription();
+    joining.add(subscription);
+    LockSupport.unpark(thread);
+    return subscription;
+  }
+
+  public void start() {
+    Thread feedThread = new Thread(this, "order-" + spec.symbol() + "-depth");
+    thread = feedThread;
+    feedThread.start();
+  }
+
+  /** 處理完撮合執行緒已發布的變動後停止 */
+  public void stop() throws InterruptedException {
+    running = false;
+    Thread feedThread = thread;
+    if (feedThread != null) {
+      LockSupport.unpark(feedThread);
+      feedThread.join(TimeUnit.SECONDS.toMillis(5));
+    }
+  }
+
+  // ---- 撮合執行緒 ----
+
+  @Override
+  public void onLevel(Side side, long price, long volume, int orders) {
+    long slot = ringBuffer.tryNext();
+    if (slot < 0) {
+      publishPending();
+      while ((slot = ringBuffer.tryNext()) < 0) {
+        Thread.onSpinWait();
+      }
+    }
+    Delta delta = ringBuffer.get(slot);
+    delta.sequence = ++sequence;
+    delta.buy = side == Side.BUY;
+    delta.price = price;
+    delta.volume = volume;
+    delta.endOfBatch = false;
+    if (firstUnpublished < 0) {
+      firstUnpublished = slot;
+    }
+    lastClaimed = slot;
+  }
+
+  @Override
+  public void onBatchEnd() {
+    if (firstUnpublished < 0) {
+      return;
+    }
+    ringBuffer.get(lastClaimed).endOfBatch = true;
+    publishPending();
+  }
+
+  private void publishPending() {
+    for (long slot = firstUnpublished; slot <= lastClaimed; slot++) {
+      ringBuffer.publish(slot);
+    }
+    firstUnpublished = -1;
+  }
+
+  // ---- 行情執行緒 ----
+
+  @Override
+  public void run() {
+    long next = consumed.get() + 1;
+    long lastSnapshot = System.nanoTime();
+    long snapshotSequence = 0;
+    int idle = 0;
+    while (true) {
+      long available = barrier.available(next);
+      if (available >= next) {
+        for (long current = next; current <= available; current++) {
+          apply(ringBuffer.get(current));
+        }
+        consumed.set(available);
+        next = available + 1;
+        idle = 0;
+      } else if (!running) {
+        return;
+      } else {
+        idle = idleStrategy.idle(idle);
+      }
+      // 新的訂閱者只在批次之間加入，快照與之後的增量剛好接續
+      if (firstPending == 0) {
+        join();
+      }
+      long now = System.nanoTime();
+      if (now - lastSnapshot >= snapshotIntervalNanos && lastApplied != snapshotSequence && firstPending == 0) {
+        latest = fullSnapshot();
+        snapshotSequence = lastApplied;
+        lastSnapshot = now;
+      }
+    }
+  }
+
+  private void join() {
+    DepthSubscription subscription;
+    while ((subscription = joining.poll()) != null) {
+      subscription.offer(fullSnapshot());
+      subscriptions.add(subscription);
+    }
+  }
+
+  private void apply(Delta delta) {
+    TreeMap<Long, Long> levels = delta.buy ? bids : asks;
+    if (delta.volume == 0) {
+      levels.remove(delta.price);
+    } else {
+      levels.put(delta.price, delta.volume);
+    }
+    (delta.buy ? changedBids : changedAsks).put(delta.price, delta.volume);
+    if (firstPending == 0) {
+      firstPending = delta.sequence;
+    }
+    lastApplied = delta.sequence;
+    if (delta.endOfBatch) {
+      publishUpdate();
+    }
+  }
+
+  private void publishUpdate() {
+    subscriptions.removeIf(DepthSubscription::isCancelled);
+    if (!subscriptions.isEmpty()) {
+      DepthUpdate update = new DepthUpdate(spec.symbol(), firstPending, lastApplied, levels(changedBids),
+          levels(changedAsks));
+      for (DepthSubscription subscription : subscriptions) {
+        subscription.offer(update);
+      }
+    }
+    changedBids.clear();
+    changedAsks.clear();
+    firstPending = 0;
+  }
+
+  private DepthSnapshot fullSnapshot() {
+    return new DepthSnapshot(spec.symbol(), lastApplied, levels(bids), levels(asks));
+  }
+
+  private static List<DepthLevel> levels(Map<Long, Long> source) {
+    List<DepthLevel> levels = new ArrayList<>(source.size());
+    for (Map.Entry<Long, Long> entry : source.entrySet()) {
+      levels.add(new DepthLevel(entry.getKey(), entry.getValue()));
+    }
+    return levels;
+  }
+}
@@ -0,0 +1,7 @@
+package order.marketdata;
+
+/**
+ * 一個價位的總量，以最小單位表示；增量中 {@code volume} 為 0 表示價位已移除。
+ */
+public record DepthLevel(long price, long volume) {
+}
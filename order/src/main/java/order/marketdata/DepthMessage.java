@@ -0,0 +1,9 @@
+package order.marketdata;
+
+/**
+ * 行情推送的訊息：完整快照或增量。
+ */
+public sealed interface DepthMessage permits DepthSnapshot, DepthUpdate {
+
+  String symbol();
+}
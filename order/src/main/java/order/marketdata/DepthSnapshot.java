@@ -0,0 +1,24 @@
+package order.marketdata;
+
+import java.util.List;
+
+/**
+ * 某個增量序號當下的完整 L2 簿，買賣方都由最佳價開始排列。
+ * 序號大於 {@code sequence} 的 {@link DepthUpdate} 依序套用即為最新狀態。
+ */
+public record DepthSnapshot(String symbol, long sequence, List<DepthLevel> bids, List<DepthLevel> asks)
+    implements DepthMessage {
+
+  static DepthSnapshot empty(String symbol) {
+    return new DepthSnapshot(symbol, 0, List.of(), List.of());
+  }
+
+  /** 只保留最佳的 {@code depth} 個價位 */
+  public DepthSnapshot limit(int depth) {
+    if (bids.size() <= depth && asks.size() <= depth) {
+      return this;
+    }
+    return new DepthSnapshot(symbol, sequence, bids.subList(0, Math.min(depth, bids.size())),
+        asks.subList(0, Math.min(depth, asks.size())));
+  }
+}
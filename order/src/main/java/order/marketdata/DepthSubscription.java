@@ -0,0 +1,98 @@
+package order.marketdata;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 一個訂閱者尚未取走的行情，由 {@link DepthFeed} 的執行緒寫入、訂閱者的執行緒以 {@link #poll()} 取走。
+ *
+ * <p>消費得慢時不排隊：尚未取走的增量依價位合併，只保留最新的總量與序號範圍，
+ * 等待中的資料量只跟變動過的價位數有關，與增量的筆數無關。
+ */
+public final class DepthSubscription {
+
+  private final TreeMap<Long, Long> bids = new TreeMap<>(Comparator.reverseOrder());
+  private final TreeMap<Long, Long> asks = new TreeMap<>();
+  private DepthSnapshot snapshot;
+  private String symbol;
+  private long firstSequence;
+  private long lastSequence;
+
+  private volatile Runnable listener = () -> {
+  };
+  private volatile boolean cancelled;
+
+  /** 有新資料可以 {@link #poll()} 時呼叫，在行情執行緒上執行，不可阻塞 */
+  public void onAvailable(Runnable listener) {
+    this.listener = listener;
+  }
+
+  public void cancel() {
+    cancelled = true;
+  }
+
+  boolean isCancelled() {
+    return cancelled;
+  }
+
+  /** 下一則訊息：尚未送出的快照優先，其次為合併後的增量；沒有資料時為 null */
+  public synchronized DepthMessage poll() {
+    if (snapshot != null) {
+      DepthSnapshot pending = snapshot;
+      snapshot = null;
+      return pending;
+    }
+    if (lastSequence == 0) {
+      return null;
+    }
+    DepthUpdate update = new DepthUpdate(symbol, firstSequence, lastSequence, drain(bids), drain(asks));
+    firstSequence = 0;
+    lastSequence = 0;
+    return update;
+  }
+
+  void offer(DepthSnapshot pending) {
+    synchronized (this) {
+      snapshot = pending;
+      bids.clear();
+      asks.clear();
+      firstSequence = 0;
+      lastSequence = 0;
+    }
+    listener.run();
+  }
+
+  void offer(DepthUpdate update) {
+    synchronized (this) {
+      if (snapshot != null && update.lastSequence() <= snapshot.sequence()) {
+        return;
+      }
+      merge(bids, update.bids());
+      merge(asks, update.asks());
+      if (lastSequence == 0) {
+        symbol = update.symbol();
+        firstSequence = update.firstSequence();
+      }
+      lastSequence = update.lastSequence();
+    }
+    listener.run();
+  }
+
+  private static void merge(TreeMap<Long, Long> pending, List<DepthLevel> levels) {
+    for (DepthLevel level : levels) {
+      pending.put(level.price(), level.volume());
+    }
+  }
+
+  private static List<DepthLevel> drain(TreeMap<Long, Long> pending) {
+    List<DepthLevel> levels = new ArrayList<>(pending.size());
+    for (Map.Entry<Long, Long> entry : pending.entrySet()) {
+      levels.add(new DepthLevel(entry.getKey(), entry.getValue()));
+    }
+    pending.clear();
+    return levels;
+  }
+}
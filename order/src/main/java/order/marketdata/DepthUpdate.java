@@ -0,0 +1,11 @@
+package order.marketdata;
+
+import java.util.List;
+
+/**
+ * 增量序號 {@code firstSequence} 到 {@code lastSequence} 之間變動的價位，每個價位只有最後的總量
+ * （總量是絕對值而不是差額，重複套用或合併多筆增量都不會出錯）。
+ */
+public record DepthUpdate(String symbol, long firstSequence, long lastSequence, List<DepthLevel> bids,
+    List<DepthLevel> asks) implements DepthMessage {
+}
@@ -0,0 +1,41 @@
+package order.marketdata;
+
+import order.engine.SymbolSpec;
+import order.sequencer.IdleStrategy;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 所有交易對的 {@link DepthFeed}，每個交易對一條行情執行緒。
+ */
+public class MarketData implements AutoCloseable {
+
+  private final Map<String, DepthFeed> feeds = new LinkedHashMap<>();
+
+  public MarketData(List<SymbolSpec> symbols, int ringSize, long snapshotIntervalNanos, long idleParkNanos) {
+    IdleStrategy idleStrategy = new IdleStrategy(idleParkNanos);
+    for (SymbolSpec spec : symbols) {
+      feeds.put(spec.symbol(),
+          new DepthFeed(spec, ringSize, snapshotIntervalNanos, TimeUnit.NANOSECONDS, idleStrategy));
+    }
+  }
+
+  public void start() {
+    feeds.values().forEach(DepthFeed::start);
+  }
+
+  /** 不支援的交易對為 null */
+  public DepthFeed feed(String symbol) {
+    return feeds.get(symbol);
+  }
+
+  @Override
+  public void close() throws Exception {
+    for (DepthFeed feed : feeds.values()) {
+      feed.stop();
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package order.sequencer;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 一個處理階段的執行緒：一次取得所有可處理的事件依序交給 {@link EventHandler}，全部處理完才推進自己的序號，
+ * 下游階段看到序號前進時這一批的結果都已寫入事件物件。
+ *
+ * <p>handler 丟出的例外只記錄，不會讓整條管線停住；需要回報的錯誤由 handler 自行寫入事件。
+ */
+@Slf4j
+public final class BatchEventProcessor<E> implements Runnable {
+
+  private final String name;
+  private final RingBuffer<E> ringBuffer;
+  private final SequenceBarrier barrier;
+  private final EventHandler<E> handler;
+  private final Sequence sequence = new Sequence(-1);
+
+  private volatile boolean running = true;
+
+  public BatchEventProcessor(String name, RingBuffer<E> ringBuffer, SequenceBarrier barrier, EventHandler<E> handler) {
+    this.name = name;
+    this.ringBuffer = ringBuffer;
+    this.barrier = barrier;
+    this.handler = handler;
+  }
+
+  public Sequence sequence() {
+    return sequence;
+  }
+
+  public String name() {
+    return name;
+  }
+
+  /** 處理完目前可處理的事件後停止 */
+  public void halt() {
+    running = false;
+  }
+
+  @Override
+  public void run() {
+    long next = sequence.get() + 1;
+    while (true) {
+      long available = barrier.waitFor(next);
+      if (available < next) {
+        if (!running) {
+          return;
+        }
+        try {
+          handler.onIdle();
+        } catch (Exception e) {
+          log.error("{} failed while idle", name, e);
+        }
+        continue;
+      }
+      for (long current = next; current <= available; current++) {
+        try {
+          handler.onEvent(ringBuffer.get(current), current, current == available);
+        } catch (Exception e) {
+          log.error("{} failed on sequence {}", name, current, e);
+        }
+      }
+      sequence.set(available);
+      next = available + 1;
+    }
+  }
+}
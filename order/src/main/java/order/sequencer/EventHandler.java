@@ -0,0 +1,17 @@
+package order.sequencer;
+
+/**
+ * 一個處理階段的邏輯，在該階段的執行緒上依序號呼叫。
+ */
+@FunctionalInterface
+public interface EventHandler<E> {
+
+  /**
+   * @param endOfBatch 這是目前可處理的最後一個事件（適合 flush）
+   */
+  void onEvent(E event, long sequence, boolean endOfBatch) throws Exception;
+
+  /** 沒有事件、已經 park 過一次時呼叫，適合做定期的工作（例如閒置時的 fsync） */
+  default void onIdle() throws Exception {
+  }
+}
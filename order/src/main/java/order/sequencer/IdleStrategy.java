@@ -0,0 +1,39 @@
+package order.sequencer;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 沒有事件時的等待方式：先自旋、再 yield，最後短暫 park。延遲只在真正空閒時才增加。
+ */
+public final class IdleStrategy {
+
+  private static final int SPINS = 200;
+  private static final int YIELDS = 100;
+
+  private final long parkNanos;
+
+  public IdleStrategy(long parkNanos) {
+    this.parkNanos = parkNanos;
+  }
+
+  /**
+   * @param idleCount 連續空閒的次數，有事件時歸零
+   * @return 下一次的 idleCount
+   */
+  public int idle(int idleCount) {
+    if (idleCount < SPINS) {
+      Thread.onSpinWait();
+    } else if (idleCount < SPINS + YIELDS) {
+      Thread.yield();
+    } else {
+      LockSupport.parkNanos(parkNanos);
+      return idleCount;
+    }
+    return idleCount + 1;
+  }
+
+  /** 已經進入 park 的階段 */
+  public boolean parking(int idleCount) {
+    return idleCount >= SPINS + YIELDS;
+  }
+}
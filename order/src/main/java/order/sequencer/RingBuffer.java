@@ -0,0 +1,114 @@
+package order.sequencer;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.function.Supplier;
+
+/**
+ * 預先配置事件物件的環狀緩衝區（Disruptor 的多生產者版本）。
+ *
+ * <p>生產者以 CAS 推進 cursor 取得序號，把內容寫入該序號的事件物件後 {@link #publish}；
+ * 每個位置記錄已發布的圈數，消費者據此判斷序號是否可讀，不需要鎖。事件物件重複使用，交接時不配置物件。
+ * 生產者不能超過最慢的末端階段（gating sequences）一整圈，滿時 {@link #tryNext()} 回傳 -1 而不是等待。
+ */
+public final class RingBuffer<E> {
+
+  private static final VarHandle AVAILABLE = MethodHandles.arrayElementVarHandle(int[].class);
+
+  private final Object[] entries;
+  private final int[] available;
+  private final int mask;
+  private final int indexShift;
+  private final int bufferSize;
+
+  /** 已被生產者取得的最大序號 */
+  private final Sequence cursor = new Sequence(-1);
+  /** 最慢的末端階段的快取，只在看似已滿時才重新計算 */
+  private final Sequence gatingCache = new Sequence(-1);
+  private volatile Sequence[] gatingSequences = new Sequence[0];
+
+  public RingBuffer(int size, Supplier<E> factory) {
+    if (size < 2 || Integer.bitCount(size) != 1) {
+      throw new IllegalArgumentException("ring buffer size must be a power of 2: " + size);
+    }
+    this.bufferSize = size;
+    this.mask = size - 1;
+    this.indexShift = Integer.numberOfTrailingZeros(size);
+    this.entries = new Object[size];
+    this.available = new int[size];
+    for (int i = 0; i < size; i++) {
+      entries[i] = factory.get();
+      available[i] = -1;
+    }
+  }
+
+  /** 設定末端階段的序號，生產者不會覆寫它們尚未處理的事件；須在開始發布之前呼叫 */
+  public void gateOn(Sequence... sequences) {
+    gatingSequences = sequences.clone();
+  }
+
+  public int size() {
+    return bufferSize;
+  }
+
+  /**
+   * 取得下一個序號，之後必須寫入並 {@link #publish}。
+   *
+   * @return 緩衝區已滿時為 -1
+   */
+  public long tryNext() {
+    long current;
+    long next;
+    do {
+      current = cursor.get();
+      next = current + 1;
+      long wrapPoint = next - bufferSize;
+      if (wrapPoint > gatingCache.get()) {
+        long slowest = Sequence.minimum(gatingSequences, current);
+        gatingCache.set(slowest);
+        if (wrapPoint > slowest) {
+          return -1;
+        }
+      }
+    } while (!cursor.compareAndSet(current, next));
+    return next;
+  }
+
+  @SuppressWarnings("unchecked")
+  public E get(long sequence) {
+    return (E) entries[(int) sequence & mask];
+  }
+
+  public void publish(long sequence) {
+    AVAILABLE.setRelease(available, (int) sequence & mask, (int) (sequence >>> indexShift));
+  }
+
+  /** 已取得的最大序號（可能尚未發布） */
+  public long cursor() {
+    return cursor.get();
+  }
+
+  /** 尚未被所有末端階段處理的事件數（近似值，供監控） */
+  public long backlog() {
+    return cursor.get() - Sequence.minimum(gatingSequences, cursor.get());
+  }
+
+  boolean isAvailable(long sequence) {
+    return (int) AVAILABLE.getAcquire(available, (int) sequence & mask) == (int) (sequence >>> indexShift);
+  }
+
+  /** {@code low} 到 {@code high} 之間連續已發布的最大序號；{@code low} 本身尚未發布時為 {@code low - 1} */
+  long highestPublished(long low, long high) {
+    for (long sequence = low; sequence <= high; sequence++) {
+      if (!isAvailable(sequence)) {
+        return sequence - 1;
+      }
+    }
+    return high;
+  }
+
+  /** 依賴 {@code dependencies} 的階段使用的 barrier；沒有依賴時直接讀取生產者發布的事件 */
+  public SequenceBarrier newBarrier(IdleStrategy idleStrategy, Sequence... dependencies) {
+    return new SequenceBarrier(this, dependencies, idleStrategy);
+  }
+}
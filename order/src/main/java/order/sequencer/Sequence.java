@@ -0,0 +1,64 @@
+package order.sequencer;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * 以 cache line 填充隔開的序號，生產者與各個處理階段各有一個，彼此不會 false sharing。
+ * 欄位分在三層類別，JVM 不會把填充的欄位重新排到 value 的另一側。
+ */
+public final class Sequence extends SequenceFields {
+
+  private static final VarHandle VALUE;
+
+  static {
+    try {
+      VALUE = MethodHandles.lookup().findVarHandle(SequenceValue.class, "value", long.class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  public Sequence(long initial) {
+    VALUE.setRelease(this, initial);
+  }
+
+  public long get() {
+    return (long) VALUE.getAcquire(this);
+  }
+
+  /** 發布到 {@code value} 為止的處理結果 */
+  public void set(long value) {
+    VALUE.setRelease(this, value);
+  }
+
+  boolean compareAndSet(long expected, long value) {
+    return VALUE.compareAndSet(this, expected, value);
+  }
+
+  /** 一組序號中最小的一個；空陣列時為 {@code fallback} */
+  static long minimum(Sequence[] sequences, long fallback) {
+    long minimum = fallback;
+    for (Sequence sequence : sequences) {
+      minimum = Math.min(minimum, sequence.get());
+    }
+    return minimum;
+  }
+
+  @Override
+  public String toString() {
+    return Long.toString(get());
+  }
+}
+
+abstract class SequenceLeftPadding {
+  long p01, p02, p03, p04, p05, p06, p07;
+}
+
+abstract class SequenceValue extends SequenceLeftPadding {
+  volatile long value;
+}
+
+abstract class SequenceFields extends SequenceValue {
+  long p11, p12, p13, p14, p15, p16, p17;
+}
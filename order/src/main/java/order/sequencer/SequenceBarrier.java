@@ -0,0 +1,45 @@
+package order.sequencer;
+
+/**
+ * 一個處理階段可以讀到哪個序號：沒有上游階段時為生產者連續發布的最大序號，否則為上游階段中最慢的一個。
+ */
+public final class SequenceBarrier {
+
+  private final RingBuffer<?> ringBuffer;
+  private final Sequence[] dependencies;
+  private final IdleStrategy idleStrategy;
+
+  SequenceBarrier(RingBuffer<?> ringBuffer, Sequence[] dependencies, IdleStrategy idleStrategy) {
+    this.ringBuffer = ringBuffer;
+    this.dependencies = dependencies.clone();
+    this.idleStrategy = idleStrategy;
+  }
+
+  /** 目前可處理到的序號，不等待；沒有新事件時小於 {@code sequence} */
+  public long available(long sequence) {
+    if (dependencies.length == 0) {
+      long cursor = ringBuffer.cursor();
+      return cursor < sequence ? cursor : ringBuffer.highestPublished(sequence, cursor);
+    }
+    return Sequence.minimum(dependencies, Long.MAX_VALUE);
+  }
+
+  /**
+   * 等待 {@code sequence} 可處理，回傳可處理到的最大序號。依 {@link IdleStrategy} 自旋到 park，
+   * park 一次之後仍沒有事件就回傳小於 {@code sequence} 的值，讓呼叫端檢查是否要停止。
+   */
+  public long waitFor(long sequence) {
+    int idle = 0;
+    while (true) {
+      long available = available(sequence);
+      if (available >= sequence) {
+        return available;
+      }
+      if (idleStrategy.parking(idle)) {
+        idleStrategy.idle(idle);
+        return available;
+      }
+      idle = idleStrategy.idle(idle);
+    }
+  }
+}
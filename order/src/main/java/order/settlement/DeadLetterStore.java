@@ -0,0 +1,82 @@
+package order.settlement;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * wallet 拒絕且重試也不會成功（非暫時性的 4xx）的結算與解鎖，每筆一行 JSON 附加到檔案並 fsync，
+ * 供人工確認後補送；不會自動重送。
+ */
+@Slf4j
+public class DeadLetterStore implements AutoCloseable {
+
+  private final ObjectMapper objectMapper;
+  private final FileChannel channel;
+
+  public DeadLetterStore(Path file, ObjectMapper objectMapper) throws IOException {
+    Path parent = file.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.APPEND);
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * 記錄一筆送不出的請求，寫檔在 boundedElastic 上執行，不佔用 event loop；寫檔失敗只記錄 log。
+   *
+   * @param type    {@code settlement} 或 {@code unlock}
+   * @param userId  解鎖的使用者，結算為 null
+   */
+  public Mono<Void> add(String type, String userId, Object request, Throwable error) {
+    DeadLetter letter = new DeadLetter(type, userId, request, describe(error), Instant.now().toString());
+    return Mono.fromRunnable(() -> write(letter))
+        .subscribeOn(Schedulers.boundedElastic())
+        .doOnError(e -> log.error("failed to write dead letter {}", letter, e))
+        .onErrorResume(e -> Mono.empty())
+        .then();
+  }
+
+  private synchronized void write(DeadLetter letter) {
+    try {
+      byte[] json = objectMapper.writeValueAsBytes(letter);
+      byte[] line = Arrays.copyOf(json, json.length + 1);
+      line[json.length] = '\n';
+      ByteBuffer buffer = ByteBuffer.wrap(line);
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(false);
+    } catch (IOException e) {
+      throw new IllegalStateException("dead letter write failed", e);
+    }
+  }
+
+  private static String describe(Throwable error) {
+    if (error instanceof WebClientResponseException e) {
+      return e.getStatusCode().value() + " " + e.getResponseBodyAsString();
+    }
+    return error.toString();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    channel.close();
+  }
+
+  private record DeadLetter(String type, String userId, Object request, String error, String failedAt) {
+  }
+}
@@ -0,0 +1,79 @@
+package order.settlement;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 一個交易對送達 wallet 的位置（journal 中的指令位置），memory-mapped 的小檔案：
+ * <pre>
+ * magic(int) version(int) delivered(long) sending(long)
+ * </pre>
+ * 寫入映射區即在 OS page cache 中，程序崩潰不會遺失；{@code fsync=true} 時每次更新後 force。
+ * 檔案不存在（第一次啟動或由舊版升級）時視為 journal 中的指令都已送達。
+ *
+ * <p>只由送出佇列依序更新（一次一筆），啟動時在送出之前讀取，不需要同步。
+ */
+public class DeliveryWatermark {
+
+  static final int MAGIC = 0x4F44574D; // "ODWM"
+  static final int VERSION = 1;
+  private static final int SIZE = 4 + 4 + 8 + 8;
+  private static final int DELIVERED = 8;
+  private static final int SENDING = 16;
+
+  private final MappedByteBuffer buffer;
+  private final boolean fsync;
+
+  public DeliveryWatermark(Path file, boolean fsync) throws IOException {
+    Path parent = file.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      // 關閉 channel 後映射仍然有效
+      this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, SIZE);
+    }
+    int magic = buffer.getInt(0);
+    if (magic != 0 && (magic != MAGIC || buffer.getInt(4) != VERSION)) {
+      throw new IOException("unsupported delivery watermark " + file);
+    }
+    this.fsync = fsync;
+  }
+
+  /** 成交與解鎖都已送達的最後一筆指令；沒有紀錄時為 {@link Long#MAX_VALUE} */
+  public long delivered() {
+    return buffer.getInt(0) == MAGIC ? buffer.getLong(DELIVERED) : Long.MAX_VALUE;
+  }
+
+  /** 送出中的那一批的最後一筆指令；沒有紀錄時為 {@link Long#MAX_VALUE} */
+  public long sending() {
+    return buffer.getInt(0) == MAGIC ? buffer.getLong(SENDING) : Long.MAX_VALUE;
+  }
+
+  /** 開始送出到 {@code command} 為止的一批 */
+  public void sending(long command) {
+    write(delivered(), command);
+  }
+
+  /** 到 {@code command} 為止都已送達 */
+  public void delivered(long command) {
+    write(command, command);
+  }
+
+  private void write(long delivered, long sending) {
+    buffer.putLong(DELIVERED, delivered);
+    buffer.putLong(SENDING, sending);
+    if (buffer.getInt(0) != MAGIC) {
+      buffer.putInt(4, VERSION);
+      buffer.putInt(0, MAGIC);
+    }
+    if (fsync) {
+      buffer.force();
+    }
+  }
+}
@@ -0,0 +1,290 @@
+package order.settlement;
+
+import common.money.FixedPoint;
+import lombok.extern.slf4j.Slf4j;
+import order.dto.AmountRequest;
+import order.dto.SettlementRequest;
+import order.engine.Side;
+import order.engine.SymbolSpec;
+import order.engine.WalletOutbox;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * 把一個交易對的成交整理成 wallet 結算：撮合時只把成交複製到原始型別陣列，一批指令結束時合成一筆結算
+ * （{@code settlementId} 為 交易對-第一筆成交編號，重播時不變），依序送出。
+ *
+ * <p>撤單、改單的解鎖也先暫存，在同一批的結算之後送出。同一交易對的請求一次只送一筆、暫時性錯誤重試到成功為止，
+ * wallet 端同一訂單的扣款與解鎖不會亂序；wallet 拒絕的請求轉存到 {@link DeadLetterStore}。
+ *
+ * <p>送出佇列有上限：wallet 無法使用而佇列已滿時，撮合執行緒等待佇列有空間（管線隨之停住，
+ * 新委託在環狀緩衝區滿時被拒絕），不會無限制地累積在記憶體。
+ *
+ * <p>每一批送出前後更新 {@link DeliveryWatermark}，重啟時尚未送達的部分由 journal 重播後重新送出
+ * （見 {@link WalletOutbox}）；解鎖帶以交易對與指令位置組成的 Idempotency-Key，重送不會重複解鎖。
+ */
+@Slf4j
+public class SettlementPublisher implements WalletOutbox {
+
+  private static final String ZERO_FEE = "0";
+  /** 與 wallet 的 {@code BalanceEngine.LOCK_CANCEL} 相同 */
+  private static final String LOCK_CANCEL = "LOCK_CANCEL";
+  private static final long OFFER_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final SymbolSpec spec;
+  private final String idPrefix;
+  private final Function<SettlementRequest, Mono<Void>> settler;
+  private final Unlocker unlocker;
+  private final DeadLetterStore deadLetters;
+  private final DeliveryWatermark watermark;
+  private final Sinks.Many<Mono<Void>> outbox;
+  private volatile boolean closed;
+
+  private long[] tradeId = new long[256];
+  private long[] takerOrderId = new long[256];
+  private long[] makerOrderId = new long[256];
+  private String[] takerUserId = new String[256];
+  private String[] makerUserId = new String[256];
+  private boolean[] takerBuy = new boolean[256];
+  private long[] price = new long[256];
+  private long[] quantity = new long[256];
+  private boolean[] takerDone = new boolean[256];
+  private boolean[] makerDone = new boolean[256];
+  private int count;
+
+  /** 目前指令在 journal 中的位置，與最後一筆寫入 journal 的指令 */
+  private long command;
+  private long lastCommand;
+  private int commandUnlocks;
+  /** 停止時有請求沒有排入佇列，之後不再推進送達位置，重啟時從這裡補送 */
+  private boolean dropped;
+
+  private String[] unlockUserId = new String[64];
+  private String[] unlockAsset = new String[64];
+  private long[] unlockAmount = new long[64];
+  private long[] unlockOrderId = new long[64];
+  private String[] unlockReason = new String[64];
+  private String[] unlockKey = new String[64];
+  private int unlockCount;
+
+  /** 以使用者身分送出解鎖（{@code POST /unlock}），{@code idempotencyKey} 為 null 時不帶 */
+  @FunctionalInterface
+  public interface Unlocker {
+
+    Mono<Void> unlock(String userId, AmountRequest request, String idempotencyKey);
+  }
+
+  /**
+   * @param outboxCapacity 尚未送出的結算與解鎖數上限
+   * @param settler        送出結算（{@code POST /settle}）
+   */
+  public SettlementPublisher(SymbolSpec spec, int outboxCapacity, Function<SettlementRequest, Mono<Void>> settler,
+      Unlocker unlocker, DeadLetterStore deadLetters, DeliveryWatermark watermark) {
+    this.spec = spec;
+    this.idPrefix = spec.symbol() + "-";
+    this.settler = settler;
+    this.unlocker = unlocker;
+    this.deadLetters = deadLetters;
+    this.watermark = watermark;
+    this.outbox = Sinks.many().unicast().onBackpressureBuffer(Queues.<Mono<Void>>get(outboxCapacity).get());
+    outbox.asFlux()
+        .concatMap(send -> send.onErrorResume(e -> Mono.empty()))
+        .subscribe();
+  }
+
+  @Override
+  public void onTrade(long id, long takerOrder, String takerUser, long makerOrder, String makerUser,
+      Side takerSide, long tradePrice, long tradeQuantity, boolean takerFilled, boolean makerFilled) {
+    if (count == tradeId.length) {
+      grow();
+    }
+    tradeId[count] = id;
+    takerOrderId[count] = takerOrder;
+    makerOrderId[count] = makerOrder;
+    takerUserId[count] = takerUser;
+    makerUserId[count] = makerUser;
+    takerBuy[count] = takerSide == Side.BUY;
+    price[count] = tradePrice;
+    quantity[count] = tradeQuantity;
+    takerDone[count] = takerFilled;
+    makerDone[count] = makerFilled;
+    count++;
+  }
+
+  @Override
+  public void unlock(String userId, String asset, long amount, long orderId) {
+    addUnlock(userId, asset, amount, orderId, null);
+  }
+
+  @Override
+  public void cancelLock(String userId, String asset, long orderId) {
+    addUnlock(userId, asset, Long.MAX_VALUE, orderId, LOCK_CANCEL);
+  }
+
+  @Override
+  public void onCommand(long index) {
+    command = index;
+    commandUnlocks = 0;
+    if (index > 0) {
+      lastCommand = index;
+    }
+  }
+
+  @Override
+  public long deliveredThrough() {
+    return watermark.delivered();
+  }
+
+  @Override
+  public long sendingThrough() {
+    return watermark.sending();
+  }
+
+  /** 沒有紀錄（第一次啟動或由舊版升級）時視為 journal 中的指令都已送達 */
+  @Override
+  public void replayed(long commands) {
+    lastCommand = commands;
+    if (watermark.delivered() > commands) {
+      watermark.delivered(commands);
+    }
+  }
+
+  private void addUnlock(String userId, String asset, long amount, long orderId, String reason) {
+    if (unlockCount == unlockOrderId.length) {
+      int capacity = unlockCount * 2;
+      unlockUserId = Arrays.copyOf(unlockUserId, capacity);
+      unlockAsset = Arrays.copyOf(unlockAsset, capacity);
+      unlockAmount = Arrays.copyOf(unlockAmount, capacity);
+      unlockOrderId = Arrays.copyOf(unlockOrderId, capacity);
+      unlockReason = Arrays.copyOf(unlockReason, capacity);
+      unlockKey = Arrays.copyOf(unlockKey, capacity);
+    }
+    unlockUserId[unlockCount] = userId;
+    unlockAsset[unlockCount] = asset;
+    unlockAmount[unlockCount] = amount;
+    unlockOrderId[unlockCount] = orderId;
+    unlockReason[unlockCount] = reason;
+    // 沒有寫入 journal 的指令不會重播，不需要 key
+    unlockKey[unlockCount] = command > 0 ? idPrefix + command + "-" + commandUnlocks++ : null;
+    unlockCount++;
+  }
+
+  /** 這一批的請求前後各排入一次送達位置的更新，依序執行 */
+  @Override
+  public void onBatchEnd() {
+    if (count == 0 && unlockCount == 0) {
+      return;
+    }
+    long end = lastCommand;
+    if (!dropped) {
+      enqueue(Mono.fromRunnable(() -> watermark.sending(end)), "watermark " + end);
+    }
+    if (count > 0) {
+      publishSettlement();
+    }
+    for (int i = 0; i < unlockCount; i++) {
+      publishUnlock(i);
+      unlockUserId[i] = null;
+      unlockAsset[i] = null;
+      unlockReason[i] = null;
+      unlockKey[i] = null;
+    }
+    unlockCount = 0;
+    if (!dropped) {
+      enqueue(Mono.fromRunnable(() -> watermark.delivered(end)), "watermark " + end);
+    }
+  }
+
+  /** 管線停止時呼叫，之後佇列已滿時不再等待 */
+  @Override
+  public void close() {
+    closed = true;
+  }
+
+  private void publishSettlement() {
+    List<SettlementRequest.Trade> trades = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      trades.add(trade(i));
+      takerUserId[i] = null;
+      makerUserId[i] = null;
+    }
+    SettlementRequest request = new SettlementRequest(idPrefix + tradeId[0], trades);
+    count = 0;
+    Mono<Void> send = Mono.defer(() -> settler.apply(request))
+        .onErrorResume(e -> {
+          log.error("settlement {} rejected by wallet, moved to dead letters", request.settlementId(), e);
+          return deadLetters.add("settlement", null, request, e);
+        });
+    enqueue(send, "settlement " + request.settlementId());
+  }
+
+  private void publishUnlock(int i) {
+    String userId = unlockUserId[i];
+    int scale = spec.baseAsset().equals(unlockAsset[i]) ? spec.baseScale() : spec.quoteScale();
+    AmountRequest request = new AmountRequest(unlockAsset[i], FixedPoint.toString(unlockAmount[i], scale),
+        Long.toString(unlockOrderId[i]), unlockReason[i]);
+    String key = unlockKey[i];
+    Mono<Void> send = Mono.defer(() -> unlocker.unlock(userId, request, key))
+        .onErrorResume(e -> {
+          log.error("unlock {} for {} rejected by wallet, moved to dead letters", request.referenceId(), userId, e);
+          return deadLetters.add("unlock", userId, request, e);
+        });
+    enqueue(send, "unlock " + request.referenceId());
+  }
+
+  /** 佇列已滿時在撮合執行緒上等待（backpressure），只有停止後才放棄 */
+  private void enqueue(Mono<Void> send, String description) {
+    boolean waited = false;
+    Sinks.EmitResult result;
+    while ((result = outbox.tryEmitNext(send)) == Sinks.EmitResult.FAIL_OVERFLOW && !closed) {
+      if (!waited) {
+        log.warn("wallet outbox of {} is full, matching waits for {}", spec.symbol(), description);
+        waited = true;
+      }
+      LockSupport.parkNanos(OFFER_BACKOFF_NANOS);
+    }
+    if (result.isFailure()) {
+      dropped = true;
+      log.error("{} not queued: {}", description, result);
+    }
+  }
+
+  private SettlementRequest.Trade trade(int i) {
+    boolean buyerIsTaker = takerBuy[i];
+    return new SettlementRequest.Trade(
+        buyerIsTaker ? takerUserId[i] : makerUserId[i],
+        buyerIsTaker ? makerUserId[i] : takerUserId[i],
+        spec.baseAsset(),
+        spec.quoteAsset(),
+        FixedPoint.toString(price[i], spec.quoteScale()),
+        FixedPoint.toString(quantity[i], spec.baseScale()),
+        ZERO_FEE,
+        spec.quoteAsset(),
+        Long.toString(buyerIsTaker ? takerOrderId[i] : makerOrderId[i]),
+        Long.toString(buyerIsTaker ? makerOrderId[i] : takerOrderId[i]),
+        buyerIsTaker ? takerDone[i] : makerDone[i],
+        buyerIsTaker ? makerDone[i] : takerDone[i]);
+  }
+
+  private void grow() {
+    int capacity = tradeId.length * 2;
+    tradeId = Arrays.copyOf(tradeId, capacity);
+    takerOrderId = Arrays.copyOf(takerOrderId, capacity);
+    makerOrderId = Arrays.copyOf(makerOrderId, capacity);
+    takerUserId = Arrays.copyOf(takerUserId, capacity);
+    makerUserId = Arrays.copyOf(makerUserId, capacity);
+    takerBuy = Arrays.copyOf(takerBuy, capacity);
+    price = Arrays.copyOf(price, capacity);
+    quantity = Arrays.copyOf(quantity, capacity);
+    takerDone = Arrays.copyOf(takerDone, capacity);
+    makerDone = Arrays.copyOf(makerDone, capacity);
+  }
+}
@@ -0,0 +1,85 @@
+package order.web;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import order.dto.DepthResponse;
+import order.marketdata.DepthFeed;
+import order.marketdata.DepthMessage;
+import order.marketdata.DepthSubscription;
+import order.marketdata.MarketData;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.socket.CloseStatus;
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code /order/ws/depth?symbol=BTC-USDT}：先送完整快照，之後推送增量（格式見 {@link DepthResponse}）。
+ *
+ * <p>只在連線可以寫出時才向訂閱取下一則訊息（一次一則），寫得慢的連線由 {@link DepthSubscription} 合併增量，
+ * 不會在伺服器端累積訊息，也不會拖慢行情執行緒。
+ */
+@Component
+public class DepthWebSocketHandler implements WebSocketHandler {
+
+  private final MarketData marketData;
+  private final ObjectMapper objectMapper;
+
+  public DepthWebSocketHandler(MarketData marketData, ObjectMapper objectMapper) {
+    this.marketData = marketData;
+    this.objectMapper = objectMapper;
+  }
+
+  @Override
+  public Mono<Void> handle(WebSocketSession session) {
+    String symbol = UriComponentsBuilder.fromUri(session.getHandshakeInfo().getUri()).build()
+        .getQueryParams().getFirst("symbol");
+    DepthFeed feed = symbol == null ? null : marketData.feed(symbol);
+    if (feed == null) {
+      return session.close(CloseStatus.POLICY_VIOLATION.withReason("symbol not supported: " + symbol));
+    }
+    Flux<String> messages = Flux.<DepthMessage>create(sink -> stream(feed.subscribe(), sink))
+        .publishOn(Schedulers.parallel(), 1)
+        .map(message -> json(DepthResponse.from(message, feed.spec())));
+    return Mono.firstWithSignal(
+        session.send(messages.map(session::textMessage)),
+        session.receive().then());
+  }
+
+  private static void stream(DepthSubscription subscription, FluxSink<DepthMessage> sink) {
+    AtomicInteger wip = new AtomicInteger();
+    Runnable drain = () -> {
+      if (wip.getAndIncrement() != 0) {
+        return;
+      }
+      int missed = 1;
+      do {
+        while (sink.requestedFromDownstream() > 0 && !sink.isCancelled()) {
+          DepthMessage message = subscription.poll();
+          if (message == null) {
+            break;
+          }
+          sink.next(message);
+        }
+        missed = wip.addAndGet(-missed);
+      } while (missed != 0);
+    };
+    subscription.onAvailable(drain);
+    sink.onRequest(n -> drain.run());
+    sink.onDispose(subscription::cancel);
+  }
+
+  private String json(DepthResponse response) {
+    try {
+      return objectMapper.writeValueAsString(response);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
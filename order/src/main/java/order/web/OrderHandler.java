@@ -0,0 +1,217 @@
+package order.web;
+
+import common.http.TrustedHeaders;
+import common.money.FixedPoint;
+import order.dto.DepthResponse;
+import order.dto.ErrorResponse;
+import order.dto.OrderRequest;
+import order.dto.OrderResponse;
+import order.engine.MatchingEngine;
+import order.engine.OrderCallback;
+import order.engine.OrderStatus;
+import order.engine.OrderType;
+import order.engine.Side;
+import order.engine.SymbolSpec;
+import order.exception.OrderException;
+import order.marketdata.DepthFeed;
+import order.marketdata.MarketData;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Instant;
+import java.util.function.Consumer;
+
+/**
+ * 下單端點的處理函式，路由見 {@link OrderRoutes}。
+ *
+ * <p>處理函式只解析請求並把指令寫入交易對的管線（滿時立即回 503），回應在撮合執行緒呼叫 {@link OrderCallback} 後
+ * 換到其他執行緒寫出；event loop 與撮合執行緒上都沒有阻塞呼叫。使用者由 gateway 轉發的 {@code X-User-Id} 決定。
+ */
+@Component
+public class OrderHandler {
+
+  private static final int DEFAULT_DEPTH = 100;
+
+  private final MatchingEngine engine;
+  private final MarketData marketData;
+
+  /** 不經 gateway 直接呼叫（本機開發、測試）時使用的使用者 */
+  private final String defaultUserId;
+
+  public OrderHandler(MatchingEngine engine, MarketData marketData,
+      @Value("${order.default-user-id:}") String defaultUserId) {
+    this.engine = engine;
+    this.marketData = marketData;
+    this.defaultUserId = defaultUserId;
+  }
+
+  public Mono<ServerResponse> ping(ServerRequest request) {
+    return ServerResponse.ok().bodyValue("order service is running");
+  }
+
+  /** 最近一次定期快照（{@code order.market-data.snapshot-interval}），即時的增量見 {@link DepthWebSocketHandler} */
+  public Mono<ServerResponse> depth(ServerRequest request) {
+    return Mono.defer(() -> {
+      SymbolSpec spec = spec(request.queryParam("symbol").orElse(null));
+      int limit = request.queryParam("limit").map(OrderHandler::parseLimit).orElse(DEFAULT_DEPTH);
+      DepthFeed feed = marketData.feed(spec.symbol());
+      return ServerResponse.ok()
+          .contentType(MediaType.APPLICATION_JSON)
+          .bodyValue(DepthResponse.from(feed.snapshot().limit(limit), spec));
+    });
+  }
+
+  public Mono<ServerResponse> place(ServerRequest request) {
+    return request.bodyToMono(OrderRequest.class)
+        .switchIfEmpty(Mono.error(() -> OrderException.invalidParam("request body is required")))
+        .flatMap(body -> {
+          String user = user(request);
+          SymbolSpec spec = spec(body.symbol());
+          Side side = side(body.side());
+          OrderType type = type(body.type());
+          long price = body.price() == null && type == OrderType.MARKET ? 0 : amount(body.price(), spec.quoteScale());
+          long quantity = amount(body.quantity(), spec.baseScale());
+          return respond(
+              sink -> engine.place(spec.symbol(), user, side, type, price, quantity, callback(spec, sink)));
+        });
+  }
+
+  public Mono<ServerResponse> replace(ServerRequest request) {
+    return request.bodyToMono(OrderRequest.class)
+        .switchIfEmpty(Mono.error(() -> OrderException.invalidParam("request body is required")))
+        .flatMap(body -> {
+          String user = user(request);
+          long orderId = orderId(request);
+          SymbolSpec spec = spec(body.symbol());
+          Side side = side(body.side());
+          long price = amount(body.price(), spec.quoteScale());
+          long quantity = amount(body.quantity(), spec.baseScale());
+          return respond(
+              sink -> engine.replace(spec.symbol(), orderId, user, side, price, quantity, callback(spec, sink)));
+        });
+  }
+
+  public Mono<ServerResponse> cancel(ServerRequest request) {
+    return Mono.defer(() -> {
+      String user = user(request);
+      long orderId = orderId(request);
+      SymbolSpec spec = spec(request.queryParam("symbol").orElse(null));
+      return respond(sink -> engine.cancel(spec.symbol(), orderId, user, callback(spec, sink)));
+    });
+  }
+
+  public Mono<ServerResponse> handleOrderException(OrderException e, ServerRequest request) {
+    return ServerResponse.status(e.getStatus())
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(new ErrorResponse(
+            Instant.now(),
+            e.getStatus().value(),
+            e.getStatus().getReasonPhrase(),
+            e.getCode(),
+            e.getMessage(),
+            request.path()));
+  }
+
+  /** 被拒絕的指令回 400，其餘回 200；回應本體相同 */
+  private Mono<ServerResponse> respond(Consumer<MonoSink<OrderResponse>> submit) {
+    return Mono.create(submit)
+        .publishOn(Schedulers.parallel())
+        .flatMap(response -> ServerResponse
+            .status(OrderStatus.REJECTED.name().equals(response.status()) ? HttpStatus.BAD_REQUEST : HttpStatus.OK)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(response));
+  }
+
+  private static OrderCallback callback(SymbolSpec spec, MonoSink<OrderResponse> sink) {
+    return (orderId, status, filled, remaining, rejectReason) -> sink.success(new OrderResponse(
+        Long.toString(orderId),
+        spec.symbol(),
+        status.name(),
+        FixedPoint.toString(filled, spec.baseScale()),
+        FixedPoint.toString(remaining, spec.baseScale()),
+        rejectReason == null ? null : rejectReason.name()));
+  }
+
+  private SymbolSpec spec(String symbol) {
+    if (symbol == null || symbol.isBlank()) {
+      throw OrderException.invalidParam("symbol is required");
+    }
+    SymbolSpec spec = engine.spec(symbol);
+    if (spec == null) {
+      throw OrderException.symbolNotSupported(symbol);
+    }
+    return spec;
+  }
+
+  private static Side side(String side) {
+    try {
+      return Side.valueOf(side);
+    } catch (IllegalArgumentException | NullPointerException e) {
+      throw OrderException.invalidParam("side must be BUY or SELL");
+    }
+  }
+
+  private static OrderType type(String type) {
+    if (type == null) {
+      return OrderType.LIMIT;
+    }
+    try {
+      return OrderType.valueOf(type);
+    } catch (IllegalArgumentException e) {
+      throw OrderException.invalidParam("type must be LIMIT or MARKET");
+    }
+  }
+
+  private static long amount(String value, int scale) {
+    if (value == null) {
+      throw OrderException.invalidParam("price and quantity are required");
+    }
+    try {
+      long units = FixedPoint.parse(value, scale);
+      if (units < 0) {
+        throw OrderException.invalidParam("price and quantity must not be negative");
+      }
+      return units;
+    } catch (NumberFormatException e) {
+      throw OrderException.invalidParam(e.getMessage());
+    }
+  }
+
+  private static int parseLimit(String limit) {
+    try {
+      int value = Integer.parseInt(limit);
+      if (value <= 0) {
+        throw OrderException.invalidParam("limit must be positive");
+      }
+      return value;
+    } catch (NumberFormatException e) {
+      throw OrderException.invalidParam("limit must be an integer");
+    }
+  }
+
+  private static long orderId(ServerRequest request) {
+    try {
+      return Long.parseLong(request.pathVariable("orderId"));
+    } catch (NumberFormatException e) {
+      throw OrderException.invalidParam("orderId must be an integer");
+    }
+  }
+
+  private String user(ServerRequest request) {
+    String headerUserId = request.headers().firstHeader(TrustedHeaders.USER_ID);
+    if (headerUserId != null && !headerUserId.isBlank()) {
+      return headerUserId;
+    }
+    if (!defaultUserId.isEmpty()) {
+      return defaultUserId;
+    }
+    throw OrderException.unauthenticated("missing " + TrustedHeaders.USER_ID);
+  }
+}
@@ -0,0 +1,44 @@
+package order.web;
+
+import order.exception.OrderException;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.reactive.handler.SimpleUrlHandlerMapping;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import java.util.Map;
+
+/**
+ * 經 gateway（StripPrefix 後為 /order）或直接呼叫（/api/order）皆可。
+ */
+@Configuration
+public class OrderRoutes {
+
+  @Bean
+  RouterFunction<ServerResponse> orderRouter(OrderHandler handler) {
+    return RouterFunctions.route()
+        .path("/order", () -> routes(handler))
+        .path("/api/order", () -> routes(handler))
+        .onError(OrderException.class, handler::handleOrderException)
+        .build();
+  }
+
+  private static RouterFunction<ServerResponse> routes(OrderHandler handler) {
+    return RouterFunctions.route()
+        .GET("/ping", handler::ping)
+        .GET("/depth", handler::depth)
+        .POST("/orders", handler::place)
+        .PUT("/orders/{orderId}", handler::replace)
+        .DELETE("/orders/{orderId}", handler::cancel)
+        .build();
+  }
+
+  /** L2 行情 WebSocket，優先於 RouterFunction */
+  @Bean
+  HandlerMapping depthWebSocketMapping(DepthWebSocketHandler handler) {
+    return new SimpleUrlHandlerMapping(Map.of("/order/ws/depth", handler, "/api/order/ws/depth", handler), -1);
+  }
+}
@@ -0,0 +1,220 @@
+package order.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderBookTest {
+
+  private final Events events = new Events();
+  private final OrderBook book = new OrderBook(16, events);
+
+  @Test
+  void matchesByPriceThenTimePriority() {
+    book.place(1, "s1", Side.SELL, OrderType.LIMIT, 101, 5);
+    book.place(2, "s2", Side.SELL, OrderType.LIMIT, 100, 5);
+    book.place(3, "s3", Side.SELL, OrderType.LIMIT, 100, 5);
+    assertEquals(100, book.bestAsk());
+    assertEquals(2, book.depth(Side.SELL));
+
+    book.place(4, "b1", Side.BUY, OrderType.LIMIT, 101, 12);
+
+    assertEquals(List.of(
+        "trade 1 4/b1 2/s2 BUY 100x5 false true",
+        "trade 2 4/b1 3/s3 BUY 100x5 false true",
+        "trade 3 4/b1 1/s1 BUY 101x2 true false"), events.trades());
+    assertEquals(1, book.depth(Side.SELL));
+    assertEquals(101, book.bestAsk());
+    assertEquals(3, book.levelVolume(Side.SELL, 0));
+    assertEquals(3, book.remaining(1));
+    assertEquals(0, book.depth(Side.BUY));
+  }
+
+  @Test
+  void limitRemainderRestsAndMarketRemainderIsCancelled() {
+    book.place(1, "s1", Side.SELL, OrderType.LIMIT, 100, 5);
+    book.place(2, "b1", Side.BUY, OrderType.LIMIT, 100, 8);
+    assertEquals(100, book.bestBid());
+    assertEquals(3, book.remaining(2));
+    assertTrue(events.log.contains("rested 2 BUY 100x3"));
+
+    book.place(3, "s2", Side.SELL, OrderType.MARKET, 0, 10);
+    assertEquals("trade 2 3/s2 2/b1 SELL 100x3 false true", events.trades().get(1));
+    assertTrue(events.log.contains("cancelled 3 SELL 7"));
+    assertEquals(0, book.orderCount());
+    assertEquals(0, book.bestBid());
+  }
+
+  @Test
+  void marketOrderStopsAtProtectionPrice() {
+    book.place(1, "s1", Side.SELL, OrderType.LIMIT, 100, 1);
+    book.place(2, "s2", Side.SELL, OrderType.LIMIT, 110, 1);
+
+    book.place(3, "b1", Side.BUY, OrderType.MARKET, 105, 2);
+
+    assertEquals(1, events.trades().size());
+    assertTrue(events.log.contains("cancelled 3 BUY 1"));
+    assertEquals(110, book.bestAsk());
+  }
+
+  @Test
+  void cancelRemovesOrderAndEmptyLevel() {
+    book.place(1, "b1", Side.BUY, OrderType.LIMIT, 99, 5);
+    book.place(2, "b2", Side.BUY, OrderType.LIMIT, 98, 5);
+    book.place(3, "b3", Side.BUY, OrderType.LIMIT, 99, 5);
+
+    book.cancel(1, "someone-else");
+    assertTrue(events.log.contains("rejected 1 UNKNOWN_ORDER"));
+
+    book.cancel(1, "b1");
+    assertTrue(events.log.contains("cancelled 1 BUY 5"));
+    assertEquals(5, book.levelVolume(Side.BUY, 0));
+    assertEquals(1, book.levelOrders(Side.BUY, 0));
+
+    book.cancel(3, "b3");
+    assertEquals(1, book.depth(Side.BUY));
+    assertEquals(98, book.bestBid());
+
+    book.cancel(3, "b3");
+    assertTrue(events.log.get(events.log.size() - 1).equals("rejected 3 UNKNOWN_ORDER"));
+  }
+
+  @Test
+  void replaceKeepsPriorityOnlyWhenReducingAtSamePrice() {
+    book.place(1, "s1", Side.SELL, OrderType.LIMIT, 100, 5);
+    book.place(2, "s2", Side.SELL, OrderType.LIMIT, 100, 5);
+
+    book.replace(1, "s1", Side.SELL, 100, 3);
+    assertEquals(8, book.levelVolume(Side.SELL, 0));
+    book.place(3, "b1", Side.BUY, OrderType.LIMIT, 100, 3);
+    assertEquals("trade 1 3/b1 1/s1 BUY 100x3 true true", events.trades().get(0));
+
+    book.place(4, "s3", Side.SELL, OrderType.LIMIT, 100, 5);
+    book.replace(2, "s2", Side.SELL, 100, 6);
+    book.place(5, "b2", Side.BUY, OrderType.LIMIT, 100, 1);
+    assertEquals("trade 2 5/b2 4/s3 BUY 100x1 true false", events.trades().get(1));
+
+    // 改價後跨價立即成交
+    book.replace(2, "s2", Side.SELL, 90, 6);
+    book.place(6, "b3", Side.BUY, OrderType.LIMIT, 95, 1);
+    assertEquals("trade 3 6/b3 2/s2 BUY 90x1 true false", events.trades().get(2));
+    assertEquals(90, book.bestAsk());
+  }
+
+  @Test
+  void reportsEachTouchedLevelOnceWithItsFinalVolume() {
+    book.place(1, "s1", Side.SELL, OrderType.LIMIT, 100, 2);
+    book.place(2, "s2", Side.SELL, OrderType.LIMIT, 100, 3);
+    book.place(3, "s3", Side.SELL, OrderType.LIMIT, 101, 4);
+    events.log.clear();
+
+    book.place(4, "b1", Side.BUY, OrderType.LIMIT, 101, 6);
+    assertEquals(List.of("level SELL 100 0/0", "level SELL 101 3/1"), events.levels());
+
+    book.replace(3, "s3", Side.SELL, 101, 1);
+    book.cancel(3, "s3");
+    assertEquals(List.of("level SELL 100 0/0", "level SELL 101 3/1", "level SELL 101 1/1", "level SELL 101 0/0"),
+        events.levels());
+  }
+
+  @Test
+  void emptiedInnerLevelsAreSkippedAndReused() {
+    book.place(1, "b1", Side.BUY, OrderType.LIMIT, 99, 1);
+    book.place(2, "b2", Side.BUY, OrderType.LIMIT, 98, 2);
+    book.place(3, "b3", Side.BUY, OrderType.LIMIT, 97, 3);
+
+    book.cancel(2, "b2");
+    assertEquals(2, book.depth(Side.BUY));
+    assertEquals(97, book.levelPrice(Side.BUY, 1));
+    assertEquals(3, book.levelVolume(Side.BUY, 1));
+
+    book.place(4, "b4", Side.BUY, OrderType.LIMIT, 98, 4);
+    assertEquals(3, book.depth(Side.BUY));
+    assertEquals(98, book.levelPrice(Side.BUY, 1));
+    assertEquals(4, book.levelVolume(Side.BUY, 1));
+
+    // 最佳價清空時，緊接在後的空價位一起移出
+    book.cancel(4, "b4");
+    book.place(5, "s1", Side.SELL, OrderType.MARKET, 0, 1);
+    assertEquals(97, book.bestBid());
+    book.place(6, "s2", Side.SELL, OrderType.LIMIT, 97, 3);
+    assertEquals(0, book.bestBid());
+    assertEquals(0, book.depth(Side.BUY));
+  }
+
+  @Test
+  void manyEmptiedLevelsAreCompacted() {
+    for (int i = 0; i < 1000; i++) {
+      book.place(i, "s", Side.SELL, OrderType.LIMIT, 100 + i, 1);
+    }
+    for (int i = 999; i > 0; i -= 2) {
+      book.cancel(i, "s");
+    }
+    for (int i = 2; i < 1000; i += 4) {
+      book.cancel(i, "s");
+    }
+    assertEquals(250, book.depth(Side.SELL));
+    for (int level = 0; level < 250; level++) {
+      assertEquals(100 + level * 4, book.levelPrice(Side.SELL, level));
+    }
+    book.place(1000, "b", Side.BUY, OrderType.LIMIT, 2000, 250);
+    assertEquals(0, book.orderCount());
+    assertEquals(0, book.depth(Side.SELL));
+  }
+
+  @Test
+  void reusesPooledNodesAndLevelsAcrossManyOrders() {
+    for (int round = 0; round < 100; round++) {
+      for (int i = 0; i < 64; i++) {
+        book.place(round * 1000L + i, "s", Side.SELL, OrderType.LIMIT, 100 + i % 8, 1);
+      }
+      book.place(round * 1000L + 999, "b", Side.BUY, OrderType.LIMIT, 200, 64);
+      assertEquals(0, book.orderCount());
+      assertEquals(0, book.depth(Side.SELL));
+    }
+    assertEquals(6400, book.tradeSequence());
+  }
+
+  private static final class Events implements BookListener {
+
+    final List<String> log = new ArrayList<>();
+
+    List<String> trades() {
+      return log.stream().filter(line -> line.startsWith("trade")).toList();
+    }
+
+    List<String> levels() {
+      return log.stream().filter(line -> line.startsWith("level")).toList();
+    }
+
+    @Override
+    public void onLevel(Side side, long price, long volume, int orders) {
+      log.add("level " + side + " " + price + " " + volume + "/" + orders);
+    }
+
+    @Override
+    public void onTrade(long tradeId, long takerOrderId, String takerUserId, long makerOrderId, String makerUserId,
+        Side takerSide, long price, long quantity, boolean takerDone, boolean makerDone) {
+      log.add("trade " + tradeId + " " + takerOrderId + "/" + takerUserId + " " + makerOrderId + "/" + makerUserId
+          + " " + takerSide + " " + price + "x" + quantity + " " + takerDone + " " + makerDone);
+    }
+
+    @Override
+    public void onRested(long orderId, String userId, Side side, long price, long remaining) {
+      log.add("rested " + orderId + " " + side + " " + price + "x" + remaining);
+    }
+
+    @Override
+    public void onCancelled(long orderId, String userId, Side side, long remaining) {
+      log.add("cancelled " + orderId + " " + side + " " + remaining);
+    }
+
+    @Override
+    public void onRejected(long orderId, String userId, RejectReason reason) {
+      log.add("rejected " + orderId + " " + reason);
+    }
+  }
+}
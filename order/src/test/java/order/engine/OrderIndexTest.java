@@ -0,0 +1,54 @@
+package order.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static order.engine.OrderPool.NIL;
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderIndexTest {
+
+  @Test
+  void findsGrowsAndRemovesWithoutTombstones() {
+    OrderIndex index = new OrderIndex(16);
+    for (int i = 0; i < 1000; i++) {
+      index.put(i, i * 2);
+    }
+    assertEquals(1000, index.size());
+    assertEquals(998, index.get(499));
+    assertEquals(NIL, index.get(1000));
+
+    for (int i = 0; i < 1000; i += 2) {
+      index.remove(i);
+    }
+    index.remove(0);
+    assertEquals(500, index.size());
+    assertEquals(NIL, index.get(498));
+    assertEquals(998, index.get(499));
+  }
+
+  @Test
+  void matchesHashMapUnderRandomChurn() {
+    OrderIndex index = new OrderIndex(16);
+    Map<Long, Integer> expected = new HashMap<>();
+    SplittableRandom random = new SplittableRandom(7);
+    for (int i = 0; i < 200_000; i++) {
+      // 鍵集中在小範圍，讓探測串經常碰撞與搬移
+      long key = random.nextLong(4096) << random.nextInt(3);
+      if (random.nextInt(3) == 0) {
+        index.remove(key);
+        expected.remove(key);
+      } else {
+        index.put(key, i);
+        expected.put(key, i);
+      }
+    }
+    assertEquals(expected.size(), index.size());
+    for (long key = 0; key < 4096 << 2; key++) {
+      assertEquals(expected.getOrDefault(key, NIL), index.get(key));
+    }
+  }
+}
@@ -0,0 +1,419 @@
+package order.engine;
+
+import common.journal.FsyncPolicy;
+import common.journal.MappedLog;
+import order.sequencer.IdleStrategy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderPipelineTest {
+
+  // 價格兩位小數、數量整數，鎖定金額 = 價格 × 數量
+  private static final SymbolSpec SPEC = new SymbolSpec("BTC-USDT", "BTC", "USDT", 0, 2);
+
+  private final List<String> locks = Collections.synchronizedList(new ArrayList<>());
+  private final List<CompletableFuture<FundsLock.Result>> pendingLocks = Collections.synchronizedList(new ArrayList<>());
+  private final Outbox outbox = new Outbox();
+  private final BlockingQueue<String> results = new LinkedBlockingQueue<>();
+  private boolean deferLocks;
+  private OrderPipeline pipeline;
+
+  @TempDir
+  Path dir;
+
+  @AfterEach
+  void stop() throws Exception {
+    if (pipeline != null) {
+      pipeline.stop();
+    }
+  }
+
+  @Test
+  void locksFundsThenMatchesAndReportsStatus() throws Exception {
+    start(RiskLimits.NONE);
+
+    place(1, "s1", Side.SELL, OrderType.LIMIT, 10000, 3);
+    assertEquals("1 NEW 0/3", take());
+    place(2, "b1", Side.BUY, OrderType.LIMIT, 10100, 5);
+    assertEquals("2 PARTIALLY_FILLED 3/2", take());
+    place(3, "s2", Side.SELL, OrderType.MARKET, 0, 4);
+    assertEquals("3 CANCELLED 2/2", take());
+
+    assertEquals(List.of("s1 BTC 3 1", "b1 USDT 50500 2", "s2 BTC 4 3"), locks);
+    assertEquals(List.of("trade 2 1 3", "trade 3 2 2", "unlock s2 BTC all 3"), outbox.log());
+  }
+
+  @Test
+  void rejectsOnRiskLimitsAndLockFailuresWithoutTouchingTheBook() throws Exception {
+    start(new RiskLimits(10, 100000));
+
+    place(1, "b1", Side.BUY, OrderType.LIMIT, 10000, 11);
+    assertEquals("1 REJECTED 0/0 RISK_LIMIT", take());
+    place(2, "b1", Side.BUY, OrderType.LIMIT, 20000, 6);
+    assertEquals("2 REJECTED 0/0 RISK_LIMIT", take());
+    place(3, "b1", Side.BUY, OrderType.MARKET, 0, 1);
+    assertEquals("3 REJECTED 0/0 INVALID_ORDER", take());
+    place(4, "poor", Side.BUY, OrderType.LIMIT, 10000, 1);
+    assertEquals("4 REJECTED 0/0 INSUFFICIENT_FUNDS", take());
+    place(5, "offline", Side.SELL, OrderType.LIMIT, 10000, 1);
+    assertEquals("5 REJECTED 0/0 WALLET_UNAVAILABLE", take());
+
+    assertEquals(List.of("poor USDT 10000 4", "offline BTC 1 5"), locks);
+    // 逾時的鎖定可能已在 wallet 生效，也可能晚於解鎖才到，撤回整筆鎖定
+    assertEquals(List.of("cancel-lock offline BTC 5"), outbox.log());
+    pipeline.stop();
+    assertEquals(0, pipeline.book().orderCount());
+    pipeline = null;
+  }
+
+  @Test
+  void replaceAndCancelReleaseTheOldLock() throws Exception {
+    start(RiskLimits.NONE);
+
+    place(1, "b1", Side.BUY, OrderType.LIMIT, 10000, 2);
+    assertEquals("1 NEW 0/2", take());
+    replace(1, "b1", Side.BUY, 9900, 3);
+    assertEquals("1 NEW 0/3", take());
+    replace(1, "b1", Side.SELL, 9900, 3);
+    assertEquals("1 REJECTED 0/0 UNKNOWN_ORDER", take());
+    cancel(1, "b1");
+    assertEquals("1 CANCELLED 0/3", take());
+    cancel(1, "b1");
+    assertEquals("1 REJECTED 0/0 UNKNOWN_ORDER", take());
+
+    assertEquals(List.of("b1 USDT 20000 1", "b1 USDT 29700 1", "b1 BTC 3 1"), locks);
+    assertEquals(List.of(
+        "unlock b1 USDT 20000 1",
+        "unlock b1 BTC 3 1",
+        "unlock b1 USDT all 1"), outbox.log());
+  }
+
+  @Test
+  void locksCompletingOutOfOrderAreStillMatchedInSequence() throws Exception {
+    deferLocks = true;
+    start(RiskLimits.NONE);
+
+    place(1, "s1", Side.SELL, OrderType.LIMIT, 10000, 1);
+    place(2, "b1", Side.BUY, OrderType.LIMIT, 10000, 1);
+    while (pendingLocks.size() < 2) {
+      Thread.onSpinWait();
+    }
+    pendingLocks.get(1).complete(FundsLock.Result.LOCKED);
+    assertNull(results.poll(50, TimeUnit.MILLISECONDS));
+    pendingLocks.get(0).complete(FundsLock.Result.LOCKED);
+
+    assertEquals("1 NEW 0/1", take());
+    assertEquals("2 FILLED 1/0", take());
+  }
+
+  @Test
+  void replayingTheJournalRebuildsTheSameTradesAndBook() throws Exception {
+    start(RiskLimits.NONE, journal());
+    SplittableRandom random = new SplittableRandom(1);
+    String[] users = {"u0", "u1", "u2", "u3", "poor", "offline"};
+    int commands = 3000;
+    for (int i = 1; i <= commands; i++) {
+      String user = users[random.nextInt(users.length)];
+      Side side = random.nextBoolean() ? Side.BUY : Side.SELL;
+      long price = 9900 + random.nextInt(21) * 10;
+      long quantity = 1 + random.nextInt(5);
+      long target = 1 + random.nextInt(i);
+      switch (random.nextInt(10)) {
+        case 0, 1 -> cancel(target, users[(int) (target % 4)]);
+        case 2 -> replace(target, users[(int) (target % 4)], side, price, quantity);
+        case 3 -> place(i, user, side, OrderType.MARKET, side == Side.BUY ? 10100 : 0, quantity);
+        default -> place(i, users[i % 4], side, OrderType.LIMIT, price, quantity);
+      }
+      if (i % 32 == 0) {
+        // 不超過環狀緩衝區的大小
+        for (int j = 0; j < 32; j++) {
+          take();
+        }
+      }
+    }
+    for (int i = 0; i < commands % 32; i++) {
+      take();
+    }
+    pipeline.stop();
+    List<String> live = outbox.log();
+    List<String> liveBook = dump(pipeline.book());
+    assertTrue(live.stream().filter(line -> line.startsWith("trade")).count() > 500);
+
+    Outbox replayed = new Outbox();
+    pipeline = new OrderPipeline(SPEC, 64, 16, new IdleStrategy(100_000),
+        new PipelineServices(RiskLimits.NONE, FundsLock.NONE, journal(), replayed, BookListener.NONE));
+    assertEquals(commands, pipeline.replay(replayed));
+    assertEquals(live, replayed.log());
+    assertEquals(liveBook, dump(pipeline.book()));
+    assertEquals(commands, pipeline.lastOrderId());
+
+    // 重播後接續寫入
+    pipeline.start();
+    place(commands + 1, "u0", Side.BUY, OrderType.LIMIT, 1, 1);
+    assertEquals((commands + 1) + " NEW 0/1", take());
+    pipeline.stop();
+    pipeline = new OrderPipeline(SPEC, 64, 16, new IdleStrategy(100_000),
+        new PipelineServices(RiskLimits.NONE, FundsLock.NONE, journal(), WalletOutbox.NONE, BookListener.NONE));
+    assertEquals(commands + 1, pipeline.replay(WalletOutbox.NONE));
+  }
+
+  @Test
+  void commandsThatCannotBeJournaledAreRejectedAndUnlocked() throws Exception {
+    CommandJournal failing = new CommandJournal() {
+      @Override
+      public void append(OrderEvent event) throws IOException {
+        if (event.orderId() == 2) {
+          throw new IOException("disk full");
+        }
+      }
+
+      @Override
+      public void flush() {
+      }
+
+      @Override
+      public void discardUnflushed() {
+      }
+
+      @Override
+      public void replay(Consumer<OrderEvent> consumer) {
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+    start(RiskLimits.NONE, failing);
+
+    place(1, "s1", Side.SELL, OrderType.LIMIT, 10000, 1);
+    assertEquals("1 NEW 0/1", take());
+    place(2, "b1", Side.BUY, OrderType.LIMIT, 10000, 1);
+    assertEquals("2 REJECTED 0/0 JOURNAL_UNAVAILABLE", take());
+
+    assertEquals(List.of("unlock b1 USDT 10000 2"), outbox.log());
+    assertEquals(1, pipeline.book().orderCount());
+  }
+
+  @Test
+  void batchesThatCannotBeFlushedAreRejectedAndLeftOutOfTheJournal() throws Exception {
+    MappedCommandJournal mapped = journal();
+    boolean[] failFlush = {false};
+    CommandJournal flaky = new CommandJournal() {
+      @Override
+      public void append(OrderEvent event) throws IOException {
+        mapped.append(event);
+        failFlush[0] = event.orderId() == 2;
+      }
+
+      @Override
+      public void flush() throws IOException {
+        if (failFlush[0]) {
+          throw new IOException("fsync failed");
+        }
+        mapped.flush();
+      }
+
+      @Override
+      public void discardUnflushed() throws IOException {
+        mapped.discardUnflushed();
+      }
+
+      @Override
+      public void replay(Consumer<OrderEvent> consumer) throws IOException {
+        mapped.replay(consumer);
+      }
+
+      @Override
+      public void close() throws IOException {
+        mapped.close();
+      }
+    };
+    start(RiskLimits.NONE, flaky);
+
+    place(1, "s1", Side.SELL, OrderType.LIMIT, 10000, 1);
+    assertEquals("1 NEW 0/1", take());
+    place(2, "b1", Side.BUY, OrderType.LIMIT, 10000, 1);
+    assertEquals("2 REJECTED 0/0 JOURNAL_UNAVAILABLE", take());
+    place(3, "b2", Side.BUY, OrderType.LIMIT, 10000, 1);
+    assertEquals("3 FILLED 1/0", take());
+    assertEquals(List.of("unlock b1 USDT 10000 2", "trade 3 1 1"), outbox.log());
+    assertEquals(List.of(1L, 0L, 2L), outbox.commands());
+    pipeline.stop();
+
+    // 撤回的指令不在 journal 中，之後的指令接在前一批之後
+    Outbox replayed = new Outbox();
+    pipeline = new OrderPipeline(SPEC, 64, 16, new IdleStrategy(100_000),
+        new PipelineServices(RiskLimits.NONE, FundsLock.NONE, journal(), replayed, BookListener.NONE));
+    assertEquals(2, pipeline.replay(replayed));
+    assertEquals(List.of("trade 3 1 1"), replayed.log());
+    assertEquals(0, pipeline.book().orderCount());
+  }
+
+  @Test
+  void replayRepublishesPastTheDeliveredWatermarkKeepingTheInFlightBatch() throws Exception {
+    start(RiskLimits.NONE, journal());
+    for (int i = 1; i <= 6; i += 2) {
+      place(i, "s" + i, Side.SELL, OrderType.LIMIT, 10000, 1);
+      assertEquals(i + " NEW 0/1", take());
+      place(i + 1, "b" + i, Side.BUY, OrderType.LIMIT, 10000, 1);
+      assertEquals((i + 1) + " FILLED 1/0", take());
+    }
+    pipeline.stop();
+
+    // 指令 1 已送達，2..3 送到一半：這一批照原本的範圍重送，之後的照重播的分組
+    Outbox replayed = new Outbox();
+    replayed.delivered = 1;
+    replayed.sending = 3;
+    replayed.batches = true;
+    pipeline = new OrderPipeline(SPEC, 64, 16, new IdleStrategy(100_000),
+        new PipelineServices(RiskLimits.NONE, FundsLock.NONE, journal(), replayed, BookListener.NONE));
+    assertEquals(6, pipeline.replay(replayed));
+    assertEquals(List.of("trade 2 1 1", "end 3", "trade 4 3 1", "trade 6 5 1", "end 6", "replayed 6"),
+        replayed.log());
+    assertEquals(List.of(2L, 3L, 4L, 5L, 6L), replayed.commands());
+  }
+
+  private MappedCommandJournal journal() throws IOException {
+    return new MappedCommandJournal(dir, MappedLog.MIN_SEGMENT_SIZE, FsyncPolicy.NONE, 0);
+  }
+
+  private static List<String> dump(OrderBook book) {
+    List<String> state = new ArrayList<>();
+    state.add("trades " + book.tradeSequence() + " orders " + book.orderCount());
+    for (Side side : Side.values()) {
+      for (int level = 0; level < book.depth(side); level++) {
+        state.add(side + " " + book.levelPrice(side, level) + " " + book.levelVolume(side, level) + "/"
+            + book.levelOrders(side, level));
+      }
+    }
+    return state;
+  }
+
+  private void start(RiskLimits limits) {
+    start(limits, CommandJournal.NONE);
+  }
+
+  private void start(RiskLimits limits, CommandJournal journal) {
+    FundsLock fundsLock = (userId, asset, amount, orderId) -> {
+      locks.add(userId + " " + asset + " " + amount + " " + orderId);
+      if (deferLocks) {
+        CompletableFuture<FundsLock.Result> future = new CompletableFuture<>();
+        pendingLocks.add(future);
+        return future;
+      }
+      return CompletableFuture.completedFuture(switch (userId) {
+        case "poor" -> FundsLock.Result.INSUFFICIENT_FUNDS;
+        case "offline" -> FundsLock.Result.UNAVAILABLE;
+        default -> FundsLock.Result.LOCKED;
+      });
+    };
+    pipeline = new OrderPipeline(SPEC, 64, 16, new IdleStrategy(100_000),
+        new PipelineServices(limits, fundsLock, journal, outbox, BookListener.NONE));
+    pipeline.start();
+  }
+
+  private void place(long orderId, String userId, Side side, OrderType type, long price, long quantity) {
+    assertTrue(pipeline.publish(CommandType.PLACE, orderId, userId, side, type, price, quantity, this::result));
+  }
+
+  private void replace(long orderId, String userId, Side side, long price, long quantity) {
+    assertTrue(pipeline.publish(CommandType.REPLACE, orderId, userId, side, OrderType.LIMIT, price, quantity,
+        this::result));
+  }
+
+  private void cancel(long orderId, String userId) {
+    assertTrue(pipeline.publish(CommandType.CANCEL, orderId, userId, null, null, 0, 0, this::result));
+  }
+
+  private void result(long orderId, OrderStatus status, long filled, long remaining, RejectReason reason) {
+    results.add(orderId + " " + status + " " + filled + "/" + remaining + (reason == null ? "" : " " + reason));
+  }
+
+  private String take() throws InterruptedException {
+    String result = results.poll(5, TimeUnit.SECONDS);
+    assertNotNull(result);
+    return result;
+  }
+
+  private static final class Outbox implements WalletOutbox {
+
+    private final List<String> log = Collections.synchronizedList(new ArrayList<>());
+    private final List<Long> commands = Collections.synchronizedList(new ArrayList<>());
+    private long lastCommand;
+    long delivered;
+    long sending;
+    /** 記錄每一批的結束與重播完成 */
+    boolean batches;
+
+    List<String> log() {
+      return List.copyOf(log);
+    }
+
+    List<Long> commands() {
+      return List.copyOf(commands);
+    }
+
+    @Override
+    public void onCommand(long index) {
+      commands.add(index);
+      if (index > 0) {
+        lastCommand = index;
+      }
+    }
+
+    @Override
+    public void onBatchEnd() {
+      if (batches) {
+        log.add("end " + lastCommand);
+      }
+    }
+
+    @Override
+    public long deliveredThrough() {
+      return delivered;
+    }
+
+    @Override
+    public long sendingThrough() {
+      return sending;
+    }
+
+    @Override
+    public void replayed(long commands) {
+      if (batches) {
+        log.add("replayed " + commands);
+      }
+    }
+
+    @Override
+    public void onTrade(long tradeId, long takerOrderId, String takerUserId, long makerOrderId, String makerUserId,
+        Side takerSide, long price, long quantity, boolean takerDone, boolean makerDone) {
+      log.add("trade " + takerOrderId + " " + makerOrderId + " " + quantity);
+    }
+
+    @Override
+    public void unlock(String userId, String asset, long amount, long orderId) {
+      log.add("unlock " + userId + " " + asset + " " + (amount == Long.MAX_VALUE ? "all" : amount) + " " + orderId);
+    }
+
+    @Override
+    public void cancelLock(String userId, String asset, long orderId) {
+      log.add("cancel-lock " + userId + " " + asset + " " + orderId);
+    }
+  }
+}
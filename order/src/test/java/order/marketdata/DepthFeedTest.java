@@ -0,0 +1,88 @@
+package order.marketdata;
+
+import order.engine.OrderBook;
+import order.engine.OrderType;
+import order.engine.Side;
+import order.engine.SymbolSpec;
+import order.sequencer.IdleStrategy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DepthFeedTest {
+
+  private static final SymbolSpec SPEC = new SymbolSpec("BTC-USDT", "BTC", "USDT", 0, 0);
+
+  private final DepthFeed feed = new DepthFeed(SPEC, 8, 1, TimeUnit.MILLISECONDS, new IdleStrategy(100_000));
+  private final OrderBook book = new OrderBook(16, feed);
+
+  @AfterEach
+  void stop() throws InterruptedException {
+    feed.stop();
+  }
+
+  @Test
+  void subscriberGetsSnapshotThenBatchedUpdates() throws Exception {
+    book.place(1, "s1", Side.SELL, OrderType.LIMIT, 101, 5);
+    book.place(2, "s2", Side.SELL, OrderType.LIMIT, 102, 5);
+    book.place(3, "b1", Side.BUY, OrderType.LIMIT, 99, 2);
+    feed.onBatchEnd();
+    feed.start();
+
+    DepthSubscription subscription = feed.subscribe();
+    DepthSnapshot snapshot = (DepthSnapshot) next(subscription);
+    assertEquals(3, snapshot.sequence());
+    assertEquals(List.of(new DepthLevel(99, 2)), snapshot.bids());
+    assertEquals(List.of(new DepthLevel(101, 5), new DepthLevel(102, 5)), snapshot.asks());
+
+    // 一批內吃掉 101 整個價位與 102 的一部分，剩餘的買單掛在 102
+    book.place(4, "b2", Side.BUY, OrderType.LIMIT, 102, 12);
+    feed.onBatchEnd();
+
+    DepthUpdate update = (DepthUpdate) next(subscription);
+    assertEquals(4, update.firstSequence());
+    assertEquals(6, update.lastSequence());
+    assertEquals(List.of(new DepthLevel(102, 2)), update.bids());
+    assertEquals(List.of(new DepthLevel(101, 0), new DepthLevel(102, 0)), update.asks());
+  }
+
+  @Test
+  void slowSubscriberReceivesConflatedLevels() throws Exception {
+    feed.start();
+    DepthSubscription subscription = feed.subscribe();
+    assertEquals(0, ((DepthSnapshot) next(subscription)).sequence());
+
+    // 超過緩衝區大小的增量，訂閱者不取走，最後只剩每個價位的最新總量
+    for (int i = 1; i <= 20; i++) {
+      book.place(i, "b", Side.BUY, OrderType.LIMIT, 100 + i % 2, 1);
+      feed.onBatchEnd();
+    }
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (feed.snapshot().sequence() != 20 && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    assertEquals(List.of(new DepthLevel(101, 10), new DepthLevel(100, 10)), feed.snapshot().bids());
+
+    DepthUpdate update = (DepthUpdate) subscription.poll();
+    assertEquals(1, update.firstSequence());
+    assertEquals(20, update.lastSequence());
+    assertEquals(List.of(new DepthLevel(101, 10), new DepthLevel(100, 10)), update.bids());
+    assertNull(subscription.poll());
+  }
+
+  private static DepthMessage next(DepthSubscription subscription) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (System.nanoTime() < deadline) {
+      DepthMessage message = subscription.poll();
+      if (message != null) {
+        return message;
+      }
+      Thread.sleep(1);
+    }
+    throw new AssertionError("no depth message");
+  }
+}
@@ -0,0 +1,105 @@
+package order.sequencer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RingBufferTest {
+
+  private static final class Slot {
+    long value;
+    long doubled;
+  }
+
+  @Test
+  void tryNextFailsWhenGatingSequenceIsAWrapBehind() {
+    RingBuffer<Slot> ring = new RingBuffer<>(4, Slot::new);
+    Sequence consumer = new Sequence(-1);
+    ring.gateOn(consumer);
+
+    for (int i = 0; i < 4; i++) {
+      long sequence = ring.tryNext();
+      assertEquals(i, sequence);
+      ring.publish(sequence);
+    }
+    assertEquals(-1, ring.tryNext());
+    assertEquals(4, ring.backlog());
+
+    consumer.set(1);
+    assertEquals(4, ring.tryNext());
+    assertEquals(5, ring.tryNext());
+    assertEquals(-1, ring.tryNext());
+  }
+
+  @Test
+  void barrierStopsAtFirstUnpublishedSequence() {
+    RingBuffer<Slot> ring = new RingBuffer<>(8, Slot::new);
+    SequenceBarrier barrier = ring.newBarrier(new IdleStrategy(1000));
+    long first = ring.tryNext();
+    long second = ring.tryNext();
+    ring.publish(second);
+
+    assertEquals(-1, barrier.available(0));
+    ring.publish(first);
+    assertEquals(1, barrier.available(0));
+  }
+
+  @Test
+  void stagesSeeEventsInOrderAcrossThreads() throws Exception {
+    int events = 100_000;
+    RingBuffer<Slot> ring = new RingBuffer<>(1024, Slot::new);
+    IdleStrategy idle = new IdleStrategy(10_000);
+    BatchEventProcessor<Slot> doubler = new BatchEventProcessor<>("doubler", ring, ring.newBarrier(idle),
+        (slot, sequence, endOfBatch) -> slot.doubled = slot.value * 2);
+    List<Long> seen = new ArrayList<>(events);
+    CountDownLatch done = new CountDownLatch(1);
+    BatchEventProcessor<Slot> collector = new BatchEventProcessor<>("collector", ring,
+        ring.newBarrier(idle, doubler.sequence()), (slot, sequence, endOfBatch) -> {
+          seen.add(slot.doubled);
+          if (seen.size() == events) {
+            done.countDown();
+          }
+        });
+    ring.gateOn(collector.sequence());
+    Thread first = new Thread(doubler);
+    Thread second = new Thread(collector);
+    first.start();
+    second.start();
+
+    Thread[] producers = new Thread[2];
+    for (int p = 0; p < producers.length; p++) {
+      int offset = p;
+      producers[p] = new Thread(() -> {
+        for (int i = offset; i < events; i += producers.length) {
+          long sequence;
+          while ((sequence = ring.tryNext()) < 0) {
+            Thread.onSpinWait();
+          }
+          ring.get(sequence).value = i;
+          ring.publish(sequence);
+        }
+      });
+      producers[p].start();
+    }
+    for (Thread producer : producers) {
+      producer.join();
+    }
+    done.await();
+    doubler.halt();
+    collector.halt();
+    first.join();
+    second.join();
+
+    assertEquals(events, seen.size());
+    long sum = 0;
+    for (long value : seen) {
+      sum += value;
+    }
+    assertEquals((long) events * (events - 1), sum);
+    assertEquals(events - 1, collector.sequence().get());
+  }
+}
@@ -2,16 +2,21 @@ plugins {
     id("org.springframework.boot") version "3.5.4"
     id("io.spring.dependency-management") version "1.1.5"
     id("java")
+    id("me.champeau.jmh") version "0.7.2"
+}
+
+// ./gradlew :wallet:jmh
+jmh {
+    warmupIterations.set(2)
+    iterations.set(3)
+    fork.set(1)
 }
 
 dependencies {
     implementation("org.springframework.boot:spring-boot-starter-webflux")
     implementation("org.springframework.boot:spring-boot-starter-actuator")
     implementation("io.micrometer:micrometer-tracing-bridge-brave")
-    
-    // JPA for database access
-    implementation("org.springframework.boot:spring-boot-starter-data-jpa")
-    implementation("com.h2database:h2")
+    implementation(project(":common"))
     
     // Lombok
     compileOnly("org.projectlombok:lombok")
@@ -0,0 +1,98 @@
+package wallet.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import wallet.journal.MappedJournal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 啟動時間與台帳筆數：重播整個 journal，與載入快照後只重播最後 1% 的紀錄。
+ *
+ * <pre>./gradlew :wallet:jmh</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RecoveryBenchmark {
+
+  private static final int SHARDS = 8;
+  private static final int USERS = 10_000;
+
+  @Param({"100000", "1000000"})
+  public int entries;
+
+  @Param({"false", "true"})
+  public boolean snapshot;
+
+  private Path dir;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    dir = Files.createTempDirectory("wallet-recovery");
+    BalanceEngine engine = engine();
+    engine.start();
+    int tail = snapshot ? entries / 100 : 0;
+    deposit(engine, entries - tail);
+    if (snapshot) {
+      engine.snapshot(dir.resolve("snapshot"), false);
+      deposit(engine, tail);
+    }
+    engine.close();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    try (Stream<Path> files = Files.walk(dir)) {
+      for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(file);
+      }
+    }
+  }
+
+  @Benchmark
+  public void start() throws Exception {
+    BalanceEngine engine = engine();
+    engine.start(snapshot ? dir.resolve("snapshot") : null);
+    engine.close();
+  }
+
+  private BalanceEngine engine() {
+    return new BalanceEngine(SHARDS, 65_536, 1024, shard -> {
+      try {
+        return new MappedJournal(dir.resolve("shard-" + shard), 64 << 20, false);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }, null);
+  }
+
+  private static void deposit(BalanceEngine engine, int count) throws Exception {
+    CompletableFuture<?>[] window = new CompletableFuture<?>[10_000];
+    for (int i = 0; i < count; i++) {
+      CompletableFuture<?> previous = window[i % window.length];
+      if (previous != null) {
+        previous.get();
+      }
+      window[i % window.length] = engine.deposit("user-" + (i % USERS), "USDT", 1);
+    }
+    CompletableFuture.allOf(Arrays.stream(window).filter(Objects::nonNull).toArray(CompletableFuture[]::new)).get();
+  }
+}
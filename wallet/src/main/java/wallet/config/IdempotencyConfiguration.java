@@ -0,0 +1,61 @@
+package wallet.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import common.money.AssetScales;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import wallet.idempotency.IdempotencyKeyRecorder;
+import wallet.idempotency.IdempotencySnapshotter;
+import wallet.idempotency.IdempotencyStore;
+import wallet.idempotency.IdempotentExecutor;
+import wallet.service.WalletService;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Configuration
+public class IdempotencyConfiguration {
+
+  @Bean
+  @ConditionalOnProperty(name = "wallet.idempotency.enabled", havingValue = "true", matchIfMissing = true)
+  public IdempotencyStore idempotencyStore(
+      @Value("${wallet.idempotency.max-entries:1000000}") int maxEntries,
+      @Value("${wallet.idempotency.ttl:24h}") Duration ttl,
+      @Value("${wallet.idempotency.segments:16}") int segments) {
+    return new IdempotencyStore(maxEntries, ttl.toMillis(), segments);
+  }
+
+  /** {@code snapshot-path} 留空時只定期清除過期項目，重啟後只有重播 journal 重建的 key */
+  @Bean(destroyMethod = "close")
+  @ConditionalOnProperty(name = "wallet.idempotency.enabled", havingValue = "true", matchIfMissing = true)
+  public IdempotencySnapshotter idempotencySnapshotter(
+      IdempotencyStore store,
+      @Value("${wallet.idempotency.snapshot-path:}") String snapshotPath,
+      @Value("${wallet.idempotency.snapshot-interval:30s}") Duration interval) throws IOException {
+    return new IdempotencySnapshotter(store, snapshotPath.isEmpty() ? null : Path.of(snapshotPath), interval);
+  }
+
+  /** 由引擎在 journal 寫入後、重播與快照時呼叫（見 {@link WalletEngineConfiguration}） */
+  @Bean
+  @ConditionalOnProperty(name = "wallet.idempotency.enabled", havingValue = "true", matchIfMissing = true)
+  public IdempotencyKeyRecorder idempotencyKeyRecorder(
+      IdempotencyStore store,
+      @Value("${wallet.idempotency.snapshot-path:}") String snapshotPath,
+      ObjectMapper objectMapper,
+      AssetScales assetScales) {
+    return new IdempotencyKeyRecorder(store, snapshotPath.isEmpty() ? null : Path.of(snapshotPath),
+        entry -> WalletService.response(entry, assetScales.scaleOf(entry.asset())), objectMapper,
+        System::currentTimeMillis);
+  }
+
+  @Bean
+  public IdempotentExecutor idempotentExecutor(ObjectProvider<IdempotencyStore> store, ObjectMapper objectMapper,
+      MeterRegistry meterRegistry) {
+    return new IdempotentExecutor(store.getIfAvailable(), objectMapper, System::currentTimeMillis, meterRegistry);
+  }
+}
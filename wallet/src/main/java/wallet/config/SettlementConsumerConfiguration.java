@@ -0,0 +1,70 @@
+package wallet.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import wallet.consumer.SettlementConsumer;
+import wallet.dto.SettlementRequest;
+import wallet.engine.BalanceEngine;
+import wallet.exception.WalletException;
+import wallet.messaging.EventBroker;
+import wallet.messaging.InMemoryEventBroker;
+import wallet.service.WalletService;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+@Configuration
+@ConditionalOnProperty(name = "wallet.consumer.enabled", havingValue = "true", matchIfMissing = true)
+public class SettlementConsumerConfiguration {
+
+  /**
+   * 沒有其他 {@link EventBroker}（例如 Kafka 實作）時使用行程內的代理；partition 數預設與 shard 數相同。
+   */
+  @Bean
+  @ConditionalOnMissingBean(EventBroker.class)
+  public EventBroker inMemoryEventBroker(
+      @Value("${wallet.consumer.partitions:${wallet.engine.shards:8}}") int partitions) {
+    return new InMemoryEventBroker(partitions);
+  }
+
+  @Bean(initMethod = "start", destroyMethod = "close")
+  public SettlementConsumer settlementConsumer(
+      EventBroker broker,
+      BalanceEngine engine,
+      WalletService walletService,
+      ObjectMapper objectMapper,
+      @Value("${wallet.consumer.topic:wallet.settlements}") String topic,
+      @Value("${wallet.consumer.group:wallet}") String group,
+      @Value("${wallet.consumer.max-batch-records:500}") int maxBatchRecords,
+      @Value("${wallet.consumer.max-in-flight-batches:4}") int maxInFlightBatches,
+      @Value("${wallet.consumer.poll-timeout:100ms}") Duration pollTimeout,
+      MeterRegistry meterRegistry) {
+    return new SettlementConsumer(broker, topic, group, engine, value -> {
+      try {
+        return walletService.toSettlement(objectMapper.readValue(value, SettlementRequest.class));
+      } catch (IOException e) {
+        throw WalletException.invalidParam("malformed settlement event");
+      }
+    }, maxBatchRecords, maxInFlightBatches, pollTimeout, meterRegistry);
+  }
+
+  /** 有 partition 因引擎停止而不再消費時回報 DOWN（/actuator/health 的 settlementConsumer） */
+  @Bean
+  public HealthIndicator settlementConsumerHealth(SettlementConsumer consumer) {
+    return () -> {
+      Set<Integer> stopped = consumer.stoppedPartitions();
+      return (stopped.isEmpty() ? Health.up() : Health.down())
+          .withDetail("topic", consumer.topic())
+          .withDetail("stoppedPartitions", stopped)
+          .build();
+    };
+  }
+}
@@ -0,0 +1,23 @@
+package wallet.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@code wallet.assets}：支援的資產與其小數位數。
+ */
+@ConfigurationProperties(prefix = "wallet")
+public class WalletAssetProperties {
+
+  private Map<String, Integer> assets = new LinkedHashMap<>(Map.of("USDT", 8, "BTC", 8, "ETH", 8));
+
+  public Map<String, Integer> getAssets() {
+    return assets;
+  }
+
+  public void setAssets(Map<String, Integer> assets) {
+    this.assets = assets;
+  }
+}
@@ -0,0 +1,71 @@
+package wallet.config;
+
+import common.money.AssetScales;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+import wallet.engine.BalanceEngine;
+import wallet.engine.EngineSnapshotter;
+import wallet.engine.IdempotencyRecorder;
+import wallet.journal.Journal;
+import wallet.journal.MappedJournal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Configuration
+@EnableConfigurationProperties(WalletAssetProperties.class)
+public class WalletEngineConfiguration {
+
+  @Bean
+  public AssetScales assetScales(WalletAssetProperties properties) {
+    return AssetScales.of(properties.getAssets());
+  }
+
+  @Bean(destroyMethod = "close")
+  public BalanceEngine balanceEngine(
+      @Value("${wallet.engine.shards:8}") int shards,
+      @Value("${wallet.engine.queue-capacity:65536}") int queueCapacity,
+      @Value("${wallet.engine.max-batch-size:1024}") int maxBatchSize,
+      @Value("${wallet.journal.enabled:true}") boolean journalEnabled,
+      @Value("${wallet.journal.dir:data/wallet/journal}") Path journalDir,
+      @Value("${wallet.journal.fsync:false}") boolean fsync,
+      @Value("${wallet.journal.segment-size:64MB}") DataSize segmentSize,
+      @Value("${wallet.snapshot.enabled:true}") boolean snapshotEnabled,
+      @Value("${wallet.snapshot.dir:data/wallet/snapshot}") Path snapshotDir,
+      ObjectProvider<IdempotencyRecorder> idempotencyRecorder,
+      MeterRegistry meterRegistry) throws IOException {
+    BalanceEngine engine = new BalanceEngine(shards, queueCapacity, maxBatchSize, shard -> {
+      if (!journalEnabled) {
+        return Journal.NONE;
+      }
+      try {
+        return new MappedJournal(journalDir.resolve("shard-" + shard),
+            Math.toIntExact(segmentSize.toBytes()), fsync);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }, meterRegistry);
+    idempotencyRecorder.ifAvailable(engine::idempotencyRecorder);
+    engine.start(snapshotEnabled ? snapshotDir : null);
+    return engine;
+  }
+
+  @Bean(destroyMethod = "close")
+  @ConditionalOnProperty(name = "wallet.snapshot.enabled", havingValue = "true", matchIfMissing = true)
+  public EngineSnapshotter engineSnapshotter(
+      BalanceEngine engine,
+      @Value("${wallet.snapshot.dir:data/wallet/snapshot}") Path snapshotDir,
+      @Value("${wallet.snapshot.interval:5m}") Duration interval,
+      @Value("${wallet.snapshot.delete-journal:false}") boolean deleteJournal,
+      MeterRegistry meterRegistry) {
+    return new EngineSnapshotter(engine, snapshotDir, interval, deleteJournal, meterRegistry);
+  }
+}
@@ -0,0 +1,257 @@
+package wallet.consumer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import wallet.engine.BalanceEngine;
+import wallet.engine.Settlement;
+import wallet.exception.WalletException;
+import wallet.messaging.EventBroker;
+import wallet.messaging.EventRecord;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * 消費 {@code wallet.settlements}，把每筆事件交給 {@link BalanceEngine#settle}。
+ *
+ * <ul>
+ *   <li>每個 partition 一條執行緒，partition 內依序送出，不會有兩條執行緒處理同一個 partition。</li>
+ *   <li>每次 poll 的一批送出後不等待，繼續 poll 下一批；同一 partition 未完成的批次最多
+ *       {@code maxInFlightBatches} 個，超過時等最舊的一批完成。</li>
+ *   <li>批次依序完成（journal 寫入）後才 commit 該批之後的 offset；重啟後從 commit 處重新消費，
+ *       已處理的 settlementId 會被引擎視為重複而略過，因此是 at-least-once 消費、exactly-once 入帳。</li>
+ *   <li>單筆結算失敗而引擎仍在運作時記錄錯誤並略過（計入 {@code failed}），commit 越過它；
+ *       只有引擎停止（shard journal 寫入失敗）時 partition 才停止且不 commit，重啟後從上次 commit 處重新消費。</li>
+ * </ul>
+ *
+ * 指標：{@code wallet.consumer.lag{partition}}、{@code wallet.consumer.batch.latency}（poll 到 journal 寫入）、
+ * {@code wallet.consumer.records{result=applied|duplicate|invalid|failed}}（applied/failed 在結算完成時計數）、
+ * {@code wallet.consumer.stopped{partition}}（已停止的 partition 為 1）。
+ */
+@Slf4j
+public class SettlementConsumer implements AutoCloseable {
+
+  private static final String DUPLICATE_SETTLEMENT = "WALLET_DUPLICATE_SETTLEMENT";
+  private static final String SETTLEMENT_IN_PROGRESS = "WALLET_SETTLEMENT_IN_PROGRESS";
+
+  private final EventBroker broker;
+  private final String topic;
+  private final String group;
+  private final BalanceEngine engine;
+  private final Function<byte[], Settlement> decoder;
+  private final int maxBatchRecords;
+  private final int maxInFlightBatches;
+  private final Duration pollTimeout;
+
+  private final Timer batchLatency;
+  private final Counter applied;
+  private final Counter duplicates;
+  private final Counter invalid;
+  private final Counter failed;
+
+  private final Set<Integer> stoppedPartitions = ConcurrentHashMap.newKeySet();
+  private final List<Thread> workers = new ArrayList<>();
+  private volatile boolean running;
+
+  public SettlementConsumer(EventBroker broker, String topic, String group, BalanceEngine engine,
+      Function<byte[], Settlement> decoder, int maxBatchRecords, int maxInFlightBatches, Duration pollTimeout,
+      MeterRegistry meterRegistry) {
+    if (maxBatchRecords < 1 || maxInFlightBatches < 1) {
+      throw new IllegalArgumentException("maxBatchRecords and maxInFlightBatches must be positive");
+    }
+    this.broker = broker;
+    this.topic = topic;
+    this.group = group;
+    this.engine = engine;
+    this.decoder = decoder;
+    this.maxBatchRecords = maxBatchRecords;
+    this.maxInFlightBatches = maxInFlightBatches;
+    this.pollTimeout = pollTimeout;
+    this.batchLatency = Timer.builder("wallet.consumer.batch.latency")
+        .tag("topic", topic)
+        .publishPercentiles(0.5, 0.99)
+        .register(meterRegistry);
+    this.applied = records(meterRegistry, "applied");
+    this.duplicates = records(meterRegistry, "duplicate");
+    this.invalid = records(meterRegistry, "invalid");
+    this.failed = records(meterRegistry, "failed");
+    for (int partition = 0; partition < broker.partitions(topic); partition++) {
+      int p = partition;
+      Gauge.builder("wallet.consumer.lag", () -> broker.endOffset(topic, p) - broker.committed(group, topic, p))
+          .tag("topic", topic)
+          .tag("partition", Integer.toString(p))
+          .register(meterRegistry);
+      Gauge.builder("wallet.consumer.stopped", () -> stoppedPartitions.contains(p) ? 1 : 0)
+          .tag("topic", topic)
+          .tag("partition", Integer.toString(p))
+          .register(meterRegistry);
+    }
+  }
+
+  public String topic() {
+    return topic;
+  }
+
+  /** 因引擎停止而不再消費的 partition；重新 {@link #start()} 前不會恢復 */
+  public Set<Integer> stoppedPartitions() {
+    return Set.copyOf(stoppedPartitions);
+  }
+
+  public synchronized void start() {
+    if (running) {
+      return;
+    }
+    running = true;
+    stoppedPartitions.clear();
+    for (int partition = 0; partition < broker.partitions(topic); partition++) {
+      int p = partition;
+      Thread worker = new Thread(() -> consume(p), "wallet-settlement-consumer-" + p);
+      worker.setDaemon(true);
+      worker.start();
+      workers.add(worker);
+    }
+  }
+
+  @Override
+  public synchronized void close() throws InterruptedException {
+    running = false;
+    for (Thread worker : workers) {
+      worker.join(TimeUnit.SECONDS.toMillis(5));
+    }
+    workers.clear();
+  }
+
+  private void consume(int partition) {
+    long position = broker.committed(group, topic, partition);
+    Deque<Batch> inFlight = new ArrayDeque<>(maxInFlightBatches);
+    try {
+      while (running) {
+        commitCompleted(partition, inFlight);
+        if (inFlight.size() >= maxInFlightBatches) {
+          awaitOldest(inFlight);
+          continue;
+        }
+        List<EventRecord> records = broker.poll(topic, partition, position, maxBatchRecords, pollTimeout);
+        if (records.isEmpty()) {
+          continue;
+        }
+        long startNanos = System.nanoTime();
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>(records.size());
+        for (EventRecord record : records) {
+          CompletableFuture<Boolean> future = submit(record);
+          if (future != null) {
+            futures.add(future);
+          }
+        }
+        position = records.get(records.size() - 1).offset() + 1;
+        inFlight.addLast(new Batch(position, startNanos, futures,
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))));
+      }
+      // 停止前等已送出的批次完成，盡量把 offset commit 到最新
+      while (!inFlight.isEmpty()) {
+        awaitOldest(inFlight);
+        commitCompleted(partition, inFlight);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (RuntimeException e) {
+      // 引擎停止（journal 失敗）等無法繼續的情況：不 commit，重啟後從上次 commit 處重新消費
+      stoppedPartitions.add(partition);
+      log.error("settlement consumer for {}-{} stopped at offset {}", topic, partition, position, e);
+    }
+  }
+
+  /**
+   * 送出一筆；重複或格式錯誤的事件回傳 null（視為已處理）。
+   * 回傳的 future 不會失敗：結算完成或失敗後可以越過它 commit 時為 true，引擎已停止時為 false。
+   */
+  private CompletableFuture<Boolean> submit(EventRecord record) throws InterruptedException {
+    Settlement settlement;
+    try {
+      settlement = decoder.apply(record.value());
+    } catch (RuntimeException e) {
+      log.warn("skipping invalid settlement event {}-{}@{}: {}", record.topic(), record.partition(),
+          record.offset(), e.getMessage());
+      invalid.increment();
+      return null;
+    }
+    CompletableFuture<Integer> future;
+    try {
+      future = engine.settle(settlement);
+    } catch (WalletException e) {
+      // 處理中的重複事件：前一筆只會在完成、略過或 partition 停止後才被越過 commit
+      if (DUPLICATE_SETTLEMENT.equals(e.getCode()) || SETTLEMENT_IN_PROGRESS.equals(e.getCode())) {
+        duplicates.increment();
+        return null;
+      }
+      return skipUnlessStopped(record, settlement, e) ? null : CompletableFuture.completedFuture(false);
+    } catch (RuntimeException e) {
+      return skipUnlessStopped(record, settlement, e) ? null : CompletableFuture.completedFuture(false);
+    }
+    return future.handle((trades, error) -> {
+      if (error == null) {
+        applied.increment();
+        return true;
+      }
+      return skipUnlessStopped(record, settlement, error);
+    });
+  }
+
+  /** 引擎仍在運作時記錄並略過失敗的結算，回傳 true；引擎已停止時回傳 false，這一筆之後都不 commit */
+  private boolean skipUnlessStopped(EventRecord record, Settlement settlement, Throwable error) {
+    if (engine.stopped()) {
+      return false;
+    }
+    log.error("skipping failed settlement {} at {}-{}@{}", settlement.settlementId(), record.topic(),
+        record.partition(), record.offset(), error);
+    failed.increment();
+    return true;
+  }
+
+  /** 依序 commit 已完成的批次；引擎停止時丟出例外讓這個 partition 停止 */
+  private void commitCompleted(int partition, Deque<Batch> inFlight) {
+    while (!inFlight.isEmpty() && inFlight.peekFirst().done.isDone()) {
+      Batch batch = inFlight.peekFirst();
+      for (CompletableFuture<Boolean> future : batch.settlements) {
+        if (!future.join()) {
+          throw new IllegalStateException("wallet engine stopped");
+        }
+      }
+      inFlight.pollFirst();
+      broker.commit(group, topic, partition, batch.nextOffset);
+      batchLatency.record(System.nanoTime() - batch.startNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private void awaitOldest(Deque<Batch> inFlight) throws InterruptedException {
+    try {
+      inFlight.peekFirst().done.get(pollTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException | ExecutionException e) {
+      // 逾時則回到迴圈檢查 running；批次的 future 不會失敗
+    }
+  }
+
+  private Counter records(MeterRegistry registry, String result) {
+    return Counter.builder("wallet.consumer.records")
+        .tag("topic", topic)
+        .tag("result", result)
+        .register(registry);
+  }
+
+  private record Batch(long nextOffset, long startNanos, List<CompletableFuture<Boolean>> settlements,
+      CompletableFuture<Void> done) {
+  }
+}
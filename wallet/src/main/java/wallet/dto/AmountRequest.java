@@ -0,0 +1,7 @@
+package wallet.dto;
+
+/**
+ * deposit / withdraw / lock / unlock 的請求體。
+ */
+public record AmountRequest(String asset, String amount, String referenceId, String reason) {
+}
@@ -0,0 +1,18 @@
+package wallet.dto;
+
+import common.money.FixedPoint;
+import wallet.engine.BalanceView;
+
+import java.time.Instant;
+
+/**
+ * {@code GET /balances} 的一筆資產餘額。
+ */
+public record BalanceDetail(String asset, String available, String locked, String total, Instant updatedAt) {
+
+  public static BalanceDetail from(BalanceView view, int scale) {
+    return new BalanceDetail(view.asset(), FixedPoint.toString(view.available(), scale),
+        FixedPoint.toString(view.locked(), scale), FixedPoint.toString(view.total(), scale),
+        Instant.ofEpochMilli(view.updatedAtMillis()));
+  }
+}
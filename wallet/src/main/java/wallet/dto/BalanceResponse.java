@@ -0,0 +1,12 @@
+package wallet.dto;
+
+import common.money.FixedPoint;
+import wallet.engine.BalanceView;
+
+public record BalanceResponse(String asset, String available, String locked, String total) {
+
+  public static BalanceResponse from(BalanceView view, int scale) {
+    return new BalanceResponse(view.asset(), FixedPoint.toString(view.available(), scale),
+        FixedPoint.toString(view.locked(), scale), FixedPoint.toString(view.total(), scale));
+  }
+}
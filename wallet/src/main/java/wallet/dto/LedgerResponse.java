@@ -0,0 +1,18 @@
+package wallet.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+public record LedgerResponse(List<Item> items, String nextCursor) {
+
+  public record Item(
+      String entryId,
+      String asset,
+      String amount,
+      String lockedAmount,
+      String balanceAfter,
+      String reason,
+      String referenceId,
+      Instant createdAt) {
+  }
+}
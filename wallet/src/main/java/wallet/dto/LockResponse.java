@@ -0,0 +1,4 @@
+package wallet.dto;
+
+public record LockResponse(boolean locked, BalanceResponse balance) {
+}
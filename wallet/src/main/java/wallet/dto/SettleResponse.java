@@ -0,0 +1,4 @@
+package wallet.dto;
+
+public record SettleResponse(boolean settled, int processedTrades) {
+}
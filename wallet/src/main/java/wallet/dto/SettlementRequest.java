@@ -0,0 +1,25 @@
+package wallet.dto;
+
+import java.util.List;
+
+public record SettlementRequest(String settlementId, List<Trade> trades) {
+
+  /**
+   * {@code buyerOrderId}/{@code sellerOrderId}（選填）為下單鎖定時的 referenceId；
+   * {@code buyerOrderClosed}/{@code sellerOrderClosed} 為 true 時結算後解鎖該訂單剩餘的鎖定。
+   */
+  public record Trade(
+      String buyerId,
+      String sellerId,
+      String baseAsset,
+      String quoteAsset,
+      String price,
+      String quantity,
+      String fee,
+      String feeAsset,
+      String buyerOrderId,
+      String sellerOrderId,
+      Boolean buyerOrderClosed,
+      Boolean sellerOrderClosed) {
+  }
+}
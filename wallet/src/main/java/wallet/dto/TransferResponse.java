@@ -0,0 +1,7 @@
+package wallet.dto;
+
+/**
+ * deposit / withdraw 的回應。
+ */
+public record TransferResponse(String asset, String amount, BalanceResponse balance) {
+}
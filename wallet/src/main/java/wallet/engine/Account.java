@@ -0,0 +1,113 @@
+package wallet.engine;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 單一使用者的餘額與台帳索引（紀錄本身在 journal 中）。只會被所屬 shard 的執行緒存取，不需同步。
+ */
+final class Account {
+
+  final String userId;
+  final Map<String, Balance> balances = new HashMap<>(4);
+  LedgerIndex ledgerIndex = new LedgerIndex();
+  final Map<String, LedgerIndex> ledgerIndexByAsset = new HashMap<>(4);
+  /** 未結清的鎖定，key 為 referenceId（訂單）；剩餘量歸零即移除，大小只隨未結清的訂單數成長 */
+  final Map<String, Reservation> reservations = new HashMap<>();
+  /** 已撤回的鎖定（{@link BalanceEngine#LOCK_CANCEL}），之後同一 referenceId 的鎖定被拒絕 */
+  final Set<String> cancelledLocks = new HashSet<>();
+
+  Account(String userId) {
+    this.userId = userId;
+  }
+
+  Balance balance(String asset) {
+    return balances.computeIfAbsent(asset, Balance::new);
+  }
+
+  /** @param position 紀錄在 journal 中的位置，journal 不保留紀錄（-1）時不列入台帳 */
+  void record(LedgerEntry entry, long position) {
+    if (position >= 0) {
+      ledgerIndex.add(position, entry.createdAtMillis());
+      ledgerIndexByAsset.computeIfAbsent(entry.asset(), k -> new LedgerIndex())
+          .add(position, entry.createdAtMillis());
+    }
+    reserve(entry);
+  }
+
+  /** 移除 journal 已刪除的紀錄的索引 */
+  void dropLedgerBefore(long position) {
+    ledgerIndex.dropBefore(position);
+    for (LedgerIndex index : ledgerIndexByAsset.values()) {
+      index.dropBefore(position);
+    }
+  }
+
+  /** referenceId 對應的鎖定；不存在或資產不同時為 null */
+  Reservation reservation(String referenceId, String asset) {
+    Reservation reservation = referenceId != null ? reservations.get(referenceId) : null;
+    return reservation != null && reservation.asset.equals(asset) ? reservation : null;
+  }
+
+  /**
+   * 由異動更新鎖定保留表，執行與重播 journal 走同一段邏輯：
+   * 增加鎖定的紀錄建立或累加 referenceId 的保留，減少鎖定的紀錄只扣已存在的保留（結算的 settlementId 不會對到）；
+   * 金額為 0 的 {@link BalanceEngine#LOCK_CANCEL} 紀錄為撤回標記。
+   */
+  private void reserve(LedgerEntry entry) {
+    if (entry.referenceId() == null) {
+      return;
+    }
+    if (entry.lockedDelta() == 0) {
+      if (BalanceEngine.LOCK_CANCEL.equals(entry.reason())) {
+        cancelledLocks.add(entry.referenceId());
+      }
+      return;
+    }
+    if (entry.lockedDelta() > 0) {
+      reservations.computeIfAbsent(entry.referenceId(), k -> new Reservation(entry.asset())).remaining +=
+          entry.lockedDelta();
+      return;
+    }
+    Reservation reservation = reservation(entry.referenceId(), entry.asset());
+    if (reservation != null) {
+      reservation.remaining += entry.lockedDelta();
+      if (reservation.remaining <= 0) {
+        reservations.remove(entry.referenceId());
+      }
+    }
+  }
+
+  /** asset 為 null 時為全部資產的索引；沒有該資產的紀錄時為 null */
+  LedgerIndex ledgerIndex(String asset) {
+    return asset == null ? ledgerIndex : ledgerIndexByAsset.get(asset);
+  }
+
+  static final class Balance {
+
+    final String asset;
+    long available;
+    long locked;
+    long updatedAtMillis;
+
+    Balance(String asset) {
+      this.asset = asset;
+    }
+
+    BalanceView view() {
+      return new BalanceView(asset, available, locked, updatedAtMillis);
+    }
+  }
+
+  static final class Reservation {
+
+    final String asset;
+    long remaining;
+
+    Reservation(String asset) {
+      this.asset = asset;
+    }
+  }
+}
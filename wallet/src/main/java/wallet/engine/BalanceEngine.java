@@ -0,0 +1,541 @@
+package wallet.engine;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import wallet.exception.WalletException;
+import wallet.journal.Journal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * 記憶體內的餘額引擎。使用者依 userId 固定分配到一個 {@link Shard}，
+ * 同一使用者的所有指令由同一條執行緒依序執行，熱路徑上沒有鎖或資料庫交易。
+ *
+ * <p>結算會動到不同 shard 的使用者：每位使用者的部分（leg）送到各自的 shard 執行。
+ * 撮合結果已成立，leg 不會因餘額不足被拒絕（先扣鎖定、再扣可用，不足時計入
+ * {@code wallet.settlement.shortfall}），因此不需要跨 shard 的兩階段提交：每個 shard 記得自己已套用的
+ * settlementId，部分 shard 失敗時重送只補上缺少的 shard（見 {@link Shard#settle}）。
+ */
+@Slf4j
+public class BalanceEngine implements AutoCloseable {
+
+  static final String SETTLEMENT = "SETTLEMENT";
+  static final String ORDER_FILL = "ORDER_FILL";
+  static final String ORDER_RELEASE = "ORDER_RELEASE";
+  /** 一筆結算在一個 shard 的 leg 前後的標記，見 {@link Shard} */
+  static final String SETTLEMENT_BEGIN = "SETTLEMENT_BEGIN";
+  static final String SETTLEMENT_END = "SETTLEMENT_END";
+  /** 撤回逾時鎖定的解鎖原因，見 {@link #unlock} */
+  public static final String LOCK_CANCEL = "LOCK_CANCEL";
+  private static final LedgerPage EMPTY_PAGE = new LedgerPage(List.of(), null);
+
+  private final Shard[] shards;
+  private final int mask;
+  private final EngineMetrics metrics;
+  private final SettlementIdSet processedSettlements = new SettlementIdSet(1 << 16);
+  /** 已送出、尚未全部寫入 journal 的 settlementId */
+  private final Set<String> pendingSettlements = ConcurrentHashMap.newKeySet();
+  private IdempotencyRecorder idempotencyRecorder;
+
+  /**
+   * @param shardCount     2 的次方；重啟前後必須相同，使用者才會對應到同一個 journal
+   * @param journalFactory 依 shard 編號建立 journal
+   */
+  public BalanceEngine(int shardCount, int queueCapacity, int maxBatchSize,
+      IntFunction<Journal> journalFactory, MeterRegistry meterRegistry) {
+    if (Integer.bitCount(shardCount) != 1) {
+      throw new IllegalArgumentException("shardCount must be a power of two: " + shardCount);
+    }
+    this.metrics = new EngineMetrics(meterRegistry);
+    this.shards = new Shard[shardCount];
+    this.mask = shardCount - 1;
+    int shardBits = Integer.numberOfTrailingZeros(shardCount);
+    for (int i = 0; i < shardCount; i++) {
+      shards[i] = new Shard(i, shardBits, queueCapacity, maxBatchSize, journalFactory.apply(i), metrics);
+      if (meterRegistry != null) {
+        Gauge.builder("wallet.engine.queue.depth", shards[i], Shard::queueDepth)
+            .tag("shard", Integer.toString(i))
+            .register(meterRegistry);
+      }
+    }
+  }
+
+  /**
+   * 設定帶有 {@link IdempotencyMark} 的異動的接收者：寫入 journal 後與重播時呼叫，引擎快照時一併保存。
+   * 只能在 {@link #start} 之前呼叫。
+   */
+  public void idempotencyRecorder(IdempotencyRecorder recorder) {
+    this.idempotencyRecorder = recorder;
+    for (Shard shard : shards) {
+      shard.idempotencyRecorder(recorder);
+    }
+  }
+
+  /**
+   * 重播 journal 後啟動各 shard 執行緒。
+   */
+  public void start() throws IOException {
+    start(null);
+  }
+
+  /**
+   * 載入 {@code snapshotDir} 中的快照（見 {@link #snapshot}），journal 只重播快照之後的紀錄，再啟動各 shard 執行緒。
+   * 啟動時間與快照之後的紀錄數成正比，而不是全部的台帳。{@code snapshotDir} 為 null 或沒有快照時重播整個 journal。
+   */
+  public void start(Path snapshotDir) throws IOException {
+    long startNanos = System.nanoTime();
+    if (snapshotDir != null) {
+      byte[] settlements = EngineSnapshot.read(snapshotDir.resolve(EngineSnapshot.SETTLEMENTS_FILE));
+      if (settlements != null) {
+        EngineSnapshot.decodeSettlements(settlements, processedSettlements);
+      }
+    }
+    long replayed = 0;
+    // 重播到結束標記的結算與涉及的 shard 數
+    Map<String, Integer> replayedSettlements = new HashMap<>();
+    for (Shard shard : shards) {
+      replayed += shard.recover(snapshotDir != null ? EngineSnapshot.shardFile(snapshotDir, shard.index()) : null,
+          entry -> {
+            if (SETTLEMENT_END.equals(entry.reason())) {
+              replayedSettlements.put(entry.referenceId(), (int) entry.availableDelta());
+            } else if (SETTLEMENT.equals(entry.reason()) && entry.referenceId() != null) {
+              // 舊版 journal 的結算沒有標記
+              processedSettlements.add(entry.referenceId());
+            }
+            if (entry.idempotency() != null && idempotencyRecorder != null) {
+              idempotencyRecorder.journaled(entry);
+            }
+          });
+    }
+    // 每個涉及的 shard 都已套用（快照或重播）才算處理過，否則重送時補上缺少的 shard
+    for (Map.Entry<String, Integer> settlement : replayedSettlements.entrySet()) {
+      int settledShards = 0;
+      for (Shard shard : shards) {
+        if (shard.settled(settlement.getKey())) {
+          settledShards++;
+        }
+      }
+      if (settledShards >= settlement.getValue()) {
+        processedSettlements.add(settlement.getKey());
+      }
+    }
+    log.info("wallet engine recovered {} shards, {} journal entries replayed, in {} ms", shards.length, replayed,
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+    for (Shard shard : shards) {
+      shard.start();
+    }
+  }
+
+  /**
+   * 寫入快照到 {@code dir}，回傳快照中的帳戶數。
+   *
+   * <ul>
+   *   <li>每個 shard 在自己的執行緒、兩批指令之間把餘額與保留編碼成 byte[]（不做 I/O，各 shard 互不等待），
+   *       該批的 journal flush 後才交回；寫檔在呼叫端執行緒進行，不佔用 shard。</li>
+   *   <li>已處理的 settlementId 在所有 shard 擷取之後才複製，涵蓋各 shard 快照內已套用的結算；
+   *       先寫 settlementId 再寫各 shard，中途失敗時只會多記、不會少記。Idempotency-Key 同樣在擷取之後、
+   *       寫入各 shard 之前保存（{@link IdempotencyRecorder#snapshot}）。</li>
+   *   <li>{@code deleteJournal} 為 true 時，寫完後刪除已被快照涵蓋的 journal segment（這些台帳重啟後不再載入）。</li>
+   * </ul>
+   *
+   * 佇列滿時等待，因此應在非 event-loop 執行緒呼叫。
+   */
+  public int snapshot(Path dir, boolean deleteJournal) throws IOException, InterruptedException {
+    Files.createDirectories(dir);
+    List<CompletableFuture<EngineSnapshot.Capture>> captures = new ArrayList<>(shards.length);
+    for (Shard shard : shards) {
+      Command<EngineSnapshot.Capture> command = new Command<>(null, false, (s, ignored) -> s.capture());
+      shard.put(command);
+      captures.add(command.future);
+    }
+    List<EngineSnapshot.Capture> captured = new ArrayList<>(shards.length);
+    for (CompletableFuture<EngineSnapshot.Capture> capture : captures) {
+      captured.add(await(capture));
+    }
+
+    EngineSnapshot.write(dir.resolve(EngineSnapshot.SETTLEMENTS_FILE),
+        EngineSnapshot.encodeSettlements(processedSettlements));
+    if (idempotencyRecorder != null) {
+      idempotencyRecorder.snapshot();
+    }
+    int accounts = 0;
+    for (EngineSnapshot.Capture capture : captured) {
+      EngineSnapshot.write(EngineSnapshot.shardFile(dir, capture.shard()), capture.bytes());
+      accounts += capture.accounts();
+    }
+
+    if (deleteJournal) {
+      List<CompletableFuture<Integer>> deletions = new ArrayList<>(shards.length);
+      for (EngineSnapshot.Capture capture : captured) {
+        Command<Integer> command = new Command<>(null, false,
+            (s, ignored) -> s.deleteJournalBefore(capture.nextEntryId()));
+        shards[capture.shard()].put(command);
+        deletions.add(command.future);
+      }
+      for (CompletableFuture<Integer> deletion : deletions) {
+        await(deletion);
+      }
+    }
+    return accounts;
+  }
+
+  public CompletableFuture<BalanceView> deposit(String userId, String asset, long amount) {
+    return deposit(userId, asset, amount, null);
+  }
+
+  /** @param mark 請求的 Idempotency-Key，隨異動寫入 journal；可為 null */
+  public CompletableFuture<BalanceView> deposit(String userId, String asset, long amount, IdempotencyMark mark) {
+    return submit(userId, (shard, account) -> {
+      shard.apply(account, asset, amount, 0, "DEPOSIT", null, mark);
+      return account.balance(asset).view();
+    });
+  }
+
+  public CompletableFuture<BalanceView> withdraw(String userId, String asset, long amount) {
+    return withdraw(userId, asset, amount, null);
+  }
+
+  public CompletableFuture<BalanceView> withdraw(String userId, String asset, long amount, IdempotencyMark mark) {
+    return submit(userId, (shard, account) -> {
+      if (account.balance(asset).available < amount) {
+        throw WalletException.insufficientFunds(asset);
+      }
+      shard.apply(account, asset, -amount, 0, "WITHDRAW", null, mark);
+      return account.balance(asset).view();
+    });
+  }
+
+  public CompletableFuture<BalanceView> lock(String userId, String asset, long amount,
+      String referenceId, String reason) {
+    return lock(userId, asset, amount, referenceId, reason, null);
+  }
+
+  /**
+   * 鎖定並記在 {@code referenceId} 的保留上；同一個 referenceId 再次鎖定會累加，但資產必須相同。
+   * referenceId 已被 {@link #LOCK_CANCEL} 撤回時拒絕（409 {@code WALLET_LOCK_CANCELLED}）。
+   */
+  public CompletableFuture<BalanceView> lock(String userId, String asset, long amount,
+      String referenceId, String reason, IdempotencyMark mark) {
+    return submit(userId, (shard, account) -> {
+      Account.Reservation existing = referenceId != null ? account.reservations.get(referenceId) : null;
+      if (existing != null && !existing.asset.equals(asset)) {
+        throw WalletException.invalidParam("referenceId already locks " + existing.asset + ": " + referenceId);
+      }
+      if (referenceId != null && account.cancelledLocks.contains(referenceId)) {
+        throw WalletException.lockCancelled(referenceId);
+      }
+      if (account.balance(asset).available < amount) {
+        throw WalletException.insufficientFunds(asset);
+      }
+      shard.apply(account, asset, -amount, amount, reason != null ? reason : "ORDER_LOCK", referenceId, mark);
+      return account.balance(asset).view();
+    });
+  }
+
+  public CompletableFuture<UnlockResult> unlock(String userId, String asset, long amount,
+      String referenceId, String reason) {
+    return unlock(userId, asset, amount, referenceId, reason, null);
+  }
+
+  /**
+   * 解鎖 {@code referenceId} 剩餘的鎖定，最多 {@code amount}：撤單可能在部分成交或重送後才到，
+   * 超過剩餘量的部分忽略而不是報錯。以 referenceId 直接查保留表，不掃描使用者的其他鎖定；
+   * 已結清或不存在的 referenceId 不寫 journal，重複撤單只花一次查表。
+   *
+   * <p>原因為 {@link #LOCK_CANCEL} 時（呼叫端的鎖定逾時、委託已拒絕），沒有保留的 referenceId 寫入一筆
+   * 金額為 0 的紀錄作為撤回標記，之後才到的同一筆鎖定被拒絕，不會留下沒有訂單的鎖定。
+   * 標記只來自鎖定逾時，數量很少，隨快照與 journal 保存。
+   */
+  public CompletableFuture<UnlockResult> unlock(String userId, String asset, long amount,
+      String referenceId, String reason, IdempotencyMark mark) {
+    return submit(userId, (shard, account) -> {
+      Account.Reservation reservation = account.reservation(referenceId, asset);
+      long released = reservation == null ? 0
+          : Math.min(amount, Math.min(reservation.remaining, account.balance(asset).locked));
+      if (released > 0) {
+        shard.apply(account, asset, released, -released, reason != null ? reason : "ORDER_CANCEL", referenceId,
+            mark);
+      } else if (LOCK_CANCEL.equals(reason) && referenceId != null && reservation == null
+          && !account.cancelledLocks.contains(referenceId)) {
+        shard.apply(account, asset, 0, 0, LOCK_CANCEL, referenceId, mark);
+      }
+      return new UnlockResult(released, account.balance(asset).view());
+    });
+  }
+
+  /**
+   * 結算一批成交。成交拆成每位使用者的 leg 後依 shard 分組，每個 shard 只送一個指令、在同一批內套用，
+   * 並與同時段的其他指令共用一次 journal flush；所有 shard 的這一批都寫入 journal 後 future 才完成。
+   *
+   * <p>帶有訂單 id 的成交從該訂單的保留扣款（台帳為 {@code ORDER_FILL}），訂單結束時把剩餘的保留解鎖
+   * （{@code ORDER_RELEASE}，例如以優於限價的價格成交後多鎖的部分）；兩者都是對保留表的一次查表。
+   *
+   * <p>同一 settlementId 只處理一次（重啟後由 journal 重建）。所有 leg 都寫入 journal 後才記為已處理，
+   * 在那之前同一 id 回 {@code WALLET_SETTLEMENT_IN_PROGRESS}；部分 shard 失敗時不記錄，重送時已套用的 shard 略過、
+   * 只補上缺少的 shard；
+   * 記錄發生在最後一個 shard 完成這一批的執行緒上、處理下一批（含快照擷取）之前，快照中的 id 一定有對應的 leg。
+   * 佇列滿時等待而不是丟棄，因此應在非 event-loop 執行緒呼叫。
+   */
+  public CompletableFuture<Integer> settle(Settlement settlement) throws InterruptedException {
+    Map<String, List<Leg>> legsByUser = new LinkedHashMap<>();
+    for (Settlement.Trade trade : settlement.trades()) {
+      long notional = trade.notional();
+      long buyerFee = trade.feeAsset().equals(trade.baseAsset()) ? trade.fee() : 0;
+      long sellerFee = trade.feeAsset().equals(trade.quoteAsset()) ? trade.fee() : 0;
+      legs(legsByUser, trade.buyerId())
+          .add(new Leg(trade.quoteAsset(), -notional, trade.buyerOrderId(), trade.buyerOrderClosed()));
+      legs(legsByUser, trade.buyerId()).add(new Leg(trade.baseAsset(), trade.quantity() - buyerFee));
+      legs(legsByUser, trade.sellerId())
+          .add(new Leg(trade.baseAsset(), -trade.quantity(), trade.sellerOrderId(), trade.sellerOrderClosed()));
+      legs(legsByUser, trade.sellerId()).add(new Leg(trade.quoteAsset(), notional - sellerFee));
+    }
+
+    @SuppressWarnings("unchecked")
+    List<Map.Entry<String, List<Leg>>>[] legsByShard = new List[shards.length];
+    int shardCount = 0;
+    for (Map.Entry<String, List<Leg>> entry : legsByUser.entrySet()) {
+      int shard = shardFor(entry.getKey()).index();
+      if (legsByShard[shard] == null) {
+        legsByShard[shard] = new ArrayList<>();
+        shardCount++;
+      }
+      legsByShard[shard].add(entry);
+    }
+
+    String settlementId = settlement.settlementId();
+    if (!pendingSettlements.add(settlementId)) {
+      throw WalletException.settlementInProgress(settlementId);
+    }
+    if (processedSettlements.contains(settlementId)) {
+      pendingSettlements.remove(settlementId);
+      throw WalletException.duplicateSettlement(settlementId);
+    }
+    List<CompletableFuture<Void>> futures = new ArrayList<>(shardCount);
+    AtomicInteger remaining = new AtomicInteger(shardCount);
+    AtomicBoolean failed = new AtomicBoolean();
+    try {
+      putSettlement(settlement, legsByShard, shardCount, futures, remaining, failed);
+    } catch (InterruptedException | RuntimeException e) {
+      // 已送出的指令完成後才釋放 id；一個都沒送出時直接釋放
+      failed.set(true);
+      if (remaining.addAndGet(futures.size() - shardCount) == 0) {
+        pendingSettlements.remove(settlementId);
+      }
+      throw e;
+    }
+    if (shardCount == 0) {
+      processedSettlements.add(settlementId);
+      pendingSettlements.remove(settlementId);
+    }
+    int processedTrades = settlement.trades().size();
+    return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).thenApply(v -> processedTrades);
+  }
+
+  private void putSettlement(Settlement settlement, List<Map.Entry<String, List<Leg>>>[] legsByShard,
+      int shardCount, List<CompletableFuture<Void>> futures, AtomicInteger remaining, AtomicBoolean failed)
+      throws InterruptedException {
+    String settlementId = settlement.settlementId();
+    for (int i = 0; i < shards.length; i++) {
+      List<Map.Entry<String, List<Leg>>> users = legsByShard[i];
+      if (users == null) {
+        continue;
+      }
+      Map.Entry<String, List<Leg>> first = users.get(0);
+      Command<Void> command = new Command<>(null, false, (shard, ignored) -> {
+        shard.settle(settlementId, shardCount, first.getKey(), first.getValue().get(0).asset, () -> {
+          for (Map.Entry<String, List<Leg>> user : users) {
+            Account account = shard.account(user.getKey());
+            for (Leg leg : user.getValue()) {
+              applyLeg(shard, account, leg, settlementId);
+            }
+          }
+        });
+        return null;
+      });
+      // 在 shard 執行緒上、journal flush 之後執行；回傳的 future 接在記錄之後完成
+      CompletableFuture<Void> recorded = command.future.whenComplete((ignored, error) -> {
+        if (error != null) {
+          failed.set(true);
+        }
+        if (remaining.decrementAndGet() == 0) {
+          if (!failed.get()) {
+            processedSettlements.add(settlementId);
+          }
+          pendingSettlements.remove(settlementId);
+        }
+      });
+      shards[i].put(command);
+      futures.add(recorded);
+    }
+  }
+
+  public CompletableFuture<List<BalanceView>> balances(String userId, String asset) {
+    return read(userId, account -> {
+      List<BalanceView> views = new ArrayList<>(account.balances.size());
+      for (Account.Balance balance : account.balances.values()) {
+        if (asset == null || asset.equals(balance.asset)) {
+          views.add(balance.view());
+        }
+      }
+      return views;
+    }, Collections.emptyList());
+  }
+
+  /**
+   * 由新到舊列出台帳；{@code beforePosition} 為上一頁回傳的游標（不含）。
+   */
+  public CompletableFuture<LedgerPage> ledger(String userId, String asset, Long beforePosition, int limit) {
+    return ledger(userId, new LedgerQuery(asset, null, null, beforePosition, limit));
+  }
+
+  /**
+   * 由新到舊列出台帳。以 (使用者, 資產) 索引二分搜尋起訖位置，任何深度的一頁都是 O(log n + limit)；
+   * 這一頁的紀錄才從 journal 讀回。
+   */
+  public CompletableFuture<LedgerPage> ledger(String userId, LedgerQuery query) {
+    return submit(userId, true, (shard, account) -> {
+      LedgerIndex index = account != null ? account.ledgerIndex(query.asset()) : null;
+      if (index == null) {
+        return EMPTY_PAGE;
+      }
+      int high = index.size() - 1;
+      if (query.beforePosition() != null) {
+        high = Math.min(high, index.lastBeforePosition(query.beforePosition()));
+      }
+      if (query.toMillis() != null) {
+        high = Math.min(high, index.lastBeforeTime(query.toMillis()));
+      }
+      int low = query.fromMillis() != null ? index.firstAtOrAfterTime(query.fromMillis()) : 0;
+      int end = Math.max(low, high - query.limit() + 1);
+      if (high < end) {
+        return EMPTY_PAGE;
+      }
+      List<LedgerEntry> items = new ArrayList<>(high - end + 1);
+      for (int i = high; i >= end; i--) {
+        LedgerEntry entry = shard.ledgerEntry(index.position(i));
+        if (entry != null) {
+          items.add(entry);
+        }
+      }
+      Long next = end > low ? index.position(end) : null;
+      return new LedgerPage(items, next);
+    });
+  }
+
+  /** 任一 shard 已停止（journal 寫入失敗）時為 true；停止後只能重啟從 journal 恢復 */
+  public boolean stopped() {
+    for (Shard shard : shards) {
+      if (shard.failed()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public void close() throws Exception {
+    for (Shard shard : shards) {
+      shard.stop();
+    }
+  }
+
+  /**
+   * 入帳的 leg 記為 {@code SETTLEMENT}，referenceId 為 settlementId。
+   * 扣款的 leg 有訂單保留時記在訂單 id 上；沒有帶訂單 id 時從使用者的鎖定餘額扣。
+   */
+  private void applyLeg(Shard shard, Account account, Leg leg, String settlementId) {
+    if (leg.amount >= 0) {
+      shard.apply(account, leg.asset, leg.amount, 0, SETTLEMENT, settlementId);
+      return;
+    }
+    long debit = -leg.amount;
+    Account.Balance balance = account.balance(leg.asset);
+    Account.Reservation reservation = account.reservation(leg.orderId, leg.asset);
+    long lockable = Math.max(balance.locked, 0);
+    if (reservation != null) {
+      long fromLocked = Math.min(debit, Math.min(reservation.remaining, lockable));
+      shard.apply(account, leg.asset, -(debit - fromLocked), -fromLocked, ORDER_FILL, leg.orderId);
+    } else {
+      // 訂單的保留已結清時不能動用其他訂單的鎖定，只從可用扣
+      long fromLocked = leg.orderId == null ? Math.min(debit, lockable) : 0;
+      shard.apply(account, leg.asset, -(debit - fromLocked), -fromLocked, SETTLEMENT, settlementId);
+    }
+    if (balance.available < 0) {
+      metrics.shortfall();
+    }
+    if (leg.orderClosed) {
+      // 保留可能在上面扣完時已移除
+      Account.Reservation remaining = account.reservation(leg.orderId, leg.asset);
+      long released = remaining == null ? 0 : Math.min(remaining.remaining, Math.max(balance.locked, 0));
+      if (released > 0) {
+        shard.apply(account, leg.asset, released, -released, ORDER_RELEASE, leg.orderId);
+      }
+    }
+  }
+
+  /** 只由結算的 leg 寫入的原因 */
+  static boolean isSettlementLeg(String reason) {
+    return SETTLEMENT.equals(reason) || ORDER_FILL.equals(reason) || ORDER_RELEASE.equals(reason);
+  }
+
+  private static <R> R await(CompletableFuture<R> future) throws IOException {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      throw new IOException("wallet snapshot failed", e.getCause());
+    }
+  }
+
+  private <R> CompletableFuture<R> submit(String userId, Command.Operation<R> operation) {
+    return submit(userId, false, operation);
+  }
+
+  private <R> CompletableFuture<R> submit(String userId, boolean readOnly, Command.Operation<R> operation) {
+    Command<R> command = new Command<>(userId, readOnly, operation);
+    if (!shardFor(userId).offer(command)) {
+      throw WalletException.overloaded();
+    }
+    return command.future;
+  }
+
+  /**
+   * 讀取也經過 shard 佇列，看到的一定是該使用者一致的狀態；不存在的使用者不建立帳戶。
+   */
+  private <R> CompletableFuture<R> read(String userId, Function<Account, R> reader, R empty) {
+    return submit(userId, true, (shard, account) -> account != null ? reader.apply(account) : empty);
+  }
+
+  private Shard shardFor(String userId) {
+    int h = userId.hashCode();
+    return shards[(h ^ (h >>> 16)) & mask];
+  }
+
+  private static List<Leg> legs(Map<String, List<Leg>> legsByUser, String userId) {
+    return legsByUser.computeIfAbsent(userId, k -> new ArrayList<>(4));
+  }
+
+  private record Leg(String asset, long amount, String orderId, boolean orderClosed) {
+
+    Leg(String asset, long amount) {
+      this(asset, amount, null, false);
+    }
+  }
+}
@@ -0,0 +1,11 @@
+package wallet.engine;
+
+/**
+ * 某一時點的餘額（由 shard 執行緒複製出來，可在其他執行緒讀取）。
+ */
+public record BalanceView(String asset, long available, long locked, long updatedAtMillis) {
+
+  public long total() {
+    return available + locked;
+  }
+}
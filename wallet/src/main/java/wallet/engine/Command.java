@@ -0,0 +1,52 @@
+package wallet.engine;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 交給 shard 執行緒執行的指令。執行結果先保留，等這一批的 journal flush 後才完成 future。
+ */
+final class Command<R> {
+
+  @FunctionalInterface
+  interface Operation<R> {
+
+    R apply(Shard shard, Account account);
+  }
+
+  /** null 表示作用於整個 shard 的指令（例如結算），account 參數為 null */
+  final String userId;
+  /** 唯讀指令不會為不存在的使用者建立帳戶，account 可能為 null */
+  final boolean readOnly;
+  final CompletableFuture<R> future = new CompletableFuture<>();
+  private final Operation<R> operation;
+  private R result;
+  private RuntimeException error;
+
+  Command(String userId, boolean readOnly, Operation<R> operation) {
+    this.userId = userId;
+    this.readOnly = readOnly;
+    this.operation = operation;
+  }
+
+  void execute(Shard shard) {
+    try {
+      Account account = userId == null ? null
+          : readOnly ? shard.existingAccount(userId) : shard.account(userId);
+      result = operation.apply(shard, account);
+    } catch (RuntimeException e) {
+      error = e;
+    }
+  }
+
+  void complete() {
+    if (error != null) {
+      future.completeExceptionally(error);
+    } else {
+      future.complete(result);
+    }
+  }
+
+  void fail(Throwable cause) {
+    future.completeExceptionally(cause);
+  }
+}
@@ -0,0 +1,30 @@
+package wallet.engine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 指標：{@code wallet.engine.batch.size}（每次 journal flush 涵蓋的指令數）、
+ * {@code wallet.settlement.shortfall}（結算扣款超過使用者餘額的次數，需人工對帳）。
+ */
+final class EngineMetrics {
+
+  private final DistributionSummary batchSize;
+  private final Counter shortfall;
+
+  EngineMetrics(MeterRegistry registry) {
+    MeterRegistry meterRegistry = registry != null ? registry : new SimpleMeterRegistry();
+    this.batchSize = DistributionSummary.builder("wallet.engine.batch.size").register(meterRegistry);
+    this.shortfall = Counter.builder("wallet.settlement.shortfall").register(meterRegistry);
+  }
+
+  void batch(int size) {
+    batchSize.record(size);
+  }
+
+  void shortfall() {
+    shortfall.increment();
+  }
+}
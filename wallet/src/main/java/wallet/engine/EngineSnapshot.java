@@ -0,0 +1,212 @@
+package wallet.engine;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * 引擎快照的二進位格式。每個 shard 一個檔案（{@code shard-N.snapshot}），已處理的 settlementId 另存一檔
+ * （{@code settlements.snapshot}）。台帳只存每個資產的索引（journal 位置與時間），紀錄本身仍在 journal 中。
+ * <pre>
+ * shard:       magic version shard(int) shardBits(int) sequence(long) lastMillis(long) accountCount(int) account*
+ *              settledCount(int) [high low]* crc32c
+ * account:     userId balanceCount(int) [asset available locked updatedAtMillis]* reservationCount(int) [referenceId asset remaining]*
+ *              ledgerAssetCount(int) [asset count(int) [position createdAtMillis]*]*
+ *              cancelledLockCount(int) [referenceId]*
+ * settlements: magic version count(int) [high low]* crc32c
+ * </pre>
+ * 版本 1 的 shard 快照沒有台帳索引，仍可載入（台帳只有快照之後的紀錄）；版本 2 沒有撤回的鎖定；
+ * 版本 3 沒有這個 shard 已套用的結算（settled，與 settlements 同樣是指紋）。
+ * 字串以 {@link DataOutputStream#writeUTF} 編碼；檔案先寫暫存檔、force 後再替換，讀取時 crc 不符視為損毀。
+ */
+final class EngineSnapshot {
+
+  static final int SHARD_MAGIC = 0x57534E50; // "WSNP"
+  static final int SETTLEMENTS_MAGIC = 0x57534944; // "WSID"
+  static final int VERSION = 4;
+  static final int SETTLEMENTS_VERSION = 1;
+  static final String SETTLEMENTS_FILE = "settlements.snapshot";
+
+  private EngineSnapshot() {
+  }
+
+  /**
+   * shard 執行緒在兩批指令之間擷取的狀態。{@code nextEntryId} 之前的 journal 紀錄都已包含在快照中。
+   */
+  record Capture(int shard, byte[] bytes, int accounts, long nextEntryId) {
+  }
+
+  /** 從快照載入的 shard 狀態 */
+  record Loaded(Map<String, Account> accounts, long sequence, long lastMillis) {
+  }
+
+  static Path shardFile(Path dir, int shard) {
+    return dir.resolve("shard-" + shard + ".snapshot");
+  }
+
+  static byte[] encodeShard(int shard, int shardBits, long sequence, long lastMillis, Collection<Account> accounts,
+      SettlementIdSet settled) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + accounts.size() * 96);
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(SHARD_MAGIC);
+    out.writeInt(VERSION);
+    out.writeInt(shard);
+    out.writeInt(shardBits);
+    out.writeLong(sequence);
+    out.writeLong(lastMillis);
+    out.writeInt(accounts.size());
+    for (Account account : accounts) {
+      out.writeUTF(account.userId);
+      out.writeInt(account.balances.size());
+      for (Account.Balance balance : account.balances.values()) {
+        out.writeUTF(balance.asset);
+        out.writeLong(balance.available);
+        out.writeLong(balance.locked);
+        out.writeLong(balance.updatedAtMillis);
+      }
+      out.writeInt(account.reservations.size());
+      for (Map.Entry<String, Account.Reservation> reservation : account.reservations.entrySet()) {
+        out.writeUTF(reservation.getKey());
+        out.writeUTF(reservation.getValue().asset);
+        out.writeLong(reservation.getValue().remaining);
+      }
+      out.writeInt(account.ledgerIndexByAsset.size());
+      for (Map.Entry<String, LedgerIndex> index : account.ledgerIndexByAsset.entrySet()) {
+        out.writeUTF(index.getKey());
+        index.getValue().writeTo(out);
+      }
+      out.writeInt(account.cancelledLocks.size());
+      for (String referenceId : account.cancelledLocks) {
+        out.writeUTF(referenceId);
+      }
+    }
+    settled.writeTo(out);
+    return withChecksum(bytes);
+  }
+
+  /** 這個 shard 已套用的結算加入 {@code settled} */
+  static Loaded decodeShard(byte[] bytes, int shard, int shardBits, SettlementIdSet settled) throws IOException {
+    DataInputStream in = checkedInput(bytes, SHARD_MAGIC);
+    int version = in.readInt();
+    if (version < 1 || version > VERSION) {
+      throw new IOException("unsupported wallet snapshot version " + version);
+    }
+    if (in.readInt() != shard || in.readInt() != shardBits) {
+      throw new IOException("snapshot belongs to a different shard layout");
+    }
+    long sequence = in.readLong();
+    long lastMillis = in.readLong();
+    int accountCount = in.readInt();
+    Map<String, Account> accounts = new HashMap<>(Math.max(16, (int) (accountCount / 0.75f) + 1));
+    for (int i = 0; i < accountCount; i++) {
+      Account account = new Account(in.readUTF());
+      int balanceCount = in.readInt();
+      for (int b = 0; b < balanceCount; b++) {
+        Account.Balance balance = account.balance(in.readUTF());
+        balance.available = in.readLong();
+        balance.locked = in.readLong();
+        balance.updatedAtMillis = in.readLong();
+      }
+      int reservationCount = in.readInt();
+      for (int r = 0; r < reservationCount; r++) {
+        String referenceId = in.readUTF();
+        Account.Reservation reservation = new Account.Reservation(in.readUTF());
+        reservation.remaining = in.readLong();
+        account.reservations.put(referenceId, reservation);
+      }
+      if (version >= 2) {
+        int ledgerAssetCount = in.readInt();
+        for (int l = 0; l < ledgerAssetCount; l++) {
+          LedgerIndex index = new LedgerIndex();
+          account.ledgerIndexByAsset.put(in.readUTF(), index);
+          index.readFrom(in);
+        }
+        account.ledgerIndex = LedgerIndex.merge(account.ledgerIndexByAsset.values());
+      }
+      if (version >= 3) {
+        int cancelledCount = in.readInt();
+        for (int c = 0; c < cancelledCount; c++) {
+          account.cancelledLocks.add(in.readUTF());
+        }
+      }
+      accounts.put(account.userId, account);
+    }
+    if (version >= 4) {
+      settled.readFrom(in);
+    }
+    return new Loaded(accounts, sequence, lastMillis);
+  }
+
+  static byte[] encodeSettlements(SettlementIdSet settlements) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + settlements.size() * 16);
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(SETTLEMENTS_MAGIC);
+    out.writeInt(SETTLEMENTS_VERSION);
+    settlements.writeTo(out);
+    return withChecksum(bytes);
+  }
+
+  static void decodeSettlements(byte[] bytes, SettlementIdSet settlements) throws IOException {
+    DataInputStream in = checkedInput(bytes, SETTLEMENTS_MAGIC);
+    if (in.readInt() != SETTLEMENTS_VERSION) {
+      throw new IOException("unsupported wallet snapshot version");
+    }
+    settlements.readFrom(in);
+  }
+
+  /** 寫入暫存檔並 force 後替換，讀到的一定是完整的舊檔或新檔 */
+  static void write(Path file, byte[] bytes) throws IOException {
+    Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.wrap(bytes);
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(true);
+    }
+    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /** 檔案不存在時為 null */
+  static byte[] read(Path file) throws IOException {
+    return Files.exists(file) ? Files.readAllBytes(file) : null;
+  }
+
+  private static byte[] withChecksum(ByteArrayOutputStream bytes) throws IOException {
+    CRC32C crc = new CRC32C();
+    byte[] body = bytes.toByteArray();
+    crc.update(body);
+    new DataOutputStream(bytes).writeInt((int) crc.getValue());
+    return bytes.toByteArray();
+  }
+
+  /** 驗證 crc 與 magic，回傳的串流接在版本欄位之前 */
+  private static DataInputStream checkedInput(byte[] bytes, int magic) throws IOException {
+    if (bytes.length < 12) {
+      throw new IOException("truncated wallet snapshot");
+    }
+    CRC32C crc = new CRC32C();
+    crc.update(bytes, 0, bytes.length - 4);
+    if ((int) crc.getValue() != ByteBuffer.wrap(bytes, bytes.length - 4, 4).getInt()) {
+      throw new IOException("corrupted wallet snapshot");
+    }
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 4));
+    if (in.readInt() != magic) {
+      throw new IOException("not a wallet snapshot");
+    }
+    return in;
+  }
+}
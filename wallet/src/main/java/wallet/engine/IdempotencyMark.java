@@ -0,0 +1,8 @@
+package wallet.engine;
+
+/**
+ * 帶有 Idempotency-Key 的寫入請求的摘要（見 {@code wallet.idempotency.IdempotentExecutor}），隨異動寫入 journal，
+ * 重播時可以重建 key，崩潰後重送也不會再執行一次。
+ */
+public record IdempotencyMark(long keyHigh, long keyLow, long requestFingerprint) {
+}
@@ -0,0 +1,16 @@
+package wallet.engine;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 接收帶有 {@link IdempotencyMark} 的異動，與引擎的 journal 和快照保持一致（見 {@link BalanceEngine#idempotencyRecorder}）。
+ */
+public interface IdempotencyRecorder {
+
+  /** 異動寫入 journal（flush）後、或啟動重播時，在 shard 執行緒上呼叫 */
+  void journaled(LedgerEntry entry);
+
+  /** 引擎快照時，所有 shard 擷取之後、寫入 shard 快照與刪除 journal 之前呼叫 */
+  void snapshot() throws IOException;
+}
@@ -0,0 +1,26 @@
+package wallet.engine;
+
+/**
+ * 一筆餘額異動，同時是 journal 的紀錄與台帳的一列。
+ * {@code availableDelta}/{@code lockedDelta} 足以重播出餘額；{@code *After} 供台帳顯示。
+ * {@code idempotency} 只在帶有 Idempotency-Key 的請求所寫的紀錄上存在。
+ */
+public record LedgerEntry(
+    long entryId,
+    String userId,
+    String asset,
+    long availableDelta,
+    long lockedDelta,
+    long availableAfter,
+    long lockedAfter,
+    String reason,
+    String referenceId,
+    long createdAtMillis,
+    IdempotencyMark idempotency) {
+
+  public LedgerEntry(long entryId, String userId, String asset, long availableDelta, long lockedDelta,
+      long availableAfter, long lockedAfter, String reason, String referenceId, long createdAtMillis) {
+    this(entryId, userId, asset, availableDelta, lockedDelta, availableAfter, lockedAfter, reason, referenceId,
+        createdAtMillis, null);
+  }
+}
@@ -0,0 +1,115 @@
+package wallet.engine;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * 台帳的索引：依寫入順序記錄每筆異動在 journal 中的位置（見 {@link wallet.journal.Journal#append}）與時間，
+ * 兩者皆遞增，可以二分搜尋；紀錄本身不留在記憶體，查詢時才從 journal 讀回。
+ * 每位使用者有一個全部資產的索引與每個資產各一個索引，每筆 16 byte。
+ */
+final class LedgerIndex {
+
+  private long[] positions = new long[8];
+  private long[] createdAt = new long[8];
+  private int size;
+
+  void add(long position, long createdAtMillis) {
+    if (size == positions.length) {
+      int capacity = size * 2;
+      positions = Arrays.copyOf(positions, capacity);
+      createdAt = Arrays.copyOf(createdAt, capacity);
+    }
+    positions[size] = position;
+    createdAt[size] = createdAtMillis;
+    size++;
+  }
+
+  int size() {
+    return size;
+  }
+
+  long position(int i) {
+    return positions[i];
+  }
+
+  /** 位置小於 {@code position} 的最後一個索引，沒有則為 -1 */
+  int lastBeforePosition(long position) {
+    return lowerBound(positions, position) - 1;
+  }
+
+  /** createdAt 小於 {@code millis} 的最後一個索引，沒有則為 -1 */
+  int lastBeforeTime(long millis) {
+    return lowerBound(createdAt, millis) - 1;
+  }
+
+  /** createdAt 大於等於 {@code millis} 的第一個索引 */
+  int firstAtOrAfterTime(long millis) {
+    return lowerBound(createdAt, millis);
+  }
+
+  /** 移除位置小於 {@code position} 的項目（journal 已刪除的紀錄） */
+  void dropBefore(long position) {
+    int dropped = lowerBound(positions, position);
+    if (dropped > 0) {
+      System.arraycopy(positions, dropped, positions, 0, size - dropped);
+      System.arraycopy(createdAt, dropped, createdAt, 0, size - dropped);
+      size -= dropped;
+    }
+  }
+
+  void writeTo(DataOutput out) throws IOException {
+    out.writeInt(size);
+    for (int i = 0; i < size; i++) {
+      out.writeLong(positions[i]);
+      out.writeLong(createdAt[i]);
+    }
+  }
+
+  /** 接在 {@link #writeTo} 寫出的項目之後 */
+  void readFrom(DataInput in) throws IOException {
+    int count = in.readInt();
+    for (int i = 0; i < count; i++) {
+      add(in.readLong(), in.readLong());
+    }
+  }
+
+  /** 依位置合併各資產的索引（快照只存各資產的索引，載入時重建全部資產的索引） */
+  static LedgerIndex merge(Collection<LedgerIndex> indexes) {
+    LedgerIndex merged = new LedgerIndex();
+    LedgerIndex[] sources = indexes.toArray(LedgerIndex[]::new);
+    int[] next = new int[sources.length];
+    while (true) {
+      int min = -1;
+      for (int s = 0; s < sources.length; s++) {
+        if (next[s] < sources[s].size
+            && (min < 0 || sources[s].positions[next[s]] < sources[min].positions[next[min]])) {
+          min = s;
+        }
+      }
+      if (min < 0) {
+        return merged;
+      }
+      merged.add(sources[min].positions[next[min]], sources[min].createdAt[next[min]]);
+      next[min]++;
+    }
+  }
+
+  /** 第一個大於等於 key 的索引 */
+  private int lowerBound(long[] values, long key) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (values[mid] < key) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+}
@@ -0,0 +1,9 @@
+package wallet.engine;
+
+import java.util.List;
+
+/**
+ * 台帳的一頁（新到舊）。{@code nextPosition} 為下一頁的起點（journal 中的位置，不含），沒有下一頁時為 null。
+ */
+public record LedgerPage(List<LedgerEntry> items, Long nextPosition) {
+}
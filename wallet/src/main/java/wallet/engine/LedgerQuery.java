@@ -0,0 +1,14 @@
+package wallet.engine;
+
+/**
+ * 台帳查詢條件。{@code asset}、{@code fromMillis}（含）、{@code toMillis}（不含）、
+ * {@code beforePosition}（上一頁的游標，不含）皆可為 null。
+ */
+public record LedgerQuery(String asset, Long fromMillis, Long toMillis, Long beforePosition, int limit) {
+
+  public LedgerQuery {
+    if (limit < 1) {
+      throw new IllegalArgumentException("limit must be positive");
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package wallet.engine;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Collection;
+
+/**
+ * 有界、lock-free 的多生產者單消費者佇列（環狀陣列）。
+ *
+ * <p>生產者以 CAS 取得位置後寫入元素；消費者只有一條執行緒，讀到 null 表示該位置已被取得但尚未寫入，
+ * 稍候再讀。沒有鎖，也不會為每個元素配置節點。容量為 2 的次方。
+ */
+final class MpscQueue<E> {
+
+  private static final VarHandle PRODUCER_INDEX;
+  private static final VarHandle CONSUMER_INDEX;
+  private static final VarHandle ELEMENTS = MethodHandles.arrayElementVarHandle(Object[].class);
+
+  static {
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+      PRODUCER_INDEX = lookup.findVarHandle(MpscQueue.class, "producerIndex", long.class);
+      CONSUMER_INDEX = lookup.findVarHandle(MpscQueue.class, "consumerIndex", long.class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private final Object[] elements;
+  private final int mask;
+  private final int capacity;
+
+  @SuppressWarnings("unused")
+  private volatile long producerIndex;
+  @SuppressWarnings("unused")
+  private volatile long consumerIndex;
+
+  MpscQueue(int requestedCapacity) {
+    if (requestedCapacity < 2) {
+      throw new IllegalArgumentException("capacity must be at least 2: " + requestedCapacity);
+    }
+    int size = Integer.highestOneBit(requestedCapacity - 1) << 1;
+    this.elements = new Object[size];
+    this.mask = size - 1;
+    this.capacity = size;
+  }
+
+  /** 任何執行緒皆可呼叫；佇列滿時回傳 false */
+  boolean offer(E element) {
+    long index;
+    do {
+      index = (long) PRODUCER_INDEX.getVolatile(this);
+      if (index - (long) CONSUMER_INDEX.getVolatile(this) >= capacity) {
+        return false;
+      }
+    } while (!PRODUCER_INDEX.compareAndSet(this, index, index + 1));
+    ELEMENTS.setRelease(elements, (int) index & mask, element);
+    return true;
+  }
+
+  /** 只能由消費者執行緒呼叫；空佇列回傳 null */
+  @SuppressWarnings("unchecked")
+  E poll() {
+    long index = (long) CONSUMER_INDEX.getOpaque(this);
+    int offset = (int) index & mask;
+    Object element = ELEMENTS.getAcquire(elements, offset);
+    if (element == null) {
+      if (index == (long) PRODUCER_INDEX.getVolatile(this)) {
+        return null;
+      }
+      // 生產者已取得位置、尚未寫入
+      do {
+        Thread.onSpinWait();
+        element = ELEMENTS.getAcquire(elements, offset);
+      } while (element == null);
+    }
+    ELEMENTS.setOpaque(elements, offset, null);
+    CONSUMER_INDEX.setRelease(this, index + 1);
+    return (E) element;
+  }
+
+  /** 只能由消費者執行緒呼叫；最多取出 {@code limit} 個，回傳取出的個數 */
+  int drainTo(Collection<? super E> target, int limit) {
+    int drained = 0;
+    E element;
+    while (drained < limit && (element = poll()) != null) {
+      target.add(element);
+      drained++;
+    }
+    return drained;
+  }
+
+  boolean isEmpty() {
+    return (long) PRODUCER_INDEX.getVolatile(this) == (long) CONSUMER_INDEX.getVolatile(this);
+  }
+
+  /** 近似值，供監控 */
+  int size() {
+    long size = (long) PRODUCER_INDEX.getVolatile(this) - (long) CONSUMER_INDEX.getVolatile(this);
+    return (int) Math.max(0, Math.min(size, capacity));
+  }
+}
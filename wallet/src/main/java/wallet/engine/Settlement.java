@@ -0,0 +1,33 @@
+package wallet.engine;
+
+import java.util.List;
+
+/**
+ * 撮合後的結算。數量以 baseAsset、成交額與手續費以各自資產的小數位數表示（見 {@code common.money.FixedPoint}）。
+ */
+public record Settlement(String settlementId, List<Trade> trades) {
+
+  /**
+   * {@code buyerOrderId}/{@code sellerOrderId} 為下單時鎖定用的 referenceId，可為 null（從使用者的鎖定餘額扣款）；
+   * {@code *OrderClosed} 表示該訂單已全部成交或結束，結算後解鎖該訂單剩餘的鎖定。
+   */
+  public record Trade(
+      String buyerId,
+      String sellerId,
+      String baseAsset,
+      String quoteAsset,
+      long quantity,
+      long notional,
+      long fee,
+      String feeAsset,
+      String buyerOrderId,
+      String sellerOrderId,
+      boolean buyerOrderClosed,
+      boolean sellerOrderClosed) {
+
+    public Trade(String buyerId, String sellerId, String baseAsset, String quoteAsset, long quantity, long notional,
+        long fee, String feeAsset) {
+      this(buyerId, sellerId, baseAsset, quoteAsset, quantity, notional, fee, feeAsset, null, null, false, false);
+    }
+  }
+}
@@ -0,0 +1,130 @@
+package wallet.engine;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * 已處理的 settlementId。只保存 128 位元指紋（open addressing 的 long[]），每筆 16 byte，
+ * 不保留字串；啟動時由快照與 journal 中的結算紀錄重建。指紋碰撞的機率可忽略（約 n² / 2^129）。
+ *
+ * <p>多個呼叫端並行結算，方法皆同步；每次只做一次雜湊與少量探測。
+ */
+final class SettlementIdSet {
+
+  private static final float LOAD_FACTOR = 0.6f;
+
+  /** 每筆佔兩格：[2i] 高位、[2i+1] 低位；高位為 0 表示空格 */
+  private long[] table;
+  private int size;
+  private int resizeAt;
+
+  SettlementIdSet(int expected) {
+    int capacity = Integer.highestOneBit(Math.max(16, (int) (expected / LOAD_FACTOR)) - 1) << 1;
+    table = new long[capacity * 2];
+    resizeAt = (int) (capacity * LOAD_FACTOR);
+  }
+
+  /** 未出現過時加入並回傳 true */
+  synchronized boolean add(String settlementId) {
+    long high = hash(settlementId, 0x9E3779B97F4A7C15L) | 1L;
+    long low = hash(settlementId, 0xC2B2AE3D27D4EB4FL);
+    if (insert(table, high, low)) {
+      if (++size > resizeAt) {
+        resize();
+      }
+      return true;
+    }
+    return false;
+  }
+
+  synchronized boolean contains(String settlementId) {
+    long high = hash(settlementId, 0x9E3779B97F4A7C15L) | 1L;
+    long low = hash(settlementId, 0xC2B2AE3D27D4EB4FL);
+    int mask = (table.length >> 1) - 1;
+    int slot = (int) (low ^ (low >>> 32)) & mask;
+    while (true) {
+      long existing = table[slot << 1];
+      if (existing == 0) {
+        return false;
+      }
+      if (existing == high && table[(slot << 1) + 1] == low) {
+        return true;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  synchronized int size() {
+    return size;
+  }
+
+  /** 寫出筆數與每筆指紋（高位、低位） */
+  synchronized void writeTo(DataOutput out) throws IOException {
+    out.writeInt(size);
+    for (int i = 0; i < table.length; i += 2) {
+      if (table[i] != 0) {
+        out.writeLong(table[i]);
+        out.writeLong(table[i + 1]);
+      }
+    }
+  }
+
+  /** 加入 {@link #writeTo} 寫出的指紋 */
+  synchronized void readFrom(DataInput in) throws IOException {
+    int count = in.readInt();
+    for (int i = 0; i < count; i++) {
+      long high = in.readLong();
+      long low = in.readLong();
+      if (high == 0) {
+        throw new IOException("invalid settlement fingerprint");
+      }
+      if (insert(table, high, low) && ++size > resizeAt) {
+        resize();
+      }
+    }
+  }
+
+  private static boolean insert(long[] table, long high, long low) {
+    int mask = (table.length >> 1) - 1;
+    int slot = (int) (low ^ (low >>> 32)) & mask;
+    while (true) {
+      long existing = table[slot << 1];
+      if (existing == 0) {
+        table[slot << 1] = high;
+        table[(slot << 1) + 1] = low;
+        return true;
+      }
+      if (existing == high && table[(slot << 1) + 1] == low) {
+        return false;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  private void resize() {
+    long[] old = table;
+    long[] resized = new long[old.length * 2];
+    for (int i = 0; i < old.length; i += 2) {
+      if (old[i] != 0) {
+        insert(resized, old[i], old[i + 1]);
+      }
+    }
+    table = resized;
+    resizeAt = (int) ((resized.length >> 1) * LOAD_FACTOR);
+  }
+
+  /** 以不同種子對字元做 64 位元混合雜湊 */
+  private static long hash(String value, long seed) {
+    long h = seed ^ value.length();
+    for (int i = 0; i < value.length(); i++) {
+      h = (h ^ value.charAt(i)) * 0x100000001B3L;
+      h = Long.rotateLeft(h, 29) + seed;
+    }
+    h ^= h >>> 33;
+    h *= 0xFF51AFD7ED558CCDL;
+    h ^= h >>> 33;
+    h *= 0xC4CEB9FE1A85EC53L;
+    return h ^ (h >>> 33);
+  }
+}
@@ -0,0 +1,440 @@
+package wallet.engine;
+
+import lombok.extern.slf4j.Slf4j;
+import wallet.exception.WalletException;
+import wallet.journal.Journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * 單一寫入者：一條執行緒依序執行佇列中的指令，擁有所屬使用者的全部狀態，不需要鎖。
+ *
+ * <p>每次取出一批指令執行完後 flush journal 一次，再回覆這一批的請求（group commit）；
+ * journal 寫入失敗或結算的 leg 只套用了一部分時 shard 停止接受指令（記憶體狀態已與 journal 不一致）。
+ *
+ * <p>結算在這個 shard 的 leg 前後各寫一筆標記（{@code SETTLEMENT_BEGIN}/{@code SETTLEMENT_END}，
+ * referenceId 為 settlementId，不改變餘額、不列入台帳；availableDelta 記這筆結算涉及的 shard 數）。
+ * 重播時只套用有結束標記的一組，並記下這個 shard 已套用的 settlementId，重送時略過。
+ *
+ * <p>指令佇列為 lock-free 的 {@link MpscQueue}，送出指令的執行緒（例如 Netty event loop）不會被鎖擋住。
+ * 佇列空時先自旋一小段再 park，送出指令的一方發現 shard 已 park 才 unpark。
+ */
+@Slf4j
+final class Shard implements Runnable {
+
+  private final int index;
+  private final int shardBits;
+  private static final int IDLE_SPINS = 256;
+  private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+  private static final long PUT_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+  private final MpscQueue<Command<?>> queue;
+  private final int maxBatchSize;
+  private final Journal journal;
+  private final Map<String, Account> accounts = new HashMap<>();
+  private final List<Command<?>> batch;
+  /** 這一批中帶有 {@link IdempotencyMark} 的異動，flush 後交給 {@link #idempotencyRecorder} */
+  private final List<LedgerEntry> marked = new ArrayList<>();
+  private final EngineMetrics metrics;
+  private IdempotencyRecorder idempotencyRecorder;
+  /** 這個 shard 的 leg 已全部套用的 settlementId */
+  private final SettlementIdSet settled = new SettlementIdSet(1 << 12);
+
+  /** 重播中、還沒讀到結束標記的結算與它的 leg */
+  private String replaying;
+  private final List<LedgerEntry> replayingEntries = new ArrayList<>();
+  private final List<Long> replayingPositions = new ArrayList<>();
+
+  private long sequence;
+  /** 台帳時間在 shard 內不遞減（系統時間倒退時沿用上一筆），索引才能依時間二分搜尋 */
+  private long lastMillis;
+  private volatile boolean running = true;
+  private volatile Throwable failure;
+  /** shard 執行緒即將 park 或已 park */
+  private volatile boolean parked;
+  private volatile Thread thread;
+
+  Shard(int index, int shardBits, int queueCapacity, int maxBatchSize, Journal journal, EngineMetrics metrics) {
+    this.index = index;
+    this.shardBits = shardBits;
+    this.queue = new MpscQueue<>(queueCapacity);
+    this.maxBatchSize = maxBatchSize;
+    this.batch = new ArrayList<>(maxBatchSize);
+    this.journal = journal;
+    this.metrics = metrics;
+  }
+
+  /**
+   * 載入快照（{@code snapshotFile} 為 null 或不存在時略過），再重播快照之後的 journal 還原狀態；
+   * {@code listener} 依序收到重播的每一筆紀錄（例如重建已處理的 settlementId）。
+   * 快照含台帳索引，重播的紀錄接在其後；journal 已刪除的紀錄從索引移除。
+   *
+   * @return 重播的紀錄數
+   */
+  long recover(Path snapshotFile, Consumer<LedgerEntry> listener) throws IOException {
+    long startNanos = System.nanoTime();
+    byte[] snapshot = snapshotFile != null ? EngineSnapshot.read(snapshotFile) : null;
+    long fromEntryId = Long.MIN_VALUE;
+    int snapshotAccounts = 0;
+    if (snapshot != null) {
+      EngineSnapshot.Loaded loaded = EngineSnapshot.decodeShard(snapshot, index, shardBits, settled);
+      accounts.putAll(loaded.accounts());
+      sequence = loaded.sequence();
+      lastMillis = loaded.lastMillis();
+      fromEntryId = sequence << shardBits;
+      snapshotAccounts = accounts.size();
+    }
+    long[] replayed = new long[1];
+    journal.replayWithPosition(fromEntryId, (entry, position) -> {
+      replay(entry, position, listener);
+      replayed[0]++;
+    });
+    dropReplaying();
+    long firstPosition = journal.firstPosition();
+    for (Account account : accounts.values()) {
+      account.dropLedgerBefore(firstPosition);
+    }
+    log.info("wallet shard {} loaded {} accounts from snapshot and replayed {} journal entries in {} ms",
+        index, snapshotAccounts, replayed[0],
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+    return replayed[0];
+  }
+
+  int index() {
+    return index;
+  }
+
+  /** 這個 shard 的 leg 已全部套用；重播後、啟動前由引擎呼叫 */
+  boolean settled(String settlementId) {
+    return settled.contains(settlementId);
+  }
+
+  void start() {
+    thread = new Thread(this, "wallet-shard-" + index);
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /** 佇列滿時立即回傳 false，不阻塞 */
+  boolean offer(Command<?> command) {
+    checkHealthy();
+    if (!queue.offer(command)) {
+      return false;
+    }
+    wakeUp();
+    return true;
+  }
+
+  /** 佇列滿時等待（短暫 park 後重試），只能在可以阻塞的執行緒呼叫 */
+  void put(Command<?> command) throws InterruptedException {
+    while (!offer(command)) {
+      LockSupport.parkNanos(PUT_BACKOFF_NANOS);
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+    }
+  }
+
+  int queueDepth() {
+    return queue.size();
+  }
+
+  /** journal 寫入失敗或結算套用到一半失敗後為 true，之後的指令都會失敗 */
+  boolean failed() {
+    return failure != null;
+  }
+
+  @Override
+  public void run() {
+    int idle = 0;
+    while (running || !queue.isEmpty()) {
+      Command<?> first = queue.poll();
+      if (first == null) {
+        if (++idle < IDLE_SPINS) {
+          Thread.onSpinWait();
+        } else {
+          park();
+          idle = 0;
+        }
+        continue;
+      }
+      idle = 0;
+      batch.add(first);
+      queue.drainTo(batch, maxBatchSize - 1);
+      for (Command<?> command : batch) {
+        if (failure == null) {
+          command.execute(this);
+        } else {
+          command.fail(WalletException.internal("wallet shard " + index + " stopped"));
+        }
+      }
+      try {
+        journal.flush();
+        recordIdempotency();
+        for (Command<?> command : batch) {
+          command.complete();
+        }
+      } catch (IOException | UncheckedIOException e) {
+        // MappedByteBuffer.force 失敗時丟出 UncheckedIOException
+        log.error("wallet shard {} journal write failed, shard stopped", index, e);
+        failure = e;
+        WalletException error = WalletException.internal("journal write failed");
+        batch.forEach(command -> command.fail(error));
+      }
+      if (failure != null) {
+        running = false;
+        WalletException error = WalletException.internal("wallet shard " + index + " stopped");
+        for (Command<?> queued = queue.poll(); queued != null; queued = queue.poll()) {
+          queued.fail(error);
+        }
+      }
+      metrics.batch(batch.size());
+      batch.clear();
+      marked.clear();
+    }
+  }
+
+  /** 在回覆這一批與擷取快照之前記錄，快照涵蓋的異動其 key 一定也在 key 的快照中 */
+  private void recordIdempotency() {
+    for (LedgerEntry entry : marked) {
+      try {
+        idempotencyRecorder.journaled(entry);
+      } catch (RuntimeException e) {
+        log.warn("wallet shard {} failed to record idempotency key of entry {}", index, entry.entryId(), e);
+      }
+    }
+  }
+
+  void stop() throws InterruptedException {
+    running = false;
+    if (thread != null) {
+      LockSupport.unpark(thread);
+      thread.join(TimeUnit.SECONDS.toMillis(5));
+    }
+    // 執行緒仍在寫入時不關閉，交給程序結束
+    if (thread == null || !thread.isAlive()) {
+      try {
+        journal.close();
+      } catch (IOException e) {
+        log.warn("failed to close journal of wallet shard {}", index, e);
+      }
+    }
+  }
+
+  // ---- 以下只在 shard 執行緒（或啟動時的 recover）中呼叫 ----
+
+  Account account(String userId) {
+    return accounts.computeIfAbsent(userId, Account::new);
+  }
+
+  Account existingAccount(String userId) {
+    return accounts.get(userId);
+  }
+
+  /** 只能在 {@link #start()} 之前設定 */
+  void idempotencyRecorder(IdempotencyRecorder recorder) {
+    this.idempotencyRecorder = recorder;
+  }
+
+  LedgerEntry apply(Account account, String asset, long availableDelta, long lockedDelta,
+      String reason, String referenceId) {
+    return apply(account, asset, availableDelta, lockedDelta, reason, referenceId, null);
+  }
+
+  /**
+   * 套用一筆異動並寫入 journal；{@code mark} 不為 null 時，這一批 flush 後交給 {@link IdempotencyRecorder}。
+   */
+  LedgerEntry apply(Account account, String asset, long availableDelta, long lockedDelta,
+      String reason, String referenceId, IdempotencyMark mark) {
+    Account.Balance balance = account.balance(asset);
+    long available = Math.addExact(balance.available, availableDelta);
+    long locked = Math.addExact(balance.locked, lockedDelta);
+    long now = Math.max(System.currentTimeMillis(), lastMillis);
+    lastMillis = now;
+    LedgerEntry entry = new LedgerEntry((sequence++ << shardBits) | index, account.userId, asset,
+        availableDelta, lockedDelta, available, locked, reason, referenceId, now, mark);
+    long position;
+    try {
+      position = journal.append(entry);
+    } catch (IOException e) {
+      throw new IllegalStateException("journal append failed", e);
+    }
+    balance.available = available;
+    balance.locked = locked;
+    balance.updatedAtMillis = now;
+    account.record(entry, position);
+    if (mark != null && idempotencyRecorder != null) {
+      marked.add(entry);
+    }
+    return entry;
+  }
+
+  /**
+   * 套用一筆結算在這個 shard 的 leg（{@code legs}），前後寫入標記；這個 shard 已套用過同一 settlementId 時略過，
+   * 重送只補上其他 shard 缺少的部分。leg 套用到一半失敗時記憶體已與 journal 不一致，shard 停止，
+   * 重啟後重播捨棄沒有結束標記的這一組。
+   *
+   * @param userId     標記記在這個使用者與資產上（不改變餘額）
+   * @param shardCount 這筆結算涉及的 shard 數，重播時判斷是否每個 shard 都已套用
+   */
+  void settle(String settlementId, int shardCount, String userId, String asset, Runnable legs) {
+    if (settled.contains(settlementId)) {
+      return;
+    }
+    marker(userId, asset, BalanceEngine.SETTLEMENT_BEGIN, settlementId, shardCount);
+    try {
+      legs.run();
+      marker(userId, asset, BalanceEngine.SETTLEMENT_END, settlementId, shardCount);
+    } catch (RuntimeException e) {
+      log.error("wallet shard {} applied settlement {} partially, shard stopped", index, settlementId, e);
+      failure = e;
+      throw e;
+    }
+    settled.add(settlementId);
+  }
+
+  private void marker(String userId, String asset, String reason, String settlementId, int shardCount) {
+    long now = Math.max(System.currentTimeMillis(), lastMillis);
+    lastMillis = now;
+    LedgerEntry entry = new LedgerEntry((sequence++ << shardBits) | index, userId, asset, shardCount, 0, 0, 0,
+        reason, settlementId, now);
+    try {
+      journal.append(entry);
+    } catch (IOException e) {
+      throw new IllegalStateException("journal append failed", e);
+    }
+  }
+
+  /** 台帳索引中的一筆，從 journal 讀回；已刪除時為 null */
+  LedgerEntry ledgerEntry(long position) {
+    return journal.read(position);
+  }
+
+  /**
+   * 把目前的餘額與保留編碼成快照。只做記憶體內的編碼，由 shard 執行緒在兩批指令之間呼叫，寫檔交給呼叫端。
+   */
+  EngineSnapshot.Capture capture() {
+    try {
+      byte[] bytes = EngineSnapshot.encodeShard(index, shardBits, sequence, lastMillis, accounts.values(),
+          settled);
+      return new EngineSnapshot.Capture(index, bytes, accounts.size(), sequence << shardBits);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * 刪除已被快照涵蓋的 journal segment，台帳索引一併移除這些紀錄；
+   * journal 不是 thread-safe，須在 shard 執行緒呼叫
+   */
+  int deleteJournalBefore(long entryId) {
+    int deleted;
+    try {
+      deleted = journal.deleteBefore(entryId);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    if (deleted > 0) {
+      long firstPosition = journal.firstPosition();
+      for (Account account : accounts.values()) {
+        account.dropLedgerBefore(firstPosition);
+      }
+    }
+    return deleted;
+  }
+
+  /**
+   * 結算的 leg 先暫存，讀到同一 settlementId 的結束標記才套用；其他紀錄（或下一個開始標記）出現時，
+   * 暫存的是沒有寫完的一組，捨棄。{@code listener} 收到套用的非結算紀錄（含舊版沒有標記的結算）與結束標記。
+   */
+  private void replay(LedgerEntry entry, long position, Consumer<LedgerEntry> listener) {
+    String reason = entry.reason();
+    if (replaying != null) {
+      if (BalanceEngine.SETTLEMENT_END.equals(reason) && replaying.equals(entry.referenceId())) {
+        for (int i = 0; i < replayingEntries.size(); i++) {
+          restore(replayingEntries.get(i), replayingPositions.get(i));
+        }
+        settled.add(replaying);
+        replaying = null;
+        replayingEntries.clear();
+        replayingPositions.clear();
+        advance(entry);
+        listener.accept(entry);
+        return;
+      }
+      if (BalanceEngine.isSettlementLeg(reason)) {
+        replayingEntries.add(entry);
+        replayingPositions.add(position);
+        return;
+      }
+      dropReplaying();
+    }
+    if (BalanceEngine.SETTLEMENT_BEGIN.equals(reason)) {
+      replaying = entry.referenceId();
+      advance(entry);
+    } else if (BalanceEngine.SETTLEMENT_END.equals(reason)) {
+      advance(entry);
+    } else {
+      restore(entry, position);
+      listener.accept(entry);
+    }
+  }
+
+  private void dropReplaying() {
+    if (replaying == null) {
+      return;
+    }
+    log.warn("wallet shard {} dropped {} journal entries of incomplete settlement {}", index,
+        replayingEntries.size(), replaying);
+    replayingEntries.forEach(this::advance);
+    replaying = null;
+    replayingEntries.clear();
+    replayingPositions.clear();
+  }
+
+  private void restore(LedgerEntry entry, long position) {
+    Account account = account(entry.userId());
+    Account.Balance balance = account.balance(entry.asset());
+    balance.available += entry.availableDelta();
+    balance.locked += entry.lockedDelta();
+    balance.updatedAtMillis = entry.createdAtMillis();
+    account.record(entry, position);
+    advance(entry);
+  }
+
+  /** 捨棄或不改變餘額的紀錄仍佔用 entryId，之後的紀錄接在其後 */
+  private void advance(LedgerEntry entry) {
+    lastMillis = Math.max(lastMillis, entry.createdAtMillis());
+    sequence = Math.max(sequence, (entry.entryId() >>> shardBits) + 1);
+  }
+
+  /** parked 與佇列都是 volatile：shard 要嘛看到新指令，要嘛送出的一方看到 parked 而 unpark */
+  private void park() {
+    parked = true;
+    if (running && queue.isEmpty()) {
+      LockSupport.parkNanos(this, PARK_NANOS);
+    }
+    parked = false;
+  }
+
+  private void wakeUp() {
+    if (parked) {
+      LockSupport.unpark(thread);
+    }
+  }
+
+  private void checkHealthy() {
+    if (failure != null) {
+      throw WalletException.internal("wallet shard " + index + " stopped after a failed write");
+    }
+  }
+}
@@ -0,0 +1,7 @@
+package wallet.engine;
+
+/**
+ * {@code released} 為實際解鎖的金額，不超過當時的鎖定餘額。
+ */
+public record UnlockResult(long released, BalanceView balance) {
+}
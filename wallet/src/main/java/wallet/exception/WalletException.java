@@ -0,0 +1,73 @@
+package wallet.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+/**
+ * 對應 API 定義第 5 節錯誤碼的業務錯誤。
+ */
+@Getter
+public class WalletException extends RuntimeException {
+
+  private final HttpStatus status;
+  private final String code;
+
+  public WalletException(HttpStatus status, String code, String message) {
+    super(message);
+    this.status = status;
+    this.code = code;
+  }
+
+  public static WalletException unauthenticated(String message) {
+    return new WalletException(HttpStatus.UNAUTHORIZED, "AUTH_INVALID_TOKEN", message);
+  }
+
+  public static WalletException invalidParam(String message) {
+    return new WalletException(HttpStatus.BAD_REQUEST, "WALLET_INVALID_PARAM", message);
+  }
+
+  public static WalletException insufficientFunds(String asset) {
+    return new WalletException(HttpStatus.BAD_REQUEST, "WALLET_INSUFFICIENT_FUNDS",
+        "insufficient available balance: " + asset);
+  }
+
+  public static WalletException assetNotSupported(String asset) {
+    return new WalletException(HttpStatus.BAD_REQUEST, "WALLET_ASSET_NOT_SUPPORTED",
+        "asset not supported: " + asset);
+  }
+
+  public static WalletException duplicateSettlement(String settlementId) {
+    return new WalletException(HttpStatus.CONFLICT, "WALLET_DUPLICATE_SETTLEMENT",
+        "settlement already processed: " + settlementId);
+  }
+
+  /** 同一 settlementId 正在處理中（尚未全部寫入 journal），稍後重送會得到成功或重複 */
+  public static WalletException settlementInProgress(String settlementId) {
+    return new WalletException(HttpStatus.SERVICE_UNAVAILABLE, "WALLET_SETTLEMENT_IN_PROGRESS",
+        "settlement in progress: " + settlementId);
+  }
+
+  /** referenceId 的鎖定已被撤回（呼叫端逾時後送出 LOCK_CANCEL），不再接受 */
+  public static WalletException lockCancelled(String referenceId) {
+    return new WalletException(HttpStatus.CONFLICT, "WALLET_LOCK_CANCELLED", "lock cancelled: " + referenceId);
+  }
+
+  public static WalletException idempotencyConflict(String message) {
+    return new WalletException(HttpStatus.CONFLICT, "WALLET_IDEMPOTENCY_CONFLICT", message);
+  }
+
+  /** 同一 Idempotency-Key 的第一次請求仍在處理中，稍後重送會得到第一次的結果 */
+  public static WalletException idempotencyInProgress() {
+    return new WalletException(HttpStatus.CONFLICT, "WALLET_IDEMPOTENCY_IN_PROGRESS",
+        "request with this idempotency key is in progress");
+  }
+
+  public static WalletException overloaded() {
+    return new WalletException(HttpStatus.SERVICE_UNAVAILABLE, "WALLET_OVERLOADED",
+        "wallet engine queue is full");
+  }
+
+  public static WalletException internal(String message) {
+    return new WalletException(HttpStatus.INTERNAL_SERVER_ERROR, "WALLET_INTERNAL_ERROR", message);
+  }
+}
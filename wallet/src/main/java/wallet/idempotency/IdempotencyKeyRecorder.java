@@ -0,0 +1,59 @@
+package wallet.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import wallet.engine.IdempotencyMark;
+import wallet.engine.IdempotencyRecorder;
+import wallet.engine.LedgerEntry;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * 讓 {@link IdempotencyStore} 跟著引擎的 journal 與快照：帶有 key 的異動寫入 journal 後（回覆之前）即記為完成，
+ * 重播時由異動重建回應；key 的快照在引擎快照擷取之後寫入，與之後重播的 journal 銜接，崩潰不會遺失已執行的 key。
+ * 沒有寫 journal 的結果（4xx、沒有解鎖任何數量的 unlock、settle）仍只由快照保存，重送時再執行一次也不會重複異動。
+ */
+public class IdempotencyKeyRecorder implements IdempotencyRecorder {
+
+  private final IdempotencyStore store;
+  private final Path file;
+  private final Function<LedgerEntry, Object> responses;
+  private final ObjectMapper objectMapper;
+  private final LongSupplier clock;
+
+  /**
+   * @param file      key 的快照檔，為 null 時不保存（重播仍會重建快照之後的 key）
+   * @param responses 由異動重建當時的回應內容
+   */
+  public IdempotencyKeyRecorder(IdempotencyStore store, Path file, Function<LedgerEntry, Object> responses,
+      ObjectMapper objectMapper, LongSupplier clock) {
+    this.store = store;
+    this.file = file;
+    this.responses = responses;
+    this.objectMapper = objectMapper;
+    this.clock = clock;
+  }
+
+  @Override
+  public void journaled(LedgerEntry entry) {
+    IdempotencyMark mark = entry.idempotency();
+    byte[] body;
+    try {
+      body = objectMapper.writeValueAsBytes(responses.apply(entry));
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("failed to serialize idempotent response", e);
+    }
+    store.completeJournaled(mark.keyHigh(), mark.keyLow(), mark.requestFingerprint(), 200, body,
+        entry.createdAtMillis(), clock.getAsLong());
+  }
+
+  @Override
+  public void snapshot() throws IOException {
+    if (file != null) {
+      store.snapshot(file, clock.getAsLong());
+    }
+  }
+}
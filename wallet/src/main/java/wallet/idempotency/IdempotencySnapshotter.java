@@ -0,0 +1,61 @@
+package wallet.idempotency;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 定期清除 {@link IdempotencyStore} 的過期項目；有設定檔案時啟動載入快照、每次清除後寫入快照，關閉時再寫一次。
+ * 寫入 journal 的異動的 key 由引擎重播重建（{@link IdempotencyKeyRecorder}），兩次快照之間崩潰只會遺失
+ * 沒有異動的結果（例如 4xx），重試會再執行一次。
+ */
+@Slf4j
+public class IdempotencySnapshotter implements AutoCloseable {
+
+  private final IdempotencyStore store;
+  private final Path file;
+  private final ScheduledExecutorService scheduler;
+
+  /**
+   * @param file 為 null 時只清除過期項目，不保存
+   */
+  public IdempotencySnapshotter(IdempotencyStore store, Path file, Duration interval) throws IOException {
+    this.store = store;
+    this.file = file;
+    if (file != null) {
+      int restored = store.restore(file, System.currentTimeMillis());
+      log.info("restored {} idempotency keys from {}", restored, file);
+    }
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "wallet-idempotency-snapshot");
+      thread.setDaemon(true);
+      return thread;
+    });
+    long millis = interval.toMillis();
+    scheduler.scheduleWithFixedDelay(this::snapshot, millis, millis, TimeUnit.MILLISECONDS);
+  }
+
+  void snapshot() {
+    long now = System.currentTimeMillis();
+    try {
+      store.purgeExpired(now);
+      if (file != null) {
+        store.snapshot(file, now);
+      }
+    } catch (IOException | RuntimeException e) {
+      log.warn("failed to write idempotency snapshot {}", file, e);
+    }
+  }
+
+  @Override
+  public void close() throws InterruptedException {
+    scheduler.shutdown();
+    scheduler.awaitTermination(5, TimeUnit.SECONDS);
+    snapshot();
+  }
+}
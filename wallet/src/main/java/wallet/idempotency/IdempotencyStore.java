@@ -0,0 +1,401 @@
+package wallet.idempotency;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Idempotency-Key 的結果表。
+ *
+ * <p>key 以 128 位元摘要（{@code keyHigh}/{@code keyLow}）表示，存在分段的 open addressing 表中：
+ * 每格是幾個 long/int 欄位加上回應 byte[]，不建立 key 字串或 entry 物件。
+ * 每段各自加鎖，段內表格依需要倍增，總筆數上限為 {@code maxEntries}，
+ * 因此記憶體上限約為 {@code maxEntries × (48 + 回應大小) / 0.75} byte。
+ *
+ * <p>狀態：{@link #begin} 佔位（處理中）→ {@link #complete} 保存回應，或 {@link #abandon} 移除（下次可重試）。
+ * 過期的項目視為不存在，在表格擴充或 {@link #purgeExpired} 時清除。
+ */
+public class IdempotencyStore {
+
+  public enum Outcome {
+    /** 第一次出現，已佔位，呼叫端應執行請求並呼叫 complete 或 abandon */
+    PROCEED,
+    /** 已完成，回傳保存的回應 */
+    REPLAY,
+    /** 同一個 key 的請求內容不同 */
+    MISMATCH,
+    /** 同一個 key 的第一次請求仍在處理中 */
+    IN_PROGRESS,
+    /** 已達筆數上限 */
+    FULL
+  }
+
+  /** {@link #begin} 的結果；REPLAY 時帶有保存的狀態碼與內容 */
+  public record Lookup(Outcome outcome, int status, byte[] body) {
+
+    static final Lookup PROCEED = new Lookup(Outcome.PROCEED, 0, null);
+    static final Lookup MISMATCH = new Lookup(Outcome.MISMATCH, 0, null);
+    static final Lookup IN_PROGRESS = new Lookup(Outcome.IN_PROGRESS, 0, null);
+    static final Lookup FULL = new Lookup(Outcome.FULL, 0, null);
+  }
+
+  private static final int SNAPSHOT_MAGIC = 0x57494450; // "WIDP"
+  private static final int SNAPSHOT_VERSION = 1;
+  private static final int PENDING = -1;
+
+  private final Segment[] segments;
+  private final int segmentMask;
+  private final long ttlMillis;
+
+  /**
+   * @param maxEntries 保存的 key 上限（含處理中）
+   * @param ttlMillis  完成後保留的時間
+   * @param segments   2 的次方
+   */
+  public IdempotencyStore(int maxEntries, long ttlMillis, int segments) {
+    if (Integer.bitCount(segments) != 1) {
+      throw new IllegalArgumentException("segments must be a power of two: " + segments);
+    }
+    this.segments = new Segment[segments];
+    this.segmentMask = segments - 1;
+    this.ttlMillis = ttlMillis;
+    int perSegment = Math.max(1, (maxEntries + segments - 1) / segments);
+    for (int i = 0; i < segments; i++) {
+      this.segments[i] = new Segment(perSegment);
+    }
+  }
+
+  /**
+   * 查詢並在第一次出現時佔位。
+   *
+   * @param requestFingerprint 請求內容的摘要，用來判斷同一個 key 是否送了不同內容
+   * @param now                {@link System#currentTimeMillis()}
+   */
+  public Lookup begin(long keyHigh, long keyLow, long requestFingerprint, long now) {
+    return segment(keyLow).begin(keyHigh, keyLow, requestFingerprint, now, now + ttlMillis);
+  }
+
+  public void complete(long keyHigh, long keyLow, int status, byte[] body, long now) {
+    segment(keyLow).complete(keyHigh, keyLow, status, body, now + ttlMillis);
+  }
+
+  /**
+   * 記錄引擎 journal 中帶有 key 的異動（寫入後或重播時）：處理中的佔位改為完成，不存在時加入，已完成的不變。
+   * 到期時間由異動的時間起算，已過期的略過。
+   */
+  public void completeJournaled(long keyHigh, long keyLow, long requestFingerprint, int status, byte[] body,
+      long journaledAt, long now) {
+    long expires = journaledAt + ttlMillis;
+    if (expires > now) {
+      segment(keyLow).completeJournaled(keyHigh, keyLow, requestFingerprint, status, body, expires, now);
+    }
+  }
+
+  public void abandon(long keyHigh, long keyLow) {
+    segment(keyLow).remove(keyHigh, keyLow);
+  }
+
+  public int purgeExpired(long now) {
+    int purged = 0;
+    for (Segment segment : segments) {
+      purged += segment.purge(now);
+    }
+    return purged;
+  }
+
+  public int size() {
+    int size = 0;
+    for (Segment segment : segments) {
+      size += segment.size();
+    }
+    return size;
+  }
+
+  /**
+   * 以暫存檔寫入後替換的方式保存已完成且未過期的項目；處理中的項目不保存。
+   */
+  public int snapshot(Path file, long now) throws IOException {
+    Files.createDirectories(file.toAbsolutePath().getParent());
+    Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+    int written = 0;
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+      out.writeInt(SNAPSHOT_MAGIC);
+      out.writeInt(SNAPSHOT_VERSION);
+      for (Segment segment : segments) {
+        written += segment.writeTo(out, now);
+      }
+      // 結尾標記：keyHigh 為 0 的項目不存在（見 Segment）
+      out.writeLong(0);
+    }
+    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    return written;
+  }
+
+  /**
+   * 載入快照，略過已過期的項目；檔案不存在時不做任何事。
+   */
+  public int restore(Path file, long now) throws IOException {
+    if (!Files.exists(file)) {
+      return 0;
+    }
+    int restored = 0;
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+      if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+        throw new IOException("not an idempotency snapshot: " + file);
+      }
+      while (true) {
+        long keyHigh = in.readLong();
+        if (keyHigh == 0) {
+          break;
+        }
+        long keyLow = in.readLong();
+        long fingerprint = in.readLong();
+        long expiresAt = in.readLong();
+        int status = in.readInt();
+        byte[] body = new byte[in.readInt()];
+        in.readFully(body);
+        if (expiresAt > now && segment(keyLow).put(keyHigh, keyLow, fingerprint, expiresAt, status, body, now)) {
+          restored++;
+        }
+      }
+    }
+    return restored;
+  }
+
+  private Segment segment(long keyLow) {
+    return segments[(int) (keyLow >>> 58) & segmentMask];
+  }
+
+  /**
+   * 一段 open addressing（linear probing）表。keyHigh 為 0 表示空格（摘要的最低位元固定為 1）；
+   * 移除的格子保留為 tombstone（expiresAt = 0），擴充或清除時重建表格一併回收。
+   */
+  private static final class Segment {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int maxEntries;
+    private long[] keyHigh;
+    private long[] keyLow;
+    private long[] fingerprint;
+    private long[] expiresAt;
+    private int[] status;
+    private byte[][] body;
+    /** 未移除的項目數（含尚未清除的過期項目） */
+    private int size;
+    /** 非空格數（含 tombstone 與已過期） */
+    private int used;
+    /** 已滿且在此時間前不會有項目過期，期間直接回覆 FULL，不重複掃描 */
+    private long fullUntil;
+
+    Segment(int maxEntries) {
+      this.maxEntries = maxEntries;
+      allocate(INITIAL_CAPACITY);
+    }
+
+    synchronized Lookup begin(long high, long low, long requestFingerprint, long now, long expires) {
+      int slot = find(high, low);
+      if (slot >= 0 && expiresAt[slot] > now) {
+        if (fingerprint[slot] != requestFingerprint) {
+          return Lookup.MISMATCH;
+        }
+        if (status[slot] == PENDING) {
+          return Lookup.IN_PROGRESS;
+        }
+        return new Lookup(Outcome.REPLAY, status[slot], body[slot]);
+      }
+      return insert(high, low, requestFingerprint, expires, PENDING, null, now) ? Lookup.PROCEED : Lookup.FULL;
+    }
+
+    synchronized void complete(long high, long low, int responseStatus, byte[] responseBody, long expires) {
+      int slot = find(high, low);
+      if (slot >= 0 && status[slot] == PENDING) {
+        status[slot] = responseStatus;
+        body[slot] = responseBody;
+        expiresAt[slot] = expires;
+      }
+    }
+
+    synchronized void completeJournaled(long high, long low, long requestFingerprint, int responseStatus,
+        byte[] responseBody, long expires, long now) {
+      int slot = find(high, low);
+      if (slot >= 0 && expiresAt[slot] > now) {
+        if (status[slot] == PENDING && fingerprint[slot] == requestFingerprint) {
+          status[slot] = responseStatus;
+          body[slot] = responseBody;
+          expiresAt[slot] = expires;
+        }
+        return;
+      }
+      insert(high, low, requestFingerprint, expires, responseStatus, responseBody, now);
+    }
+
+    synchronized void remove(long high, long low) {
+      int slot = find(high, low);
+      if (slot >= 0 && expiresAt[slot] != 0) {
+        expiresAt[slot] = 0;
+        body[slot] = null;
+        size--;
+        fullUntil = 0;
+      }
+    }
+
+    synchronized boolean put(long high, long low, long requestFingerprint, long expires, int responseStatus,
+        byte[] responseBody, long now) {
+      int slot = find(high, low);
+      if (slot >= 0 && expiresAt[slot] > now) {
+        return false;
+      }
+      return insert(high, low, requestFingerprint, expires, responseStatus, responseBody, now);
+    }
+
+    synchronized int purge(long now) {
+      int before = size;
+      rebuild(keyHigh.length, now);
+      return before - size;
+    }
+
+    synchronized int size() {
+      return size;
+    }
+
+    synchronized int writeTo(DataOutputStream out, long now) throws IOException {
+      int written = 0;
+      for (int i = 0; i < keyHigh.length; i++) {
+        if (keyHigh[i] != 0 && expiresAt[i] > now && status[i] != PENDING) {
+          out.writeLong(keyHigh[i]);
+          out.writeLong(keyLow[i]);
+          out.writeLong(fingerprint[i]);
+          out.writeLong(expiresAt[i]);
+          out.writeInt(status[i]);
+          out.writeInt(body[i].length);
+          out.write(body[i]);
+          written++;
+        }
+      }
+      return written;
+    }
+
+    /** key 所在的格子（不論是否過期），不存在時為 -1 */
+    private int find(long high, long low) {
+      int mask = keyHigh.length - 1;
+      for (int slot = (int) low & mask; ; slot = (slot + 1) & mask) {
+        long existing = keyHigh[slot];
+        if (existing == 0) {
+          return -1;
+        }
+        if (existing == high && keyLow[slot] == low) {
+          return slot;
+        }
+      }
+    }
+
+    private boolean insert(long high, long low, long requestFingerprint, long expires, int responseStatus,
+        byte[] responseBody, long now) {
+      if (size >= maxEntries || used + 1 > keyHigh.length * 3 / 4) {
+        if (now < fullUntil) {
+          return false;
+        }
+        // 先清掉過期與 tombstone；存活的項目超過目前容量的一半時才擴充
+        int capacity = keyHigh.length;
+        if (countLive(now) + 1 > capacity * 3 / 8) {
+          capacity = Math.min(capacity * 2, tableSizeFor(maxEntries));
+        }
+        rebuild(capacity, now);
+        if (size >= maxEntries || used + 1 > keyHigh.length * 3 / 4) {
+          fullUntil = earliestExpiry();
+          return false;
+        }
+      }
+      int mask = keyHigh.length - 1;
+      int slot = (int) low & mask;
+      while (keyHigh[slot] != 0 && !(keyHigh[slot] == high && keyLow[slot] == low)) {
+        slot = (slot + 1) & mask;
+      }
+      if (keyHigh[slot] == 0) {
+        used++;
+        size++;
+      } else if (expiresAt[slot] == 0) {
+        // 重用同一個 key 的 tombstone；同一個 key 已過期的項目原本就計入 size
+        size++;
+      }
+      keyHigh[slot] = high;
+      keyLow[slot] = low;
+      fingerprint[slot] = requestFingerprint;
+      expiresAt[slot] = expires;
+      status[slot] = responseStatus;
+      body[slot] = responseBody;
+      return true;
+    }
+
+    private long earliestExpiry() {
+      long earliest = Long.MAX_VALUE;
+      for (int i = 0; i < keyHigh.length; i++) {
+        if (keyHigh[i] != 0 && expiresAt[i] != 0) {
+          earliest = Math.min(earliest, expiresAt[i]);
+        }
+      }
+      return earliest;
+    }
+
+    private int countLive(long now) {
+      int live = 0;
+      for (int i = 0; i < keyHigh.length; i++) {
+        if (keyHigh[i] != 0 && expiresAt[i] > now) {
+          live++;
+        }
+      }
+      return live;
+    }
+
+    private void rebuild(int capacity, long now) {
+      long[] oldHigh = keyHigh;
+      long[] oldLow = keyLow;
+      long[] oldFingerprint = fingerprint;
+      long[] oldExpires = expiresAt;
+      int[] oldStatus = status;
+      byte[][] oldBody = body;
+      allocate(capacity);
+      fullUntil = 0;
+      for (int i = 0; i < oldHigh.length; i++) {
+        if (oldHigh[i] != 0 && oldExpires[i] > now) {
+          int mask = keyHigh.length - 1;
+          int slot = (int) oldLow[i] & mask;
+          while (keyHigh[slot] != 0) {
+            slot = (slot + 1) & mask;
+          }
+          keyHigh[slot] = oldHigh[i];
+          keyLow[slot] = oldLow[i];
+          fingerprint[slot] = oldFingerprint[i];
+          expiresAt[slot] = oldExpires[i];
+          status[slot] = oldStatus[i];
+          body[slot] = oldBody[i];
+          used++;
+          size++;
+        }
+      }
+    }
+
+    private void allocate(int capacity) {
+      keyHigh = new long[capacity];
+      keyLow = new long[capacity];
+      fingerprint = new long[capacity];
+      expiresAt = new long[capacity];
+      status = new int[capacity];
+      body = new byte[capacity][];
+      size = 0;
+      used = 0;
+    }
+
+    /** 容納 maxEntries 筆（負載 0.75）所需的 2 的次方格數 */
+    private static int tableSizeFor(int maxEntries) {
+      int needed = (int) Math.min(1 << 30, (long) maxEntries * 4 / 3 + 1);
+      return Math.max(INITIAL_CAPACITY, Integer.highestOneBit(needed - 1) << 1);
+    }
+  }
+}
@@ -0,0 +1,185 @@
+package wallet.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import wallet.engine.IdempotencyMark;
+import wallet.exception.WalletException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 依 {@code Idempotency-Key} 執行寫入請求。
+ *
+ * <ul>
+ *   <li>key 以 SHA-256(userId, 操作, key) 的 128 位元存入 {@link IdempotencyStore}，請求內容以 SHA-256 的前 64 位元比對。</li>
+ *   <li>重送相同內容時直接回傳保存的狀態碼與內容（加上 {@code Idempotent-Replayed: true}），不經過引擎。</li>
+ *   <li>同一個 key 送出不同內容時回 409 {@code WALLET_IDEMPOTENCY_CONFLICT}，第一次請求仍在處理中時回 409
+ *   {@code WALLET_IDEMPOTENCY_IN_PROGRESS}（可以重送）。</li>
+ *   <li>成功與 4xx 業務錯誤會保存；5xx 與非預期錯誤不保存，之後可用同一個 key 重試。</li>
+ *   <li>客戶端中途斷線時請求仍會執行完並保存結果，重試得到相同回應而不會重複入帳。</li>
+ *   <li>key 的摘要以 {@link IdempotencyMark} 放進訂閱的 context，由引擎隨異動寫入 journal；
+ *       崩潰後由重播重建（{@link IdempotencyKeyRecorder}），不依賴定期快照。</li>
+ * </ul>
+ *
+ * 沒有帶 key 的請求直接執行。指標：{@code wallet.idempotency.keys}、{@code wallet.idempotency.requests{outcome}}。
+ */
+public class IdempotentExecutor {
+
+  public static final String KEY_HEADER = "Idempotency-Key";
+  public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+  static final int MAX_KEY_LENGTH = 255;
+
+  private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  });
+
+  private final IdempotencyStore store;
+  private final ObjectMapper objectMapper;
+  private final LongSupplier clock;
+
+  private final Counter executed;
+  private final Counter replayed;
+  private final Counter conflicts;
+  private final Counter rejected;
+
+  /**
+   * @param store 為 null 時停用，所有請求直接執行
+   */
+  public IdempotentExecutor(IdempotencyStore store, ObjectMapper objectMapper, LongSupplier clock,
+      MeterRegistry meterRegistry) {
+    this.store = store;
+    this.objectMapper = objectMapper;
+    this.clock = clock;
+    if (store != null) {
+      Gauge.builder("wallet.idempotency.keys", store, IdempotencyStore::size).register(meterRegistry);
+    }
+    this.executed = requests(meterRegistry, "executed");
+    this.replayed = requests(meterRegistry, "replayed");
+    this.conflicts = requests(meterRegistry, "conflict");
+    this.rejected = requests(meterRegistry, "full");
+  }
+
+  /**
+   * @param userId    key 的命名空間，不同使用者可以使用相同的 key
+   * @param operation 端點名稱，同一個 key 不能跨端點重用
+   * @param key       {@code Idempotency-Key}，null 或空白表示不使用
+   * @param body      原始請求內容，用來判斷重送的內容是否相同
+   * @param action    實際執行的請求，回傳值序列化為 200 的回應
+   * @param errorBody 業務錯誤的回應內容
+   */
+  public Mono<ServerResponse> execute(String userId, String operation, String key, String body,
+      Supplier<Mono<?>> action, Function<WalletException, Object> errorBody) {
+    if (store == null || key == null || key.isBlank()) {
+      return Mono.defer(action).flatMap(result -> response(HttpStatusCode.valueOf(200), serialize(result), false));
+    }
+    if (key.length() > MAX_KEY_LENGTH) {
+      return Mono.error(WalletException.invalidParam(KEY_HEADER + " must be at most " + MAX_KEY_LENGTH + " characters"));
+    }
+    byte[] keyDigest = digest(userId + '\0' + operation + '\0' + key);
+    long keyHigh = keyHigh(keyDigest);
+    long keyLow = keyLow(keyDigest);
+    long fingerprint = readLong(digest(body == null ? "" : body), 0);
+
+    IdempotencyStore.Lookup lookup = store.begin(keyHigh, keyLow, fingerprint, clock.getAsLong());
+    switch (lookup.outcome()) {
+      case REPLAY -> {
+        replayed.increment();
+        return response(HttpStatusCode.valueOf(lookup.status()), lookup.body(), true);
+      }
+      case MISMATCH -> {
+        conflicts.increment();
+        return Mono.error(WalletException.idempotencyConflict("idempotency key reused with a different request"));
+      }
+      case IN_PROGRESS -> {
+        conflicts.increment();
+        return Mono.error(WalletException.idempotencyInProgress());
+      }
+      case FULL -> {
+        rejected.increment();
+        return Mono.error(WalletException.overloaded());
+      }
+      default -> executed.increment();
+    }
+
+    // 先訂閱成 future，客戶端取消時不會中斷請求，結果照樣保存
+    CompletableFuture<Saved> result = Mono.defer(action)
+        .contextWrite(Context.of(IdempotencyMark.class, new IdempotencyMark(keyHigh, keyLow, fingerprint)))
+        .map(value -> save(keyHigh, keyLow, HttpStatusCode.valueOf(200), serialize(value)))
+        .onErrorResume(WalletException.class, e -> e.getStatus().is4xxClientError()
+            ? Mono.just(save(keyHigh, keyLow, e.getStatus(), serialize(errorBody.apply(e))))
+            : Mono.error(e))
+        .doOnError(e -> store.abandon(keyHigh, keyLow))
+        .toFuture();
+    return Mono.fromFuture(result, true).flatMap(saved -> response(saved.status(), saved.body(), false));
+  }
+
+  private record Saved(HttpStatusCode status, byte[] body) {
+  }
+
+  private Saved save(long keyHigh, long keyLow, HttpStatusCode status, byte[] body) {
+    store.complete(keyHigh, keyLow, status.value(), body, clock.getAsLong());
+    return new Saved(status, body);
+  }
+
+  private static Mono<ServerResponse> response(HttpStatusCode status, byte[] body, boolean replay) {
+    ServerResponse.BodyBuilder builder = ServerResponse.status(status).contentType(MediaType.APPLICATION_JSON);
+    if (replay) {
+      builder.header(REPLAYED_HEADER, "true");
+    }
+    return builder.bodyValue(body);
+  }
+
+  private byte[] serialize(Object value) {
+    try {
+      return objectMapper.writeValueAsBytes(value);
+    } catch (JsonProcessingException e) {
+      throw WalletException.internal("failed to serialize response");
+    }
+  }
+
+  private Counter requests(MeterRegistry registry, String outcome) {
+    return Counter.builder("wallet.idempotency.requests")
+        .tag("outcome", outcome)
+        .register(registry);
+  }
+
+  static byte[] digest(String value) {
+    return SHA_256.get().digest(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** 最低位元固定為 1，0 保留給 {@link IdempotencyStore} 的空格 */
+  static long keyHigh(byte[] digest) {
+    return readLong(digest, 0) | 1L;
+  }
+
+  static long keyLow(byte[] digest) {
+    return readLong(digest, 8);
+  }
+
+  private static long readLong(byte[] bytes, int offset) {
+    long value = 0;
+    for (int i = 0; i < 8; i++) {
+      value = (value << 8) | (bytes[offset + i] & 0xFF);
+    }
+    return value;
+  }
+}
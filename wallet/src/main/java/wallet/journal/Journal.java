@@ -0,0 +1,75 @@
+package wallet.journal;
+
+import wallet.engine.LedgerEntry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * 餘額異動的 append-only journal。每個 shard 各有一個，只由該 shard 的執行緒寫入與讀取。
+ * 台帳不另外保存：索引只記每筆紀錄在 journal 中的位置，查詢時以 {@link #read} 讀回。
+ */
+public interface Journal extends Closeable {
+
+  /** 寫入緩衝區，{@link #flush()} 之後才算持久化；回傳紀錄的位置（遞增），不保留紀錄時為 -1 */
+  long append(LedgerEntry entry) throws IOException;
+
+  /** shard 處理完一批指令後呼叫一次，之後才回覆這一批的請求 */
+  void flush() throws IOException;
+
+  /** 依寫入順序重播所有紀錄 */
+  void replay(Consumer<LedgerEntry> consumer) throws IOException;
+
+  /** 只重播 entryId 不小於 {@code fromEntryId} 的紀錄（快照之後的部分） */
+  default void replay(long fromEntryId, Consumer<LedgerEntry> consumer) throws IOException {
+    replayWithPosition(fromEntryId, (entry, position) -> consumer.accept(entry));
+  }
+
+  /** 同 {@link #replay(long, Consumer)}，連同 {@link #append} 會回傳的位置 */
+  default void replayWithPosition(long fromEntryId, ObjLongConsumer<LedgerEntry> consumer) throws IOException {
+    replay(entry -> {
+      if (entry.entryId() >= fromEntryId) {
+        consumer.accept(entry, -1);
+      }
+    });
+  }
+
+  /** 讀回 {@code position} 上的紀錄；不保留紀錄或已刪除時為 null */
+  default LedgerEntry read(long position) {
+    return null;
+  }
+
+  /** 仍保留的最舊紀錄的位置，小於此值的位置已不能讀取 */
+  default long firstPosition() {
+    return 0;
+  }
+
+  /**
+   * 刪除 entryId 都小於 {@code entryId} 的舊紀錄（可以只刪到整段為止），回傳刪除的 segment 數。
+   * 只能在這些紀錄已被快照涵蓋後呼叫。
+   */
+  default int deleteBefore(long entryId) throws IOException {
+    return 0;
+  }
+
+  Journal NONE = new Journal() {
+    @Override
+    public long append(LedgerEntry entry) {
+      return -1;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void replay(Consumer<LedgerEntry> consumer) {
+    }
+
+    @Override
+    public void close() {
+    }
+  };
+}
@@ -0,0 +1,155 @@
+package wallet.journal;
+
+import common.journal.FsyncPolicy;
+import common.journal.MappedLog;
+import common.journal.RecordCodec;
+import wallet.engine.IdempotencyMark;
+import wallet.engine.LedgerEntry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * 分段、memory-mapped 的 append-only journal，檔案格式見 {@link MappedLog}（segment 的 magic 為 "WJNL"），
+ * payload 為 entryId 之後依序的 createdAt、四個餘額欄位與四個字串，帶有 Idempotency-Key 的紀錄再接
+ * keyHigh、keyLow、requestFingerprint 三個 long（由紀錄長度判斷）。
+ *
+ * <p>寫入映射區後即在 OS page cache 中，程序崩潰不會遺失；{@code fsync=true} 時 {@link #flush()}
+ * 對這一批寫入的範圍 force 一次（group commit），主機斷電也不遺失。
+ * 只由所屬 shard 的執行緒呼叫，不是 thread-safe。
+ */
+public class MappedJournal implements Journal {
+
+  static final int MAGIC = 0x574A4E4C; // "WJNL"
+  static final int HEADER_SIZE = MappedLog.HEADER_SIZE;
+  static final int RECORD_HEADER_SIZE = MappedLog.RECORD_HEADER_SIZE;
+
+  public static final int MIN_SEGMENT_SIZE = MappedLog.MIN_SEGMENT_SIZE;
+
+  private final MappedLog<LedgerEntry> log;
+
+  public MappedJournal(Path dir, int segmentSize, boolean fsync) throws IOException {
+    this.log = new MappedLog<>(dir, MAGIC, segmentSize, fsync ? FsyncPolicy.BATCH : FsyncPolicy.NONE, 0,
+        new LedgerEntryCodec());
+  }
+
+  @Override
+  public long append(LedgerEntry entry) throws IOException {
+    return log.append(entry.entryId(), entry);
+  }
+
+  @Override
+  public void flush() throws IOException {
+    log.flush();
+  }
+
+  @Override
+  public void replay(Consumer<LedgerEntry> consumer) throws IOException {
+    log.replay(consumer);
+  }
+
+  /**
+   * 已封存且下一個 segment 的第一筆仍不大於 {@code fromEntryId} 的 segment 只開啟、不讀取內容，
+   * 由快照啟動時重播的量只與快照之後的紀錄數有關。
+   */
+  @Override
+  public void replay(long fromEntryId, Consumer<LedgerEntry> consumer) throws IOException {
+    log.replay(fromEntryId, consumer);
+  }
+
+  @Override
+  public void replayWithPosition(long fromEntryId, ObjLongConsumer<LedgerEntry> consumer) throws IOException {
+    log.replayWithPosition(fromEntryId, consumer);
+  }
+
+  /** 直接從映射區解碼 */
+  @Override
+  public LedgerEntry read(long position) {
+    return log.read(position);
+  }
+
+  @Override
+  public long firstPosition() {
+    return log.firstPosition();
+  }
+
+  /**
+   * 刪除所有紀錄的 entryId 都小於 {@code entryId} 的已封存 segment，回傳刪除的個數。
+   * 呼叫前必須已有涵蓋這些紀錄的餘額快照，否則重播會少算。
+   */
+  @Override
+  public int deleteBefore(long entryId) throws IOException {
+    return log.deleteBefore(entryId);
+  }
+
+  /** 目前的 segment 數（含 active），供監控與測試 */
+  public int segmentCount() {
+    return log.segmentCount();
+  }
+
+  @Override
+  public void close() throws IOException {
+    log.close();
+  }
+
+  // ---- 紀錄編碼 ----
+
+  private static final class LedgerEntryCodec implements RecordCodec<LedgerEntry> {
+
+    @Override
+    public int size(LedgerEntry entry) {
+      return 8 * 5 + RecordCodec.stringSize(entry.userId()) + RecordCodec.stringSize(entry.asset())
+          + RecordCodec.stringSize(entry.reason()) + RecordCodec.stringSize(entry.referenceId())
+          + (entry.idempotency() != null ? 8 * 3 : 0);
+    }
+
+    @Override
+    public int write(ByteBuffer buffer, int position, LedgerEntry entry) {
+      buffer.putLong(position, entry.createdAtMillis());
+      buffer.putLong(position + 8, entry.availableDelta());
+      buffer.putLong(position + 16, entry.lockedDelta());
+      buffer.putLong(position + 24, entry.availableAfter());
+      buffer.putLong(position + 32, entry.lockedAfter());
+      position += 40;
+      position = RecordCodec.putString(buffer, position, entry.userId());
+      position = RecordCodec.putString(buffer, position, entry.asset());
+      position = RecordCodec.putString(buffer, position, entry.reason());
+      position = RecordCodec.putString(buffer, position, entry.referenceId());
+      IdempotencyMark mark = entry.idempotency();
+      if (mark != null) {
+        buffer.putLong(position, mark.keyHigh());
+        buffer.putLong(position + 8, mark.keyLow());
+        buffer.putLong(position + 16, mark.requestFingerprint());
+        position += 24;
+      }
+      return position;
+    }
+
+    @Override
+    public LedgerEntry read(ByteBuffer buffer, int position, int length, long entryId) {
+      int end = position + length;
+      long createdAt = buffer.getLong(position);
+      long availableDelta = buffer.getLong(position + 8);
+      long lockedDelta = buffer.getLong(position + 16);
+      long availableAfter = buffer.getLong(position + 24);
+      long lockedAfter = buffer.getLong(position + 32);
+      position += 40;
+      String userId = RecordCodec.getString(buffer, position);
+      position += RecordCodec.stringSize(userId);
+      String asset = RecordCodec.getString(buffer, position);
+      position += RecordCodec.stringSize(asset);
+      String reason = RecordCodec.getString(buffer, position);
+      position += RecordCodec.stringSize(reason);
+      String referenceId = RecordCodec.getString(buffer, position);
+      position += RecordCodec.stringSize(referenceId);
+      IdempotencyMark mark = end - position >= 24
+          ? new IdempotencyMark(buffer.getLong(position), buffer.getLong(position + 8), buffer.getLong(position + 16))
+          : null;
+      return new LedgerEntry(entryId, userId, asset, availableDelta, lockedDelta,
+          availableAfter, lockedAfter, reason, referenceId, createdAt, mark);
+    }
+  }
+}
@@ -0,0 +1,34 @@
+package wallet.messaging;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 訊息代理的最小介面，語意對齊 Kafka：依 key 分配 partition、partition 內有序、
+ * consumer group 自行 commit 下一筆要讀的 offset。
+ *
+ * <p>目前只有行程內的 {@link InMemoryEventBroker}；接上 Kafka 時以 KafkaConsumer/KafkaProducer 實作同一介面即可。
+ */
+public interface EventBroker {
+
+  int partitions(String topic);
+
+  /**
+   * @return 寫入的 offset
+   */
+  long publish(String topic, String key, byte[] value);
+
+  /**
+   * 從 {@code offset} 起最多讀 {@code maxRecords} 筆；沒有資料時最多等待 {@code timeout}。
+   */
+  List<EventRecord> poll(String topic, int partition, long offset, int maxRecords, Duration timeout)
+      throws InterruptedException;
+
+  void commit(String group, String topic, int partition, long nextOffset);
+
+  /** 尚未 commit 過時為 0 */
+  long committed(String group, String topic, int partition);
+
+  /** 下一筆寫入的 offset */
+  long endOffset(String topic, int partition);
+}
@@ -0,0 +1,7 @@
+package wallet.messaging;
+
+/**
+ * topic 中的一筆訊息。{@code offset} 在 partition 內遞增，commit 的是「下一筆要讀的 offset」。
+ */
+public record EventRecord(String topic, int partition, long offset, String key, byte[] value) {
+}
@@ -0,0 +1,153 @@
+package wallet.messaging;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 行程內的 {@link EventBroker}，供本機開發與測試使用；訊息與 offset 只存在記憶體。
+ * partition 的選擇與 Kafka 預設的 partitioner 相同（murmur2(key) % partitions），同一個 key 會落在相同 partition。
+ */
+public class InMemoryEventBroker implements EventBroker {
+
+  private final int defaultPartitions;
+  private final Map<String, Partition[]> topics = new ConcurrentHashMap<>();
+  private final Map<String, Long> committed = new ConcurrentHashMap<>();
+
+  public InMemoryEventBroker(int defaultPartitions) {
+    if (defaultPartitions < 1) {
+      throw new IllegalArgumentException("defaultPartitions must be positive");
+    }
+    this.defaultPartitions = defaultPartitions;
+  }
+
+  @Override
+  public int partitions(String topic) {
+    return topic(topic).length;
+  }
+
+  @Override
+  public long publish(String topic, String key, byte[] value) {
+    Partition[] partitions = topic(topic);
+    int partition = key != null ? partitionFor(key, partitions.length) : 0;
+    return partitions[partition].append(topic, partition, key, value);
+  }
+
+  @Override
+  public List<EventRecord> poll(String topic, int partition, long offset, int maxRecords, Duration timeout)
+      throws InterruptedException {
+    return topic(topic)[partition].read(offset, maxRecords, timeout);
+  }
+
+  @Override
+  public void commit(String group, String topic, int partition, long nextOffset) {
+    committed.merge(group + '/' + topic + '/' + partition, nextOffset, Math::max);
+  }
+
+  @Override
+  public long committed(String group, String topic, int partition) {
+    return committed.getOrDefault(group + '/' + topic + '/' + partition, 0L);
+  }
+
+  @Override
+  public long endOffset(String topic, int partition) {
+    return topic(topic)[partition].size();
+  }
+
+  private Partition[] topic(String topic) {
+    return topics.computeIfAbsent(topic, t -> {
+      Partition[] partitions = new Partition[defaultPartitions];
+      for (int i = 0; i < partitions.length; i++) {
+        partitions[i] = new Partition();
+      }
+      return partitions;
+    });
+  }
+
+  /** Kafka {@code Utils.toPositive(Utils.murmur2(keyBytes)) % numPartitions} */
+  static int partitionFor(String key, int partitions) {
+    return (murmur2(key.getBytes(java.nio.charset.StandardCharsets.UTF_8)) & 0x7fffffff) % partitions;
+  }
+
+  private static int murmur2(byte[] data) {
+    int length = data.length;
+    int m = 0x5bd1e995;
+    int h = 0x9747b28c ^ length;
+    int length4 = length / 4;
+    for (int i = 0; i < length4; i++) {
+      int i4 = i * 4;
+      int k = (data[i4] & 0xff) + ((data[i4 + 1] & 0xff) << 8)
+          + ((data[i4 + 2] & 0xff) << 16) + ((data[i4 + 3] & 0xff) << 24);
+      k *= m;
+      k ^= k >>> 24;
+      k *= m;
+      h *= m;
+      h ^= k;
+    }
+    int tail = length4 * 4;
+    switch (length % 4) {
+      case 3:
+        h ^= (data[tail + 2] & 0xff) << 16;
+      case 2:
+        h ^= (data[tail + 1] & 0xff) << 8;
+      case 1:
+        h ^= data[tail] & 0xff;
+        h *= m;
+      default:
+    }
+    h ^= h >>> 13;
+    h *= m;
+    h ^= h >>> 15;
+    return h;
+  }
+
+  private static final class Partition {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    private final List<EventRecord> records = new ArrayList<>();
+
+    long append(String topic, int partition, String key, byte[] value) {
+      lock.lock();
+      try {
+        long offset = records.size();
+        records.add(new EventRecord(topic, partition, offset, key, value));
+        appended.signalAll();
+        return offset;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    List<EventRecord> read(long offset, int maxRecords, Duration timeout) throws InterruptedException {
+      long remaining = timeout.toNanos();
+      lock.lock();
+      try {
+        while (records.size() <= offset) {
+          if (remaining <= 0) {
+            return List.of();
+          }
+          remaining = appended.awaitNanos(remaining);
+        }
+        int from = (int) offset;
+        int to = (int) Math.min(records.size(), offset + maxRecords);
+        return new ArrayList<>(records.subList(from, to));
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    long size() {
+      lock.lock();
+      try {
+        return records.size();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package wallet.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import wallet.dto.LedgerResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 以 {@link LedgerResponse} 的 JSON 格式逐筆寫出台帳：每筆 item 各自序列化成一個 buffer 後送出，
+ * 不先組出整個回應物件或整段字串。
+ */
+final class LedgerJsonWriter {
+
+  private static final byte[] HEAD = "{\"items\":[".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] COMMA = {','};
+
+  private final ObjectMapper objectMapper;
+
+  LedgerJsonWriter(ObjectMapper objectMapper) {
+    this.objectMapper = objectMapper;
+  }
+
+  <T> Flux<DataBuffer> write(List<T> entries, Function<T, LedgerResponse.Item> mapper, String nextCursor,
+      DataBufferFactory bufferFactory) {
+    Flux<DataBuffer> items = Flux.range(0, entries.size())
+        .map(i -> {
+          byte[] json = serialize(mapper.apply(entries.get(i)));
+          DataBuffer buffer = bufferFactory.allocateBuffer(json.length + 1);
+          if (i > 0) {
+            buffer.write(COMMA);
+          }
+          return buffer.write(json);
+        });
+    return Flux.concat(
+        Mono.fromSupplier(() -> bufferFactory.wrap(HEAD)),
+        items,
+        Mono.fromSupplier(() -> bufferFactory.wrap(tail(nextCursor))));
+  }
+
+  private byte[] tail(String nextCursor) {
+    return ("],\"nextCursor\":" + new String(serialize(nextCursor), StandardCharsets.UTF_8) + "}")
+        .getBytes(StandardCharsets.UTF_8);
+  }
+
+  private byte[] serialize(Object value) {
+    try {
+      return objectMapper.writeValueAsBytes(value);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("failed to serialize ledger item", e);
+    }
+  }
+}
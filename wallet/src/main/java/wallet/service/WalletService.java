@@ -0,0 +1,278 @@
+package wallet.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import common.money.AssetScales;
+import common.money.FixedPoint;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.ContextView;
+import wallet.dto.AmountRequest;
+import wallet.dto.BalanceDetail;
+import wallet.dto.BalanceResponse;
+import wallet.dto.LedgerResponse;
+import wallet.dto.LockResponse;
+import wallet.dto.SettleResponse;
+import wallet.dto.SettlementRequest;
+import wallet.dto.TransferResponse;
+import wallet.dto.UnlockResponse;
+import wallet.engine.BalanceEngine;
+import wallet.engine.BalanceView;
+import wallet.engine.IdempotencyMark;
+import wallet.engine.LedgerEntry;
+import wallet.engine.LedgerQuery;
+import wallet.engine.Settlement;
+import wallet.exception.WalletException;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * 驗證請求並轉成 {@link BalanceEngine} 指令；金額在此依資產的小數位數（{@link AssetScales}）解析為 long。
+ * 訂閱的 context 中有 {@link IdempotencyMark} 時（帶 Idempotency-Key 的請求），一併交給引擎寫入 journal。
+ */
+@Service
+public class WalletService {
+
+  private static final int DEFAULT_LEDGER_LIMIT = 50;
+  private static final int MAX_LEDGER_LIMIT = 200;
+  private static final byte CURSOR_VERSION = 2;
+  private static final int CURSOR_LENGTH = 1 + Long.BYTES;
+
+  private final BalanceEngine engine;
+  private final AssetScales assetScales;
+  private final LedgerJsonWriter ledgerWriter;
+
+  public WalletService(BalanceEngine engine, AssetScales assetScales, ObjectMapper objectMapper) {
+    this.engine = engine;
+    this.assetScales = assetScales;
+    this.ledgerWriter = new LedgerJsonWriter(objectMapper);
+  }
+
+  public Mono<TransferResponse> deposit(String userId, AmountRequest request) {
+    String asset = asset(request.asset());
+    int scale = assetScales.scaleOf(asset);
+    long amount = positiveAmount(request.amount(), scale);
+    return Mono.deferContextual(context -> Mono.fromFuture(engine.deposit(userId, asset, amount, mark(context))))
+        .map(view -> new TransferResponse(asset, FixedPoint.toString(amount, scale),
+            BalanceResponse.from(view, scale)));
+  }
+
+  public Mono<TransferResponse> withdraw(String userId, AmountRequest request) {
+    String asset = asset(request.asset());
+    int scale = assetScales.scaleOf(asset);
+    long amount = positiveAmount(request.amount(), scale);
+    return Mono.deferContextual(context -> Mono.fromFuture(engine.withdraw(userId, asset, amount, mark(context))))
+        .map(view -> new TransferResponse(asset, FixedPoint.toString(amount, scale),
+            BalanceResponse.from(view, scale)));
+  }
+
+  public Mono<LockResponse> lock(String userId, AmountRequest request) {
+    String asset = asset(request.asset());
+    int scale = assetScales.scaleOf(asset);
+    long amount = positiveAmount(request.amount(), scale);
+    String referenceId = referenceId(request.referenceId());
+    return Mono.deferContextual(context -> Mono.fromFuture(
+            engine.lock(userId, asset, amount, referenceId, request.reason(), mark(context))))
+        .map(view -> new LockResponse(true, BalanceResponse.from(view, scale)));
+  }
+
+  public Mono<UnlockResponse> unlock(String userId, AmountRequest request) {
+    String asset = asset(request.asset());
+    int scale = assetScales.scaleOf(asset);
+    long amount = positiveAmount(request.amount(), scale);
+    String referenceId = referenceId(request.referenceId());
+    return Mono.deferContextual(context -> Mono.fromFuture(
+            engine.unlock(userId, asset, amount, referenceId, request.reason(), mark(context))))
+        .map(result -> new UnlockResponse(true, FixedPoint.toString(result.released(), scale),
+            BalanceResponse.from(result.balance(), scale)));
+  }
+
+  /**
+   * 由 journal 中帶有 {@link IdempotencyMark} 的異動重建當時 deposit/withdraw/lock/unlock 的回應，
+   * 重啟後以同一個 key 重送時回傳與第一次相同的內容。
+   */
+  public static Object response(LedgerEntry entry, int scale) {
+    BalanceResponse balance = BalanceResponse.from(
+        new BalanceView(entry.asset(), entry.availableAfter(), entry.lockedAfter(), entry.createdAtMillis()), scale);
+    if (entry.lockedDelta() > 0) {
+      return new LockResponse(true, balance);
+    }
+    if (entry.lockedDelta() < 0) {
+      return new UnlockResponse(true, FixedPoint.toString(-entry.lockedDelta(), scale), balance);
+    }
+    return new TransferResponse(entry.asset(), FixedPoint.toString(Math.abs(entry.availableDelta()), scale),
+        balance);
+  }
+
+  public Mono<SettleResponse> settle(SettlementRequest request) {
+    Settlement settlement = toSettlement(request);
+    // 佇列滿時 settle 會等待，不能在 event loop 上執行
+    return Mono.fromCallable(() -> engine.settle(settlement))
+        .subscribeOn(Schedulers.boundedElastic())
+        .flatMap(Mono::fromFuture)
+        .map(processed -> new SettleResponse(true, processed));
+  }
+
+  public Mono<List<BalanceDetail>> balances(String userId, String asset) {
+    return Mono.fromFuture(() -> engine.balances(userId, asset))
+        .map(views -> views.stream()
+            .map(view -> BalanceDetail.from(view, assetScales.scaleOf(view.asset())))
+            .toList());
+  }
+
+  /**
+   * 台帳一頁，以 JSON 串流寫出。{@code from}/{@code to} 為 ISO-8601 時間（from 含、to 不含）。
+   */
+  public Flux<DataBuffer> ledger(String userId, String asset, String from, String to, String cursor,
+      Integer limit, DataBufferFactory bufferFactory) {
+    int pageSize = limit != null ? limit : DEFAULT_LEDGER_LIMIT;
+    if (pageSize < 1 || pageSize > MAX_LEDGER_LIMIT) {
+      throw WalletException.invalidParam("limit must be between 1 and " + MAX_LEDGER_LIMIT);
+    }
+    if (asset != null && !assetScales.supports(asset)) {
+      throw WalletException.assetNotSupported(asset);
+    }
+    Long fromMillis = instant("from", from);
+    Long toMillis = instant("to", to);
+    if (fromMillis != null && toMillis != null && fromMillis > toMillis) {
+      throw WalletException.invalidParam("from must not be after to");
+    }
+    LedgerQuery query = new LedgerQuery(asset, fromMillis, toMillis, decodeCursor(cursor), pageSize);
+    return Mono.fromFuture(() -> engine.ledger(userId, query))
+        .flatMapMany(page -> ledgerWriter.write(page.items(), this::ledgerItem,
+            page.nextPosition() != null ? encodeCursor(page.nextPosition()) : null, bufferFactory));
+  }
+
+  private LedgerResponse.Item ledgerItem(LedgerEntry entry) {
+    int scale = assetScales.scaleOf(entry.asset());
+    return new LedgerResponse.Item(Long.toString(entry.entryId()), entry.asset(),
+        FixedPoint.toString(entry.availableDelta(), scale), FixedPoint.toString(entry.lockedDelta(), scale),
+        FixedPoint.toString(entry.availableAfter(), scale), entry.reason(), entry.referenceId(),
+        Instant.ofEpochMilli(entry.createdAtMillis()));
+  }
+
+  /**
+   * 驗證並轉成引擎的結算（HTTP 與 {@code wallet.settlements} 事件共用）。
+   */
+  public Settlement toSettlement(SettlementRequest request) {
+    if (request.settlementId() == null || request.settlementId().isBlank()) {
+      throw WalletException.invalidParam("settlementId is required");
+    }
+    if (request.trades() == null || request.trades().isEmpty()) {
+      throw WalletException.invalidParam("trades must not be empty");
+    }
+    List<Settlement.Trade> trades = new ArrayList<>(request.trades().size());
+    for (SettlementRequest.Trade trade : request.trades()) {
+      if (trade.buyerId() == null || trade.sellerId() == null) {
+        throw WalletException.invalidParam("buyerId and sellerId are required");
+      }
+      String base = asset(trade.baseAsset());
+      String quote = asset(trade.quoteAsset());
+      String feeAsset = trade.feeAsset() != null ? asset(trade.feeAsset()) : quote;
+      if (!feeAsset.equals(base) && !feeAsset.equals(quote)) {
+        throw WalletException.invalidParam("feeAsset must be the base or quote asset");
+      }
+      int baseScale = assetScales.scaleOf(base);
+      int quoteScale = assetScales.scaleOf(quote);
+      long fee = trade.fee() != null ? amount(trade.fee(), assetScales.scaleOf(feeAsset)) : 0;
+      if (fee < 0) {
+        throw WalletException.invalidParam("fee must not be negative");
+      }
+      long price = positiveAmount(trade.price(), quoteScale);
+      long quantity = positiveAmount(trade.quantity(), baseScale);
+      long notional;
+      try {
+        notional = FixedPoint.multiply(price, quoteScale, quantity, baseScale, quoteScale);
+      } catch (ArithmeticException e) {
+        throw WalletException.invalidParam("price * quantity is out of range");
+      }
+      trades.add(new Settlement.Trade(trade.buyerId(), trade.sellerId(), base, quote,
+          quantity, notional, fee, feeAsset, trade.buyerOrderId(), trade.sellerOrderId(),
+          Boolean.TRUE.equals(trade.buyerOrderClosed()), Boolean.TRUE.equals(trade.sellerOrderClosed())));
+    }
+    return new Settlement(request.settlementId(), trades);
+  }
+
+  private String asset(String asset) {
+    if (asset == null || asset.isBlank()) {
+      throw WalletException.invalidParam("asset is required");
+    }
+    if (!assetScales.supports(asset)) {
+      throw WalletException.assetNotSupported(asset);
+    }
+    return asset;
+  }
+
+  private static long positiveAmount(String text, int scale) {
+    long amount = amount(text, scale);
+    if (amount <= 0) {
+      throw WalletException.invalidParam("amount must be greater than 0");
+    }
+    return amount;
+  }
+
+  private static long amount(String text, int scale) {
+    if (text == null) {
+      throw WalletException.invalidParam("amount is required");
+    }
+    try {
+      return FixedPoint.parse(text, scale);
+    } catch (NumberFormatException e) {
+      throw WalletException.invalidParam(e.getMessage());
+    }
+  }
+
+  private static IdempotencyMark mark(ContextView context) {
+    return context.getOrDefault(IdempotencyMark.class, null);
+  }
+
+  private static String referenceId(String referenceId) {
+    if (referenceId == null || referenceId.isBlank()) {
+      throw WalletException.invalidParam("referenceId is required");
+    }
+    return referenceId;
+  }
+
+  private static Long instant(String name, String text) {
+    if (text == null || text.isEmpty()) {
+      return null;
+    }
+    try {
+      return Instant.parse(text).toEpochMilli();
+    } catch (DateTimeParseException e) {
+      throw WalletException.invalidParam(name + " must be an ISO-8601 timestamp");
+    }
+  }
+
+  /**
+   * 游標內容為版本 + 上一頁最後一筆在 journal 中的位置（segment 與 offset），對外不透明。
+   */
+  private static String encodeCursor(long position) {
+    ByteBuffer buffer = ByteBuffer.allocate(CURSOR_LENGTH).put(CURSOR_VERSION).putLong(position);
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+  }
+
+  private static Long decodeCursor(String cursor) {
+    if (cursor == null || cursor.isEmpty()) {
+      return null;
+    }
+    byte[] bytes;
+    try {
+      bytes = Base64.getUrlDecoder().decode(cursor);
+    } catch (IllegalArgumentException e) {
+      throw WalletException.invalidParam("invalid cursor");
+    }
+    if (bytes.length != CURSOR_LENGTH || bytes[0] != CURSOR_VERSION) {
+      throw WalletException.invalidParam("invalid cursor");
+    }
+    return ByteBuffer.wrap(bytes, 1, Long.BYTES).getLong();
+  }
+}
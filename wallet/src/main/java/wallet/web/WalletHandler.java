@@ -0,0 +1,166 @@
+package wallet.web;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import common.http.TrustedHeaders;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import wallet.dto.AmountRequest;
+import wallet.dto.ErrorResponse;
+import wallet.dto.SettlementRequest;
+import wallet.exception.WalletException;
+import wallet.idempotency.IdempotentExecutor;
+import wallet.service.WalletService;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.function.BiFunction;
+
+/**
+ * 錢包端點的處理函式，路由見 {@link WalletRoutes}。
+ *
+ * <p>處理函式只解析請求並把指令交給 {@link wallet.engine.BalanceEngine} 的 shard 佇列（lock-free、滿時立即回 503），
+ * 回應由 shard 完成 future 時的 callback 寫出；event loop 上沒有任何阻塞呼叫。
+ * 使用者由 gateway 驗證 JWT 後轉發的 {@code X-User-Id} 決定；結算不經 gateway，由 {@code X-Service-Token} 驗證呼叫端。
+ */
+@Component
+public class WalletHandler {
+
+  private final WalletService walletService;
+  private final ObjectMapper objectMapper;
+  private final IdempotentExecutor idempotentExecutor;
+
+  /** 不經 gateway 直接呼叫（本機開發、測試）時使用的使用者 */
+  private final String defaultUserId;
+  /** 結算呼叫端的共用憑證；未設定時拒絕所有結算請求 */
+  private final byte[] serviceToken;
+
+  public WalletHandler(WalletService walletService, ObjectMapper objectMapper, IdempotentExecutor idempotentExecutor,
+      @Value("${wallet.default-user-id:}") String defaultUserId,
+      @Value("${wallet.settlement.service-token:}") String serviceToken) {
+    this.walletService = walletService;
+    this.objectMapper = objectMapper;
+    this.idempotentExecutor = idempotentExecutor;
+    this.defaultUserId = defaultUserId;
+    this.serviceToken = serviceToken.getBytes(StandardCharsets.UTF_8);
+  }
+
+  public Mono<ServerResponse> ping(ServerRequest request) {
+    return ServerResponse.ok().bodyValue("wallet service is running");
+  }
+
+  public Mono<ServerResponse> balances(ServerRequest request) {
+    return Mono.defer(() -> walletService.balances(user(request), request.queryParam("asset").orElse(null)))
+        .flatMap(balances -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(balances));
+  }
+
+  public Mono<ServerResponse> deposit(ServerRequest request) {
+    return userCommand(request, "deposit", (user, body) -> walletService.deposit(user, parse(body, AmountRequest.class)));
+  }
+
+  public Mono<ServerResponse> withdraw(ServerRequest request) {
+    return userCommand(request, "withdraw", (user, body) -> walletService.withdraw(user, parse(body, AmountRequest.class)));
+  }
+
+  public Mono<ServerResponse> lock(ServerRequest request) {
+    return userCommand(request, "lock", (user, body) -> walletService.lock(user, parse(body, AmountRequest.class)));
+  }
+
+  public Mono<ServerResponse> unlock(ServerRequest request) {
+    return userCommand(request, "unlock", (user, body) -> walletService.unlock(user, parse(body, AmountRequest.class)));
+  }
+
+  /** 由撮合系統呼叫，不屬於任何使用者 */
+  public Mono<ServerResponse> settle(ServerRequest request) {
+    return Mono.defer(() -> {
+      checkServiceToken(request);
+      return command(request, "", "settle", (user, body) -> walletService.settle(parse(body, SettlementRequest.class)));
+    });
+  }
+
+  /** 回應格式同 {@link wallet.dto.LedgerResponse}，逐筆串流寫出 */
+  public Mono<ServerResponse> ledger(ServerRequest request) {
+    return Mono.defer(() -> ServerResponse.ok()
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(BodyInserters.fromDataBuffers(walletService.ledger(
+            user(request),
+            request.queryParam("asset").orElse(null),
+            request.queryParam("from").orElse(null),
+            request.queryParam("to").orElse(null),
+            request.queryParam("cursor").orElse(null),
+            request.queryParam("limit").map(this::parseLimit).orElse(null),
+            request.exchange().getResponse().bufferFactory()))));
+  }
+
+  public Mono<ServerResponse> handleWalletException(WalletException e, ServerRequest request) {
+    return ServerResponse.status(e.getStatus())
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(errorResponse(e, request));
+  }
+
+  private Mono<ServerResponse> userCommand(ServerRequest request, String operation,
+      BiFunction<String, String, Mono<?>> action) {
+    return Mono.defer(() -> command(request, user(request), operation, action));
+  }
+
+  private Mono<ServerResponse> command(ServerRequest request, String user, String operation,
+      BiFunction<String, String, Mono<?>> action) {
+    String idempotencyKey = request.headers().firstHeader(IdempotentExecutor.KEY_HEADER);
+    return request.bodyToMono(String.class)
+        .defaultIfEmpty("")
+        .flatMap(body -> idempotentExecutor.execute(user, operation, idempotencyKey, body,
+            () -> action.apply(user, body), e -> errorResponse(e, request)));
+  }
+
+  private static ErrorResponse errorResponse(WalletException e, ServerRequest request) {
+    return new ErrorResponse(
+        Instant.now(),
+        e.getStatus().value(),
+        e.getStatus().getReasonPhrase(),
+        e.getCode(),
+        e.getMessage(),
+        request.path());
+  }
+
+  private void checkServiceToken(ServerRequest request) {
+    String token = request.headers().firstHeader(TrustedHeaders.SERVICE_TOKEN);
+    if (serviceToken.length == 0 || token == null
+        || !MessageDigest.isEqual(serviceToken, token.getBytes(StandardCharsets.UTF_8))) {
+      throw WalletException.unauthenticated("invalid " + TrustedHeaders.SERVICE_TOKEN);
+    }
+  }
+
+  private String user(ServerRequest request) {
+    String headerUserId = request.headers().firstHeader(TrustedHeaders.USER_ID);
+    if (headerUserId != null && !headerUserId.isBlank()) {
+      return headerUserId;
+    }
+    if (!defaultUserId.isEmpty()) {
+      return defaultUserId;
+    }
+    throw WalletException.unauthenticated("missing " + TrustedHeaders.USER_ID);
+  }
+
+  private Integer parseLimit(String limit) {
+    try {
+      return Integer.valueOf(limit);
+    } catch (NumberFormatException e) {
+      throw WalletException.invalidParam("limit must be an integer");
+    }
+  }
+
+  // 請求可能不帶 Content-Type: application/json，因此自行解析
+  private <T> T parse(String body, Class<T> type) {
+    try {
+      return objectMapper.readValue(body, type);
+    } catch (JsonProcessingException e) {
+      throw WalletException.invalidParam("malformed request body");
+    }
+  }
+}
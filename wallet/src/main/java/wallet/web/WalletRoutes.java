@@ -0,0 +1,37 @@
+package wallet.web;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import wallet.exception.WalletException;
+
+/**
+ * 經 gateway（StripPrefix 後為 /wallet）或直接呼叫（/api/wallet）皆可。
+ */
+@Configuration
+public class WalletRoutes {
+
+  @Bean
+  RouterFunction<ServerResponse> walletRouter(WalletHandler handler) {
+    return RouterFunctions.route()
+        .path("/wallet", () -> routes(handler))
+        .path("/api/wallet", () -> routes(handler))
+        .onError(WalletException.class, handler::handleWalletException)
+        .build();
+  }
+
+  private static RouterFunction<ServerResponse> routes(WalletHandler handler) {
+    return RouterFunctions.route()
+        .GET("/ping", handler::ping)
+        .GET("/balances", handler::balances)
+        .POST("/deposit", handler::deposit)
+        .POST("/withdraw", handler::withdraw)
+        .POST("/lock", handler::lock)
+        .POST("/unlock", handler::unlock)
+        .POST("/settle", handler::settle)
+        .GET("/ledger", handler::ledger)
+        .build();
+  }
+}
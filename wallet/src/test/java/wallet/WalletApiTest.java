@@ -126,6 +126,7 @@ public class WalletApiTest {
     void settleEndpointShouldExist() {
         webClient.post()
                 .uri("/api/wallet/settle")
+                .header("X-Service-Token", "test-service-token")
                 // example settlement payload
                 .bodyValue("{\"settlementId\":\"settle-uuid-123\",\"trades\":[{\"buyerId\":\"user-uuid-buyer\",\"sellerId\":\"user-uuid-seller\",\"baseAsset\":\"BTC\",\"quoteAsset\":\"USDT\",\"price\":\"30000.00\",\"quantity\":\"0.1\",\"fee\":\"3.00\",\"feeAsset\":\"USDT\"}]}")
                 .exchange()
@@ -135,4 +136,13 @@ public class WalletApiTest {
                 .jsonPath("$.settled").isEqualTo(true)
                 .jsonPath("$.processedTrades").exists();
     }
+
+    @Test
+    void settleShouldRequireServiceToken() {
+        webClient.post()
+                .uri("/api/wallet/settle")
+                .bodyValue("{\"settlementId\":\"settle-uuid-456\",\"trades\":[]}")
+                .exchange()
+                .expectStatus().isUnauthorized();
+    }
 }
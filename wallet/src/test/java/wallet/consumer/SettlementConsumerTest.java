@@ -0,0 +1,222 @@
+package wallet.consumer;
+
+import common.money.FixedPoint;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import wallet.engine.BalanceEngine;
+import wallet.engine.BalanceView;
+import wallet.engine.LedgerEntry;
+import wallet.engine.Settlement;
+import wallet.journal.Journal;
+import wallet.messaging.InMemoryEventBroker;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SettlementConsumerTest {
+
+  private static final String TOPIC = "wallet.settlements";
+  private static final String GROUP = "wallet";
+
+  private final InMemoryEventBroker broker = new InMemoryEventBroker(4);
+  private final MeterRegistry registry = new SimpleMeterRegistry();
+  private BalanceEngine engine;
+  private SettlementConsumer consumer;
+
+  @AfterEach
+  void tearDown() throws Exception {
+    if (consumer != null) {
+      consumer.close();
+    }
+    if (engine != null) {
+      engine.close();
+    }
+  }
+
+  private static long units(String text) {
+    return FixedPoint.parse(text, 8);
+  }
+
+  /** 測試用的事件格式：settlementId,buyerId,sellerId,quantity,notional；"bad" 表示格式錯誤 */
+  private static final Function<byte[], Settlement> DECODER = bytes -> {
+    String[] fields = new String(bytes, StandardCharsets.UTF_8).split(",");
+    if (fields.length != 5) {
+      throw new IllegalArgumentException("malformed event");
+    }
+    return new Settlement(fields[0], List.of(new Settlement.Trade(fields[1], fields[2], "BTC", "USDT",
+        units(fields[3]), units(fields[4]), 0, "USDT")));
+  };
+
+  private void start(int maxBatchRecords, int maxInFlightBatches) throws Exception {
+    start(maxBatchRecords, maxInFlightBatches, Journal.NONE);
+  }
+
+  private void start(int maxBatchRecords, int maxInFlightBatches, Journal journal) throws Exception {
+    engine = new BalanceEngine(4, 1024, 64, shard -> journal, null);
+    engine.start();
+    consumer = new SettlementConsumer(broker, TOPIC, GROUP, engine, DECODER, maxBatchRecords,
+        maxInFlightBatches, Duration.ofMillis(20), registry);
+  }
+
+  /** referenceId 為 {@code failAppend} 的紀錄寫入失敗；寫入過 {@code failFlush} 之後 flush 失敗 */
+  private static Journal failing(String failAppend, String failFlush) {
+    return new Journal() {
+      private volatile boolean broken;
+
+      @Override
+      public long append(LedgerEntry entry) throws IOException {
+        if (failAppend != null && failAppend.equals(entry.referenceId())) {
+          throw new IOException("append failed");
+        }
+        if (failFlush != null && failFlush.equals(entry.referenceId())) {
+          broken = true;
+        }
+        return -1;
+      }
+
+      @Override
+      public void flush() throws IOException {
+        if (broken) {
+          throw new IOException("disk full");
+        }
+      }
+
+      @Override
+      public void replay(Consumer<LedgerEntry> consumer) {
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+  }
+
+  private double records(String result) {
+    return registry.get("wallet.consumer.records").tag("result", result).counter().count();
+  }
+
+  private void publish(String settlementId, String buyer, String seller) {
+    broker.publish(TOPIC, settlementId,
+        (settlementId + "," + buyer + "," + seller + ",0.01,10").getBytes(StandardCharsets.UTF_8));
+  }
+
+  private long committed() {
+    long total = 0;
+    for (int p = 0; p < broker.partitions(TOPIC); p++) {
+      total += broker.committed(GROUP, TOPIC, p);
+    }
+    return total;
+  }
+
+  private void awaitCommitted(long expected) throws InterruptedException {
+    long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+    while (committed() < expected && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+    assertEquals(expected, committed());
+  }
+
+  private BalanceView usdt(String userId) throws Exception {
+    return engine.balances(userId, "USDT").get().get(0);
+  }
+
+  @Test
+  void shouldApplyEventsAndCommitOffsets() throws Exception {
+    start(16, 2);
+    consumer.start();
+    for (int i = 0; i < 200; i++) {
+      publish("s-" + i, "buyer", "seller-" + (i % 10));
+    }
+    awaitCommitted(200);
+    assertEquals(units("-2000"), usdt("buyer").available());
+    assertEquals(units("200"), usdt("seller-3").available());
+  }
+
+  @Test
+  void shouldSkipDuplicateAndInvalidEvents() throws Exception {
+    start(8, 1);
+    consumer.start();
+    publish("s-1", "buyer", "seller");
+    publish("s-1", "buyer", "seller");
+    broker.publish(TOPIC, "bad", "bad".getBytes(StandardCharsets.UTF_8));
+    publish("s-2", "buyer", "seller");
+    awaitCommitted(4);
+    assertEquals(units("20"), usdt("seller").available());
+  }
+
+  @Test
+  void failedSettlementShouldBeSkippedWhileEngineKeepsRunning() throws Exception {
+    start(8, 2, failing("s-bad", null));
+    consumer.start();
+    publish("s-1", "buyer", "seller");
+    publish("s-bad", "buyer", "seller");
+    publish("s-2", "buyer", "seller");
+    awaitCommitted(3);
+    assertEquals(units("20"), usdt("seller").available());
+    assertEquals(2.0, records("applied"));
+    assertEquals(1.0, records("failed"));
+    assertTrue(consumer.stoppedPartitions().isEmpty());
+  }
+
+  @Test
+  void partitionShouldStopWithoutCommitWhenEngineStops() throws Exception {
+    start(8, 2, failing(null, "s-stop"));
+    consumer.start();
+    publish("s-stop", "buyer", "seller");
+    int partition = 0;
+    while (broker.endOffset(TOPIC, partition) == 0) {
+      partition++;
+    }
+    long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+    while (consumer.stoppedPartitions().isEmpty() && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+    assertEquals(Set.of(partition), consumer.stoppedPartitions());
+    assertTrue(engine.stopped());
+    assertEquals(0, committed());
+    assertEquals(0.0, records("applied"));
+    assertEquals(0.0, records("failed"));
+    assertEquals(1.0, registry.get("wallet.consumer.stopped")
+        .tag("partition", Integer.toString(partition)).gauge().value());
+  }
+
+  @Test
+  void shouldResumeFromCommittedOffsetAfterRestart() throws Exception {
+    start(8, 4);
+    consumer.start();
+    publish("s-1", "buyer", "seller");
+    awaitCommitted(1);
+    consumer.close();
+
+    publish("s-2", "buyer", "seller");
+    consumer = new SettlementConsumer(broker, TOPIC, GROUP, engine, DECODER, 8, 4,
+        Duration.ofMillis(20), new SimpleMeterRegistry());
+    consumer.start();
+    awaitCommitted(2);
+    assertEquals(units("20"), usdt("seller").available());
+  }
+
+  @Test
+  void sameKeyShouldAlwaysMapToSamePartition() {
+    for (int i = 0; i < 3; i++) {
+      broker.publish(TOPIC, "settle-42", new byte[0]);
+    }
+    int partitionsWithRecords = 0;
+    for (int p = 0; p < broker.partitions(TOPIC); p++) {
+      if (broker.endOffset(TOPIC, p) > 0) {
+        partitionsWithRecords++;
+        assertEquals(3, broker.endOffset(TOPIC, p));
+      }
+    }
+    assertEquals(1, partitionsWithRecords);
+  }
+}
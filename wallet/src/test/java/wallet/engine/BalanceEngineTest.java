@@ -0,0 +1,551 @@
+package wallet.engine;
+
+import common.money.FixedPoint;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import wallet.exception.WalletException;
+import wallet.journal.Journal;
+import wallet.journal.MappedJournal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BalanceEngineTest {
+
+  private static final int SCALE = 8;
+  private static final long ONE = FixedPoint.pow10(SCALE);
+
+  @TempDir
+  Path journalDir;
+
+  private BalanceEngine engine;
+
+  @AfterEach
+  void tearDown() throws Exception {
+    if (engine != null) {
+      engine.close();
+    }
+  }
+
+  @Test
+  void depositWithdrawLockUnlockShouldMoveBalances() throws Exception {
+    engine = start();
+
+    engine.deposit("u1", "USDT", units("1000")).get();
+    engine.withdraw("u1", "USDT", units("200")).get();
+    BalanceView locked = engine.lock("u1", "USDT", units("100"), "order-1", null).get();
+    assertEquals(units("700"), locked.available());
+    assertEquals(units("100"), locked.locked());
+
+    UnlockResult unlocked = engine.unlock("u1", "USDT", units("150"), "order-1", null).get();
+    assertEquals(units("100"), unlocked.released());
+    assertEquals(units("800"), unlocked.balance().available());
+    assertEquals(0, unlocked.balance().locked());
+  }
+
+  @Test
+  void withdrawShouldRejectInsufficientFunds() throws Exception {
+    engine = start();
+    engine.deposit("u1", "USDT", units("10")).get();
+
+    ExecutionException e = assertThrows(ExecutionException.class,
+        () -> engine.withdraw("u1", "USDT", units("10.00000001")).get());
+    assertEquals("WALLET_INSUFFICIENT_FUNDS", ((WalletException) e.getCause()).getCode());
+    assertEquals(units("10"), engine.balances("u1", "USDT").get().get(0).available());
+  }
+
+  @Test
+  void settleShouldMoveFundsBetweenUsersOnce() throws Exception {
+    engine = start();
+    engine.deposit("buyer", "USDT", units("5000")).get();
+    engine.lock("buyer", "USDT", units("3000"), "order-b", null).get();
+    engine.deposit("seller", "BTC", units("1")).get();
+    engine.lock("seller", "BTC", units("0.1"), "order-s", null).get();
+
+    Settlement settlement = new Settlement("settle-1", List.of(new Settlement.Trade("buyer", "seller", "BTC", "USDT",
+        units("0.1"), units("3000.00"), units("3.00"), "USDT")));
+    assertEquals(1, engine.settle(settlement).get());
+
+    assertEquals(new Balances("2000", "0"), balances("buyer", "USDT"));
+    assertEquals(new Balances("0.1", "0"), balances("buyer", "BTC"));
+    assertEquals(new Balances("0.9", "0"), balances("seller", "BTC"));
+    assertEquals(new Balances("2997", "0"), balances("seller", "USDT"));
+
+    WalletException duplicate = assertThrows(WalletException.class, () -> engine.settle(settlement));
+    assertEquals("WALLET_DUPLICATE_SETTLEMENT", duplicate.getCode());
+  }
+
+  @Test
+  void unlockShouldOnlyReleaseTheReferencedOrder() throws Exception {
+    engine = start();
+    engine.deposit("u1", "USDT", units("1000")).get();
+    engine.lock("u1", "USDT", units("100"), "order-1", null).get();
+    engine.lock("u1", "USDT", units("200"), "order-2", null).get();
+
+    assertEquals(units("100"), engine.unlock("u1", "USDT", units("500"), "order-1", null).get().released());
+    int entries = engine.ledger("u1", null, null, 50).get().items().size();
+    // 撤單重送、不存在的訂單、資產不符：不解鎖也不寫台帳
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(0, engine.unlock("u1", "USDT", units("100"), "order-1", null).get().released());
+    }
+    assertEquals(0, engine.unlock("u1", "USDT", units("1"), "order-3", null).get().released());
+    assertEquals(0, engine.unlock("u1", "BTC", units("1"), "order-2", null).get().released());
+    assertEquals(entries, engine.ledger("u1", null, null, 50).get().items().size());
+    assertEquals(new Balances("800", "200"), balances("u1", "USDT"));
+
+    ExecutionException e = assertThrows(ExecutionException.class,
+        () -> engine.lock("u1", "BTC", units("1"), "order-2", null).get());
+    assertEquals("WALLET_INVALID_PARAM", ((WalletException) e.getCause()).getCode());
+  }
+
+  @Test
+  void settleShouldConsumeOrderReservationsAndReleaseClosedOrders() throws Exception {
+    engine = start();
+    engine.deposit("buyer", "USDT", units("10000")).get();
+    engine.lock("buyer", "USDT", units("3100"), "order-b", null).get();
+    engine.lock("buyer", "USDT", units("500"), "order-other", null).get();
+    engine.deposit("seller", "BTC", units("1")).get();
+    engine.lock("seller", "BTC", units("0.3"), "order-s", null).get();
+
+    // 限價 31000 的買單以 30000 部分成交，賣單仍有剩餘
+    engine.settle(new Settlement("settle-1", List.of(new Settlement.Trade("buyer", "seller", "BTC", "USDT",
+        units("0.05"), units("1500"), 0, "USDT", "order-b", "order-s", false, false)))).get();
+    assertEquals(new Balances("6400", "2100"), balances("buyer", "USDT"));
+    assertEquals(new Balances("0.7", "0.25"), balances("seller", "BTC"));
+
+    // 買單全部成交：剩餘的 100 解鎖，其他訂單的鎖定不受影響
+    engine.settle(new Settlement("settle-2", List.of(new Settlement.Trade("buyer", "seller", "BTC", "USDT",
+        units("0.05"), units("1500"), 0, "USDT", "order-b", "order-s", true, false)))).get();
+    assertEquals(new Balances("6500", "500"), balances("buyer", "USDT"));
+    assertEquals(new Balances("0.7", "0.2"), balances("seller", "BTC"));
+    assertEquals("ORDER_RELEASE", engine.ledger("buyer", "USDT", null, 1).get().items().get(0).reason());
+
+    // 已結清的訂單再收到成交時不會動用其他訂單的鎖定
+    engine.settle(new Settlement("settle-3", List.of(new Settlement.Trade("buyer", "seller", "BTC", "USDT",
+        units("0.01"), units("300"), 0, "USDT", "order-b", "order-s", false, false)))).get();
+    assertEquals(new Balances("6200", "500"), balances("buyer", "USDT"));
+    assertEquals(units("500"), engine.unlock("buyer", "USDT", units("1000"), "order-other", null).get().released());
+
+    // 重播後保留表相同
+    engine.close();
+    engine = start();
+    assertEquals(new Balances("0.7", "0.19"), balances("seller", "BTC"));
+    assertEquals(units("0.19"), engine.unlock("seller", "BTC", units("1"), "order-s", null).get().released());
+    assertEquals(0, engine.unlock("buyer", "USDT", units("1"), "order-b", null).get().released());
+  }
+
+  @Test
+  void settleShouldBatchManyUsersAndRememberIdsAcrossRestart() throws Exception {
+    engine = start();
+    List<Settlement.Trade> trades = new java.util.ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      engine.deposit("buyer-" + i, "USDT", units("100")).get();
+      engine.deposit("seller-" + i, "BTC", units("1")).get();
+      trades.add(new Settlement.Trade("buyer-" + i, "seller-" + i, "BTC", "USDT",
+          units("0.01"), units("10"), 0, "USDT"));
+    }
+    assertEquals(50, engine.settle(new Settlement("batch-1", trades)).get());
+    for (int i = 0; i < 50; i++) {
+      assertEquals(new Balances("90", "0"), balances("buyer-" + i, "USDT"));
+      assertEquals(new Balances("0.01", "0"), balances("buyer-" + i, "BTC"));
+      assertEquals(new Balances("10", "0"), balances("seller-" + i, "USDT"));
+    }
+    engine.close();
+
+    engine = start();
+    WalletException duplicate = assertThrows(WalletException.class,
+        () -> engine.settle(new Settlement("batch-1", trades)));
+    assertEquals("WALLET_DUPLICATE_SETTLEMENT", duplicate.getCode());
+    assertEquals(new Balances("90", "0"), balances("buyer-0", "USDT"));
+  }
+
+  @Test
+  void failedSettlementShouldNotBeRecordedAsProcessed() throws Exception {
+    AtomicBoolean failNext = new AtomicBoolean();
+    engine = new BalanceEngine(4, 16_384, 256, shard -> new Journal() {
+      @Override
+      public long append(LedgerEntry entry) throws IOException {
+        if ("seller".equals(entry.userId()) && failNext.getAndSet(false)) {
+          throw new IOException("disk full");
+        }
+        return -1;
+      }
+
+      @Override
+      public void flush() {
+      }
+
+      @Override
+      public void replay(Consumer<LedgerEntry> consumer) {
+      }
+
+      @Override
+      public void close() {
+      }
+    }, null);
+    engine.start(null);
+    engine.deposit("seller", "BTC", units("1")).get();
+    engine.deposit("buyer", "USDT", units("3000")).get();
+    Settlement settlement = new Settlement("settle-1", List.of(new Settlement.Trade("buyer", "seller", "BTC", "USDT",
+        units("0.1"), units("30000"), 0, "USDT")));
+
+    failNext.set(true);
+    assertThrows(ExecutionException.class, () -> engine.settle(settlement).get());
+    // 沒有全部寫入 journal 的結算可以重送，已套用的 shard（buyer）不再套用
+    assertEquals(1, engine.settle(settlement).get());
+    WalletException duplicate = assertThrows(WalletException.class, () -> engine.settle(settlement));
+    assertEquals("WALLET_DUPLICATE_SETTLEMENT", duplicate.getCode());
+    assertEquals(new Balances("0.1", "0"), balances("buyer", "BTC"));
+    assertEquals(new Balances("0.9", "0"), balances("seller", "BTC"));
+    assertEquals(new Balances("30000", "0"), balances("seller", "USDT"));
+  }
+
+  @Test
+  void uncheckedFlushFailureShouldStopTheShardAndFailRequests() throws Exception {
+    // MappedByteBuffer.force 失敗時丟出 UncheckedIOException
+    engine = new BalanceEngine(1, 16_384, 256, shard -> new Journal() {
+      @Override
+      public long append(LedgerEntry entry) {
+        return -1;
+      }
+
+      @Override
+      public void flush() {
+        throw new UncheckedIOException(new IOException("fsync failed"));
+      }
+
+      @Override
+      public void replay(Consumer<LedgerEntry> consumer) {
+      }
+
+      @Override
+      public void close() {
+      }
+    }, null);
+    engine.start(null);
+    ExecutionException e = assertThrows(ExecutionException.class,
+        () -> engine.deposit("u1", "USDT", units("1")).get(5, java.util.concurrent.TimeUnit.SECONDS));
+    assertEquals("WALLET_INTERNAL_ERROR", ((WalletException) e.getCause()).getCode());
+    assertThrows(WalletException.class, () -> engine.deposit("u1", "USDT", units("1")));
+  }
+
+  @Test
+  void settlementMissingAShardAfterRestartShouldBeCompletedByResend() throws Exception {
+    // buyer 與 seller 在不同 shard；seller 的 shard 寫結束標記失敗（等同兩個 shard flush 之間崩潰）
+    AtomicBoolean failEnd = new AtomicBoolean();
+    engine = new BalanceEngine(4, 16_384, 256, shard -> {
+      MappedJournal journal;
+      try {
+        journal = new MappedJournal(journalDir.resolve("shard-" + shard), MappedJournal.MIN_SEGMENT_SIZE, false);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return new Journal() {
+        @Override
+        public long append(LedgerEntry entry) throws IOException {
+          if (BalanceEngine.SETTLEMENT_END.equals(entry.reason()) && "seller".equals(entry.userId())
+              && failEnd.get()) {
+            throw new IOException("disk full");
+          }
+          return journal.append(entry);
+        }
+
+        @Override
+        public void flush() throws IOException {
+          journal.flush();
+        }
+
+        @Override
+        public void replay(Consumer<LedgerEntry> consumer) throws IOException {
+          journal.replay(consumer);
+        }
+
+        @Override
+        public void close() throws IOException {
+          journal.close();
+        }
+      };
+    }, null);
+    engine.start(null);
+    engine.deposit("buyer", "USDT", units("3000")).get();
+    engine.deposit("seller", "BTC", units("1")).get();
+    Settlement settlement = new Settlement("settle-1", List.of(new Settlement.Trade("buyer", "seller", "BTC", "USDT",
+        units("0.1"), units("3000"), 0, "USDT")));
+
+    failEnd.set(true);
+    assertThrows(ExecutionException.class, () -> engine.settle(settlement).get());
+    // 套用到一半的 shard 停止
+    assertThrows(WalletException.class, () -> engine.deposit("seller", "BTC", units("1")));
+    engine.close();
+
+    // seller 沒有結束標記的 leg 被捨棄，buyer 的已套用；結算不算處理過
+    engine = start();
+    assertEquals(new Balances("0", "0"), balances("buyer", "USDT"));
+    assertEquals(new Balances("0.1", "0"), balances("buyer", "BTC"));
+    assertEquals(new Balances("1", "0"), balances("seller", "BTC"));
+    assertEquals(1, engine.settle(settlement).get());
+    assertEquals(new Balances("0.1", "0"), balances("buyer", "BTC"));
+    assertEquals(new Balances("0.9", "0"), balances("seller", "BTC"));
+    assertEquals(new Balances("3000", "0"), balances("seller", "USDT"));
+    engine.close();
+
+    engine = start();
+    WalletException duplicate = assertThrows(WalletException.class, () -> engine.settle(settlement));
+    assertEquals("WALLET_DUPLICATE_SETTLEMENT", duplicate.getCode());
+    assertEquals(new Balances("0", "0"), balances("buyer", "USDT"));
+    assertEquals(new Balances("0.9", "0"), balances("seller", "BTC"));
+    assertEquals(new Balances("3000", "0"), balances("seller", "USDT"));
+  }
+
+  @Test
+  void settlementIdSetShouldGrowAndDetectDuplicates() {
+    SettlementIdSet ids = new SettlementIdSet(16);
+    for (int i = 0; i < 100_000; i++) {
+      assertTrue(ids.add("settle-" + i));
+    }
+    for (int i = 0; i < 100_000; i += 997) {
+      assertFalse(ids.add("settle-" + i));
+      assertTrue(ids.contains("settle-" + i));
+    }
+    assertFalse(ids.contains("settle-100000"));
+    assertEquals(100_000, ids.size());
+  }
+
+  @Test
+  void idempotencyMarksShouldBeRecordedAfterFlushAndRebuiltOnReplay() throws Exception {
+    List<LedgerEntry> recorded = new java.util.concurrent.CopyOnWriteArrayList<>();
+    IdempotencyRecorder recorder = new IdempotencyRecorder() {
+      @Override
+      public void journaled(LedgerEntry entry) {
+        recorded.add(entry);
+      }
+
+      @Override
+      public void snapshot() {
+      }
+    };
+    IdempotencyMark mark = new IdempotencyMark(11, 12, 13);
+    engine = start(null, recorder);
+    engine.deposit("u1", "USDT", units("5"), mark).get();
+    engine.deposit("u1", "USDT", units("1")).get();
+    assertEquals(1, recorded.size());
+    assertEquals(mark, recorded.get(0).idempotency());
+    engine.close();
+
+    recorded.clear();
+    engine = start(null, recorder);
+    assertEquals(1, recorded.size());
+    assertEquals(mark, recorded.get(0).idempotency());
+    assertEquals(units("5"), recorded.get(0).availableAfter());
+  }
+
+  @Test
+  void ledgerShouldPageNewestFirst() throws Exception {
+    engine = start();
+    for (int i = 1; i <= 5; i++) {
+      engine.deposit("u1", "USDT", units(Integer.toString(i))).get();
+    }
+    engine.deposit("u1", "BTC", units("1")).get();
+
+    LedgerPage first = engine.ledger("u1", "USDT", null, 3).get();
+    assertEquals(List.of(units("5"), units("4"), units("3")),
+        first.items().stream().map(LedgerEntry::availableDelta).toList());
+    assertNotNull(first.nextPosition());
+
+    LedgerPage second = engine.ledger("u1", "USDT", first.nextPosition(), 3).get();
+    assertEquals(List.of(units("2"), units("1")),
+        second.items().stream().map(LedgerEntry::availableDelta).toList());
+    assertNull(second.nextPosition());
+  }
+
+  @Test
+  void ledgerShouldFilterByAssetAndTimeWithoutScanning() throws Exception {
+    engine = start();
+    for (int i = 1; i <= 1000; i++) {
+      engine.deposit("u1", i % 100 == 0 ? "BTC" : "USDT", units("1")).get();
+    }
+    LedgerPage btc = engine.ledger("u1", new LedgerQuery("BTC", null, null, null, 3)).get();
+    assertEquals(3, btc.items().size());
+    assertTrue(btc.items().stream().allMatch(e -> e.asset().equals("BTC")));
+    LedgerPage rest = engine.ledger("u1", new LedgerQuery("BTC", null, null, btc.nextPosition(), 50)).get();
+    assertEquals(7, rest.items().size());
+    assertNull(rest.nextPosition());
+
+    List<LedgerEntry> all = engine.ledger("u1", null, null, 200).get().items();
+    long newest = all.get(0).createdAtMillis();
+    LedgerPage future = engine.ledger("u1", new LedgerQuery(null, newest + 1, null, null, 10)).get();
+    assertTrue(future.items().isEmpty());
+    LedgerPage past = engine.ledger("u1", new LedgerQuery(null, null, all.get(199).createdAtMillis(), null, 200)).get();
+    assertTrue(past.items().stream().allMatch(e -> e.createdAtMillis() < all.get(199).createdAtMillis()));
+    assertEquals(0, engine.ledger("u1", new LedgerQuery("ETH", null, null, null, 10)).get().items().size());
+  }
+
+  @Test
+  void restartShouldReplayJournal() throws Exception {
+    engine = start();
+    engine.deposit("u1", "USDT", units("1000")).get();
+    engine.lock("u1", "USDT", units("250"), "order-1", null).get();
+    engine.close();
+
+    engine = start();
+    assertEquals(new Balances("750", "250"), balances("u1", "USDT"));
+    assertEquals(2, engine.ledger("u1", null, null, 50).get().items().size());
+
+    // 重播後的 entryId 繼續遞增
+    engine.deposit("u1", "USDT", units("1")).get();
+    List<LedgerEntry> items = engine.ledger("u1", null, null, 50).get().items();
+    assertTrue(items.get(0).entryId() > items.get(1).entryId());
+  }
+
+  @Test
+  void restartFromSnapshotShouldReplayOnlyTheJournalTail() throws Exception {
+    Path snapshotDir = journalDir.resolve("snapshot");
+    engine = start(null);
+    engine.deposit("buyer", "USDT", units("5000")).get();
+    engine.lock("buyer", "USDT", units("3000"), "order-b", null).get();
+    engine.deposit("seller", "BTC", units("1")).get();
+    engine.settle(new Settlement("settle-1", List.of(new Settlement.Trade("buyer", "seller", "BTC", "USDT",
+        units("0.05"), units("1500"), 0, "USDT", "order-b", null, false, false)))).get();
+    for (int i = 0; i < 100; i++) {
+      engine.deposit("u" + i, "ETH", units("1")).get();
+    }
+    assertEquals(102, engine.snapshot(snapshotDir, false));
+
+    engine.deposit("buyer", "USDT", units("1")).get();
+    engine.settle(new Settlement("settle-2", List.of(new Settlement.Trade("buyer", "seller", "BTC", "USDT",
+        units("0.05"), units("1500"), 0, "USDT", "order-b", null, true, false)))).get();
+    engine.close();
+
+    engine = start(snapshotDir);
+    assertEquals(new Balances("2001", "0"), balances("buyer", "USDT"));
+    assertEquals(new Balances("0.1", "0"), balances("buyer", "BTC"));
+    assertEquals(new Balances("3000", "0"), balances("seller", "USDT"));
+    assertEquals(new Balances("1", "0"), balances("u99", "ETH"));
+    // 台帳索引由快照載入，接上快照之後重播的入金、結算扣款、入帳
+    LedgerPage buyerLedger = engine.ledger("buyer", null, null, 50).get();
+    assertEquals(7, buyerLedger.items().size());
+    assertEquals("DEPOSIT", buyerLedger.items().get(buyerLedger.items().size() - 1).reason());
+    assertEquals(1, engine.ledger("u99", null, null, 50).get().items().size());
+    assertEquals(2, engine.ledger("buyer", "BTC", null, 50).get().items().size());
+    for (String settlementId : List.of("settle-1", "settle-2")) {
+      WalletException duplicate = assertThrows(WalletException.class,
+          () -> engine.settle(new Settlement(settlementId, List.of(new Settlement.Trade("buyer", "seller", "BTC",
+              "USDT", 1, 1, 0, "USDT")))));
+      assertEquals("WALLET_DUPLICATE_SETTLEMENT", duplicate.getCode());
+    }
+  }
+
+  @Test
+  void snapshotShouldRestoreReservationsAndAllowDeletingTheJournal() throws Exception {
+    Path snapshotDir = journalDir.resolve("snapshot");
+    engine = start(null);
+    engine.deposit("u1", "USDT", units("1000")).get();
+    engine.lock("u1", "USDT", units("300"), "order-1", null).get();
+    engine.snapshot(snapshotDir, true);
+    engine.unlock("u1", "USDT", units("100"), "order-1", null).get();
+    engine.close();
+
+    engine = start(snapshotDir);
+    assertEquals(new Balances("800", "200"), balances("u1", "USDT"));
+    assertEquals(units("200"), engine.unlock("u1", "USDT", units("500"), "order-1", null).get().released());
+    engine.snapshot(snapshotDir, true);
+    engine.close();
+
+    engine = start(snapshotDir);
+    assertEquals(new Balances("1000", "0"), balances("u1", "USDT"));
+    assertEquals(0, engine.unlock("u1", "USDT", units("1"), "order-1", null).get().released());
+  }
+
+  @Test
+  void lockArrivingAfterLockCancelShouldBeRejectedAcrossRestart() throws Exception {
+    Path snapshotDir = journalDir.resolve("snapshot");
+    engine = start(null);
+    engine.deposit("u1", "USDT", units("1000")).get();
+    // 鎖定逾時：撤回先到、鎖定後到
+    assertEquals(0, engine.unlock("u1", "USDT", Long.MAX_VALUE, "order-1", BalanceEngine.LOCK_CANCEL).get()
+        .released());
+    assertEquals(0, engine.unlock("u1", "USDT", Long.MAX_VALUE, "order-1", BalanceEngine.LOCK_CANCEL).get()
+        .released());
+    ExecutionException e = assertThrows(ExecutionException.class,
+        () -> engine.lock("u1", "USDT", units("100"), "order-1", null).get());
+    assertEquals("WALLET_LOCK_CANCELLED", ((WalletException) e.getCause()).getCode());
+    // 鎖定先到時撤回照常解鎖
+    engine.lock("u1", "USDT", units("100"), "order-2", null).get();
+    assertEquals(units("100"), engine.unlock("u1", "USDT", Long.MAX_VALUE, "order-2", BalanceEngine.LOCK_CANCEL)
+        .get().released());
+    assertEquals(new Balances("1000", "0"), balances("u1", "USDT"));
+    engine.close();
+
+    // 標記由 journal 重建，也隨快照保存
+    engine = start(null);
+    assertThrows(ExecutionException.class, () -> engine.lock("u1", "USDT", units("100"), "order-1", null).get());
+    engine.snapshot(snapshotDir, true);
+    engine.close();
+
+    engine = start(snapshotDir);
+    assertThrows(ExecutionException.class, () -> engine.lock("u1", "USDT", units("100"), "order-1", null).get());
+    assertEquals(new Balances("1000", "0"), balances("u1", "USDT"));
+  }
+
+  @Test
+  void concurrentDepositsShouldNotLoseUpdates() throws Exception {
+    engine = start();
+    CompletableFuture<?>[] futures = new CompletableFuture<?>[10_000];
+    for (int i = 0; i < futures.length; i++) {
+      futures[i] = engine.deposit("u" + (i % 10), "USDT", ONE);
+    }
+    CompletableFuture.allOf(futures).get();
+
+    for (int u = 0; u < 10; u++) {
+      assertEquals(1000 * ONE, engine.balances("u" + u, "USDT").get().get(0).available());
+    }
+  }
+
+  private static long units(String text) {
+    return FixedPoint.parse(text, SCALE);
+  }
+
+  private BalanceEngine start() throws IOException {
+    return start(null);
+  }
+
+  private BalanceEngine start(Path snapshotDir) throws IOException {
+    return start(snapshotDir, null);
+  }
+
+  private BalanceEngine start(Path snapshotDir, IdempotencyRecorder recorder) throws IOException {
+    BalanceEngine started = new BalanceEngine(4, 16_384, 256, shard -> {
+      try {
+        return new MappedJournal(journalDir.resolve("shard-" + shard), MappedJournal.MIN_SEGMENT_SIZE, false);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }, null);
+    if (recorder != null) {
+      started.idempotencyRecorder(recorder);
+    }
+    started.start(snapshotDir);
+    return started;
+  }
+
+  private Balances balances(String userId, String asset) throws Exception {
+    BalanceView view = engine.balances(userId, asset).get().get(0);
+    return new Balances(view.available(), view.locked());
+  }
+
+  private record Balances(long available, long locked) {
+
+    Balances(String available, String locked) {
+      this(units(available), units(locked));
+    }
+  }
+}
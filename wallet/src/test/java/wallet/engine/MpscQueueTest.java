@@ -0,0 +1,74 @@
+package wallet.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MpscQueueTest {
+
+  @Test
+  void rejectsOffersBeyondCapacity() {
+    MpscQueue<Integer> queue = new MpscQueue<>(3);
+    for (int i = 0; i < 4; i++) {
+      assertTrue(queue.offer(i));
+    }
+    assertFalse(queue.offer(4));
+    assertEquals(4, queue.size());
+
+    assertEquals(0, queue.poll());
+    assertTrue(queue.offer(4));
+    List<Integer> drained = new ArrayList<>();
+    assertEquals(3, queue.drainTo(drained, 3));
+    assertEquals(List.of(1, 2, 3), drained);
+    assertEquals(4, queue.poll());
+    assertNull(queue.poll());
+    assertTrue(queue.isEmpty());
+  }
+
+  @Test
+  void keepsPerProducerOrderUnderContention() throws Exception {
+    int producers = 4;
+    int perProducer = 200_000;
+    MpscQueue<Long> queue = new MpscQueue<>(1024);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    for (int p = 0; p < producers; p++) {
+      long producer = p;
+      Thread thread = new Thread(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        for (long i = 0; i < perProducer; i++) {
+          while (!queue.offer(producer << 32 | i)) {
+            Thread.onSpinWait();
+          }
+        }
+      });
+      thread.start();
+      threads.add(thread);
+    }
+
+    long[] next = new long[producers];
+    start.countDown();
+    for (int received = 0; received < producers * perProducer; ) {
+      Long value = queue.poll();
+      if (value == null) {
+        Thread.onSpinWait();
+        continue;
+      }
+      int producer = (int) (value >>> 32);
+      assertEquals(next[producer]++, value & 0xFFFFFFFFL);
+      received++;
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertTrue(queue.isEmpty());
+  }
+}
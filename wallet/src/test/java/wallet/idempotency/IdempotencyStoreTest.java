@@ -0,0 +1,134 @@
+package wallet.idempotency;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import wallet.idempotency.IdempotencyStore.Outcome;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyStoreTest {
+
+  private static final long TTL = 60_000;
+  private static final long NOW = 1_700_000_000_000L;
+
+  @TempDir
+  Path dir;
+
+  private static long high(long i) {
+    return (i * 0x9E3779B97F4A7C15L) | 1L;
+  }
+
+  private static long low(long i) {
+    return Long.rotateLeft(i * 0xC2B2AE3D27D4EB4FL, 17);
+  }
+
+  @Test
+  void replaysCompletedResponseForSameRequest() {
+    IdempotencyStore store = new IdempotencyStore(1000, TTL, 4);
+    byte[] body = "{\"ok\":true}".getBytes(StandardCharsets.UTF_8);
+
+    assertEquals(Outcome.PROCEED, store.begin(high(1), low(1), 42, NOW).outcome());
+    assertEquals(Outcome.IN_PROGRESS, store.begin(high(1), low(1), 42, NOW).outcome());
+    store.complete(high(1), low(1), 200, body, NOW);
+
+    IdempotencyStore.Lookup replay = store.begin(high(1), low(1), 42, NOW + 1);
+    assertEquals(Outcome.REPLAY, replay.outcome());
+    assertEquals(200, replay.status());
+    assertArrayEquals(body, replay.body());
+    assertEquals(Outcome.MISMATCH, store.begin(high(1), low(1), 43, NOW + 1).outcome());
+  }
+
+  @Test
+  void journaledKeysCompletePendingEntriesAndAreRebuiltOnReplay() {
+    IdempotencyStore store = new IdempotencyStore(1000, TTL, 4);
+    byte[] body = "{\"ok\":true}".getBytes(StandardCharsets.UTF_8);
+
+    // 寫入 journal 後、回覆之前
+    assertEquals(Outcome.PROCEED, store.begin(high(1), low(1), 42, NOW).outcome());
+    store.completeJournaled(high(1), low(1), 42, 200, body, NOW, NOW);
+    assertEquals(Outcome.REPLAY, store.begin(high(1), low(1), 42, NOW + 1).outcome());
+    store.complete(high(1), low(1), 200, new byte[0], NOW + 1);
+    assertArrayEquals(body, store.begin(high(1), low(1), 42, NOW + 1).body());
+
+    // 重播：不存在時加入，已過期的略過
+    store.completeJournaled(high(2), low(2), 7, 200, body, NOW, NOW + 1);
+    assertEquals(Outcome.REPLAY, store.begin(high(2), low(2), 7, NOW + 1).outcome());
+    store.completeJournaled(high(3), low(3), 7, 200, body, NOW - TTL, NOW);
+    assertEquals(Outcome.PROCEED, store.begin(high(3), low(3), 7, NOW).outcome());
+  }
+
+  @Test
+  void abandonedAndExpiredKeysCanBeReused() {
+    IdempotencyStore store = new IdempotencyStore(1000, TTL, 4);
+
+    assertEquals(Outcome.PROCEED, store.begin(high(1), low(1), 1, NOW).outcome());
+    store.abandon(high(1), low(1));
+    assertEquals(0, store.size());
+    assertEquals(Outcome.PROCEED, store.begin(high(1), low(1), 2, NOW).outcome());
+    store.complete(high(1), low(1), 400, new byte[0], NOW);
+
+    assertEquals(Outcome.PROCEED, store.begin(high(1), low(1), 3, NOW + TTL).outcome());
+    assertEquals(1, store.size());
+  }
+
+  @Test
+  void rejectsNewKeysWhenFullUntilEntriesExpire() {
+    IdempotencyStore store = new IdempotencyStore(100, TTL, 1);
+    for (int i = 0; i < 100; i++) {
+      assertEquals(Outcome.PROCEED, store.begin(high(i), low(i), i, NOW).outcome());
+      store.complete(high(i), low(i), 200, new byte[0], NOW);
+    }
+    assertEquals(Outcome.FULL, store.begin(high(100), low(100), 0, NOW).outcome());
+    assertEquals(Outcome.REPLAY, store.begin(high(5), low(5), 5, NOW).outcome());
+
+    assertEquals(Outcome.PROCEED, store.begin(high(100), low(100), 0, NOW + TTL).outcome());
+    assertEquals(1, store.size());
+  }
+
+  @Test
+  void growsAndPurgesWithoutLosingLiveKeys() {
+    IdempotencyStore store = new IdempotencyStore(50_000, TTL, 8);
+    for (int i = 0; i < 40_000; i++) {
+      long now = i < 20_000 ? NOW : NOW + TTL / 2;
+      assertEquals(Outcome.PROCEED, store.begin(high(i), low(i), i, now).outcome());
+      store.complete(high(i), low(i), 200, new byte[] {(byte) i}, now);
+    }
+    assertEquals(40_000, store.size());
+
+    assertEquals(20_000, store.purgeExpired(NOW + TTL));
+    assertEquals(20_000, store.size());
+    for (int i = 20_000; i < 40_000; i += 997) {
+      IdempotencyStore.Lookup lookup = store.begin(high(i), low(i), i, NOW + TTL);
+      assertEquals(Outcome.REPLAY, lookup.outcome());
+      assertEquals((byte) i, lookup.body()[0]);
+    }
+  }
+
+  @Test
+  void snapshotRestoresCompletedEntriesOnly() throws IOException {
+    Path file = dir.resolve("idempotency.snapshot");
+    IdempotencyStore store = new IdempotencyStore(1000, TTL, 4);
+    for (int i = 0; i < 10; i++) {
+      store.begin(high(i), low(i), i, NOW);
+      if (i < 8) {
+        store.complete(high(i), low(i), 200 + i, ("body-" + i).getBytes(StandardCharsets.UTF_8), NOW + i * 1000);
+      }
+    }
+    assertEquals(8, store.snapshot(file, NOW));
+
+    IdempotencyStore restored = new IdempotencyStore(1000, TTL, 2);
+    // 過期時間為 NOW + TTL + i * 1000，i < 3 的已過期
+    assertEquals(5, restored.restore(file, NOW + TTL + 2500));
+    for (int i = 3; i < 8; i++) {
+      IdempotencyStore.Lookup lookup = restored.begin(high(i), low(i), i, NOW + TTL + 2500);
+      assertEquals(Outcome.REPLAY, lookup.outcome());
+      assertEquals(200 + i, lookup.status());
+      assertEquals("body-" + i, new String(lookup.body(), StandardCharsets.UTF_8));
+    }
+    assertEquals(Outcome.PROCEED, restored.begin(high(9), low(9), 9, NOW + TTL + 2500).outcome());
+  }
+}
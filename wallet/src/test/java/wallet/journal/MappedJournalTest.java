@@ -0,0 +1,207 @@
+package wallet.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import wallet.engine.LedgerEntry;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedJournalTest {
+
+  private static final int SEGMENT_SIZE = MappedJournal.MIN_SEGMENT_SIZE;
+
+  @TempDir
+  Path dir;
+
+  private static LedgerEntry entry(long entryId) {
+    return new LedgerEntry(entryId, "user-" + (entryId % 7), "USDT", entryId, -entryId,
+        entryId * 2, 0, "DEPOSIT", entryId % 2 == 0 ? "ref-" + entryId : null, 1_700_000_000_000L + entryId);
+  }
+
+  private static List<LedgerEntry> replay(Path dir) throws IOException {
+    List<LedgerEntry> entries = new ArrayList<>();
+    try (MappedJournal journal = new MappedJournal(dir, SEGMENT_SIZE, false)) {
+      journal.replay(entries::add);
+    }
+    return entries;
+  }
+
+  private List<Path> segments() throws IOException {
+    try (Stream<Path> files = Files.list(dir)) {
+      return files.sorted().toList();
+    }
+  }
+
+  @Test
+  void shouldReplayEntriesAfterReopen() throws IOException {
+    try (MappedJournal journal = new MappedJournal(dir, SEGMENT_SIZE, true)) {
+      journal.replay(e -> fail("journal should be empty"));
+      for (long id = 1; id <= 100; id++) {
+        journal.append(entry(id));
+      }
+      journal.flush();
+    }
+    List<LedgerEntry> replayed = replay(dir);
+    assertEquals(100, replayed.size());
+    assertEquals(entry(1), replayed.get(0));
+    assertEquals(entry(100), replayed.get(99));
+  }
+
+  @Test
+  void shouldRollSegmentsAndAppendAfterReplay() throws IOException {
+    // 每筆約 100 byte，寫超過兩個 segment
+    int count = 25_000;
+    try (MappedJournal journal = new MappedJournal(dir, SEGMENT_SIZE, false)) {
+      journal.replay(e -> {
+      });
+      for (long id = 1; id <= count; id++) {
+        journal.append(entry(id));
+      }
+      journal.flush();
+      assertTrue(journal.segmentCount() >= 3);
+    }
+    try (MappedJournal journal = new MappedJournal(dir, SEGMENT_SIZE, false)) {
+      journal.replay(e -> {
+      });
+      journal.append(entry(count + 1));
+      journal.flush();
+    }
+    List<LedgerEntry> replayed = replay(dir);
+    assertEquals(count + 1, replayed.size());
+    for (int i = 0; i < replayed.size(); i++) {
+      assertEquals(i + 1, replayed.get(i).entryId());
+    }
+  }
+
+  @Test
+  void shouldDropTornTailOfLastSegment() throws IOException {
+    try (MappedJournal journal = new MappedJournal(dir, SEGMENT_SIZE, false)) {
+      journal.replay(e -> {
+      });
+      for (long id = 1; id <= 3; id++) {
+        journal.append(entry(id));
+      }
+      journal.flush();
+    }
+    // 模擬最後一筆寫到一半：破壞 payload 的最後一個 byte
+    Path segment = segments().get(0);
+    List<LedgerEntry> before = replay(dir);
+    int tail = tailOffset(segment, 3);
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+      channel.write(java.nio.ByteBuffer.wrap(new byte[]{0x7F}), tail - 1);
+    }
+
+    try (MappedJournal journal = new MappedJournal(dir, SEGMENT_SIZE, false)) {
+      List<LedgerEntry> replayed = new ArrayList<>();
+      journal.replay(replayed::add);
+      assertEquals(before.subList(0, 2), replayed);
+      journal.append(entry(4));
+      journal.flush();
+    }
+    assertEquals(List.of(1L, 2L, 4L), replay(dir).stream().map(LedgerEntry::entryId).toList());
+  }
+
+  @Test
+  void shouldRejectCorruptionInSealedSegment() throws IOException {
+    try (MappedJournal journal = new MappedJournal(dir, SEGMENT_SIZE, false)) {
+      journal.replay(e -> {
+      });
+      for (long id = 1; id <= 20_000; id++) {
+        journal.append(entry(id));
+      }
+      journal.flush();
+    }
+    Path first = segments().get(0);
+    try (FileChannel channel = FileChannel.open(first, StandardOpenOption.WRITE)) {
+      channel.write(java.nio.ByteBuffer.wrap(new byte[]{0x7F}), MappedJournal.HEADER_SIZE + 20);
+    }
+    assertThrows(IOException.class, () -> replay(dir));
+  }
+
+  @Test
+  void deleteBeforeShouldOnlyRemoveFullyCoveredSegments() throws IOException {
+    try (MappedJournal journal = new MappedJournal(dir, SEGMENT_SIZE, false)) {
+      journal.replay(e -> {
+      });
+      for (long id = 1; id <= 25_000; id++) {
+        journal.append(entry(id));
+      }
+      journal.flush();
+      int segments = journal.segmentCount();
+
+      assertEquals(0, journal.deleteBefore(1));
+      assertEquals(segments - 1, journal.deleteBefore(Long.MAX_VALUE));
+      assertEquals(1, journal.segmentCount());
+    }
+    List<LedgerEntry> replayed = replay(dir);
+    assertFalse(replayed.isEmpty());
+    assertEquals(25_000, replayed.get(replayed.size() - 1).entryId());
+  }
+
+  @Test
+  void replayFromEntryIdShouldSkipCoveredRecords() throws IOException {
+    try (MappedJournal journal = new MappedJournal(dir, SEGMENT_SIZE, false)) {
+      journal.replay(e -> {
+      });
+      for (long id = 1; id <= 25_000; id++) {
+        journal.append(entry(id));
+      }
+    }
+    List<LedgerEntry> tail = new ArrayList<>();
+    try (MappedJournal journal = new MappedJournal(dir, SEGMENT_SIZE, false)) {
+      journal.replay(20_001, tail::add);
+      assertEquals(5_000, tail.size());
+      assertEquals(20_001, tail.get(0).entryId());
+      // 重播後接在最後一筆之後寫入
+      journal.append(entry(25_001));
+    }
+    assertEquals(25_001, replay(dir).size());
+  }
+
+  @Test
+  void positionsShouldReadEntriesBackAcrossSegmentsAndReopen() throws IOException {
+    long[] positions = new long[25_001];
+    try (MappedJournal journal = new MappedJournal(dir, SEGMENT_SIZE, false)) {
+      journal.replay(e -> {
+      });
+      for (int id = 1; id <= 25_000; id++) {
+        positions[id] = journal.append(entry(id));
+      }
+      assertEquals(entry(1), journal.read(positions[1]));
+      assertEquals(entry(25_000), journal.read(positions[25_000]));
+      assertEquals(positions[1], journal.firstPosition());
+    }
+    try (MappedJournal journal = new MappedJournal(dir, SEGMENT_SIZE, false)) {
+      List<Long> replayed = new ArrayList<>();
+      journal.replayWithPosition(0, (e, position) -> replayed.add(position));
+      assertEquals(positions[12_345], replayed.get(12_344));
+      assertEquals(entry(12_345), journal.read(positions[12_345]));
+      // 刪除的 segment 讀不到
+      journal.deleteBefore(20_001);
+      assertNull(journal.read(positions[1]));
+      assertTrue(journal.firstPosition() > positions[1]);
+      assertEquals(entry(25_000), journal.read(positions[25_000]));
+    }
+  }
+
+  /** 第 n 筆紀錄結束的位置 */
+  private static int tailOffset(Path segment, int records) throws IOException {
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+      java.nio.MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      int position = MappedJournal.HEADER_SIZE;
+      for (int i = 0; i < records; i++) {
+        position += MappedJournal.RECORD_HEADER_SIZE + buffer.getInt(position);
+      }
+      return position;
+    }
+  }
+}